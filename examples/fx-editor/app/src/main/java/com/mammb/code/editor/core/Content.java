@@ -50,6 +50,7 @@ public interface Content {
     List<Point> redo();
 
     String getText(int row);
+    String getText(int row, int fromCol, int toCol);
     String getText(Point start, Point end);
     int rows();
     Optional<Path> path();
@@ -135,6 +136,17 @@ public interface Content {
             }
         }
 
+        @Override
+        public String getText(int row, int fromCol, int toCol) {
+            if (!flushes.isEmpty()) {
+                String text = getText(row);
+                int end = Math.min(toCol, text.length());
+                return text.substring(Math.min(fromCol, end), end);
+            } else {
+                return edit.getText(row, fromCol, toCol);
+            }
+        }
+
         @Override
         public String getText(Point start, Point end) {
             if (!flushes.isEmpty()) {
@@ -29,12 +29,16 @@ import java.util.stream.IntStream;
  */
 public class RowLayout implements ContentLayout {
 
+    /** The number of columns laid out beyond the both sides of the screen. */
+    private static final int MARGIN_COLS = 256;
+
+    private double screenWidth = 0;
+    private double xShift = 0;
     private final double lineHeight;
     private final double standardCharWidth;
     private final Content content;
     private final FontMetrics fm;
 
-
     public RowLayout(Content content, FontMetrics fm) {
         this.lineHeight = fm.getLineHeight();
         this.standardCharWidth = fm.getAdvance("0");
@@ -43,7 +47,12 @@ public class RowLayout implements ContentLayout {
     }
 
     public void setScreenWidth(double width) {
-        // nothing to do
+        this.screenWidth = width;
+    }
+
+    @Override
+    public void scrollX(double x) {
+        this.xShift = x;
     }
 
     public void refresh(int line) {
@@ -66,9 +75,17 @@ public class RowLayout implements ContentLayout {
                 .mapToObj(this::rowText).map(Text.class::cast).toList();
     }
 
+    /**
+     * Get the row text of the columns around the screen.
+     * The columns out of the window are laid out with the standard char width.
+     * @param line the line
+     * @return the row text of the window
+     */
     @Override
     public RowText rowText(int line) {
-        return rowTextAt(line);
+        int fromCol = (line < content.rows()) ? fromCol(line) : 0;
+        return RowText.of(line, content.getText(line, fromCol, toCol()),
+                fromCol, fromCol * standardCharWidth, fm);
     }
 
     @Override
@@ -83,7 +100,33 @@ public class RowLayout implements ContentLayout {
 
     @Override
     public int xToCol(int line, double x) {
-        return text(line).indexTo(x);
+        RowText text = rowText(line);
+        if (x < text.x()) {
+            // before the window
+            int col = (int) Math.max(0, x / standardCharWidth);
+            return snap(line, text.isEmpty() ? Math.min(col, endColOnRow(line)) : col);
+        }
+        double w = x - text.x();
+        if (w < text.width() || isTail(text)) {
+            return text.fromCol() + text.indexTo(w);
+        }
+        // after the window
+        long col = text.fromCol() + text.length()
+                + (long) Math.min(Integer.MAX_VALUE, (w - text.width()) / standardCharWidth);
+        return snap(line, (int) Math.min(col, endColOnRow(line)));
+    }
+
+    @Override
+    public double xOnLayout(int line, int col) {
+        RowText text = rowText(line);
+        int index = col - text.fromCol();
+        if (index < 0) {
+            return col * standardCharWidth;
+        } else if (index <= text.length()) {
+            return text.x() + text.widthTo(index);
+        } else {
+            return text.x() + text.width() + (index - text.length()) * standardCharWidth;
+        }
     }
 
     @Override
@@ -91,6 +134,35 @@ public class RowLayout implements ContentLayout {
         return 0;
     }
 
+    /**
+     * Get the end column of the row.
+     * If the window does not reach the end of the row, the end is searched
+     * by the column windows of a few chars, without decoding the whole row.
+     * @param line the line
+     * @return the end column of the row
+     */
+    @Override
+    public int endColOnRow(int line) {
+        RowText text = rowText(line);
+        if (isTail(text)) {
+            return text.fromCol() + text.textLength();
+        }
+        int lo = text.isEmpty() ? 0 : text.fromCol() + text.length();
+        int hi = lo;
+        for (int step = MARGIN_COLS; hi < Integer.MAX_VALUE - 2 && hasCol(line, hi); step <<= 1) {
+            lo = hi + 1;
+            hi = (int) Math.min(Integer.MAX_VALUE - 2L, (long) hi + step);
+        }
+        // the row length is in [lo, hi]
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hasCol(line, mid)) lo = mid + 1;
+            else hi = mid;
+        }
+        String tail = content.getText(line, lo - 2, lo);
+        return lo - (tail.endsWith("\r\n") ? 2 : tail.endsWith("\n") ? 1 : 0);
+    }
+
     @Override
     public double standardCharWidth() {
         return standardCharWidth;
@@ -135,4 +207,57 @@ public class RowLayout implements ContentLayout {
         }
     }
 
+    /**
+     * Get the head column of the window of the line.
+     * The column is snapped to the code point boundary.
+     * @param line the line
+     * @return the head column of the window
+     */
+    private int fromCol(int line) {
+        int col = (int) (xShift / standardCharWidth) - MARGIN_COLS;
+        // keeps the window while scrolling within the margin
+        return (col <= 0) ? 0 : snap(line, col - col % MARGIN_COLS);
+    }
+
+    private int toCol() {
+        return (int) Math.ceil((xShift + screenWidth) / standardCharWidth) + MARGIN_COLS;
+    }
+
+    /**
+     * Snaps the column back to the code point boundary.
+     * The window of the document ends before a surrogate pair split by the column,
+     * so the window up to the column is empty in that case.
+     * @param line the line
+     * @param col the column
+     * @return the snapped column
+     */
+    private int snap(int line, int col) {
+        if (col <= 0) return col;
+        String prev = content.getText(line, col - 1, col);
+        return (prev.isEmpty() || Character.isHighSurrogate(prev.charAt(prev.length() - 1)))
+                ? col - 1 : col;
+    }
+
+    /**
+     * Get whether the row has the specified column.
+     * @param line the line
+     * @param col the column
+     * @return {@code true} if the row has the column
+     */
+    private boolean hasCol(int line, int col) {
+        // two chars, not to be split in the middle of a surrogate pair
+        return !content.getText(line, col, col + 2).isEmpty();
+    }
+
+    /**
+     * Get whether the window of the text reaches the end of the row.
+     * The window can end a char short before a surrogate pair.
+     * @param text the row text of the window
+     * @return {@code true} if the window reaches the end of the row
+     */
+    private boolean isTail(RowText text) {
+        return (text.fromCol() == 0 || !text.isEmpty())
+                && text.length() + 1 < toCol() - text.fromCol();
+    }
+
 }
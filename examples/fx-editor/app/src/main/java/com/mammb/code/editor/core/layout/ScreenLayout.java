@@ -105,7 +105,7 @@ public interface ScreenLayout extends LineLayout {
                     texts = layout.texts(line, line - delta);
                     buffer.addAll(0, texts);
                 }
-                texts.stream().mapToDouble(Text::width)
+                texts.stream().mapToDouble(t -> t.x() + t.width())
                         .filter(w -> w > xMax).max()
                         .ifPresent(w -> xMax = w);
             } else {
@@ -117,6 +117,8 @@ public interface ScreenLayout extends LineLayout {
         @Override
         public void scrollX(double x) {
             xShift = x;
+            layout.scrollX(x);
+            fillBuffer();
         }
 
         @Override
@@ -260,7 +262,7 @@ public interface ScreenLayout extends LineLayout {
         private void fillBuffer() {
             buffer.clear();
             buffer.addAll(layout.texts(topLine, topLine + screenLineSize()));
-            buffer.stream().mapToDouble(Text::width)
+            buffer.stream().mapToDouble(t -> t.x() + t.width())
                     .filter(w -> w > xMax).max()
                     .ifPresent(w -> xMax = w);
         }
@@ -54,6 +54,11 @@ public class WrapLayout implements ContentLayout {
         refresh(0);
     }
 
+    @Override
+    public void scrollX(double x) {
+        // nothing to do
+    }
+
     public void refresh(int line) {
         lines.subList(line, lines.size()).clear();
         int i = 0;
@@ -75,7 +75,7 @@ public class TextEditorModel implements EditorModel {
         }
         double y = 0;
         for (Text text : view.texts()) {
-            double x = 0;
+            double x = text.x();
             var spans = syntax.apply(text.row(), text.value());
             for (StyledText st : StyledText.of(text).putAll(spans).build()) {
                 draw.text(st.value(), x + marginLeft - scroll.xVal(), y + marginTop, st.width(), st.styles());
@@ -160,9 +160,7 @@ public class TextEditorModel implements EditorModel {
     public void moveCaretRight(boolean withSelect) {
         for (Caret c : carets.carets()) {
             c.markIf(withSelect);
-            var text = view.rowTextAt(c.row());
-            if (text == null) continue;
-            int next = text.indexRight(c.col());
+            int next = colRight(c.row(), c.col());
             if (next <= 0) {
                 c.at(c.row() + 1, 0);
             } else {
@@ -177,16 +175,41 @@ public class TextEditorModel implements EditorModel {
             c.markIf(withSelect);
             if (c.isZero()) continue;
             if (c.col() == 0) {
-                var text = view.rowTextAt(c.row() - 1);
-                c.at(c.row() - 1, text.textLength());
+                int line = view.rowToLastLine(c.row() - 1);
+                c.at(c.row() - 1, view.endColOnRow(line));
             } else {
-                var text = view.rowTextAt(c.row());
-                int next = text.indexLeft(c.col());
-                c.at(c.row(), next);
+                c.at(c.row(), colLeft(c.row(), c.col()));
             }
         }
     }
 
+    /**
+     * Get the column on the right of the specified column,
+     * by the chars around the column rather than the whole row.
+     * @param row the row
+     * @param col the column
+     * @return the column on the right, or {@code -1} if the column is at the end of the row
+     */
+    private int colRight(int row, int col) {
+        String chars = content.getText(row, col, col + 2);
+        if (chars.isEmpty() || chars.charAt(0) == '\n' || chars.startsWith("\r\n")) {
+            return -1;
+        }
+        return col + (Character.isHighSurrogate(chars.charAt(0)) ? 2 : 1);
+    }
+
+    /**
+     * Get the column on the left of the specified column,
+     * by the chars around the column rather than the whole row.
+     * @param row the row
+     * @param col the column
+     * @return the column on the left
+     */
+    private int colLeft(int row, int col) {
+        String chars = content.getText(row, col - 2, col);
+        return col - ((!chars.isEmpty() && Character.isLowSurrogate(chars.charAt(chars.length() - 1))) ? 2 : 1);
+    }
+
     @Override
     public void moveCaretDown(boolean withSelect) {
         for (Caret c : carets.carets()) {
@@ -277,7 +300,7 @@ public class TextEditorModel implements EditorModel {
     public void clickDouble(double x, double y) {
         int line = view.yToLineOnScreen(y - marginTop);
         var text = view.text(line);
-        double xp = 0;
+        double xp = text.x();
         for (var word : text.words()) {
             if (xp + word.width() > x - marginLeft) {
                 Caret c = carets.getFirst();
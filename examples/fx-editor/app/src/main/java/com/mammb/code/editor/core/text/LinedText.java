@@ -30,6 +30,7 @@ public interface LinedText extends Text {
             @Override public double[] advances() { return peer.advances(); }
             @Override public double width() { return peer.width(); }
             @Override public double height() { return peer.height(); }
+            @Override public double x() { return peer.x(); }
             @Override public int line() { return line; }
         }
         return new LinedTextRecord(line, text);
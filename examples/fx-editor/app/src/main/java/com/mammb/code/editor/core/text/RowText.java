@@ -23,11 +23,26 @@ import com.mammb.code.editor.core.FontMetrics;
  */
 public interface RowText extends LinedText {
 
+    int fromCol();
+
     default int line() {
         return row();
     }
 
     static RowText of(int row, String text, FontMetrics fm) {
+        return of(row, text, 0, 0, fm);
+    }
+
+    /**
+     * Create the row text of a column window of the row.
+     * @param row the row
+     * @param text the text of the window
+     * @param fromCol the column of the head of the window in the row
+     * @param x the x position of the head of the window
+     * @param fm the font metrics
+     * @return the row text
+     */
+    static RowText of(int row, String text, int fromCol, double x, FontMetrics fm) {
         double width = 0;
         double[] advances = new double[text.length()];
         for (int i = 0; i < text.length(); i++) {
@@ -43,11 +58,11 @@ public interface RowText extends LinedText {
                 width += advances[i] = fm.getAdvance(ch1);
             }
         }
-        return new RowTextRecord(row, text, advances, width, fm.getLineHeight());
+        return new RowTextRecord(row, text, advances, width, fm.getLineHeight(), fromCol, x);
     }
 
-    record RowTextRecord(int row, String value, double[] advances, double width, double height)
-            implements RowText {
+    record RowTextRecord(int row, String value, double[] advances, double width, double height,
+                         int fromCol, double x) implements RowText {
     }
 
 }
@@ -36,6 +36,10 @@ public interface Text {
 
     double height();
 
+    default double x() {
+        return 0;
+    }
+
     default int length() {
         return value().length();
     }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable;
+
+/**
+ * The statistics of a cache.
+ * @param hits the number of lookups that hit the cache
+ * @param misses the number of lookups that missed the cache
+ * @param size the current size of the cache
+ * @param capacity the max size of the cache
+ * @author Naotsugu Kobayashi
+ */
+public record CacheStats(long hits, long misses, long size, long capacity) {
+
+    /**
+     * Get the ratio of the lookups that hit the cache.
+     * @return the hit rate, {@code 0} if there has been no lookup
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+}
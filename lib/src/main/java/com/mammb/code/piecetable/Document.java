@@ -19,6 +19,7 @@ import com.mammb.code.piecetable.text.DocumentImpl;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -53,6 +54,24 @@ public interface Document {
      */
     CharSequence getText(int row);
 
+    /**
+     * Gets the char sequence of the specified rows.
+     * The bytes of the rows are read at once and decoded at once,
+     * rather than row by row.
+     * @param startRow the start row(zero origin)
+     * @param endRowExclusive the end row, exclusive
+     * @return the char sequence of the specified rows
+     */
+    CharSequence getText(int startRow, int endRowExclusive);
+
+    /**
+     * Gets the char sequence of the specified range.
+     * @param start the start position, the column is the char position on the row
+     * @param end the end position, the column is the char position on the row
+     * @return the char sequence of the specified range
+     */
+    CharSequence getText(Pos start, Pos end);
+
     /**
      * Usually use {@link Document#insert(int, int, CharSequence)}.
      * Inserts the byte array into this {@code Document}.
@@ -71,6 +90,23 @@ public interface Document {
      */
     void delete(int row, int rawCol, int rawLen);
 
+    /**
+     * Usually use {@link TextEdit#replaceAll(SearchContext.Spec, String)}.
+     * Replaces the byte ranges of the bulk at once, in a single pass over the pieces and the rows.
+     * @param bulk the bulk to be replaced
+     * @return the bulk which reverts the replacement
+     */
+    Bulk replace(Bulk bulk);
+
+    /**
+     * Usually use {@link TextEdit#replaceAll(SearchContext.Spec, String)}.
+     * Creates the bulk which replaces all the occurrences of the specified search specification.
+     * @param spec the search specification
+     * @param replacement the literal replacement
+     * @return the bulk
+     */
+    Bulk bulkOf(SearchContext.Spec spec, CharSequence replacement);
+
     /**
      * Usually use {@link Document#get(int)}.
      * Gets the byte array at the specified position.
@@ -112,10 +148,18 @@ public interface Document {
 
     /**
      * Get the row size.
+     * While the document is loading, the row size grows as the indexing proceeds.
      * @return the row size
      */
     int rows();
 
+    /**
+     * Get whether the document is still being indexed in the background.
+     * Queries for rows beyond the indexed frontier wait until they are indexed.
+     * @return {@code true} if the document is loading
+     */
+    boolean loading();
+
     /**
      * Get the byte length of this document holds.
      * Not the java's UTF-16 encoded memory size.
@@ -140,6 +184,32 @@ public interface Document {
      */
     Pos pos(long serial);
 
+    /**
+     * Get the char offset from the specified byte offset.
+     * The char offset is counted in UTF-16 code units from the beginning of the document.
+     * The index of the char lengths is built at the first call, and is kept up to date by the edits,
+     * so that the following calls are done in {@code O(log n)}.
+     * @param byteOffset the byte offset, which does not include bom
+     * @return the char offset
+     */
+    long charOffset(long byteOffset);
+
+    /**
+     * Get the byte offset from the specified char offset.
+     * @param charOffset the char offset counted in UTF-16 code units
+     * @return the byte offset, which does not include bom
+     * @see #charOffset(long)
+     */
+    long byteOffset(long charOffset);
+
+    /**
+     * Get the statistics of the cache of the decoded row text, which is used by {@link #getText(int)}.
+     * The capacity of the cache in chars can be changed by the system property
+     * {@code com.mammb.code.piecetable.text.rowTextCache}.
+     * @return the statistics of the cache
+     */
+    CacheStats textCacheStats();
+
     /**
      * Get the charset.
      * @return the charset
@@ -177,6 +247,19 @@ public interface Document {
      */
     void write(Path path);
 
+    /**
+     * Writes the contents of a document to the specified path, converting into the specified charset.
+     * The contents are streamed through the fixed-size buffers, so that a huge document
+     * can be converted with constant memory.
+     * The bom is written only if the charset is the same as the charset of this document.
+     * This document is not changed, to edit the converted contents, open the written path.
+     * @param path the specified path, which must not be the path of this document
+     * @param charset the charset to be written
+     * @param rowEnding the row ending to be unified, {@code null} to keep the row endings as they are
+     * @throws IllegalArgumentException if the path is the path of this document
+     */
+    void write(Path path, Charset charset, RowEnding rowEnding);
+
     /**
      * Closes the document and releases any associated resources.
      */
@@ -188,6 +271,15 @@ public interface Document {
      */
     SearchContext search();
 
+    /**
+     * Builds the trigram index which narrows the literal search of a huge document down to the candidate blocks.
+     * The index is loaded from the sidecar file if it is of the current document file,
+     * otherwise built in parallel and saved to the sidecar file.
+     * The edits invalidate the index of the edited blocks only.
+     * @param sidecar the path of the index file, {@code null} to keep the index in memory only
+     */
+    void searchIndex(Path sidecar);
+
     /**
      * Create a new {@link Document}.
      * @return a new {@link Document}
@@ -231,4 +323,72 @@ public interface Document {
         return DocumentImpl.of(path, listener, charsetMatches);
     }
 
+    /**
+     * Load a new {@link Document} in the background.
+     * The chunks of the file are read on the specified executor, up to the parallelism at once.
+     * {@snippet :
+     * try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+     *     var handle = Document.load(path, executor, 4, null);
+     *     // handle.cancel(); to abort the loading
+     *     Document doc = handle.future().join();
+     * }
+     * }
+     * @param path the {@link Path} of the document
+     * @param executor the executor that runs the loading
+     * @param parallelism the max number of chunks read at once
+     * @param listener the progress listener, may be {@code null}
+     * @param charsetMatches the charset matches
+     * @return the handle of the loading
+     */
+    static LoadHandle<Document> load(Path path, Executor executor, int parallelism,
+            Consumer<Segment> listener, CharsetMatch... charsetMatches) {
+        return DocumentImpl.load(path, executor, parallelism, listener, charsetMatches);
+    }
+
+    /**
+     * Create a new {@link Document} that becomes readable as soon as the head chunk is indexed.
+     * The rest of the file is indexed in the background.
+     * {@snippet :
+     * var doc = Document.progressiveOf(path, seg -> {});
+     * doc.getText(0); // available immediately
+     * doc.loading();  // true while the indexing continues
+     * }
+     * @param path the {@link Path} of the document
+     * @param listener the progress listener, called from the background thread
+     * @param charsetMatches the charset matches
+     * @return a new {@link Document}
+     */
+    static Document progressiveOf(Path path, Consumer<Segment> listener, CharsetMatch... charsetMatches) {
+        return DocumentImpl.progressiveOf(path, listener, charsetMatches);
+    }
+
+    /**
+     * The byte ranges to be replaced at once.
+     * The byte offsets do not include bom.
+     * @param offsets the byte offsets of the ranges, ascending and not overlapping
+     * @param rawLens the byte lengths of the ranges
+     * @param bytes the bytes to be replaced with (The value must be encoded in the appropriate Charset)
+     * @param bytesLens the byte length of each replacement in the bytes,
+     *        {@code null} if every range is replaced with the whole bytes
+     */
+    record Bulk(long[] offsets, int[] rawLens, byte[] bytes, int[] bytesLens) {
+
+        /**
+         * Get the number of the ranges.
+         * @return the number of the ranges
+         */
+        public int size() {
+            return offsets.length;
+        }
+
+        /**
+         * Get the byte length of the replacement of the specified range.
+         * @param i the index of the range
+         * @return the byte length of the replacement
+         */
+        public int bytesLen(int i) {
+            return (bytesLens == null) ? bytes.length : bytesLens[i];
+        }
+    }
+
 }
@@ -16,6 +16,7 @@
 package com.mammb.code.piecetable;
 
 import com.mammb.code.piecetable.text.Reader;
+import com.mammb.code.piecetable.text.SampledStatImpl;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 
@@ -70,4 +71,16 @@ public interface DocumentStat {
         return Reader.of(path, rowLimit, matches);
     }
 
+    /**
+     * Create a new {@link SampledStat}, which reads the head, the tail and the evenly spaced
+     * blocks of the file, so that the cost does not depend on the file size.
+     * @param path the path to be read
+     * @param samples the number of blocks sampled between the head and the tail
+     * @param matches the {@link CharsetMatch} used in reading the target file
+     * @return a new {@link SampledStat}
+     */
+    static SampledStat sampleOf(Path path, int samples, CharsetMatch... matches) {
+        return SampledStatImpl.of(path, samples, matches);
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The handle of a loading running in the background.
+ * @param <T> the type of the loaded value
+ * @author Naotsugu Kobayashi
+ */
+public interface LoadHandle<T> {
+
+    /**
+     * Requests to cancel the loading.
+     * The future completes exceptionally with the {@link java.util.concurrent.CancellationException}
+     * after the resources used in the loading are released.
+     */
+    void cancel();
+
+    /**
+     * Get whether the cancellation has been requested.
+     * @return {@code true} if the cancellation has been requested
+     */
+    boolean isCancelled();
+
+    /**
+     * Get the progress of the loading.
+     * @return the progress of the loading
+     */
+    Segment progress();
+
+    /**
+     * Get the future completed with the loaded value.
+     * @return the future completed with the loaded value
+     */
+    CompletableFuture<T> future();
+
+}
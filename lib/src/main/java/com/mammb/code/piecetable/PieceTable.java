@@ -75,6 +75,17 @@ public interface PieceTable {
      */
     void delete(long pos, int len);
 
+    /**
+     * Replaces the specified byte ranges at once.
+     * The pieces are rebuilt in a single pass, and the bytes are appended to the buffer only once.
+     * @param offsets the offsets of the ranges, ascending and not overlapping
+     * @param lens the lengths of the ranges
+     * @param bytes the bytes to be replaced with
+     * @param bytesLens the length of each replacement in the bytes,
+     *        {@code null} if every range is replaced with the whole bytes
+     */
+    void replace(long[] offsets, int[] lens, byte[] bytes, int[] bytesLens);
+
     /**
      * Get the byte array of the specified range of this piece table.
      * @param pos the start index of the range to be copied, inclusive
@@ -127,6 +138,7 @@ public interface PieceTable {
 
     /**
      * Reads the contents into the specified byte buffer.
+     * The reads are safe for the concurrent readers, as long as no edit runs at the same time.
      * @param offset the offset
      * @param length the length
      * @param bb byte buffer
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable;
+
+/**
+ * The document statistics estimated from the sampled blocks of a file.
+ * <p>
+ * The charset and the row ending are detected on the samples only,
+ * and the counts of {@link #crCount()} and {@link #lfCount()} are the counts in the samples.
+ * The row count is extrapolated from the row break density of the samples,
+ * with the bound of the 95% confidence interval.
+ * If the file is small enough to be read as a whole, the statistics are exact.
+ * @author Naotsugu Kobayashi
+ */
+public interface SampledStat extends DocumentStat {
+
+    /**
+     * Get the byte size of the file.
+     * @return the byte size of the file
+     */
+    long size();
+
+    /**
+     * Get the estimated row count.
+     * @return the estimated row count
+     */
+    long rows();
+
+    /**
+     * Get the half width of the 95% confidence interval of the row count,
+     * i.e. the row count is {@code rows() ± rowsError()}.
+     * @return the half width of the confidence interval, {@code 0} if exact
+     */
+    long rowsError();
+
+    /**
+     * Get the estimated average byte length of rows, including the row break.
+     * @return the estimated average byte length of rows
+     */
+    default double avgRowLength() {
+        return (double) (size() - bom().length) / Math.max(rows(), 1);
+    }
+
+    /**
+     * Get whether the statistics are exact, i.e. the whole file has been read.
+     * @return {@code true} if the statistics are exact
+     */
+    boolean exact();
+
+}
@@ -17,6 +17,7 @@ package com.mammb.code.piecetable;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -33,7 +34,9 @@ public interface SearchContext {
         /** case-insensitive. */
         CASE_INSENSITIVE,
         /** regex. */
-        REGEX
+        REGEX,
+        /** regex of the linear time engine, without the backreferences and the lookarounds. */
+        LINEAR_REGEX
     }
 
     /** direction. */
@@ -78,8 +81,24 @@ public interface SearchContext {
             return new Spec(pattern, PatternCase.REGEX);
         }
 
+        /**
+         * Create a new linear time regex {@link Spec}.
+         * @param pattern the pattern sequence
+         * @return a new linear time regex {@link Spec}
+         */
+        public Spec linearRegexOf(CharSequence pattern) {
+            return new Spec(pattern, PatternCase.LINEAR_REGEX);
+        }
+
     }
 
+    /**
+     * The found position tagged with the index of the search specification.
+     * @param index the index of the search specification
+     * @param posLen the found position
+     */
+    record IndexedPosLen(int index, PosLen posLen) { }
+
     /**
      * Search all.
      * @param spec the search specification
@@ -87,6 +106,55 @@ public interface SearchContext {
      */
     void findAll(Spec spec, Consumer<Segment.Valued<List<PosLen>>> consumer);
 
+    /**
+     * Search all asynchronously, running the search of each chunk as a task of the specified executor.
+     * The chunk tasks only read the document, which is read-only until they complete.
+     * The founds are converted into the positions and applied to this context on the owner executor,
+     * which runs the tasks in order on the thread owning this context, such as the UI thread.
+     * The founds of this context are replaced when the search completes, before the future of the handle
+     * completes, unless an edit or another search on this context has superseded it.
+     * Cancelling the handle stops all the chunk tasks from reading the document.
+     * @param spec the search specification
+     * @param executor the executor which runs the chunk tasks
+     * @param owner the executor which runs the tasks on the thread owning this context
+     * @param consumer the found consumer, called in order on the owner executor
+     * @return the handle of the search
+     */
+    SearchHandle findAll(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer);
+
+    /**
+     * Search all of the multiple specifications.
+     * The literal specifications are searched at once, as well as the case-insensitive ones.
+     * @param specs the search specifications
+     * @param consumer the found consumer, each found is tagged with the index of the specification
+     */
+    void findAll(List<Spec> specs, Consumer<Segment.Valued<List<IndexedPosLen>>> consumer);
+
+    /**
+     * Search all incrementally, as the pattern is typed.
+     * If the literal or case-insensitive pattern extends the pattern of the current founds,
+     * only the neighbourhood of the current founds is verified instead of rescanning.
+     * Otherwise, the whole is searched again asynchronously as {@link #findAll(Spec, Executor, Executor, Consumer)},
+     * and the current founds are kept until it completes.
+     * @param spec the search specification
+     * @param executor the executor which runs the chunk tasks of the rescan
+     * @param owner the executor which runs the tasks on the thread owning this context
+     * @param consumer the found consumer, called on the calling thread if refined, otherwise on the owner executor
+     * @return the handle of the search, which is completed if refined
+     */
+    SearchHandle findAllIncremental(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer);
+
+    /**
+     * Sets whether the founds of the last search of a single specification are kept live on the edits.
+     * In the live mode, each edit re-searches only the edited region, which is widened
+     * by the pattern length, or to the affected rows for the regex,
+     * and the new occurrences are merged into the founds.
+     * @param live whether the founds are kept live
+     */
+    void live(boolean live);
+
     /**
      * Search next on current context.
      * @param pos the base position
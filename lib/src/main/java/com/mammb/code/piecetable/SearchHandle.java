@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The handle of a search running on an executor.
+ * @author Naotsugu Kobayashi
+ */
+public interface SearchHandle {
+
+    /**
+     * Requests to cancel the search.
+     * All the chunk tasks stop reading the document, and the future completes exceptionally
+     * with the {@link java.util.concurrent.CancellationException} after the document is released.
+     */
+    void cancel();
+
+    /**
+     * Get whether the cancellation has been requested.
+     * @return {@code true} if the cancellation has been requested
+     */
+    boolean isCancelled();
+
+    /**
+     * Get the progress of the search.
+     * @return the progress of the search, in bytes
+     */
+    Segment progress();
+
+    /**
+     * Get the future completed when the search completes.
+     * The future completes on the owner executor, after the founds are applied to the search context.
+     * @return the future completed when the search completes
+     */
+    CompletableFuture<Void> future();
+
+}
@@ -113,6 +113,17 @@ public interface TextEdit {
      */
     List<Range> replace(List<Replace> requests);
 
+    /**
+     * Replace all the occurrences of the specified search specification at once.
+     * The occurrences are found on the bytes, and replaced in a single pass over the document,
+     * which is recorded as a single undo record.
+     * The replacement is literal, the group references of the regex are not expanded.
+     * @param spec the search specification
+     * @param replacement the replacement
+     * @return the number of the replaced occurrences
+     */
+    int replaceAll(SearchContext.Spec spec, String replacement);
+
     /**
      * Replace the text in the specified range from this {@code TextEdit}.
      * @param startRow the range start row
@@ -174,6 +185,17 @@ public interface TextEdit {
      */
     String getText(int startRow, int endRowExclusive);
 
+    /**
+     * Gets the text in the column window of the specified row.
+     * The columns beyond the end of the row are clamped, so that a part of a huge row
+     * can be obtained without decoding the whole row.
+     * @param row the number of rows (zero origin)
+     * @param fromCol the start col of the window
+     * @param toCol the end col of the window (exclusive)
+     * @return the text in the window
+     */
+    String getText(int row, int fromCol, int toCol);
+
     /**
       * Gets the text at the specified range.
       * @param startRow the start row
@@ -218,6 +240,12 @@ public interface TextEdit {
      */
     int rows();
 
+    /**
+     * Get whether the document is still being indexed in the background.
+     * @return {@code true} if the document is loading
+     */
+    boolean loading();
+
     /**
      * Get the byte length of this document holds.
      * Not the javas UTF-16 encoded memory size.
@@ -262,6 +290,15 @@ public interface TextEdit {
      */
     void write(Path path);
 
+    /**
+     * Writes the contents to the specified path, converting into the specified charset.
+     * @param path the specified path, which must not be the path of this document
+     * @param charset the charset to be written
+     * @param rowEnding the row ending to be unified, {@code null} to keep the row endings as they are
+     * @see Document#write(Path, Charset, RowEnding)
+     */
+    void write(Path path, Charset charset, RowEnding rowEnding);
+
     /**
      * Closes the current {@code TextEdit} instance and releases any system resources associated with it.
      */
@@ -301,6 +338,16 @@ public interface TextEdit {
         return new TextEditImpl(Document.of(path, listener));
     }
 
+    /**
+     * Create a new {@link TextEdit} that becomes readable before the whole file is indexed.
+     * @param path the path of the file to read
+     * @param listener the progress listener, called from the background thread
+     * @return a new {@link TextEdit}
+     */
+    static TextEdit progressiveOf(Path path, Consumer<Segment> listener) {
+        return new TextEditImpl(Document.progressiveOf(path, listener));
+    }
+
     /**
      * Create a new {@link TextEdit} from the specified byte array.
      * @param bytes the specified byte array
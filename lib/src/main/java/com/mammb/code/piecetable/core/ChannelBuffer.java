@@ -19,18 +19,19 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
- * A {@code ChannelBuffer} provides a mechanism to buffer bytes from a {@link SeekableByteChannel}.
+ * A {@code ChannelBuffer} provides a mechanism to buffer bytes from a {@link FileChannel}.
  * It implements the {@link Buffer} interface to allow reading bytes, extracting ranges of bytes,
  * and interacting with the underlying channel efficiently.
  * This class is also {@link Closeable}, enabling proper resource management.
+ * <p>
+ * The reads are safe for the concurrent readers. The channel is read at the absolute positions
+ * without moving the channel position, and the buffered window is an immutable snapshot
+ * which is replaced as a whole.
  * @author Naotsugu Kobayashi
  */
 public class ChannelBuffer implements Buffer, Closeable {
@@ -38,35 +39,28 @@ public class ChannelBuffer implements Buffer, Closeable {
     /** The size of the buffer. */
     static final short PREF_BUF_SIZE = 1024 * 8;
 
-    /** The empty byte array. */
-    private static final byte[] EMPTY = {};
-
     /** The source channel. */
-    private final SeekableByteChannel ch;
+    private final FileChannel ch;
 
     /** The current size of the entity to which this channel is connected. */
     private final long length;
 
-    /** The byte buffer. */
-    private byte[] buffer;
-
-    /** The offset of the buffer. */
-    private long offset;
+    /** The buffered window. */
+    private volatile Window window;
 
 
     /**
      * Create a new {@link ChannelBuffer}.
      * @param ch the source channel
      */
-    private ChannelBuffer(SeekableByteChannel ch) {
+    private ChannelBuffer(FileChannel ch) {
         try {
             this.length = ch.size();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
         this.ch = ch;
-        this.buffer = EMPTY;
-        this.offset = 0;
+        this.window = Window.EMPTY;
     }
 
 
@@ -90,10 +84,11 @@ public class ChannelBuffer implements Buffer, Closeable {
             throw new IndexOutOfBoundsException(
                 "index[%d], length[%d]".formatted(index, length));
         }
-        if (buffer == EMPTY || index < offset || index >= offset + buffer.length) {
-            fillBuffer(index, Math.addExact(index, PREF_BUF_SIZE));
+        Window w = window;
+        if (!w.contains(index, index + 1)) {
+            w = window = fill(index, Math.addExact(index, PREF_BUF_SIZE));
         }
-        return buffer[Math.toIntExact(index - offset)];
+        return w.bytes[Math.toIntExact(index - w.offset)];
     }
 
 
@@ -105,17 +100,18 @@ public class ChannelBuffer implements Buffer, Closeable {
                 "from[%d], to[%d], length[%d]".formatted(from, to, length));
         }
 
-        if (buffer == EMPTY || from < offset || to > offset + buffer.length) {
-            fillBuffer(from, to);
-            if (buffer.length > PREF_BUF_SIZE << 8) {
-                // if too large, trim buffer
-                byte[] ret = buffer;
-                buffer = Arrays.copyOf(buffer, PREF_BUF_SIZE);
-                return ret;
+        Window w = window;
+        if (!w.contains(from, to)) {
+            w = fill(from, to);
+            if (w.bytes.length > PREF_BUF_SIZE << 8) {
+                // if too large, only the head is buffered
+                window = new Window(from, Arrays.copyOf(w.bytes, PREF_BUF_SIZE));
+                return w.bytes;
             }
+            window = w;
         }
-        return Arrays.copyOfRange(buffer,
-            Math.toIntExact(from - offset), Math.toIntExact(to - offset));
+        return Arrays.copyOfRange(w.bytes,
+            Math.toIntExact(from - w.offset), Math.toIntExact(to - w.offset));
     }
 
 
@@ -133,8 +129,8 @@ public class ChannelBuffer implements Buffer, Closeable {
     @Override
     public long read(long offset, long length, ByteBuffer buffer) {
         try {
-            int read = ch.position(offset).read(buffer);
-            if (read == length) return -1;
+            int read = ch.read(buffer, offset);
+            if (read < 0 || read == length) return -1;
             if (read > length) {
                 buffer.position(buffer.position() - Math.toIntExact(read - length));
                 return -1;
@@ -146,22 +142,39 @@ public class ChannelBuffer implements Buffer, Closeable {
     }
 
     /**
-     * Fill buffer.
+     * Reads the window of the channel.
      * @param from start position of a channel
      * @param to end position of a channel
+     * @return the window read
      */
-    private void fillBuffer(long from, long to) {
+    private Window fill(long from, long to) {
         try {
             var bb = ByteBuffer.allocate(
                 Math.toIntExact(Math.max(to - from, PREF_BUF_SIZE)));
-            ch.position(from);
-            ch.read(bb);
-            bb.flip();
-            buffer = Arrays.copyOf(bb.array(), bb.limit());
-            offset = from;
+            for (long pos = from; bb.hasRemaining(); ) {
+                int n = ch.read(bb, pos);
+                if (n < 0) break;
+                pos += n;
+            }
+            return new Window(from, Arrays.copyOf(bb.array(), bb.position()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * The buffered window of the channel.
+     * @param offset the offset of the window
+     * @param bytes the bytes of the window
+     */
+    private record Window(long offset, byte[] bytes) {
+
+        /** The empty window. */
+        static final Window EMPTY = new Window(0, new byte[0]);
+
+        boolean contains(long from, long to) {
+            return offset <= from && to <= offset + bytes.length;
+        }
+    }
+
 }
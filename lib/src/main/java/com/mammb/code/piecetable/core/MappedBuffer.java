@@ -101,13 +101,19 @@ public class MappedBuffer implements Buffer, Closeable {
 
     @Override
     public long read(long offset, long length, ByteBuffer buffer) {
-        long n = 0;
-        for (long i = offset; buffer.hasRemaining(); i++) {
-            buffer.put(get(i));
-            n++;
-            if (n == length) return -1;
+        int n = Math.toIntExact(Math.min(length, buffer.remaining()));
+        if (offset < 0 || offset + n > this.length) {
+            throw new IndexOutOfBoundsException(
+                "from[%d], to[%d], length[%d]".formatted(offset, offset + n, this.length));
+        }
+        // the slices do not move the position of the maps shared by the concurrent readers
+        for (long i = offset, end = offset + n; i < end;) {
+            int index = Math.toIntExact(i % chunkSize);
+            int len = Math.toIntExact(Math.min(end - i, chunkSize - index));
+            buffer.put(maps[Math.toIntExact(i / chunkSize)].slice(index, len));
+            i += len;
         }
-        return offset + n;
+        return (n == length) ? -1 : offset + n;
     }
 
     @Override
@@ -56,7 +56,8 @@ public class MemorySegmentBuffer implements Buffer, Closeable {
         try (FileChannel fc = file.getChannel(); FileLock lock = fc.tryLock()) {
             if (lock == null) throw new RuntimeException("locked:" + file);
             length = fc.size();
-            arena = Arena.ofConfined();
+            // shared, so that the segment is read by the concurrent readers
+            arena = Arena.ofShared();
             ms = fc.map(FileChannel.MapMode.READ_ONLY, 0, length, arena);
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -101,13 +102,9 @@ public class MemorySegmentBuffer implements Buffer, Closeable {
 
     @Override
     public long read(long offset, long length, ByteBuffer buffer) {
-        long n = 0;
-        for (long i = offset; buffer.hasRemaining(); i++) {
-            buffer.put(get(i));
-            n++;
-            if (n == length) return -1;
-        }
-        return offset + n;
+        int n = Math.toIntExact(Math.min(length, buffer.remaining()));
+        buffer.put(ms.asSlice(offset, n).asByteBuffer());
+        return (n == length) ? -1 : offset + n;
     }
 
     @Override
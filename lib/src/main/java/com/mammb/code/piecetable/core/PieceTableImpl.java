@@ -28,15 +28,20 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Function;
 
 /**
  * Implementation of the Piece Table data structure for efficient text editing operations.
  * The Piece Table allows for efficient insert, delete, and read operations by maintaining
  * references to original and modified data without directly modifying the underlying storage.
+ * <p>
+ * The reads are safe for the concurrent readers as long as no edit runs at the same time.
+ * The buffers are read at the absolute positions, and the points cache filled by the reads
+ * is a concurrent map.
  * @author Naotsugu Kobayashi
  */
 public class PieceTableImpl implements PieceTable {
@@ -51,7 +56,7 @@ public class PieceTableImpl implements PieceTable {
     /** The pieces. */
     private final List<Piece> pieces;
     /** The index of pieces. */
-    private final TreeMap<Long, PiecePoint> pointsCache;
+    private final NavigableMap<Long, PiecePoint> pointsCache;
     /** The total byte length of the piece table. */
     private long length;
 
@@ -70,7 +75,7 @@ public class PieceTableImpl implements PieceTable {
         this.sourcePath = path;
         this.appendBuffer = appendBuffer;
         this.pieces = new ArrayList<>();
-        this.pointsCache = new TreeMap<>();
+        this.pointsCache = new ConcurrentSkipListMap<>();
         this.length = 0;
         this.modCount = 0;
         this.gcInterval = 0;
@@ -187,6 +192,78 @@ public class PieceTableImpl implements PieceTable {
         if (gcInterval > 0 && gcInterval <= modCount && modCount % gcInterval == 0) gc();
     }
 
+    @Override
+    public void replace(long[] offsets, int[] lens, byte[] bytes, int[] bytesLens) {
+
+        if (offsets.length != lens.length || (bytesLens != null && bytesLens.length != offsets.length)) {
+            throw new IllegalArgumentException(
+                "offsets[%d], lens[%d]".formatted(offsets.length, lens.length));
+        }
+        if (offsets.length == 0) {
+            return;
+        }
+
+        long base = appendBuffer.length();
+        if (bytes.length > 0) {
+            appendBuffer.append(bytes);
+        }
+
+        // | piece | piece      | piece |
+        // |---copy---|-skip-|---copy---|-skip-|--copy--|
+        //            +-rep--+          +-rep--+
+        List<Piece> dest = new ArrayList<>(pieces.size() + offsets.length * 3);
+        long[] cursor = new long[2]; // { piece index, offset in the piece }
+        long pos = 0;
+        long bytesIndex = 0;
+        long delta = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] < pos || lens[i] < 0 || offsets[i] + lens[i] > length) {
+                throw new IndexOutOfBoundsException(
+                    "offset[%d], len[%d], length[%d]".formatted(offsets[i], lens[i], length));
+            }
+            advance(cursor, offsets[i] - pos, dest);
+            int len = (bytesLens == null) ? bytes.length : bytesLens[i];
+            if (len > 0) {
+                dest.add(new Piece(appendBuffer, base + bytesIndex, len));
+            }
+            if (bytesLens != null) bytesIndex += len;
+            advance(cursor, lens[i], null);
+            pos = offsets[i] + lens[i];
+            delta += len - lens[i];
+        }
+        advance(cursor, length - pos, dest);
+
+        pieces.clear();
+        pieces.addAll(dest);
+        pointsCache.clear();
+        length += delta;
+        modCount++;
+    }
+
+    /**
+     * Advances the cursor of the pieces by the specified length.
+     * @param cursor the cursor, {@code { piece index, offset in the piece }}
+     * @param len the length to advance
+     * @param dest the list to which the passed pieces are copied, {@code null} to skip them
+     */
+    private void advance(long[] cursor, long len, List<Piece> dest) {
+        while (len > 0) {
+            Piece piece = pieces.get((int) cursor[0]);
+            long take = Math.min(piece.length() - cursor[1], len);
+            if (dest != null) {
+                dest.add((take == piece.length())
+                    ? piece
+                    : new Piece(piece.target(), piece.bufIndex() + cursor[1], take));
+            }
+            len -= take;
+            cursor[1] += take;
+            if (cursor[1] == piece.length()) {
+                cursor[0]++;
+                cursor[1] = 0;
+            }
+        }
+    }
+
     @Override
     public byte[] get(long pos, int len) {
 
@@ -305,7 +382,10 @@ public class PieceTableImpl implements PieceTable {
         var bb = ByteBuffer.allocateDirect(1024 * 512);
         long len = 0;
         for (Piece piece : pieces) {
-            if ((len + piece.length()) < offset) continue;
+            if ((len + piece.length()) < offset) {
+                len += piece.length();
+                continue;
+            }
             long start = 0;
             if (len < offset && offset <= len + piece.length()) {
                 start = offset - len;
@@ -327,7 +407,10 @@ public class PieceTableImpl implements PieceTable {
         long limit = length;
         long len = 0;
         for (Piece piece : pieces) {
-            if ((len + piece.length()) < offset) continue;
+            if ((len + piece.length()) < offset) {
+                len += piece.length();
+                continue;
+            }
             long start = 0;
             if (len < offset && offset <= len + piece.length()) {
                 start = offset - len;
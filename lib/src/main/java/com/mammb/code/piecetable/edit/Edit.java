@@ -15,6 +15,7 @@
  */
 package com.mammb.code.piecetable.edit;
 
+import com.mammb.code.piecetable.Document;
 import com.mammb.code.piecetable.Pos;
 import java.util.Collections;
 import java.util.List;
@@ -24,7 +25,7 @@ import java.util.stream.Collectors;
 /**
  * Represents an Edit operation within a document.
  * This is a sealed interface with concrete implementations for different types of edits:
- * Insert (Ins), Delete (Del), and Composite edits (Cmp).
+ * Insert (Ins), Delete (Del), Composite edits (Cmp), and Bulk replacements (Blk).
  * <pre>
  *  delete
  * ==============================================
@@ -177,6 +178,7 @@ sealed interface Edit {
                 Collections.reverse(flipped);
                 yield new Cmp(flipped, e.occurredOn);
             }
+            case Blk e -> new Blk(e.reverse, e.bulk, e.occurredOn);
         };
     }
 
@@ -220,6 +222,14 @@ sealed interface Edit {
 
     record Cmp(List<? extends ConcreteEdit> edits, long occurredOn) implements Edit { }
 
+    /**
+     * The bulk replacement, applied to the document at once.
+     * @param bulk the bulk to be applied
+     * @param reverse the bulk which reverts the bulk to be applied
+     * @param occurredOn the occurrence time
+     */
+    record Blk(Document.Bulk bulk, Document.Bulk reverse, long occurredOn) implements Edit { }
+
     record Ins(Pos from, Pos to, String text, long occurredOn) implements ConcreteEdit {
         public Ins(Pos from, Pos to, String text) { this(from, to, text, System.currentTimeMillis()); }
     }
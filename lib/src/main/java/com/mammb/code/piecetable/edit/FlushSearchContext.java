@@ -18,9 +18,11 @@ package com.mammb.code.piecetable.edit;
 import com.mammb.code.piecetable.Pos;
 import com.mammb.code.piecetable.PosLen;
 import com.mammb.code.piecetable.SearchContext;
+import com.mammb.code.piecetable.SearchHandle;
 import com.mammb.code.piecetable.Segment;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 /**
@@ -51,6 +53,28 @@ public class FlushSearchContext implements SearchContext {
         sc.findAll(spec, consumer);
     }
 
+    @Override
+    public SearchHandle findAll(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer) {
+        return sc.findAll(spec, executor, owner, consumer);
+    }
+
+    @Override
+    public void findAll(List<Spec> specs, Consumer<Segment.Valued<List<IndexedPosLen>>> consumer) {
+        sc.findAll(specs, consumer);
+    }
+
+    @Override
+    public SearchHandle findAllIncremental(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer) {
+        return sc.findAllIncremental(spec, executor, owner, consumer);
+    }
+
+    @Override
+    public void live(boolean live) {
+        sc.live(live);
+    }
+
     @Override
     public Optional<PosLen> next(Pos pos, Direction direction) {
         return sc.next(pos, direction);
@@ -357,10 +357,9 @@ public class TextEditImpl implements TextEdit, Flushable {
         flush();
 
         List<Range> ranges = new ArrayList<>();
+        int diff = 0;
         for (int i = 0; i < serials.size(); i++) {
-            int diff = ranges.isEmpty()
-                ? 0
-                : shifts.stream().limit(i).mapToInt(l -> l).sum();
+            if (i > 0) diff += shifts.get(i - 1);
             long[] serial = serials.get(i);
             if (serial.length == 1) {
                 ranges.add(Range.of(
@@ -377,6 +376,19 @@ public class TextEditImpl implements TextEdit, Flushable {
         return requests.stream().sorted().map(requests::indexOf).map(ranges::get).toList();
     }
 
+    @Override
+    public int replaceAll(SearchContext.Spec spec, String replacement) {
+        flush();
+        Document.Bulk bulk = doc.bulkOf(spec, replacement);
+        if (bulk.size() == 0 || doc.readonly()) {
+            return 0;
+        }
+        Edit edit = new Edit.Blk(bulk, doc.replace(bulk), System.currentTimeMillis());
+        undo.push(edit.flip());
+        redo.clear();
+        return bulk.size();
+    }
+
     // -- Undo / Redo ---------------------------------------------------------
 
     @Override
@@ -385,6 +397,7 @@ public class TextEditImpl implements TextEdit, Flushable {
         return undoEdit().map(edit -> switch (edit) {
             case Edit.ConcreteEdit e -> List.of(e.to());
             case Edit.Cmp e -> List.of(e.edits().getLast().to());
+            case Edit.Blk e -> List.of(doc.pos(e.bulk().offsets()[0]));
         }).orElseGet(List::of);
     }
 
@@ -394,6 +407,7 @@ public class TextEditImpl implements TextEdit, Flushable {
         return redoEdit().map(edit -> switch (edit) {
             case Edit.ConcreteEdit e -> List.of(e.to());
             case Edit.Cmp e -> List.of(e.edits().getLast().to());
+            case Edit.Blk e -> List.of(doc.pos(e.bulk().offsets()[0]));
         }).orElseGet(List::of);
     }
 
@@ -413,8 +427,21 @@ public class TextEditImpl implements TextEdit, Flushable {
         return doc.getText(row).toString();
     }
 
+    @Override
+    public String getText(int row, int fromCol, int toCol) {
+        if (deque.isEmpty()) {
+            return doc.getText(new Pos(row, fromCol), new Pos(row, toCol)).toString();
+        }
+        String text = getText(row);
+        int end = Math.min(toCol, text.length());
+        return text.substring(Math.min(fromCol, end), end);
+    }
+
     @Override
     public String getText(int fromRow, int endRowExclusive) {
+        if (deque.isEmpty()) {
+            return doc.getText(fromRow, endRowExclusive).toString();
+        }
         return IntStream.range(fromRow, endRowExclusive)
             .mapToObj(this::getText)
             .collect(Collectors.joining());
@@ -427,6 +454,9 @@ public class TextEditImpl implements TextEdit, Flushable {
                 start = end;
                 end = temp;
         }
+        if (deque.isEmpty()) {
+            return doc.getText(start, end).toString();
+        }
         StringBuilder sb = new StringBuilder();
         for (int i = start.row(); i <= end.row(); i++) {
                 String row = getText(i);
@@ -477,6 +507,11 @@ public class TextEditImpl implements TextEdit, Flushable {
         return doc.rows();
     }
 
+    @Override
+    public boolean loading() {
+        return doc.loading();
+    }
+
     @Override
     public long rawSize() {
         flush();
@@ -515,6 +550,12 @@ public class TextEditImpl implements TextEdit, Flushable {
         doc.write(path);
     }
 
+    @Override
+    public void write(Path path, Charset charset, RowEnding rowEnding) {
+        flush();
+        doc.write(path, charset, rowEnding);
+    }
+
     @Override
     public void close() {
         doc.close();
@@ -609,6 +650,7 @@ public class TextEditImpl implements TextEdit, Flushable {
             case Edit.Ins e -> doc.insert(e.min().row(), e.min().col(), e.text());
             case Edit.Del e -> doc.delete(e.min().row(), e.min().col(), e.text());
             case Edit.Cmp e -> e.edits().forEach(this::apply);
+            case Edit.Blk e -> doc.replace(e.bulk());
         }
     }
 
@@ -636,6 +678,7 @@ public class TextEditImpl implements TextEdit, Flushable {
                 dryBuffer.put(e.from().row(), row);
             }
             case Edit.Cmp e -> e.edits().forEach(this::dryApply);
+            case Edit.Blk e -> { } // applied at once, never queued
         }
     }
 
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Aho-Corasick automaton of the byte patterns.
+ * <p>
+ * The trie of the patterns is completed with the failure links into the deterministic automaton,
+ * so that each input byte takes exactly one transition.
+ * The transitions are held in a flat array of {@code states * classes}, where the byte values
+ * are compressed into the classes of the bytes appearing in the patterns and the class {@code 0}
+ * of the other bytes.
+ * <pre>
+ *  patterns : "he", "she", "his"
+ *  classes  : h=1, e=2, s=3, i=4, others=0
+ *  delta    : | s0 : c0 c1 c2 c3 c4 | s1 : c0 c1 c2 c3 c4 | ...
+ * </pre>
+ * The states on which the patterns end are chained by the output links,
+ * to report the patterns which are suffixes of the other one.
+ * @author Naotsugu Kobayashi
+ */
+final class AhoCorasick {
+
+    /** The class of each byte value. */
+    private final int[] classes = new int[256];
+    /** The number of classes. */
+    private final int width;
+    /** The transitions of {@code states * width}. */
+    private final int[] delta;
+    /** The index of the pattern ending on each state, {@code -1} if none. */
+    private final int[] out;
+    /** The next state having the output on the suffix chain, {@code -1} if none. */
+    private final int[] link;
+    /** The byte length of each pattern. */
+    private final int[] lengths;
+    /** Whether the ASCII letters are matched case-insensitively. */
+    private final boolean ignoreCase;
+
+    /**
+     * The consumer of the match.
+     */
+    @FunctionalInterface
+    interface MatchConsumer {
+        /**
+         * Accepts the match.
+         * @param pattern the index of the pattern
+         * @param start the start offset of the match
+         */
+        void accept(int pattern, long start);
+    }
+
+    /**
+     * Constructor.
+     * @param patterns the pattern bytes, not empty
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     */
+    AhoCorasick(List<byte[]> patterns, boolean ignoreCase) {
+
+        this.ignoreCase = ignoreCase;
+        this.lengths = new int[patterns.size()];
+
+        int w = 1;
+        int capacity = 1;
+        for (int i = 0; i < patterns.size(); i++) {
+            byte[] pattern = patterns.get(i);
+            if (pattern.length == 0) {
+                throw new IllegalArgumentException("empty pattern");
+            }
+            lengths[i] = pattern.length;
+            capacity += pattern.length;
+            for (byte b : pattern) {
+                int u = fold(b) & 0xff;
+                if (classes[u] == 0) classes[u] = w++;
+            }
+        }
+        if (ignoreCase) {
+            for (int b = 'A'; b <= 'Z'; b++) {
+                classes[b] = classes[b | 0x20];
+            }
+        }
+        this.width = w;
+
+        // the trie
+        int[] delta = new int[capacity * w];
+        int[] out = new int[capacity];
+        Arrays.fill(delta, -1);
+        Arrays.fill(out, -1);
+        int states = 1;
+        for (int i = 0; i < patterns.size(); i++) {
+            int s = 0;
+            for (byte b : patterns.get(i)) {
+                int t = s * w + classes[b & 0xff];
+                if (delta[t] < 0) delta[t] = states++;
+                s = delta[t];
+            }
+            // the duplicated pattern is reported as the first one
+            if (out[s] < 0) out[s] = i;
+        }
+
+        // the failure links in breadth-first order, folded into the transitions
+        int[] fail = new int[states];
+        int[] link = new int[states];
+        Arrays.fill(link, -1);
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        for (int c = 0; c < w; c++) {
+            if (delta[c] < 0) {
+                delta[c] = 0;
+            } else {
+                queue[tail++] = delta[c];
+            }
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            for (int c = 0; c < w; c++) {
+                int t = delta[s * w + c];
+                int f = delta[fail[s] * w + c];
+                if (t < 0) {
+                    delta[s * w + c] = f;
+                } else {
+                    fail[t] = f;
+                    link[t] = (out[f] >= 0) ? f : link[f];
+                    queue[tail++] = t;
+                }
+            }
+        }
+
+        this.delta = Arrays.copyOf(delta, states * w);
+        this.out = Arrays.copyOf(out, states);
+        this.link = link;
+    }
+
+    /**
+     * Scans the specified range, and reports all matches of the patterns in the order of the end offset.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param consumer the consumer of the matches
+     */
+    void scan(MemorySegment seg, long from, long to, MatchConsumer consumer) {
+        int s = 0;
+        for (long i = from; i < to; i++) {
+            s = delta[s * width + classes[seg.get(ValueLayout.JAVA_BYTE, i) & 0xff]];
+            for (int t = (out[s] >= 0) ? s : link[s]; t >= 0; t = link[t]) {
+                consumer.accept(out[t], i + 1 - lengths[out[t]]);
+            }
+        }
+    }
+
+    /**
+     * Get the number of states.
+     * @return the number of states
+     */
+    int states() {
+        return out.length;
+    }
+
+    /**
+     * Get the byte length of the specified pattern.
+     * @param pattern the index of the pattern
+     * @return the byte length
+     */
+    int length(int pattern) {
+        return lengths[pattern];
+    }
+
+    private byte fold(byte b) {
+        return (ignoreCase && b >= 'A' && b <= 'Z') ? (byte) (b | 0x20) : b;
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * The {@code AhoCorasickSearch} class provides an implementation of the {@link MultiSearch} interface
+ * which finds the literal patterns on the encoded bytes in a single pass, by the {@link AhoCorasick} automaton.
+ * <p>
+ * As well as {@link LiteralSearch}, this is only applicable to the charsets of
+ * {@link LiteralSearch#supports(Charset, boolean)}.
+ * The founds of the same pattern do not overlap each other, as the single pattern search,
+ * while the founds of the different patterns may overlap.
+ * The lookahead window of each chunk is the longest pattern length.
+ * @author Naotsugu Kobayashi
+ */
+class AhoCorasickSearch implements MultiSearch {
+
+    /** The serial document. */
+    private final SearchSource source;
+
+    /** The byte width of a character unit, to which the founds are aligned. */
+    private final int units;
+
+    /** The automaton, {@code null} if no pattern is searchable. */
+    private final AhoCorasick automaton;
+
+    /** The index of the original pattern of each automaton pattern. */
+    private final int[] indexes;
+
+    /** The char length of each automaton pattern. */
+    private final int[] lens;
+
+    /** The longest byte length of the patterns. */
+    private final int maxLength;
+
+    /** The ByteBuffer pool. */
+    private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     * The empty patterns and the patterns which can not be encoded in the charset are never found.
+     * @param source the source
+     * @param patterns the patterns
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     */
+    AhoCorasickSearch(SearchSource source, List<? extends CharSequence> patterns, boolean ignoreCase) {
+        if (!LiteralSearch.supports(source.charset(), ignoreCase)) {
+            throw new IllegalArgumentException("Unsupported charset: " + source.charset());
+        }
+        this.source = source;
+        this.units = LiteralSearch.unitsOf(source.charset());
+
+        Charset charset = source.charset();
+        CharsetEncoder encoder = charset.newEncoder();
+        List<byte[]> bytes = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            CharSequence cs = patterns.get(i);
+            if (cs == null || cs.isEmpty() || !encoder.canEncode(cs)) continue;
+            bytes.add(cs.toString().getBytes(charset));
+            indexes.add(i);
+        }
+        this.automaton = bytes.isEmpty() ? null : new AhoCorasick(bytes, ignoreCase);
+        this.indexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        this.lens = indexes.stream().mapToInt(i -> patterns.get(i).length()).toArray();
+        this.maxLength = bytes.stream().mapToInt(b -> b.length).max().orElse(0);
+    }
+
+    @Override
+    public List<Found> all(int fromRow, int fromCol, int toRow, int toCol) {
+        if (automaton == null) return List.of();
+        return Chunk.of(source, fromRow, fromCol, toRow, toCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .map(this::search)
+            .map(FoundsInChunk::founds)
+            .flatMap(Collection::stream)
+            .toList();
+    }
+
+    @Override
+    public void forward(int fromRow, int fromCol, Consumer<FoundsInChunk> listener) {
+        if (automaton == null) return;
+        Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(this::search)
+            .forEachOrdered(listener);
+    }
+
+    private FoundsInChunk search(Chunk chunk) {
+
+        if (source.isCancelled()) throw new CancellationException("cancelled");
+
+        final List<Found> founds = new ArrayList<>();
+
+        final int length = Math.toIntExact(chunk.windowTo(maxLength - 1) - chunk.from());
+
+        ByteBuffer bb = pool.poll();
+
+        if (bb == null) {
+            bb = ByteBuffer.allocateDirect(Math.max(PatternSearch.DEFAULT_CHUNK_SIZE + maxLength, length));
+        } else if (bb.remaining() < length) {
+            pool.offer(bb);
+            bb = ByteBuffer.allocateDirect(length);
+        }
+
+        source.bufferRead(chunk.from(), length, bb);
+        bb.flip();
+
+        // the end offset of the last found of each pattern, to skip the overlapped ones
+        long[] ends = new long[indexes.length];
+        MemorySegment seg = MemorySegment.ofBuffer(bb);
+        automaton.scan(seg, 0, seg.byteSize(), (pattern, start) -> {
+            // the match across the character units is skipped,
+            // and the match starting in the lookahead window belongs to the following chunk
+            if (start < ends[pattern] || (chunk.from() + start) % units != 0
+                || !chunk.owns(chunk.from() + start)) return;
+            int rawLen = automaton.length(pattern);
+            ends[pattern] = start + rawLen;
+            founds.add(new Found(chunk.from() + start, lens[pattern], rawLen, indexes[pattern]));
+        });
+        Collections.sort(founds);
+
+        bb.clear();
+        pool.offer(bb);
+
+        return new FoundsInChunk(founds, chunk);
+    }
+
+}
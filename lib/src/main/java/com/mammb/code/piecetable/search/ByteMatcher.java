@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * The matcher of an encoded literal pattern on bytes.
+ * @author Naotsugu Kobayashi
+ */
+interface ByteMatcher {
+
+    /** The byte length of the pattern from which {@link Horspool} is used. */
+    int LONG_PATTERN = 16;
+
+    /**
+     * Get the offset of the first occurrence of the pattern in the specified range.
+     * @param seg the memory segment to be searched
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @return the offset of the occurrence, {@code -1} if not found
+     */
+    long indexOf(MemorySegment seg, long from, long to);
+
+    /**
+     * Get the byte length of the pattern.
+     * @return the byte length of the pattern
+     */
+    int length();
+
+    /**
+     * Create a new {@link ByteMatcher}.
+     * The short patterns and the case-insensitive patterns are matched by {@link SwarMatcher},
+     * and the long case-sensitive patterns by {@link Horspool}.
+     * @param pattern the pattern bytes, not empty
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     * @return a new {@link ByteMatcher}
+     */
+    static ByteMatcher of(byte[] pattern, boolean ignoreCase) {
+        return (ignoreCase || pattern.length < LONG_PATTERN)
+            ? new SwarMatcher(pattern, ignoreCase)
+            : new Horspool(pattern);
+    }
+
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The program of the Thompson NFA over the UTF-8 bytes, compiled from the regular expression.
+ * <p>
+ * The code point ranges are compiled into the alternation of the UTF-8 byte range sequences,
+ * so that the program runs directly on the encoded bytes.
+ * <pre>
+ *  [a-z]             : BYTE(61-7A)
+ *  [U+0080-U+07FF]   : BYTE(C2-DF) BYTE(80-BF)
+ *  x*                : L1: SPLIT(L2, L3)  L2: x -> L1  L3: ...
+ * </pre>
+ * The alternatives of a {@code SPLIT} are ordered by the priority,
+ * which gives the leftmost-first semantics of {@link java.util.regex.Pattern} to the {@link PikeVm}.
+ * @author Naotsugu Kobayashi
+ */
+final class ByteProgram {
+
+    /** Matches a byte range, and goes to {@code out}. */
+    static final int BYTE = 0;
+    /** Goes to {@code out} in preference to {@code alt}. */
+    static final int SPLIT = 1;
+    /** The assertion of {@code lo} kind, and goes to {@code out}. */
+    static final int ASSERT = 2;
+    /** The match. */
+    static final int MATCH = 3;
+
+    /** The max size of the program. */
+    static final int MAX_SIZE = 1 << 20;
+
+    /** The op codes. */
+    private int[] op = new int[64];
+    /** The next instructions. */
+    private int[] out = new int[64];
+    /** The alternative instructions of {@code SPLIT}. */
+    private int[] alt = new int[64];
+    /** The lower bounds of the byte ranges, or the kind of assertions. */
+    private int[] lo = new int[64];
+    /** The upper bounds of the byte ranges. */
+    private int[] hi = new int[64];
+    /** The size of the program. */
+    private int size;
+    /** The anchored start instruction. */
+    private int start;
+    /** The unanchored start instruction, which is preceded by the loop of any bytes. */
+    private int unanchored;
+    /** Whether the pattern can match the line feed. */
+    private boolean crossesLines;
+
+    private ByteProgram() { }
+
+    /**
+     * Compiles the specified regex.
+     * @param regex the regex
+     * @param flags the match flags
+     * @return the program
+     * @throws PatternSyntaxException if the regex is illegal or not supported
+     */
+    static ByteProgram compile(String regex, int flags) {
+        var prog = new ByteProgram();
+        var node = RegexParser.parse(regex, flags);
+        try {
+            int match = prog.emit(MATCH, -1, -1, 0, 0);
+            prog.start = prog.compile(node, match);
+            for (int pc = 0; pc < prog.size; pc++) {
+                if (prog.op[pc] == BYTE && prog.lo[pc] <= '\n' && '\n' <= prog.hi[pc]) {
+                    prog.crossesLines = true;
+                    break;
+                }
+            }
+            int loop = prog.emit(SPLIT, -1, -1, 0, 0);
+            int any = prog.emit(BYTE, loop, -1, 0x00, 0xff);
+            prog.out[loop] = prog.start;
+            prog.alt[loop] = any;
+            prog.unanchored = loop;
+        } catch (IllegalStateException e) {
+            throw new PatternSyntaxException(e.getMessage(), regex, -1);
+        }
+        return prog;
+    }
+
+    private int compile(RegexParser.Node node, int next) {
+        return switch (node) {
+            case RegexParser.Chars c -> {
+                List<int[]> seqs = new ArrayList<>();
+                for (int i = 0; i < c.ranges().length; i += 2) {
+                    utf8(c.ranges()[i], c.ranges()[i + 1], seqs);
+                }
+                if (seqs.isEmpty()) {
+                    // never matches
+                    yield emit(BYTE, next, -1, 1, 0);
+                }
+                int[] entries = new int[seqs.size()];
+                for (int i = 0; i < entries.length; i++) {
+                    int[] seq = seqs.get(i);
+                    int n = next;
+                    for (int k = seq.length - 2; k >= 0; k -= 2) {
+                        n = emit(BYTE, n, -1, seq[k], seq[k + 1]);
+                    }
+                    entries[i] = n;
+                }
+                yield alt(entries);
+            }
+            case RegexParser.Concat c -> {
+                int n = next;
+                for (int i = c.nodes().size() - 1; i >= 0; i--) {
+                    n = compile(c.nodes().get(i), n);
+                }
+                yield n;
+            }
+            case RegexParser.Alt a -> {
+                int[] entries = new int[a.nodes().size()];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = compile(a.nodes().get(i), next);
+                }
+                yield alt(entries);
+            }
+            case RegexParser.Repeat r -> {
+                int n;
+                if (r.max() < 0) {
+                    n = emit(SPLIT, -1, -1, 0, 0);
+                    int body = compile(r.node(), n);
+                    out[n] = r.greedy() ? body : next;
+                    alt[n] = r.greedy() ? next : body;
+                } else {
+                    n = next;
+                    for (int i = r.min(); i < r.max(); i++) {
+                        int body = compile(r.node(), n);
+                        n = r.greedy() ? emit(SPLIT, body, next, 0, 0) : emit(SPLIT, next, body, 0, 0);
+                    }
+                }
+                for (int i = 0; i < r.min(); i++) {
+                    n = compile(r.node(), n);
+                }
+                yield n;
+            }
+            case RegexParser.Assert a -> emit(ASSERT, next, -1, a.kind(), 0);
+        };
+    }
+
+    private int alt(int[] entries) {
+        int n = entries[entries.length - 1];
+        for (int i = entries.length - 2; i >= 0; i--) {
+            n = emit(SPLIT, entries[i], n, 0, 0);
+        }
+        return n;
+    }
+
+    private int emit(int op, int out, int alt, int lo, int hi) {
+        if (size == this.op.length) {
+            if (size >= MAX_SIZE) {
+                throw new IllegalStateException("Regex is too large");
+            }
+            int cap = size * 2;
+            this.op = Arrays.copyOf(this.op, cap);
+            this.out = Arrays.copyOf(this.out, cap);
+            this.alt = Arrays.copyOf(this.alt, cap);
+            this.lo = Arrays.copyOf(this.lo, cap);
+            this.hi = Arrays.copyOf(this.hi, cap);
+        }
+        this.op[size] = op;
+        this.out[size] = out;
+        this.alt[size] = alt;
+        this.lo[size] = lo;
+        this.hi[size] = hi;
+        return size++;
+    }
+
+    /**
+     * Splits the code point range into the UTF-8 byte range sequences.
+     * The surrogates, which can not be encoded, are excluded.
+     * @param lo the lower bound of the code point range
+     * @param hi the upper bound of the code point range
+     * @param seqs the sequences of the byte ranges, as {@code [lo0, hi0, lo1, hi1, ...]}
+     */
+    static void utf8(int lo, int hi, List<int[]> seqs) {
+        if (lo > hi) return;
+        if (lo <= 0xDFFF && hi >= 0xD800) {
+            utf8(lo, 0xD7FF, seqs);
+            utf8(0xE000, hi, seqs);
+            return;
+        }
+        for (int max : new int[] { 0x7F, 0x7FF, 0xFFFF }) {
+            if (lo <= max && hi > max) {
+                utf8(lo, max, seqs);
+                utf8(max + 1, hi, seqs);
+                return;
+            }
+        }
+        if (hi <= 0x7F) {
+            seqs.add(new int[] { lo, hi });
+            return;
+        }
+        for (int i = 1; i < 4; i++) {
+            int m = (1 << (6 * i)) - 1;
+            if ((lo & ~m) != (hi & ~m)) {
+                if ((lo & m) != 0) {
+                    utf8(lo, lo | m, seqs);
+                    utf8((lo | m) + 1, hi, seqs);
+                    return;
+                }
+                if ((hi & m) != m) {
+                    utf8(lo, (hi & ~m) - 1, seqs);
+                    utf8(hi & ~m, hi, seqs);
+                    return;
+                }
+            }
+        }
+        byte[] a = new String(Character.toChars(lo)).getBytes(StandardCharsets.UTF_8);
+        byte[] b = new String(Character.toChars(hi)).getBytes(StandardCharsets.UTF_8);
+        int[] seq = new int[a.length * 2];
+        for (int k = 0; k < a.length; k++) {
+            seq[k * 2] = a[k] & 0xff;
+            seq[k * 2 + 1] = b[k] & 0xff;
+        }
+        seqs.add(seq);
+    }
+
+    /**
+     * Get the size of the program.
+     * @return the size of the program
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the op code.
+     * @param pc the instruction
+     * @return the op code
+     */
+    int op(int pc) {
+        return op[pc];
+    }
+
+    /**
+     * Get the next instruction.
+     * @param pc the instruction
+     * @return the next instruction
+     */
+    int out(int pc) {
+        return out[pc];
+    }
+
+    /**
+     * Get the alternative instruction of {@code SPLIT}.
+     * @param pc the instruction
+     * @return the alternative instruction
+     */
+    int alt(int pc) {
+        return alt[pc];
+    }
+
+    /**
+     * Get the lower bound of the byte range, or the kind of the assertion.
+     * @param pc the instruction
+     * @return the lower bound
+     */
+    int lo(int pc) {
+        return lo[pc];
+    }
+
+    /**
+     * Get the upper bound of the byte range.
+     * @param pc the instruction
+     * @return the upper bound
+     */
+    int hi(int pc) {
+        return hi[pc];
+    }
+
+    /**
+     * Get the anchored start instruction.
+     * @return the anchored start instruction
+     */
+    int start() {
+        return start;
+    }
+
+    /**
+     * Get the unanchored start instruction.
+     * @return the unanchored start instruction
+     */
+    int unanchored() {
+        return unanchored;
+    }
+
+    /**
+     * Gets whether the pattern can match the line feed.
+     * If not, a match never starts before the line of its end.
+     * @return {@code true} if the pattern can match the line feed
+     */
+    boolean crossesLines() {
+        return crossesLines;
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * The {@link SearchSource} which is cancelled by a token.
+ * The reads are checked before each buffer, so that a cancelled search stops reading immediately.
+ * @author Naotsugu Kobayashi
+ */
+class CancellableSource implements SearchSource {
+
+    /** The delegated source. */
+    private final SearchSource source;
+    /** The cancellation token. */
+    private final BooleanSupplier cancelled;
+
+    /**
+     * Constructor.
+     * @param source the delegated source
+     * @param cancelled the cancellation token
+     */
+    CancellableSource(SearchSource source, BooleanSupplier cancelled) {
+        this.source = Objects.requireNonNull(source);
+        this.cancelled = Objects.requireNonNull(cancelled);
+    }
+
+    @Override
+    public Charset charset() {
+        return source.charset();
+    }
+
+    @Override
+    public long length() {
+        return source.length();
+    }
+
+    @Override
+    public long serial(int row, int col) {
+        return source.serial(row, col);
+    }
+
+    @Override
+    public int[] pos(long offset) {
+        return source.pos(offset);
+    }
+
+    @Override
+    public long rowFloorOffset(long offset) {
+        return source.rowFloorOffset(offset);
+    }
+
+    @Override
+    public long rowCeilOffset(long offset) {
+        return source.rowCeilOffset(offset);
+    }
+
+    @Override
+    public long bufferRead(long offset, long length, ByteBuffer bb) {
+        checkCancelled();
+        return source.bufferRead(offset, length, bb);
+    }
+
+    @Override
+    public void bufferRead(long offset, long limitLength, Function<ByteBuffer, Boolean> traverseCallback) {
+        checkCancelled();
+        source.bufferRead(offset, limitLength, bb -> {
+            checkCancelled();
+            return traverseCallback.apply(bb);
+        });
+    }
+
+    @Override
+    public TrigramIndex trigrams() {
+        return source.trigrams();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.getAsBoolean() || source.isCancelled();
+    }
+
+    private void checkCancelled() {
+        if (isCancelled()) throw new CancellationException("cancelled");
+    }
+
+}
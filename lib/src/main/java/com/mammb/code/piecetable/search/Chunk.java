@@ -95,6 +95,32 @@ public record Chunk(long from, long to, long parentFrom, long parentTo) {
         return parentTo - from;
     }
 
+    /**
+     * Get the end of the window, which is this chunk followed by the lookahead of the specified span.
+     * The match which starts in this chunk and ends in the following chunk is found in the window.
+     * <pre>
+     * from               to          to + span
+     * |------ chunk ------|-- lookahead --|
+     *                 |=== match ===|
+     * </pre>
+     * @param span the max span of the match
+     * @return the end of the window
+     */
+    public long windowTo(int span) {
+        return Math.max(to, Math.min(to + Math.max(span, 0), parentTo));
+    }
+
+    /**
+     * Gets whether the found which starts at the specified offset belongs to this chunk.
+     * The founds in the lookahead window belong to the following chunk, so that the founds
+     * of the overlapped windows are not duplicated.
+     * @param offset the start offset of the found
+     * @return {@code true} if the found belongs to this chunk
+     */
+    public boolean owns(long offset) {
+        return from <= offset && (offset < to || (offset == to && to >= parentTo));
+    }
+
     static List<Chunk> of(SearchSource source, int fromRow, int fromCol, int toRow, int toCol, int size) {
         return of(source.serial(fromRow, fromCol), source.serial(toRow, toCol), size);
     }
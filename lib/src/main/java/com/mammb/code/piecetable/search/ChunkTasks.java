@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the search of the chunks as the tasks of an executor, and notifies the founds in the chunk order.
+ * <p>
+ * The workers, up to the number of processors, take the chunks in order from the shared cursor,
+ * and the worker which has searched the next chunk to be notified drains the completed ones.
+ * Once the search is cancelled or a chunk fails, the future completes exceptionally
+ * and the workers stop taking the chunks.
+ * @author Naotsugu Kobayashi
+ */
+final class ChunkTasks {
+
+    /** The chunks. */
+    private final List<Chunk> chunks;
+    /** The search of a chunk. */
+    private final Function<Chunk, FoundsInChunk> search;
+    /** The cancellation token. */
+    private final BooleanSupplier cancelled;
+    /** The listener of the founds. */
+    private final Consumer<FoundsInChunk> listener;
+    /** The index of the next chunk to be searched. */
+    private final AtomicInteger next = new AtomicInteger();
+    /** The founds searched and not yet notified. */
+    private final AtomicReferenceArray<FoundsInChunk> results;
+    /** The future. */
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    /** The number of the chunks notified, guarded by this. */
+    private int notified;
+
+    private ChunkTasks(List<Chunk> chunks, Function<Chunk, FoundsInChunk> search,
+            BooleanSupplier cancelled, Consumer<FoundsInChunk> listener) {
+        this.chunks = chunks;
+        this.search = search;
+        this.cancelled = cancelled;
+        this.listener = listener;
+        this.results = new AtomicReferenceArray<>(chunks.size());
+    }
+
+    /**
+     * Runs the search of the chunks on the specified executor.
+     * @param chunks the chunks
+     * @param search the search of a chunk
+     * @param executor the executor
+     * @param cancelled the cancellation token
+     * @param listener the listener of the founds, called in the chunk order
+     * @return the future completed when all the founds have been notified
+     */
+    static CompletableFuture<Void> run(List<Chunk> chunks, Function<Chunk, FoundsInChunk> search,
+            Executor executor, BooleanSupplier cancelled, Consumer<FoundsInChunk> listener) {
+
+        var tasks = new ChunkTasks(chunks, search, cancelled, listener);
+        if (chunks.isEmpty()) {
+            tasks.future.complete(null);
+            return tasks.future;
+        }
+
+        int workers = Math.min(chunks.size(), Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(tasks::work);
+            } catch (RejectedExecutionException e) {
+                // the accepted workers search all the chunks
+                if (i == 0) tasks.future.completeExceptionally(e);
+                break;
+            }
+        }
+        return tasks.future;
+    }
+
+    private void work() {
+        for (int i; !future.isDone() && (i = next.getAndIncrement()) < chunks.size(); ) {
+            try {
+                if (cancelled.getAsBoolean()) throw new CancellationException("cancelled");
+                results.set(i, search.apply(chunks.get(i)));
+                drain();
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private synchronized void drain() {
+        FoundsInChunk founds;
+        while (!future.isDone() && notified < chunks.size()
+                && (founds = results.getAndSet(notified, null)) != null) {
+            listener.accept(founds);
+            notified++;
+        }
+        if (notified == chunks.size()) future.complete(null);
+    }
+
+}
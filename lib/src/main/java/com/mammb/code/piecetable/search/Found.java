@@ -22,9 +22,20 @@ package com.mammb.code.piecetable.search;
  * @param offset the starting position of the found item
  * @param len the logical length of the found item
  * @param rawLen the raw length including additional formatting or padding
+ * @param pattern the index of the pattern found, in the multi-pattern search
  * @author Naotsugu Kobayashi
  */
-public record Found(long offset, int len, int rawLen) implements Comparable<Found> {
+public record Found(long offset, int len, int rawLen, int pattern) implements Comparable<Found> {
+
+    /**
+     * Constructor of the found of the single pattern.
+     * @param offset the starting position of the found item
+     * @param len the logical length of the found item
+     * @param rawLen the raw length including additional formatting or padding
+     */
+    public Found(long offset, int len, int rawLen) {
+        this(offset, len, rawLen, 0);
+    }
 
     /**
      * Gets whether this found is empty or not.
@@ -45,7 +56,9 @@ public record Found(long offset, int len, int rawLen) implements Comparable<Foun
     @Override
     public int compareTo(Found that) {
         int c = Long.compare(this.offset, that.offset);
-        return c == 0 ? Integer.compare(this.len, that.len) : c;
+        if (c != 0) return c;
+        c = Integer.compare(this.len, that.len);
+        return c == 0 ? Integer.compare(this.pattern, that.pattern) : c;
     }
 
 }
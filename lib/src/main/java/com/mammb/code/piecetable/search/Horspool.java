@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+/**
+ * The Boyer-Moore-Horspool matcher of a byte pattern.
+ * <p>
+ * Compares the last byte of the window first, and shifts the window by the distance
+ * of the last occurrence of the byte in the pattern.
+ * <pre>
+ *  pattern : | a | b | c | d |      shift[a] = 3, shift[b] = 2, shift[c] = 1, others = 4
+ *  text    : | x | x | x | b | ...  -> shift 2
+ * </pre>
+ * The shift grows with the pattern length, so this is used for the long patterns.
+ * @author Naotsugu Kobayashi
+ */
+final class Horspool implements ByteMatcher {
+
+    /** The pattern bytes. */
+    private final byte[] pattern;
+    /** The shift distance of each byte value. */
+    private final int[] shift = new int[256];
+
+    /**
+     * Constructor.
+     * @param pattern the pattern bytes, not empty
+     */
+    Horspool(byte[] pattern) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("empty pattern");
+        }
+        this.pattern = pattern;
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shift[pattern[i] & 0xff] = pattern.length - 1 - i;
+        }
+    }
+
+    @Override
+    public long indexOf(MemorySegment seg, long from, long to) {
+        final int m = pattern.length;
+        final byte last = pattern[m - 1];
+        if (m == 1) {
+            for (long i = from; i < to; i++) {
+                if (seg.get(ValueLayout.JAVA_BYTE, i) == last) return i;
+            }
+            return -1;
+        }
+        for (long i = from; i <= to - m; ) {
+            byte b = seg.get(ValueLayout.JAVA_BYTE, i + m - 1);
+            if (b == last && matches(seg, i, m - 1)) {
+                return i;
+            }
+            i += shift[b & 0xff];
+        }
+        return -1;
+    }
+
+    @Override
+    public int length() {
+        return pattern.length;
+    }
+
+    private boolean matches(MemorySegment seg, long i, int len) {
+        for (int k = 0; k < len; k++) {
+            if (seg.get(ValueLayout.JAVA_BYTE, i + k) != pattern[k]) return false;
+        }
+        return true;
+    }
+
+}
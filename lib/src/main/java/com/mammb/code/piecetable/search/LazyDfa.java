@@ -0,0 +1,239 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The lazily built DFA of the unanchored {@link ByteProgram}, which finds the earliest end of the candidate matches.
+ * <p>
+ * The DFA states are the sets of the NFA instructions, which are built on demand on the first transition,
+ * and the transitions are held in a flat array of {@code states * classes}, where the byte values are
+ * compressed into the classes distinguished by the program.
+ * The assertions are regarded as satisfied, so that the candidates are a superset of the matches,
+ * and are verified by the {@link PikeVm}.
+ * <p>
+ * The cache of the states is cleared when it is full. If cleared too often, the scan gives up
+ * and leaves the rest to the {@link PikeVm}, so that the time is kept linear in the input length.
+ * @author Naotsugu Kobayashi
+ */
+final class LazyDfa {
+
+    /** The max number of the cached states. */
+    static final int MAX_STATES = 2048;
+    /** The max number of the cache clearing in a scan. */
+    static final int MAX_CLEARS = 4;
+
+    /** The program. */
+    private final ByteProgram prog;
+    /** The class of each byte value. */
+    private final int[] classes = new int[256];
+    /** The representative byte of each class. */
+    private final int[] reps;
+    /** The number of classes. */
+    private final int width;
+
+    /** The state ids of the instruction sets. */
+    private final Map<Key, Integer> ids = new HashMap<>();
+    /** The instruction sets of the states. */
+    private int[][] sets = new int[64][];
+    /** Whether the states contain the match. */
+    private boolean[] matches = new boolean[64];
+    /** The transitions of {@code states * width}, {@code -1} if not yet built. */
+    private int[] trans;
+    /** The number of states. */
+    private int count;
+    /** The start state. */
+    private int start;
+    /** The number of the cache clearing. */
+    private int clears;
+
+    /** The work stack of the closure. */
+    private final int[] stack;
+    /** The visited marks of the closure. */
+    private final int[] marks;
+    /** The current mark. */
+    private int mark;
+    /** The work buffer of the instruction set. */
+    private final int[] buf;
+    /** The work buffer of the closure. */
+    private final int[] work;
+
+    /**
+     * Constructor.
+     * @param prog the program
+     */
+    LazyDfa(ByteProgram prog) {
+        this.prog = prog;
+        boolean[] bounds = new boolean[257];
+        for (int pc = 0; pc < prog.size(); pc++) {
+            if (prog.op(pc) == ByteProgram.BYTE && prog.lo(pc) <= prog.hi(pc)) {
+                bounds[prog.lo(pc)] = true;
+                bounds[prog.hi(pc) + 1] = true;
+            }
+        }
+        int w = 0;
+        int[] reps = new int[256];
+        for (int b = 0; b < 256; b++) {
+            if (b > 0 && bounds[b]) w++;
+            if (b == 0 || bounds[b]) reps[w] = b;
+            classes[b] = w;
+        }
+        this.width = w + 1;
+        this.reps = Arrays.copyOf(reps, width);
+        this.trans = new int[64 * width];
+        this.stack = new int[prog.size() * 2 + 1];
+        this.marks = new int[prog.size()];
+        this.buf = new int[prog.size()];
+        this.work = new int[prog.size()];
+        clear();
+    }
+
+    /**
+     * Scans the specified range for the earliest end of the candidate matches.
+     * @param seg the memory segment
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @return the end offset of the candidate match, or the offset on which the scan gives up;
+     *     {@code -1} if no candidate
+     */
+    long scan(MemorySegment seg, long from, long to) {
+        int s = start;
+        if (matches[s]) return from;
+        int limit = clears + MAX_CLEARS;
+        for (long i = from; i < to; i++) {
+            int c = classes[seg.get(ValueLayout.JAVA_BYTE, i) & 0xff];
+            int t = trans[s * width + c];
+            if (t < 0) {
+                t = transition(s, c);
+                if (clears > limit) return i + 1;
+            }
+            s = t;
+            if (matches[s]) return i + 1;
+        }
+        return -1;
+    }
+
+    private int transition(int s, int c) {
+        int[] set = sets[s];
+        int n = 0;
+        int b = reps[c];
+        for (int pc : set) {
+            if (prog.op(pc) == ByteProgram.BYTE && prog.lo(pc) <= b && b <= prog.hi(pc)) {
+                buf[n++] = prog.out(pc);
+            }
+        }
+        int[] next = closure(buf, n);
+        int id = state(next);
+        if (id < 0) {
+            clear();
+            return state(next);
+        }
+        trans[s * width + c] = id;
+        return id;
+    }
+
+    private int[] closure(int[] seeds, int n) {
+        mark++;
+        int size = 0;
+        for (int k = 0; k < n; k++) {
+            int sp = 0;
+            stack[sp++] = seeds[k];
+            while (sp > 0) {
+                int pc = stack[--sp];
+                if (marks[pc] == mark) continue;
+                marks[pc] = mark;
+                switch (prog.op(pc)) {
+                    case ByteProgram.SPLIT -> {
+                        stack[sp++] = prog.alt(pc);
+                        stack[sp++] = prog.out(pc);
+                    }
+                    case ByteProgram.ASSERT -> stack[sp++] = prog.out(pc);
+                    default -> work[size++] = pc;
+                }
+            }
+        }
+        int[] set = Arrays.copyOf(work, size);
+        Arrays.sort(set);
+        return set;
+    }
+
+    /**
+     * Gets the state of the instruction set.
+     * @param set the instruction set
+     * @return the state id, {@code -1} if the cache is full
+     */
+    private int state(int[] set) {
+        var key = new Key(set);
+        Integer id = ids.get(key);
+        if (id != null) return id;
+        if (count >= MAX_STATES) return -1;
+        if (count == sets.length) {
+            sets = Arrays.copyOf(sets, count * 2);
+            matches = Arrays.copyOf(matches, count * 2);
+            int len = trans.length;
+            trans = Arrays.copyOf(trans, len * 2);
+            Arrays.fill(trans, len, trans.length, -1);
+        }
+        sets[count] = set;
+        boolean match = false;
+        for (int pc : set) {
+            if (prog.op(pc) == ByteProgram.MATCH) {
+                match = true;
+                break;
+            }
+        }
+        matches[count] = match;
+        ids.put(key, count);
+        return count++;
+    }
+
+    private void clear() {
+        if (count > 0) clears++;
+        ids.clear();
+        Arrays.fill(trans, -1);
+        count = 0;
+        start = state(closure(new int[] { prog.unanchored() }, 1));
+    }
+
+    /**
+     * Get the number of the cached states.
+     * @return the number of the cached states
+     */
+    int states() {
+        return count;
+    }
+
+    /**
+     * The key of the instruction set.
+     * @param set the sorted instruction set
+     */
+    private record Key(int[] set) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key(int[] that) && Arrays.equals(set, that);
+        }
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(set);
+        }
+    }
+
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * The {@code LinearRegexSearch} class provides an implementation of the {@link Search} interface
+ * with the regex engine of the guaranteed linear time, instead of {@link java.util.regex.Pattern}.
+ * <p>
+ * The regex is compiled into the {@link ByteProgram} over the UTF-8 bytes.
+ * The {@link LazyDfa} skips over the bytes which can not be a part of the matches,
+ * and the {@link PikeVm} finds the exact leftmost-first match around the candidates.
+ * The UTF-8 and ASCII sources are searched on the read buffers directly, and the other charsets
+ * are transcoded into UTF-8 for each chunk.
+ * Each chunk is searched with the lookahead window of the max span, as {@link PatternSearch}.
+ * <p>
+ * The supported syntax is described in {@link RegexParser}.
+ * @author Naotsugu Kobayashi
+ */
+class LinearRegexSearch implements Search {
+
+    /** The serial document. */
+    private final SearchSource source;
+
+    /** The match flags. */
+    private final int matchFlags;
+
+    /** The max span of a match in bytes, which is the size of the lookahead window. */
+    private final int maxSpan;
+
+    /** Whether the bytes of the source are UTF-8. */
+    private final boolean utf8;
+
+    /** The ByteBuffer pool. */
+    private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     * @param source the source
+     * @param matchFlags the match flags
+     */
+    LinearRegexSearch(SearchSource source, int matchFlags) {
+        this(source, matchFlags, PatternSearch.DEFAULT_MAX_SPAN);
+    }
+
+    /**
+     * Constructor.
+     * @param source the source
+     * @param matchFlags the match flags
+     * @param maxSpan the max span of a match in bytes
+     */
+    LinearRegexSearch(SearchSource source, int matchFlags, int maxSpan) {
+        if (maxSpan < 0) {
+            throw new IllegalArgumentException("maxSpan: " + maxSpan);
+        }
+        this.source = source;
+        this.matchFlags = matchFlags;
+        this.maxSpan = maxSpan;
+        this.utf8 = StandardCharsets.UTF_8.equals(source.charset())
+            || StandardCharsets.US_ASCII.equals(source.charset());
+    }
+
+    @Override
+    public List<Found> all(CharSequence cs, int fromRow, int fromCol, int toRow, int toCol) {
+        return all(cs, source.serial(fromRow, fromCol), source.serial(toRow, toCol));
+    }
+
+    @Override
+    public List<Found> all(CharSequence cs, long from, long to) {
+
+        if (cs == null || cs.isEmpty()) return List.of();
+
+        Engines engines = new Engines(ByteProgram.compile(cs.toString(), matchFlags));
+
+        return Chunk.of(from, to, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .map(c -> search(c, engines))
+            .map(new OverlapResolver(c -> search(c, engines)))
+            .map(FoundsInChunk::founds)
+            .flatMap(Collection::stream)
+            .toList();
+    }
+
+    @Override
+    public Optional<Found> nextOne(CharSequence cs, int fromRow, int fromCol) {
+
+        if (cs == null || cs.isEmpty()) return Optional.empty();
+
+        Engines engines = new Engines(ByteProgram.compile(cs.toString(), matchFlags));
+
+        return Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, engines))
+            .filter(FoundsInChunk::hasFounds)
+            .findFirst()
+            .map(FoundsInChunk::founds)
+            .map(List::getFirst);
+    }
+
+    @Override
+    public Optional<Found> previousOne(CharSequence cs, int fromRow, int fromCol) {
+
+        if (cs == null || cs.isEmpty()) return Optional.empty();
+
+        Engines engines = new Engines(ByteProgram.compile(cs.toString(), matchFlags));
+
+        return Chunk.backwardOf(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, engines))
+            .filter(FoundsInChunk::hasFounds)
+            .findFirst()
+            .map(FoundsInChunk::founds)
+            .map(List::getLast);
+    }
+
+    @Override
+    public void forward(CharSequence cs, int fromRow, int fromCol, Consumer<FoundsInChunk> listener) {
+
+        if (cs == null || cs.isEmpty()) return;
+
+        Engines engines = new Engines(ByteProgram.compile(cs.toString(), matchFlags));
+
+        var resolver = new OverlapResolver(c -> search(c, engines));
+        Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, engines))
+            .forEachOrdered(fic -> listener.accept(resolver.apply(fic)));
+    }
+
+    @Override
+    public CompletableFuture<Void> forward(CharSequence cs, int fromRow, int fromCol,
+            Executor executor, Consumer<FoundsInChunk> listener) {
+
+        if (cs == null || cs.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        Engines engines = new Engines(ByteProgram.compile(cs.toString(), matchFlags));
+
+        var resolver = new OverlapResolver(c -> search(c, engines));
+        return ChunkTasks.run(Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE),
+            c -> search(c, engines), executor, source::isCancelled,
+            fic -> listener.accept(resolver.apply(fic)));
+    }
+
+    @Override
+    public void backward(CharSequence cs, int fromRow, int fromCol, Consumer<FoundsInChunk> listener) {
+
+        if (cs == null || cs.isEmpty()) return;
+
+        Engines engines = new Engines(ByteProgram.compile(cs.toString(), matchFlags));
+
+        Chunk.backwardOf(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, engines))
+            .map(FoundsInChunk::reverse)
+            .forEachOrdered(listener);
+    }
+
+    private FoundsInChunk search(Chunk chunk, Engines engines) {
+
+        if (source.isCancelled()) throw new CancellationException("cancelled");
+
+        final List<Found> founds = new ArrayList<>();
+
+        final int length = Math.toIntExact(chunk.windowTo(maxSpan) - chunk.from());
+
+        ByteBuffer bb = pool.poll();
+
+        if (bb == null) {
+            bb = ByteBuffer.allocateDirect(Math.max(PatternSearch.DEFAULT_CHUNK_SIZE + maxSpan, length));
+        } else if (bb.remaining() < length) {
+            pool.offer(bb);
+            bb = ByteBuffer.allocateDirect(length);
+        }
+
+        source.bufferRead(chunk.from(), length, bb);
+        bb.flip();
+
+        // a match starting in the lookahead window belongs to the following chunk
+        Engine engine = engines.poll();
+        if (utf8) {
+            MemorySegment seg = MemorySegment.ofBuffer(bb);
+            engine.find(seg, 0, seg.byteSize(), chunk.length(), (start, end) -> {
+                if (source.isCancelled()) throw new CancellationException("cancelled");
+                if (chunk.owns(chunk.from() + start)) {
+                    founds.add(new Found(chunk.from() + start,
+                        utf16Length(seg, start, end), Math.toIntExact(end - start)));
+                }
+            });
+        } else {
+            final Charset charset = source.charset();
+            var offsets = new SourceOffsets(charset, bb.duplicate());
+            CharBuffer cb = charset.decode(bb);
+            MemorySegment seg = MemorySegment.ofArray(cb.toString().getBytes(StandardCharsets.UTF_8));
+            // the offsets in the UTF-8 bytes and the chars
+            long[] prev = new long[2];
+            engine.find(seg, 0, seg.byteSize(), seg.byteSize(), (start, end) -> {
+                if (source.isCancelled()) throw new CancellationException("cancelled");
+                long n = prev[1] + utf16Length(seg, prev[0], start);
+                int len = utf16Length(seg, start, end);
+                prev[0] = start;
+                prev[1] = n;
+                int from = offsets.offsetOf(n);
+                int to = offsets.offsetOf(n + len);
+                if (chunk.owns(chunk.from() + from)) {
+                    founds.add(new Found(chunk.from() + from, len, to - from));
+                }
+            });
+        }
+        engines.offer(engine);
+
+        bb.clear();
+        pool.offer(bb);
+
+        return new FoundsInChunk(founds, chunk);
+    }
+
+    /**
+     * Get the length in UTF-16 units of the UTF-8 bytes.
+     * @param seg the memory segment
+     * @param from the start offset
+     * @param to the end offset
+     * @return the length in UTF-16 units
+     */
+    private static int utf16Length(MemorySegment seg, long from, long to) {
+        int len = 0;
+        for (long i = from; i < to; i++) {
+            int b = seg.get(ValueLayout.JAVA_BYTE, i) & 0xff;
+            if ((b & 0xC0) != 0x80) len++;
+            if (b >= 0xF0) len++;
+        }
+        return len;
+    }
+
+    /**
+     * The offsets in the source bytes of the decoded chars.
+     * The source bytes are decoded again up to each char asked, so that the offsets are exact
+     * even if the malformed bytes are replaced or the charset does not round-trip.
+     */
+    private static class SourceOffsets {
+        private final CharsetDecoder decoder;
+        private final ByteBuffer in;
+        private final CharBuffer out = CharBuffer.allocate(1024);
+        private long chars;
+
+        SourceOffsets(Charset charset, ByteBuffer in) {
+            // the same replacement as Charset#decode
+            this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.in = in;
+        }
+
+        /**
+         * Get the offset in the source bytes of the specified char.
+         * The chars must be asked in ascending order.
+         * @param n the index of the char
+         * @return the offset in the source bytes
+         */
+        int offsetOf(long n) {
+            while (chars < n) {
+                out.clear();
+                out.limit((int) Math.min(n - chars, out.capacity()));
+                decoder.decode(in, out, true);
+                if (out.position() == 0) {
+                    // a surrogate pair is not decoded into a single char
+                    out.limit(2);
+                    decoder.decode(in, out, true);
+                    if (out.position() == 0) break;
+                }
+                chars += out.position();
+            }
+            return in.position();
+        }
+    }
+
+    /**
+     * The consumer of the match.
+     */
+    @FunctionalInterface
+    interface MatchConsumer {
+        /**
+         * Accepts the match.
+         * @param start the start offset of the match
+         * @param end the end offset of the match
+         */
+        void accept(long start, long end);
+    }
+
+    /**
+     * The pool of the engines of a program.
+     * The engine holds the mutable states, so that it is used by a thread at a time.
+     */
+    private static class Engines {
+        private final ByteProgram prog;
+        private final ConcurrentLinkedQueue<Engine> pool = new ConcurrentLinkedQueue<>();
+
+        Engines(ByteProgram prog) {
+            this.prog = prog;
+        }
+
+        Engine poll() {
+            Engine engine = pool.poll();
+            return (engine == null) ? new Engine(prog) : engine;
+        }
+
+        void offer(Engine engine) {
+            pool.offer(engine);
+        }
+    }
+
+    /**
+     * The engine which combines the {@link LazyDfa} and the {@link PikeVm}.
+     */
+    static class Engine {
+        private final ByteProgram prog;
+        private final LazyDfa dfa;
+        private final PikeVm pike;
+
+        /**
+         * Constructor.
+         * @param prog the program
+         */
+        Engine(ByteProgram prog) {
+            this.prog = prog;
+            this.dfa = new LazyDfa(prog);
+            this.pike = new PikeVm(prog);
+        }
+
+        /**
+         * Finds all the non-overlapping matches in the specified range.
+         * The range is regarded as the whole lines.
+         * @param seg the memory segment
+         * @param lo the start offset, inclusive
+         * @param hi the end offset, exclusive
+         * @param until the offset until which the matches start
+         * @param consumer the consumer of the matches
+         */
+        void find(MemorySegment seg, long lo, long hi, long until, MatchConsumer consumer) {
+            long pos = lo;
+            while (pos <= until) {
+                long e = dfa.scan(seg, pos, hi);
+                if (e < 0) break;
+                // the match which can not contain the line feed starts on the line of the candidate end
+                long from = prog.crossesLines() ? pos : lineStart(seg, pos, e);
+                if (pike.find(seg, lo, hi, from, e)) {
+                    if (pike.start() > until) break;
+                    consumer.accept(pike.start(), pike.end());
+                    pos = (pike.end() > pike.start()) ? pike.end() : nextChar(seg, pike.end(), hi);
+                } else {
+                    pos = pike.resume();
+                }
+            }
+        }
+
+        private static long lineStart(MemorySegment seg, long from, long end) {
+            for (long i = end - 1; i >= from; i--) {
+                if (seg.get(ValueLayout.JAVA_BYTE, i) == '\n') return i + 1;
+            }
+            return from;
+        }
+
+        private static long nextChar(MemorySegment seg, long p, long hi) {
+            p++;
+            while (p < hi && (seg.get(ValueLayout.JAVA_BYTE, p) & 0xC0) == 0x80) p++;
+            return p;
+        }
+    }
+
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * The {@code LiteralSearch} class provides an implementation of the {@link Search} interface
+ * which finds the literal pattern on the encoded bytes, without decoding the source.
+ * <p>
+ * The pattern is encoded into the charset of the source and matched by the {@link ByteMatcher},
+ * so that the byte offsets of the founds are obtained directly.
+ * This is only applicable to the charsets in which an encoded pattern never matches
+ * across the character boundaries, i.e. the self-synchronizing UTF-8, the single byte charsets,
+ * and the fixed width UTF-16 and UTF-32 whose matches are checked for the unit alignment.
+ * The case-insensitive search folds the ASCII letters only, as {@link java.util.regex.Pattern#CASE_INSENSITIVE}
+ * does, and is applicable to the charsets of the single byte unit.
+ * The lookahead window of each chunk is the pattern length, which is the exact max span of a match.
+ * If the source has the {@link TrigramIndex}, the chunks without the candidate blocks are skipped without reading.
+ * @author Naotsugu Kobayashi
+ */
+class LiteralSearch implements Search {
+
+    /** The density of founds above which the refinement is slower than a scan, in bytes per found. */
+    private static final int REFINE_DENSITY = 64;
+
+    /** The serial document. */
+    private final SearchSource source;
+
+    /** The byte width of a character unit, to which the founds are aligned. */
+    private final int units;
+
+    /** Whether the ASCII letters are matched case-insensitively. */
+    private final boolean ignoreCase;
+
+    /** The ByteBuffer pool. */
+    private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     * @param source the source
+     */
+    LiteralSearch(SearchSource source) {
+        this(source, false);
+    }
+
+    /**
+     * Constructor.
+     * @param source the source
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     */
+    LiteralSearch(SearchSource source, boolean ignoreCase) {
+        if (!supports(source.charset(), ignoreCase)) {
+            throw new IllegalArgumentException("Unsupported charset: " + source.charset());
+        }
+        this.source = source;
+        this.units = unitsOf(source.charset());
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Get whether the literal search on bytes is applicable to the specified charset.
+     * @param charset the charset
+     * @return {@code true} if the literal search on bytes is applicable
+     */
+    static boolean supports(Charset charset) {
+        return supports(charset, false);
+    }
+
+    /**
+     * Get whether the literal search on bytes is applicable to the specified charset.
+     * @param charset the charset
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     * @return {@code true} if the literal search on bytes is applicable
+     */
+    static boolean supports(Charset charset, boolean ignoreCase) {
+        int units = unitsOf(charset);
+        return ignoreCase ? units == 1 : units > 0;
+    }
+
+    @Override
+    public List<Found> all(CharSequence cs, int fromRow, int fromCol, int toRow, int toCol) {
+        return all(cs, source.serial(fromRow, fromCol), source.serial(toRow, toCol));
+    }
+
+    @Override
+    public List<Found> all(CharSequence cs, long from, long to) {
+
+        ByteMatcher pattern = compile(cs);
+        if (pattern == null) return List.of();
+        TrigramIndex.Filter filter = filter(cs);
+
+        return Chunk.of(from, to, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .map(c -> search(c, pattern, cs.length(), filter))
+            .map(new OverlapResolver(c -> search(c, pattern, cs.length(), filter)))
+            .map(FoundsInChunk::founds)
+            .flatMap(Collection::stream)
+            .toList();
+    }
+
+    @Override
+    public Optional<Found> nextOne(CharSequence cs, int fromRow, int fromCol) {
+
+        ByteMatcher pattern = compile(cs);
+        if (pattern == null) return Optional.empty();
+        TrigramIndex.Filter filter = filter(cs);
+
+        return Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, pattern, cs.length(), filter))
+            .filter(FoundsInChunk::hasFounds)
+            .findFirst()
+            .map(FoundsInChunk::founds)
+            .map(List::getFirst);
+    }
+
+    @Override
+    public Optional<Found> previousOne(CharSequence cs, int fromRow, int fromCol) {
+
+        ByteMatcher pattern = compile(cs);
+        if (pattern == null) return Optional.empty();
+        TrigramIndex.Filter filter = filter(cs);
+
+        return Chunk.backwardOf(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, pattern, cs.length(), filter))
+            .filter(FoundsInChunk::hasFounds)
+            .findFirst()
+            .map(FoundsInChunk::founds)
+            .map(List::getLast);
+    }
+
+    @Override
+    public void forward(CharSequence cs, int fromRow, int fromCol, Consumer<FoundsInChunk> listener) {
+
+        ByteMatcher pattern = compile(cs);
+        if (pattern == null) return;
+        TrigramIndex.Filter filter = filter(cs);
+
+        var resolver = new OverlapResolver(c -> search(c, pattern, cs.length(), filter));
+        Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, pattern, cs.length(), filter))
+            .forEachOrdered(fic -> listener.accept(resolver.apply(fic)));
+    }
+
+    @Override
+    public CompletableFuture<Void> forward(CharSequence cs, int fromRow, int fromCol,
+            Executor executor, Consumer<FoundsInChunk> listener) {
+
+        ByteMatcher pattern = compile(cs);
+        if (pattern == null) return CompletableFuture.completedFuture(null);
+        TrigramIndex.Filter filter = filter(cs);
+
+        var resolver = new OverlapResolver(c -> search(c, pattern, cs.length(), filter));
+        return ChunkTasks.run(Chunk.of(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE),
+            c -> search(c, pattern, cs.length(), filter), executor, source::isCancelled,
+            fic -> listener.accept(resolver.apply(fic)));
+    }
+
+    @Override
+    public void backward(CharSequence cs, int fromRow, int fromCol, Consumer<FoundsInChunk> listener) {
+
+        ByteMatcher pattern = compile(cs);
+        if (pattern == null) return;
+        TrigramIndex.Filter filter = filter(cs);
+
+        Chunk.backwardOf(source, fromRow, fromCol, PatternSearch.DEFAULT_CHUNK_SIZE).stream()
+            .parallel()
+            .map(c -> search(c, pattern, cs.length(), filter))
+            .map(FoundsInChunk::reverse)
+            .forEachOrdered(listener);
+    }
+
+    /**
+     * Refines the founds of a literal pattern into the founds of the pattern which extends it.
+     * <p>
+     * An occurrence of the extended pattern starts with an occurrence of the previous pattern,
+     * which is a found, or is skipped as it overlaps a found.
+     * So only the bytes from each found to the extended pattern length past its end are verified.
+     * <pre>
+     *  previous : |=== f ===|                 |=== f ===|
+     *  verified : |=== f ===+--- m - 1 ---|   |=== f ===+--- m - 1 ---|
+     * </pre>
+     * @param source the source
+     * @param founds the founds of the previous pattern
+     * @param cs the extended pattern
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     * @return the refined founds, or empty if not applicable or the founds are too dense
+     */
+    static Optional<List<Found>> refine(SearchSource source, List<Found> founds, CharSequence cs, boolean ignoreCase) {
+
+        Charset charset = source.charset();
+        if (cs == null || cs.isEmpty() || !supports(charset, ignoreCase) || !charset.newEncoder().canEncode(cs)) {
+            return Optional.empty();
+        }
+        if ((long) founds.size() * REFINE_DENSITY > source.length()) {
+            return Optional.empty();
+        }
+
+        byte[] bytes = cs.toString().getBytes(charset);
+        ByteMatcher pattern = ByteMatcher.of(bytes, ignoreCase);
+        int units = unitsOf(charset);
+        List<Found> refined = new ArrayList<>();
+        ByteBuffer bb = ByteBuffer.allocate(1024);
+        long end = Long.MIN_VALUE;
+        long next = 0;
+        for (Found f : founds) {
+            if (source.isCancelled()) throw new CancellationException("cancelled");
+            long from = Math.max(f.offset(), next);
+            long to = Math.min(source.length(), f.offsetEnd() - 1 + bytes.length);
+            if (from + bytes.length > to) continue;
+            int length = Math.toIntExact(to - from);
+            if (bb.capacity() < length) bb = ByteBuffer.allocate(length);
+            bb.clear();
+            source.bufferRead(from, length, bb);
+            bb.flip();
+            MemorySegment seg = MemorySegment.ofBuffer(bb);
+            for (long i = pattern.indexOf(seg, 0, seg.byteSize()); i >= 0;
+                    i = pattern.indexOf(seg, i + 1, seg.byteSize())) {
+                long offset = from + i;
+                if (offset % units != 0 || offset < end) continue;
+                refined.add(new Found(offset, cs.length(), bytes.length));
+                end = offset + bytes.length;
+            }
+            next = to - bytes.length + 1;
+        }
+        return Optional.of(refined);
+    }
+
+    /**
+     * Compiles the specified pattern into the encoded bytes matcher.
+     * @param cs the pattern
+     * @return the matcher, {@code null} if the pattern is empty or can not be encoded in the charset
+     */
+    private ByteMatcher compile(CharSequence cs) {
+        if (cs == null || cs.isEmpty()) return null;
+        Charset charset = source.charset();
+        if (!charset.newEncoder().canEncode(cs)) return null;
+        return ByteMatcher.of(cs.toString().getBytes(charset), ignoreCase);
+    }
+
+    /**
+     * Creates the filter of the chunks by the trigram index of the source.
+     * @param cs the pattern
+     * @return the filter, {@code null} if the source is not indexed
+     */
+    private TrigramIndex.Filter filter(CharSequence cs) {
+        TrigramIndex trigrams = source.trigrams();
+        return (trigrams == null) ? null : trigrams.filter(cs.toString().getBytes(source.charset()));
+    }
+
+    private FoundsInChunk search(Chunk chunk, ByteMatcher pattern, int len, TrigramIndex.Filter filter) {
+
+        if (source.isCancelled()) throw new CancellationException("cancelled");
+
+        if (filter != null && !filter.test(chunk.from(), chunk.to())) {
+            return new FoundsInChunk(new ArrayList<>(), chunk);
+        }
+
+        final List<Found> founds = new ArrayList<>();
+
+        final int length = Math.toIntExact(chunk.windowTo(pattern.length() - 1) - chunk.from());
+
+        ByteBuffer bb = pool.poll();
+
+        if (bb == null) {
+            bb = ByteBuffer.allocateDirect(Math.max(PatternSearch.DEFAULT_CHUNK_SIZE + pattern.length(), length));
+        } else if (bb.remaining() < length) {
+            pool.offer(bb);
+            bb = ByteBuffer.allocateDirect(length);
+        }
+
+        source.bufferRead(chunk.from(), length, bb);
+        bb.flip();
+
+        MemorySegment seg = MemorySegment.ofBuffer(bb);
+        long limit = seg.byteSize();
+        long i = pattern.indexOf(seg, 0, limit);
+        while (i >= 0 && chunk.owns(chunk.from() + i)) {
+            if (source.isCancelled()) throw new CancellationException("cancelled");
+            if ((chunk.from() + i) % units == 0) {
+                founds.add(new Found(chunk.from() + i, len, pattern.length()));
+                i = pattern.indexOf(seg, i + pattern.length(), limit);
+            } else {
+                // the match across the character units
+                i = pattern.indexOf(seg, i + 1, limit);
+            }
+        }
+
+        bb.clear();
+        pool.offer(bb);
+
+        return new FoundsInChunk(founds, chunk);
+    }
+
+    /**
+     * Get the byte width of a character unit of the specified charset.
+     * @param charset the charset
+     * @return the byte width, {@code 0} if the charset is not applicable
+     */
+    static int unitsOf(Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)
+            || StandardCharsets.US_ASCII.equals(charset)
+            || StandardCharsets.ISO_8859_1.equals(charset)) {
+            return 1;
+        } else if (StandardCharsets.UTF_16BE.equals(charset)
+            || StandardCharsets.UTF_16LE.equals(charset)) {
+            return 2;
+        } else if ("UTF-32BE".equals(charset.name())
+            || "UTF-32LE".equals(charset.name())) {
+            return 4;
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Provides an interface for searching several patterns at once within a text-based data source.
+ * Each {@link Found} is tagged with the index of the pattern in {@link Found#pattern()}.
+ * @author Naotsugu Kobayashi
+ */
+public interface MultiSearch {
+
+    /**
+     * Patterns search for specified range.
+     * @param fromRow from row
+     * @param fromCol from column
+     * @param toRow to row
+     * @param toCol to column
+     * @return the found list, in the order of the offset
+     */
+    List<Found> all(int fromRow, int fromCol, int toRow, int toCol);
+
+    /**
+     * Search patterns.
+     * @param fromRow from row
+     * @param fromCol from column
+     * @param listener the found listener
+     */
+    void forward(int fromRow, int fromCol, Consumer<FoundsInChunk> listener);
+
+}
@@ -19,6 +19,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -44,12 +47,16 @@ class NaiveSearch implements Search {
 
     @Override
     public List<Found> all(CharSequence cs, int fromRow, int fromCol, int toRow, int toCol) {
+        return all(cs, source.serial(fromRow, fromCol), source.serial(toRow, toCol));
+    }
+
+    @Override
+    public List<Found> all(CharSequence cs, long from, long to) {
         if (cs == null || cs.isEmpty()) return List.of();
-        long from = source.serial(fromRow, fromCol);
-        long to = source.serial(toRow, toCol);
         int size = Math.toIntExact(to - from);
         return Chunk.of(from, to, size).stream()
             .map(c -> search(c, cs))
+            .map(new OverlapResolver(c -> search(c, cs)))
             .map(FoundsInChunk::founds)
             .flatMap(Collection::stream)
             .toList();
@@ -86,9 +93,23 @@ class NaiveSearch implements Search {
         if (cs == null || cs.isEmpty()) return;
         int size = chunkSize(source.length());
 
+        var resolver = new OverlapResolver(c -> search(c, cs));
         Chunk.of(source, fromRow, fromCol, size).stream().parallel()
             .map(c -> search(c, cs))
-            .forEachOrdered(listener);
+            .forEachOrdered(fic -> listener.accept(resolver.apply(fic)));
+    }
+
+    @Override
+    public CompletableFuture<Void> forward(CharSequence cs, int fromRow, int fromCol,
+            Executor executor, Consumer<FoundsInChunk> listener) {
+
+        if (cs == null || cs.isEmpty()) return CompletableFuture.completedFuture(null);
+        int size = chunkSize(source.length());
+
+        var resolver = new OverlapResolver(c -> search(c, cs));
+        return ChunkTasks.run(Chunk.of(source, fromRow, fromCol, size),
+            c -> search(c, cs), executor, source::isCancelled,
+            fic -> listener.accept(resolver.apply(fic)));
     }
 
     @Override
@@ -109,10 +130,12 @@ class NaiveSearch implements Search {
         byte first = pattern[0];
         AtomicInteger n = new AtomicInteger(0);
         List<Found> founds = new ArrayList<>();
-        source.bufferRead(chunk.from(), chunk.length(), bb -> {
+        // reads the lookahead window of the pattern length, and keeps the founds which start in the chunk
+        long length = chunk.windowTo(pattern.length - 1) - chunk.from();
+        source.bufferRead(chunk.from(), length, bb -> {
             bb.flip();
             while (bb.remaining() >= pattern.length) {
-                if (Thread.interrupted()) throw new RuntimeException("interrupted");
+                if (source.isCancelled()) throw new CancellationException("cancelled");
                 int matchLen;
                 n.getAndIncrement();
                 if (first != bb.get()) continue;
@@ -121,7 +144,9 @@ class NaiveSearch implements Search {
                     if (pattern[matchLen] != bb.get()) break;
                 }
                 if (matchLen == pattern.length) {
-                    var found = new Found(n.get(), cs.length(), pattern.length);
+                    long offset = chunk.from() + n.get() - pattern.length;
+                    if (!chunk.owns(offset)) break;
+                    var found = new Found(offset, cs.length(), pattern.length);
                     founds.add(found);
                 }
             }
@@ -131,7 +156,6 @@ class NaiveSearch implements Search {
         return new FoundsInChunk(founds, chunk);
     }
 
-
     private int chunkSize(long length) {
         int chunkSize = (int) Math.ceil(
             (double) length / Runtime.getRuntime().availableProcessors());
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Resolves the founds of the chunks searched with the lookahead windows, in the order of the chunks.
+ * <p>
+ * A found which starts in a chunk and ends in the following chunk can overlap the founds of
+ * the following chunk, which are searched independently.
+ * As the founds are not overlapped in the sequential search, the following chunk is searched
+ * again from the end of the preceding found in that case.
+ * <pre>
+ *  chunk    : |------ n ------|------ n + 1 ------|
+ *  founds   :            |=======|   |===|
+ *                           |====|                  <- overlapped, searched again from here
+ * </pre>
+ * This is stateful, and must be applied to the chunks in order.
+ * @author Naotsugu Kobayashi
+ */
+class OverlapResolver implements UnaryOperator<FoundsInChunk> {
+
+    /** The search of a chunk. */
+    private final Function<Chunk, FoundsInChunk> search;
+
+    /** The end offset of the last found. */
+    private long end = Long.MIN_VALUE;
+
+    /**
+     * Constructor.
+     * @param search the search of a chunk
+     */
+    OverlapResolver(Function<Chunk, FoundsInChunk> search) {
+        this.search = search;
+    }
+
+    @Override
+    public FoundsInChunk apply(FoundsInChunk fic) {
+        List<Found> founds = fic.founds();
+        if (!founds.isEmpty() && founds.getFirst().offset() < end) {
+            Chunk chunk = fic.chunk();
+            List<Found> rest = (end < chunk.to())
+                ? search.apply(new Chunk(end, chunk.to(), chunk.parentFrom(), chunk.parentTo())).founds()
+                : new ArrayList<>();
+            fic = new FoundsInChunk(rest, chunk);
+        }
+        if (fic.hasFounds()) {
+            end = Math.max(end, fic.founds().getLast().offsetEnd());
+        }
+        return fic;
+    }
+
+}
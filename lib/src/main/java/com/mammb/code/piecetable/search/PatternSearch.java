@@ -22,7 +22,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -32,6 +35,9 @@ import java.util.regex.Pattern;
  * using pattern matching to find occurrences of a specified pattern within a given
  * {@link SearchSource}. It is capable of performing forward and backward searches,
  * as well as searching within a specific range.
+ * <p>
+ * Each chunk is searched with the lookahead window of the max span, so that the match
+ * across the chunk boundary, such as a multi-line match, is found by the chunk of its start.
  * @author Naotsugu Kobayashi
  */
 class PatternSearch implements Search {
@@ -39,12 +45,18 @@ class PatternSearch implements Search {
     /** The default chunk size. */
     static final int DEFAULT_CHUNK_SIZE = 1024 * 256;
 
+    /** The default max span of a match in bytes. */
+    static final int DEFAULT_MAX_SPAN = 1024 * 16;
+
     /** The serial document. */
     private final SearchSource source;
 
     /** The match flags. */
     private final int matchFlags;
 
+    /** The max span of a match in bytes, which is the size of the lookahead window. */
+    private final int maxSpan;
+
     /** The ByteBuffer pool. */
     private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
 
@@ -54,19 +66,39 @@ class PatternSearch implements Search {
      * @param matchFlags the match flags
      */
     PatternSearch(SearchSource source, int matchFlags) {
+        this(source, matchFlags, DEFAULT_MAX_SPAN);
+    }
+
+    /**
+     * Constructor.
+     * @param source the source
+     * @param matchFlags the match flags
+     * @param maxSpan the max span of a match in bytes
+     */
+    PatternSearch(SearchSource source, int matchFlags, int maxSpan) {
+        if (maxSpan < 0) {
+            throw new IllegalArgumentException("maxSpan: " + maxSpan);
+        }
         this.source = source;
         this.matchFlags = matchFlags;
+        this.maxSpan = maxSpan;
     }
 
     @Override
     public List<Found> all(CharSequence cs, int fromRow, int fromCol, int toRow, int toCol) {
+        return all(cs, source.serial(fromRow, fromCol), source.serial(toRow, toCol));
+    }
+
+    @Override
+    public List<Found> all(CharSequence cs, long from, long to) {
 
         if (cs == null || cs.isEmpty()) return List.of();
 
         Pattern pattern = Pattern.compile(cs.toString(), matchFlags);
 
-        return Chunk.of(source, fromRow, fromCol, toRow, toCol, DEFAULT_CHUNK_SIZE).stream()
+        return Chunk.of(from, to, DEFAULT_CHUNK_SIZE).stream()
             .map(c -> search(c, pattern))
+            .map(new OverlapResolver(c -> search(c, pattern)))
             .map(FoundsInChunk::founds)
             .flatMap(Collection::stream)
             .toList();
@@ -111,10 +143,25 @@ class PatternSearch implements Search {
 
         Pattern pattern = Pattern.compile(cs.toString(), matchFlags);
 
+        var resolver = new OverlapResolver(c -> search(c, pattern));
         Chunk.of(source, fromRow, fromCol, DEFAULT_CHUNK_SIZE).stream()
             .parallel()
             .map(c -> search(c, pattern))
-            .forEachOrdered(listener);
+            .forEachOrdered(fic -> listener.accept(resolver.apply(fic)));
+    }
+
+    @Override
+    public CompletableFuture<Void> forward(CharSequence cs, int fromRow, int fromCol,
+            Executor executor, Consumer<FoundsInChunk> listener) {
+
+        if (cs == null || cs.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        Pattern pattern = Pattern.compile(cs.toString(), matchFlags);
+
+        var resolver = new OverlapResolver(c -> search(c, pattern));
+        return ChunkTasks.run(Chunk.of(source, fromRow, fromCol, DEFAULT_CHUNK_SIZE),
+            c -> search(c, pattern), executor, source::isCancelled,
+            fic -> listener.accept(resolver.apply(fic)));
     }
 
     @Override
@@ -134,24 +181,23 @@ class PatternSearch implements Search {
 
     private FoundsInChunk search(Chunk chunk, Pattern pattern) {
 
-        if (Thread.interrupted()) throw new RuntimeException("interrupted");
+        if (source.isCancelled()) throw new CancellationException("cancelled");
 
         final List<Found> founds = new ArrayList<>();
         final Charset charset = source.charset();
 
+        final int length = Math.toIntExact(chunk.windowTo(maxSpan) - chunk.from());
+
         ByteBuffer bb = pool.poll();
 
         if (bb == null) {
-            bb = ByteBuffer.allocateDirect(
-                Math.max(DEFAULT_CHUNK_SIZE, Math.toIntExact(chunk.length())));
-        } else if (bb.remaining() < chunk.length()) {
+            bb = ByteBuffer.allocateDirect(Math.max(DEFAULT_CHUNK_SIZE + maxSpan, length));
+        } else if (bb.remaining() < length) {
             pool.offer(bb);
-            bb = ByteBuffer.allocateDirect(Math.toIntExact(chunk.length()));
+            bb = ByteBuffer.allocateDirect(length);
         }
 
-        synchronized (this) {
-            source.bufferRead(chunk.from(), chunk.length(), bb);
-        }
+        source.bufferRead(chunk.from(), length, bb);
         bb.flip();
         CharBuffer cb = charset.decode(bb);
         bb.clear();
@@ -161,9 +207,11 @@ class PatternSearch implements Search {
         int pos = 0;
         final Matcher matcher = pattern.matcher(cb);
         while (matcher.find()) {
-            if (Thread.interrupted()) throw new RuntimeException("interrupted");
+            if (source.isCancelled()) throw new CancellationException("cancelled");
             pos += charset.encode(cb.slice(n, matcher.start() - n)).limit();
             n = matcher.start();
+            // a match starting in the lookahead window belongs to the following chunk
+            if (!chunk.owns(chunk.from() + pos)) break;
             var str = matcher.group();
             var found = new Found(chunk.from() + pos, str.length(), str.getBytes(charset).length);
             founds.add(found);
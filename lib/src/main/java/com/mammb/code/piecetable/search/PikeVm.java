@@ -0,0 +1,208 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The Pike VM, which simulates the {@link ByteProgram} on all threads in lock step.
+ * <p>
+ * Each input byte is processed once for each instruction at most, so that the time is
+ * linear in the input length, regardless of the pattern.
+ * The threads are kept in the order of the priority, and the lower priority threads are cut
+ * on a match, which gives the leftmost-first match.
+ * @author Naotsugu Kobayashi
+ */
+final class PikeVm {
+
+    /** The program. */
+    private final ByteProgram prog;
+    /** The current threads. */
+    private Threads clist;
+    /** The next threads. */
+    private Threads nlist;
+    /** The stack to follow the empty transitions. */
+    private final int[] stack;
+
+    /** The start offset of the match. */
+    private long start;
+    /** The end offset of the match. */
+    private long end;
+    /** The offset from which the search is resumed, if not matched. */
+    private long resume;
+
+    /**
+     * Constructor.
+     * @param prog the program
+     */
+    PikeVm(ByteProgram prog) {
+        this.prog = prog;
+        this.clist = new Threads(prog.size());
+        this.nlist = new Threads(prog.size());
+        this.stack = new int[prog.size() * 2 + 1];
+    }
+
+    /**
+     * Finds the leftmost-first match which starts at or after {@code from}.
+     * If not matched, the search gives up at the first offset after {@code stopAt} on which no thread is alive,
+     * and the offset is set to {@link #resume()}.
+     * @param seg the memory segment
+     * @param lo the start offset of the input
+     * @param hi the end offset of the input
+     * @param from the offset from which the match starts
+     * @param stopAt the offset until which the search is continued
+     * @return {@code true} if matched
+     */
+    boolean find(MemorySegment seg, long lo, long hi, long from, long stopAt) {
+        boolean matched = false;
+        clist.clear();
+        for (long p = from; ; p++) {
+            if (!matched) {
+                if (clist.size == 0 && p > stopAt) {
+                    resume = p;
+                    return false;
+                }
+                add(clist, prog.start(), p, seg, lo, hi, p);
+            }
+            if (clist.size == 0) break;
+            nlist.clear();
+            int b = (p < hi) ? seg.get(ValueLayout.JAVA_BYTE, p) & 0xff : -1;
+            for (int i = 0; i < clist.size; i++) {
+                int pc = clist.dense[i];
+                int op = prog.op(pc);
+                if (op == ByteProgram.MATCH) {
+                    matched = true;
+                    start = clist.start[pc];
+                    end = p;
+                    // cut the lower priority threads
+                    break;
+                } else if (op == ByteProgram.BYTE && prog.lo(pc) <= b && b <= prog.hi(pc)) {
+                    add(nlist, prog.out(pc), clist.start[pc], seg, lo, hi, p + 1);
+                }
+            }
+            Threads t = clist;
+            clist = nlist;
+            nlist = t;
+            if (p >= hi) break;
+        }
+        resume = hi + 1;
+        return matched;
+    }
+
+    private void add(Threads list, int pc0, long s, MemorySegment seg, long lo, long hi, long p) {
+        int sp = 0;
+        stack[sp++] = pc0;
+        while (sp > 0) {
+            int pc = stack[--sp];
+            if (list.contains(pc)) continue;
+            list.add(pc, s);
+            switch (prog.op(pc)) {
+                case ByteProgram.SPLIT -> {
+                    stack[sp++] = prog.alt(pc);
+                    stack[sp++] = prog.out(pc);
+                }
+                case ByteProgram.ASSERT -> {
+                    if (check(prog.lo(pc), seg, lo, hi, p)) {
+                        stack[sp++] = prog.out(pc);
+                    }
+                }
+                default -> { }
+            }
+        }
+    }
+
+    /**
+     * Checks the assertion at the specified offset.
+     * @param kind the kind of the assertion
+     * @param seg the memory segment
+     * @param lo the start offset of the input
+     * @param hi the end offset of the input
+     * @param p the offset
+     * @return {@code true} if the assertion is satisfied
+     */
+    static boolean check(int kind, MemorySegment seg, long lo, long hi, long p) {
+        int prev = (p > lo) ? seg.get(ValueLayout.JAVA_BYTE, p - 1) & 0xff : -1;
+        int cur = (p < hi) ? seg.get(ValueLayout.JAVA_BYTE, p) & 0xff : -1;
+        return switch (kind) {
+            case RegexParser.BOL -> prev < 0 || (cur >= 0 && (prev == '\n' || (prev == '\r' && cur != '\n')));
+            case RegexParser.EOL -> cur < 0 || cur == '\r' || (cur == '\n' && prev != '\r');
+            case RegexParser.WORD -> isWord(prev) != isWord(cur);
+            case RegexParser.NOT_WORD -> isWord(prev) == isWord(cur);
+            default -> false;
+        };
+    }
+
+    private static boolean isWord(int b) {
+        return (b >= '0' && b <= '9') || (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || b == '_';
+    }
+
+    /**
+     * Get the start offset of the match.
+     * @return the start offset of the match
+     */
+    long start() {
+        return start;
+    }
+
+    /**
+     * Get the end offset of the match.
+     * @return the end offset of the match
+     */
+    long end() {
+        return end;
+    }
+
+    /**
+     * Get the offset from which the search is resumed, if not matched.
+     * @return the offset
+     */
+    long resume() {
+        return resume;
+    }
+
+    /**
+     * The sparse set of the threads, in the order of the priority.
+     */
+    private static final class Threads {
+        final int[] dense;
+        final int[] sparse;
+        final long[] start;
+        int size;
+
+        Threads(int n) {
+            dense = new int[n];
+            sparse = new int[n];
+            start = new long[n];
+        }
+
+        boolean contains(int pc) {
+            int i = sparse[pc];
+            return i < size && dense[i] == pc;
+        }
+
+        void add(int pc, long s) {
+            sparse[pc] = size;
+            dense[size++] = pc;
+            start[pc] = s;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+}
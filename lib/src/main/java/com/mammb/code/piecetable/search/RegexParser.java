@@ -0,0 +1,483 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The parser of the regular expression into the syntax tree, for the {@link ByteProgram}.
+ * <p>
+ * The syntax is the subset of {@link Pattern} which can be matched in linear time.
+ * The backreferences, the lookarounds, the possessive quantifiers and the nested classes are
+ * not supported, and rejected with {@link PatternSyntaxException}.
+ * {@code ^} and {@code $} always match at the line boundaries, as {@link Pattern#MULTILINE}.
+ * The case-insensitive matching folds the ASCII letters only, as {@link Pattern#CASE_INSENSITIVE}.
+ * @author Naotsugu Kobayashi
+ */
+final class RegexParser {
+
+    /** The syntax tree node. */
+    sealed interface Node permits Chars, Concat, Alt, Repeat, Assert { }
+
+    /**
+     * The set of code points.
+     * @param ranges the sorted and merged code point ranges, as {@code [lo0, hi0, lo1, hi1, ...]}
+     */
+    record Chars(int[] ranges) implements Node { }
+
+    /**
+     * The concatenation, which matches the empty if no nodes.
+     * @param nodes the nodes
+     */
+    record Concat(List<Node> nodes) implements Node { }
+
+    /**
+     * The alternation, in the order of the priority.
+     * @param nodes the nodes
+     */
+    record Alt(List<Node> nodes) implements Node { }
+
+    /**
+     * The repetition.
+     * @param node the node to be repeated
+     * @param min the minimum count
+     * @param max the maximum count, {@code -1} if unbounded
+     * @param greedy whether the repetition is greedy
+     */
+    record Repeat(Node node, int min, int max, boolean greedy) implements Node { }
+
+    /**
+     * The zero-width assertion.
+     * @param kind the kind of the assertion
+     */
+    record Assert(int kind) implements Node { }
+
+    /** The beginning of a line. */
+    static final int BOL = 0;
+    /** The end of a line. */
+    static final int EOL = 1;
+    /** The word boundary. */
+    static final int WORD = 2;
+    /** The non-word boundary. */
+    static final int NOT_WORD = 3;
+
+    /** The max count of the bounded repetition. */
+    static final int MAX_REPEAT = 1000;
+
+    /** The max code point. */
+    private static final int MAX_CP = Character.MAX_CODE_POINT;
+    /** The digits. */
+    private static final int[] DIGIT = { '0', '9' };
+    /** The word chars. */
+    private static final int[] WORD_CHARS = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+    /** The white spaces. */
+    private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+    /** The chars other than the line terminators. */
+    private static final int[] NOT_TERMINATOR = { 0, '\n' - 1, '\n' + 1, '\r' - 1, '\r' + 1, 0x84,
+        0x86, 0x2027, 0x202A, MAX_CP };
+
+    /** The regex. */
+    private final String regex;
+    /** The current position. */
+    private int pos;
+    /** Whether the ASCII letters are matched case-insensitively. */
+    private boolean ignoreCase;
+    /** Whether the dot matches the line terminators. */
+    private boolean dotAll;
+
+    private RegexParser(String regex, int flags) {
+        this.regex = regex;
+        this.ignoreCase = (flags & Pattern.CASE_INSENSITIVE) != 0;
+        this.dotAll = (flags & Pattern.DOTALL) != 0;
+    }
+
+    /**
+     * Parses the specified regex.
+     * @param regex the regex
+     * @param flags the match flags, {@link Pattern#CASE_INSENSITIVE} and {@link Pattern#DOTALL} are applied
+     * @return the syntax tree
+     * @throws PatternSyntaxException if the regex is illegal or not supported
+     */
+    static Node parse(String regex, int flags) {
+        var parser = new RegexParser(regex, flags);
+        Node node = parser.alternation();
+        if (parser.more()) {
+            throw parser.error("Unmatched closing ')'");
+        }
+        return node;
+    }
+
+    private Node alternation() {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(concat());
+        while (more() && peek() == '|') {
+            pos++;
+            nodes.add(concat());
+        }
+        return nodes.size() == 1 ? nodes.getFirst() : new Alt(nodes);
+    }
+
+    private Node concat() {
+        List<Node> nodes = new ArrayList<>();
+        while (more() && peek() != '|' && peek() != ')') {
+            Node node = repeat();
+            if (node != null) nodes.add(node);
+        }
+        return nodes.size() == 1 ? nodes.getFirst() : new Concat(nodes);
+    }
+
+    private Node repeat() {
+        Node atom = atom();
+        if (atom == null || !more()) return atom;
+        int min, max;
+        switch (peek()) {
+            case '*' -> { min = 0; max = -1; pos++; }
+            case '+' -> { min = 1; max = -1; pos++; }
+            case '?' -> { min = 0; max = 1; pos++; }
+            case '{' -> {
+                pos++;
+                min = number();
+                max = min;
+                if (more() && peek() == ',') {
+                    pos++;
+                    max = (more() && peek() == '}') ? -1 : number();
+                }
+                if (!more() || regex.charAt(pos++) != '}') {
+                    throw error("Unclosed counted closure");
+                }
+                if (max >= 0 && max < min) {
+                    throw error("Illegal repetition range");
+                }
+                if (Math.max(min, max) > MAX_REPEAT) {
+                    throw error("Repetition count exceeds " + MAX_REPEAT);
+                }
+            }
+            default -> { return atom; }
+        }
+        boolean greedy = true;
+        if (more() && peek() == '?') {
+            greedy = false;
+            pos++;
+        } else if (more() && peek() == '+') {
+            throw error("Possessive quantifier is not supported");
+        }
+        return new Repeat(atom, min, max, greedy);
+    }
+
+    private Node atom() {
+        int c = regex.codePointAt(pos);
+        pos += Character.charCount(c);
+        return switch (c) {
+            case '(' -> group();
+            case '[' -> new Chars(charClass());
+            case '.' -> new Chars(dotAll ? new int[] { 0, MAX_CP } : NOT_TERMINATOR);
+            case '^' -> new Assert(BOL);
+            case '$' -> new Assert(EOL);
+            case '\\' -> escape();
+            case '*', '+', '?', '{' -> throw error("Dangling meta character '" + (char) c + "'");
+            default -> literal(c);
+        };
+    }
+
+    private Node group() {
+        boolean ignoreCase = this.ignoreCase;
+        boolean dotAll = this.dotAll;
+        if (more() && peek() == '?') {
+            pos++;
+            if (!more()) throw error("Unknown group type");
+            char c = regex.charAt(pos);
+            if (c == '<' && pos + 1 < regex.length() && Character.isLetter(regex.charAt(pos + 1))) {
+                // named group, which is not captured
+                int end = regex.indexOf('>', pos);
+                if (end < 0) throw error("Named capturing group is missing trailing '>'");
+                pos = end + 1;
+            } else if (c == ':') {
+                pos++;
+            } else if (c == '=' || c == '!' || c == '<' || c == '>') {
+                throw error("Lookaround and atomic group are not supported");
+            } else {
+                // inline flags
+                boolean on = true;
+                while (true) {
+                    if (!more()) throw error("Unclosed group");
+                    char f = regex.charAt(pos++);
+                    switch (f) {
+                        case 'i' -> this.ignoreCase = on;
+                        case 's' -> this.dotAll = on;
+                        case 'm' -> { } // always multiline
+                        case '-' -> on = false;
+                        case ')' -> {
+                            // applied to the rest of the enclosing group
+                            return null;
+                        }
+                        case ':' -> {
+                            Node node = alternation();
+                            closeGroup();
+                            this.ignoreCase = ignoreCase;
+                            this.dotAll = dotAll;
+                            return node;
+                        }
+                        default -> throw error("Unknown inline modifier");
+                    }
+                }
+            }
+        }
+        Node node = alternation();
+        closeGroup();
+        this.ignoreCase = ignoreCase;
+        this.dotAll = dotAll;
+        return node;
+    }
+
+    private void closeGroup() {
+        if (!more() || regex.charAt(pos) != ')') {
+            throw error("Unclosed group");
+        }
+        pos++;
+    }
+
+    private int[] charClass() {
+        boolean negate = false;
+        if (more() && peek() == '^') {
+            negate = true;
+            pos++;
+        }
+        List<int[]> list = new ArrayList<>();
+        boolean first = true;
+        while (true) {
+            if (!more()) throw error("Unclosed character class");
+            int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+            if (c == ']' && !first) break;
+            first = false;
+            if (c == '[' || (c == '&' && more() && peek() == '&')) {
+                throw error("Nested character class is not supported");
+            }
+            int lo = c;
+            if (c == '\\') {
+                int[] cls = classEscape();
+                if (cls != null) {
+                    list.add(cls);
+                    continue;
+                }
+                lo = charEscape();
+            }
+            int hi = lo;
+            if (pos + 1 < regex.length() && peek() == '-' && regex.charAt(pos + 1) != ']') {
+                pos++;
+                hi = regex.codePointAt(pos);
+                pos += Character.charCount(hi);
+                if (hi == '\\') hi = charEscape();
+                if (hi < lo) throw error("Illegal character range");
+            }
+            list.add(new int[] { lo, hi });
+        }
+        int[] ranges = fold(union(list));
+        return negate ? negate(ranges) : ranges;
+    }
+
+    private Node escape() {
+        if (!more()) throw error("Unexpected internal error");
+        int[] cls = classEscape();
+        if (cls != null) return new Chars(cls);
+        char c = regex.charAt(pos);
+        switch (c) {
+            case 'b' -> { pos++; return new Assert(WORD); }
+            case 'B' -> { pos++; return new Assert(NOT_WORD); }
+            case 'Q' -> {
+                int end = regex.indexOf("\\E", ++pos);
+                String quoted = regex.substring(pos, end < 0 ? regex.length() : end);
+                pos = end < 0 ? regex.length() : end + 2;
+                List<Node> nodes = new ArrayList<>();
+                quoted.codePoints().forEach(cp -> nodes.add(literal(cp)));
+                return new Concat(nodes);
+            }
+            default -> { return literal(charEscape()); }
+        }
+    }
+
+    private int[] classEscape() {
+        int[] cls = switch (peek()) {
+            case 'd' -> DIGIT;
+            case 'D' -> negate(DIGIT);
+            case 'w' -> WORD_CHARS;
+            case 'W' -> negate(WORD_CHARS);
+            case 's' -> SPACE;
+            case 'S' -> negate(SPACE);
+            default -> null;
+        };
+        if (cls != null) pos++;
+        return cls;
+    }
+
+    private int charEscape() {
+        if (!more()) throw error("Unexpected internal error");
+        char c = regex.charAt(pos++);
+        return switch (c) {
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'f' -> '\f';
+            case 'a' -> '\u0007';
+            case 'e' -> '\u001B';
+            case '0' -> {
+                int n = 0, k = 0;
+                while (k < 3 && more() && peek() >= '0' && peek() <= '7' && n * 8 + (peek() - '0') <= 0377) {
+                    n = n * 8 + (regex.charAt(pos++) - '0');
+                    k++;
+                }
+                if (k == 0) throw error("Illegal octal escape sequence");
+                yield n;
+            }
+            case 'x' -> {
+                if (more() && peek() == '{') {
+                    int end = regex.indexOf('}', pos);
+                    if (end < 0) throw error("Unclosed hexadecimal escape sequence");
+                    int cp = hex(pos + 1, end);
+                    pos = end + 1;
+                    if (cp > MAX_CP) throw error("Hexadecimal codepoint is too big");
+                    yield cp;
+                }
+                int cp = hex(pos, pos + 2);
+                pos += 2;
+                yield cp;
+            }
+            case 'u' -> {
+                int cp = hex(pos, pos + 4);
+                pos += 4;
+                yield cp;
+            }
+            case 'c' -> {
+                if (!more()) throw error("Illegal control escape sequence");
+                yield regex.charAt(pos++) ^ 64;
+            }
+            default -> {
+                if (c >= '1' && c <= '9') {
+                    throw error("Backreference is not supported");
+                }
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    throw error("Illegal/unsupported escape sequence");
+                }
+                pos--;
+                int cp = regex.codePointAt(pos);
+                pos += Character.charCount(cp);
+                yield cp;
+            }
+        };
+    }
+
+    private int hex(int from, int to) {
+        if (from >= to || to > regex.length()) throw error("Illegal hexadecimal escape sequence");
+        try {
+            return Integer.parseInt(regex.substring(from, to), 16);
+        } catch (NumberFormatException e) {
+            throw error("Illegal hexadecimal escape sequence");
+        }
+    }
+
+    private int number() {
+        int start = pos;
+        while (more() && peek() >= '0' && peek() <= '9') pos++;
+        if (start == pos || pos - start > 4) {
+            throw error("Illegal repetition");
+        }
+        return Integer.parseInt(regex, start, pos, 10);
+    }
+
+    private Node literal(int c) {
+        return new Chars(fold(new int[] { c, c }));
+    }
+
+    private int[] fold(int[] ranges) {
+        if (!ignoreCase) return ranges;
+        List<int[]> list = new ArrayList<>();
+        list.add(ranges);
+        for (int i = 0; i < ranges.length; i += 2) {
+            int lo = Math.max(ranges[i], 'A'), hi = Math.min(ranges[i + 1], 'Z');
+            if (lo <= hi) list.add(new int[] { lo | 0x20, hi | 0x20 });
+            lo = Math.max(ranges[i], 'a');
+            hi = Math.min(ranges[i + 1], 'z');
+            if (lo <= hi) list.add(new int[] { lo & ~0x20, hi & ~0x20 });
+        }
+        return union(list);
+    }
+
+    /**
+     * Gets the union of the ranges.
+     * @param list the list of the ranges
+     * @return the sorted and merged ranges
+     */
+    static int[] union(List<int[]> list) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int[] ranges : list) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                pairs.add(new int[] { ranges[i], ranges[i + 1] });
+            }
+        }
+        pairs.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] ret = new int[pairs.size() * 2];
+        int n = 0;
+        for (int[] p : pairs) {
+            if (n > 0 && p[0] <= ret[n - 1] + 1) {
+                ret[n - 1] = Math.max(ret[n - 1], p[1]);
+            } else {
+                ret[n++] = p[0];
+                ret[n++] = p[1];
+            }
+        }
+        return Arrays.copyOf(ret, n);
+    }
+
+    /**
+     * Gets the complement of the ranges.
+     * @param ranges the sorted and merged ranges
+     * @return the complement
+     */
+    static int[] negate(int[] ranges) {
+        int[] ret = new int[ranges.length + 2];
+        int n = 0;
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                ret[n++] = next;
+                ret[n++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= MAX_CP) {
+            ret[n++] = next;
+            ret[n++] = MAX_CP;
+        }
+        return Arrays.copyOf(ret, n);
+    }
+
+    private boolean more() {
+        return pos < regex.length();
+    }
+
+    private char peek() {
+        return regex.charAt(pos);
+    }
+
+    private PatternSyntaxException error(String desc) {
+        return new PatternSyntaxException(desc, regex, pos);
+    }
+
+}
@@ -15,8 +15,11 @@
  */
 package com.mammb.code.piecetable.search;
 
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
@@ -39,6 +42,16 @@ public interface Search {
      */
     List<Found> all(CharSequence pattern, int fromRow, int fromCol, int toRow, int toCol);
 
+    /**
+     * Pattern search for the specified byte range.
+     * The founds are the matches which lie in the range.
+     * @param pattern the pattern
+     * @param from the start byte offset, inclusive, at a character boundary
+     * @param to the end byte offset, exclusive, at a character boundary
+     * @return the found list
+     */
+    List<Found> all(CharSequence pattern, long from, long to);
+
     /**
      * Search pattern.
      * @param pattern the pattern
@@ -77,22 +90,97 @@ public interface Search {
     void backward(CharSequence pattern, int fromRow, int fromCol,
             Consumer<FoundsInChunk> listener);
 
+    /**
+     * Search pattern asynchronously, running the search of each chunk as a task of the specified executor.
+     * The founds are notified in order, on the thread which has searched the chunk.
+     * If the source is cancelled, see {@link SearchSource#cancellable(SearchSource, java.util.function.BooleanSupplier)},
+     * all the chunk tasks stop and the future completes exceptionally
+     * with the {@link java.util.concurrent.CancellationException}.
+     * @param pattern the pattern
+     * @param fromRow from row
+     * @param fromCol from column
+     * @param executor the executor which runs the chunk tasks
+     * @param listener the found listener
+     * @return the future completed when all the founds have been notified
+     */
+    CompletableFuture<Void> forward(CharSequence pattern, int fromRow, int fromCol,
+            Executor executor, Consumer<FoundsInChunk> listener);
+
     /**
      * Create a case-sensitive search.
+     * The search runs on the encoded bytes if the charset of the source allows,
+     * otherwise on the decoded chars.
      * @param source the search source
      * @return the search
      */
     static Search of(SearchSource source) {
-        return new PatternSearch(source, Pattern.LITERAL);
+        return LiteralSearch.supports(source.charset())
+            ? new LiteralSearch(source)
+            : new PatternSearch(source, Pattern.LITERAL);
     }
 
     /**
      * Create a case-insensitive search.
+     * The ASCII letters are matched case-insensitively.
      * @param source the search source
      * @return the search
      */
     static Search caseInsensitiveOf(SearchSource source) {
-        return new PatternSearch(source, Pattern.LITERAL | Pattern.CASE_INSENSITIVE);
+        return LiteralSearch.supports(source.charset(), true)
+            ? new LiteralSearch(source, true)
+            : new PatternSearch(source, Pattern.LITERAL | Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Get whether the literal search of the specified charset runs on the encoded bytes,
+     * so that the range of {@link #all(CharSequence, long, long)} needs not be at the character boundaries.
+     * @param charset the charset
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     * @return {@code true} if the literal search runs on the encoded bytes
+     */
+    static boolean bytewise(Charset charset, boolean ignoreCase) {
+        return LiteralSearch.supports(charset, ignoreCase);
+    }
+
+    /**
+     * Refines the founds of a literal pattern into the founds of the pattern which extends it,
+     * by verifying the neighbourhood of the founds instead of rescanning.
+     * @param source the search source
+     * @param founds the founds of the previous pattern, which is a prefix of the specified pattern
+     * @param pattern the extended pattern
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     * @return the refined founds, or empty if a rescan is needed
+     */
+    static Optional<List<Found>> refine(SearchSource source, List<Found> founds,
+            CharSequence pattern, boolean ignoreCase) {
+        return LiteralSearch.refine(source, founds, pattern, ignoreCase);
+    }
+
+    /**
+     * Create a case-sensitive search of the multiple patterns.
+     * The patterns are found in a single pass if the charset of the source allows,
+     * otherwise one after another.
+     * @param source the search source
+     * @param patterns the patterns
+     * @return the search
+     */
+    static MultiSearch multiOf(SearchSource source, List<? extends CharSequence> patterns) {
+        return LiteralSearch.supports(source.charset())
+            ? new AhoCorasickSearch(source, patterns, false)
+            : new SequentialMultiSearch(of(source), patterns);
+    }
+
+    /**
+     * Create a case-insensitive search of the multiple patterns.
+     * The ASCII letters are matched case-insensitively.
+     * @param source the search source
+     * @param patterns the patterns
+     * @return the search
+     */
+    static MultiSearch caseInsensitiveMultiOf(SearchSource source, List<? extends CharSequence> patterns) {
+        return LiteralSearch.supports(source.charset(), true)
+            ? new AhoCorasickSearch(source, patterns, true)
+            : new SequentialMultiSearch(caseInsensitiveOf(source), patterns);
     }
 
     /**
@@ -103,4 +191,37 @@ public interface Search {
     static Search regexOf(SearchSource source) {
         return new PatternSearch(source, 0);
     }
+
+    /**
+     * Create a regexp search with the max span of a match.
+     * The match across the chunks of the parallel search is found within the max span,
+     * such as a multi-line match.
+     * @param source the search source
+     * @param maxSpan the max span of a match in bytes
+     * @return the search
+     */
+    static Search regexOf(SearchSource source, int maxSpan) {
+        return new PatternSearch(source, 0, maxSpan);
+    }
+
+    /**
+     * Create a regexp search of the guaranteed linear time.
+     * The backreferences and the lookarounds are not supported,
+     * and {@code ^} and {@code $} match at the line boundaries.
+     * @param source the search source
+     * @return the search
+     */
+    static Search linearRegexOf(SearchSource source) {
+        return new LinearRegexSearch(source, 0);
+    }
+
+    /**
+     * Create a regexp search of the guaranteed linear time, with the max span of a match.
+     * @param source the search source
+     * @param maxSpan the max span of a match in bytes
+     * @return the search
+     */
+    static Search linearRegexOf(SearchSource source, int maxSpan) {
+        return new LinearRegexSearch(source, 0, maxSpan);
+    }
 }
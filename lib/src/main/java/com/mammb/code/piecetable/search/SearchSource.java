@@ -17,6 +17,7 @@ package com.mammb.code.piecetable.search;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 
 /**
@@ -88,4 +89,34 @@ public interface SearchSource {
      */
     void bufferRead(long offset, long limitLength, Function<ByteBuffer, Boolean> traverseCallback);
 
+    /**
+     * Get the trigram index of this source, which narrows the literal search down.
+     * @return the trigram index, {@code null} if not indexed
+     */
+    default TrigramIndex trigrams() {
+        return null;
+    }
+
+    /**
+     * Get whether the search on this source has been cancelled.
+     * The searches check it for each chunk and each match,
+     * and stop with the {@link java.util.concurrent.CancellationException}.
+     * @return {@code true} if the search has been cancelled
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Create the source which is cancelled by the specified token.
+     * Once cancelled, the reads of the source fail with the {@link java.util.concurrent.CancellationException},
+     * so that the searches on it stop reading immediately.
+     * @param source the source
+     * @param cancelled the cancellation token
+     * @return the cancellable source
+     */
+    static SearchSource cancellable(SearchSource source, BooleanSupplier cancelled) {
+        return new CancellableSource(source, cancelled);
+    }
+
 }
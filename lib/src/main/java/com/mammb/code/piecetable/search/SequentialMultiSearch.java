@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The {@code SequentialMultiSearch} class provides an implementation of the {@link MultiSearch} interface
+ * which searches the patterns one after another by the {@link Search}.
+ * This is used for the charsets in which the {@link AhoCorasickSearch} is not applicable.
+ * @author Naotsugu Kobayashi
+ */
+class SequentialMultiSearch implements MultiSearch {
+
+    /** The search. */
+    private final Search search;
+
+    /** The patterns. */
+    private final List<? extends CharSequence> patterns;
+
+    /**
+     * Constructor.
+     * @param search the single pattern search
+     * @param patterns the patterns
+     */
+    SequentialMultiSearch(Search search, List<? extends CharSequence> patterns) {
+        this.search = search;
+        this.patterns = List.copyOf(patterns);
+    }
+
+    @Override
+    public List<Found> all(int fromRow, int fromCol, int toRow, int toCol) {
+        List<Found> founds = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            founds.addAll(tag(search.all(patterns.get(i), fromRow, fromCol, toRow, toCol), i));
+        }
+        Collections.sort(founds);
+        return founds;
+    }
+
+    @Override
+    public void forward(int fromRow, int fromCol, Consumer<FoundsInChunk> listener) {
+        for (int i = 0; i < patterns.size(); i++) {
+            final int index = i;
+            search.forward(patterns.get(i), fromRow, fromCol, fic ->
+                listener.accept(new FoundsInChunk(tag(fic.founds(), index), fic.chunk())));
+        }
+    }
+
+    private static List<Found> tag(List<Found> founds, int pattern) {
+        List<Found> tagged = new ArrayList<>(founds.size());
+        for (Found f : founds) {
+            tagged.add(new Found(f.offset(), f.len(), f.rawLen(), pattern));
+        }
+        return tagged;
+    }
+
+}
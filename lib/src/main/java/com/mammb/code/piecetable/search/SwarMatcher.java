@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * The matcher which filters the candidates eight positions at a time with SWAR (SIMD within a register).
+ * <p>
+ * The word at the candidate positions is tested for the first byte of the pattern, and the word
+ * shifted by the pattern length minus one is tested for the last byte, at once.
+ * Only the positions where both bytes match are verified.
+ * <pre>
+ *  pattern : | a | . | . | d |
+ *  word A  : | x | a | x | a | x | x | x | x |   i .. i+7          -> first byte lanes
+ *  word B  : | x | d | x | x | x | x | x | x |   i+m-1 .. i+m+6    -> last byte lanes
+ *  A and B :     ^                                                 -> verify at i+1
+ * </pre>
+ * For the case-insensitive matching, the ASCII letters are folded to the lower case
+ * by setting the {@code 0x20} bit on the lanes, which is exact for the letters.
+ * The other bytes, including the bytes of the multibyte chars, are compared as they are.
+ * @author Naotsugu Kobayashi
+ */
+final class SwarMatcher implements ByteMatcher {
+
+    /** The little-endian word layout. */
+    private static final ValueLayout.OfLong WORD =
+        ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    /** The low bits mask of each lane. */
+    private static final long LOW = 0x7F7F7F7F7F7F7F7FL;
+    /** The lower case bit of each lane. */
+    private static final long LOWER = 0x2020202020202020L;
+    /** The lanes of one. */
+    private static final long ONES = 0x0101010101010101L;
+
+    /** The pattern bytes, folded to the lower case if case-insensitive. */
+    private final byte[] pattern;
+    /** Whether the ASCII letters are matched case-insensitively. */
+    private final boolean ignoreCase;
+    /** The first byte on each lane. */
+    private final long first;
+    /** The last byte on each lane. */
+    private final long last;
+    /** The case folding bits of the first byte lanes. */
+    private final long firstFold;
+    /** The case folding bits of the last byte lanes. */
+    private final long lastFold;
+
+    /**
+     * Constructor.
+     * @param pattern the pattern bytes, not empty
+     * @param ignoreCase whether the ASCII letters are matched case-insensitively
+     */
+    SwarMatcher(byte[] pattern, boolean ignoreCase) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("empty pattern");
+        }
+        this.ignoreCase = ignoreCase;
+        this.pattern = pattern.clone();
+        if (ignoreCase) {
+            for (int i = 0; i < this.pattern.length; i++) {
+                this.pattern[i] = fold(this.pattern[i]);
+            }
+        }
+        byte f = this.pattern[0];
+        byte l = this.pattern[this.pattern.length - 1];
+        this.first = (f & 0xffL) * ONES;
+        this.last = (l & 0xffL) * ONES;
+        this.firstFold = (ignoreCase && isLower(f)) ? LOWER : 0;
+        this.lastFold = (ignoreCase && isLower(l)) ? LOWER : 0;
+    }
+
+    @Override
+    public long indexOf(MemorySegment seg, long from, long to) {
+        final int m = pattern.length;
+        long i = from;
+        for (; i + m + 7 <= to; i += Long.BYTES) {
+            long a = seg.get(WORD, i) | firstFold;
+            long b = seg.get(WORD, i + m - 1) | lastFold;
+            long c = zeroLanes(a ^ first) & zeroLanes(b ^ last);
+            while (c != 0) {
+                long k = i + (Long.numberOfTrailingZeros(c) >>> 3);
+                if (verify(seg, k)) return k;
+                c &= c - 1;
+            }
+        }
+        for (; i + m <= to; i++) {
+            if (verify(seg, i)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int length() {
+        return pattern.length;
+    }
+
+    private boolean verify(MemorySegment seg, long i) {
+        for (int k = 0; k < pattern.length; k++) {
+            byte b = seg.get(ValueLayout.JAVA_BYTE, i + k);
+            if ((ignoreCase ? fold(b) : b) != pattern[k]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the mask of the zero lanes, without carry across lanes.
+     * @param x the word
+     * @return the mask that the high bit of each zero lane is set
+     */
+    private static long zeroLanes(long x) {
+        return ~(((x & LOW) + LOW) | x | LOW);
+    }
+
+    private static byte fold(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b | 0x20) : b;
+    }
+
+    private static boolean isLower(byte b) {
+        return b >= 'a' && b <= 'z';
+    }
+
+}
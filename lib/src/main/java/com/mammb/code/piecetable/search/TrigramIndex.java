@@ -0,0 +1,410 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * The trigram index of a search source, which narrows the literal search down to the candidate blocks.
+ * <p>
+ * The source is divided into the blocks, and each block holds the signature of the byte trigrams
+ * which start in the block, i.e. a bitset of the hashed trigrams.
+ * A match starting in a block consists of the trigrams which start in the block or in the following blocks,
+ * so that a block whose signatures lack any trigram of the pattern is skipped without reading.
+ * The trigrams are folded into the ASCII lower case, so that both the case-sensitive
+ * and the case-insensitive search are narrowed by the same index.
+ * <pre>
+ *     block  :  |---- b ----|---- b + 1 ----|
+ *     match  :            |== p ==|
+ *     trigram:  first in sig[b], rest in sig[b] | sig[b + 1]
+ * </pre>
+ * The signature is {@code 1/32} of the block size, and is saved to and loaded from a sidecar file.
+ * An edit shifts the block extents and marks the edited blocks dirty, which are always candidates
+ * until they are re-indexed by {@link #refresh(SearchSource)}.
+ * @author Naotsugu Kobayashi
+ */
+public class TrigramIndex {
+
+    /** The default block size. */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /** The magic number of the sidecar file, "TRG3". */
+    private static final int MAGIC = 0x54524733;
+
+    /** The version of the sidecar file. */
+    private static final int VERSION = 1;
+
+    /** The byte size of the sidecar file header. */
+    private static final int HEADER = 4 + 4 + 4 + 8 + 4 + 8;
+
+    /** The block size at build. */
+    private final int blockSize;
+
+    /** The bit width of the hashed trigram. */
+    private final int bits;
+
+    /** The byte lengths of the blocks. */
+    private final long[] lengths;
+
+    /** The trigram signatures of the blocks. */
+    private final long[][] sigs;
+
+    /** The blocks to be re-indexed. */
+    private final BitSet dirty;
+
+    /**
+     * Constructor.
+     * @param blockSize the block size at build
+     * @param lengths the byte lengths of the blocks
+     * @param sigs the trigram signatures of the blocks
+     * @param dirty the blocks to be re-indexed
+     */
+    private TrigramIndex(int blockSize, long[] lengths, long[][] sigs, BitSet dirty) {
+        this.blockSize = blockSize;
+        this.bits = Integer.numberOfTrailingZeros(blockSize >>> 5) + 3;
+        this.lengths = lengths;
+        this.sigs = sigs;
+        this.dirty = dirty;
+    }
+
+    /**
+     * Builds the trigram index of the specified source, with the default block size.
+     * @param source the search source
+     * @return the trigram index
+     */
+    public static TrigramIndex of(SearchSource source) {
+        return of(source, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Builds the trigram index of the specified source, block by block in parallel.
+     * @param source the search source
+     * @param blockSize the block size, a power of two not less than {@code 256}
+     * @return the trigram index
+     */
+    public static TrigramIndex of(SearchSource source, int blockSize) {
+        if (blockSize < 256 || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("blockSize[%d]".formatted(blockSize));
+        }
+        long length = source.length();
+        int blocks = Math.max(1, Math.toIntExact((length + blockSize - 1) / blockSize));
+        long[] lengths = new long[blocks];
+        for (int i = 0; i < blocks; i++) {
+            lengths[i] = Math.min(blockSize, length - (long) i * blockSize);
+        }
+        var index = new TrigramIndex(blockSize, lengths, new long[blocks][], new BitSet());
+        IntStream.range(0, blocks).parallel()
+            .forEach(i -> index.sigs[i] = index.signature(source, (long) i * blockSize, lengths[i]));
+        return index;
+    }
+
+    /**
+     * Loads the trigram index from the sidecar file.
+     * @param path the path of the sidecar file
+     * @param length the byte length of the source
+     * @param stamp the stamp of the source, such as the last modified time
+     * @return the trigram index, or empty if the file does not exist or is not of the source
+     */
+    public static Optional<TrigramIndex> load(Path path, long length, long stamp) {
+        if (!path.toFile().exists()) return Optional.empty();
+        try (var ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(ch, header);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return Optional.empty();
+            int blockSize = header.getInt();
+            if (header.getLong() != stamp) return Optional.empty();
+            int blocks = header.getInt();
+            if (header.getLong() != length) return Optional.empty();
+            if (blockSize < 256 || Integer.bitCount(blockSize) != 1 || blocks < 1) return Optional.empty();
+
+            var index = new TrigramIndex(blockSize, new long[blocks], new long[blocks][], new BitSet());
+            ByteBuffer bb = ByteBuffer.allocate(8 + (blockSize >>> 5));
+            long total = 0;
+            for (int i = 0; i < blocks; i++) {
+                bb.clear();
+                readFully(ch, bb);
+                index.lengths[i] = bb.getLong();
+                index.sigs[i] = new long[blockSize >>> 8];
+                bb.asLongBuffer().get(index.sigs[i]);
+                total += index.lengths[i];
+            }
+            return total == length ? Optional.of(index) : Optional.empty();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves this index to the sidecar file.
+     * The dirty blocks are to be re-indexed before saving.
+     * @param path the path of the sidecar file
+     * @param stamp the stamp of the source, such as the last modified time
+     */
+    public void save(Path path, long stamp) {
+        if (!dirty.isEmpty()) {
+            throw new IllegalStateException("dirty blocks[%d]".formatted(dirty.cardinality()));
+        }
+        try (var ch = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(blockSize).putLong(stamp)
+                .putInt(lengths.length).putLong(length()).flip();
+            writeFully(ch, header);
+            ByteBuffer bb = ByteBuffer.allocate(8 + (blockSize >>> 5));
+            for (int i = 0; i < lengths.length; i++) {
+                bb.clear();
+                bb.putLong(lengths[i]);
+                bb.asLongBuffer().put(sigs[i]);
+                bb.position(bb.limit()).flip();
+                writeFully(ch, bb);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Notifies the insertion to the source.
+     * @param offset the byte offset of the insertion
+     * @param rawLen the byte length inserted
+     */
+    public void insert(long offset, int rawLen) {
+        if (rawLen <= 0) return;
+        long from = 0;
+        int b = 0;
+        while (b < lengths.length - 1 && offset >= from + lengths[b]) {
+            from += lengths[b++];
+        }
+        lengths[b] += rawLen;
+        touch(b, offset - from);
+    }
+
+    /**
+     * Notifies the deletion from the source.
+     * @param offset the byte offset of the deletion
+     * @param rawLen the byte length deleted
+     */
+    public void delete(long offset, int rawLen) {
+        long from = 0;
+        long remaining = rawLen;
+        for (int b = 0; b < lengths.length && remaining > 0; b++) {
+            long to = from + lengths[b];
+            if (offset < to) {
+                long len = Math.min(remaining, to - Math.max(offset, from));
+                touch(b, Math.max(offset, from) - from);
+                lengths[b] -= len;
+                remaining -= len;
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Notifies the bulk replacement of the source.
+     * The blocks are adjusted in a single pass, rather than the insertion and deletion for each range.
+     * @param offsets the byte offsets of the ranges, ascending and not overlapping
+     * @param rawLens the byte lengths of the ranges
+     * @param lens the byte lengths of the replacements
+     */
+    public void replace(long[] offsets, int[] rawLens, int[] lens) {
+        long[] starts = starts();
+        long[] ends = new long[lengths.length];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = starts[i] + lengths[i];
+        }
+        int b = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            long from = offsets[i];
+            long to = from + rawLens[i];
+            while (b < lengths.length - 1 && from >= ends[b]) b++;
+            touch(b, from - starts[b]);
+            lengths[b] += lens[i];
+            for (int j = b; j < lengths.length && starts[j] < to; j++) {
+                long len = Math.min(to, ends[j]) - Math.max(from, starts[j]);
+                if (len > 0) {
+                    lengths[j] -= len;
+                    dirty.set(j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the dirty blocks.
+     * @param source the search source
+     */
+    public void refresh(SearchSource source) {
+        if (dirty.isEmpty()) return;
+        long[] starts = starts();
+        dirty.stream().parallel().forEach(i -> sigs[i] = signature(source, starts[i], lengths[i]));
+        dirty.clear();
+    }
+
+    /**
+     * Get the byte length of the indexed source.
+     * @return the byte length
+     */
+    public long length() {
+        return Arrays.stream(lengths).sum();
+    }
+
+    /**
+     * Get whether this index has the blocks to be re-indexed.
+     * @return {@code true} if this index has the dirty blocks
+     */
+    public boolean isDirty() {
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Creates the filter of the chunks which may contain the specified pattern.
+     * @param pattern the encoded pattern
+     * @return the filter
+     */
+    Filter filter(byte[] pattern) {
+
+        long[] starts = starts();
+        int blocks = lengths.length;
+        if (pattern.length < 3) {
+            return new Filter(starts, null);
+        }
+
+        int[] hashes = new int[pattern.length - 2];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(pattern[i], pattern[i + 1], pattern[i + 2]);
+        }
+
+        BitSet candidates = new BitSet(blocks);
+        int last = 0;
+        for (int b = 0; b < blocks; b++) {
+            if (lengths[b] == 0) continue;
+            // the last trigram of a match starting at the end of the block b
+            long reach = starts[b] + lengths[b] - 1 + pattern.length - 3;
+            last = Math.max(last, b);
+            while (last < blocks - 1 && reach >= starts[last + 1]) last++;
+            if (dirty.get(b, last + 1).isEmpty()) {
+                if (contains(sigs[b], hashes[0]) && containsAll(b, last, hashes)) {
+                    candidates.set(b);
+                }
+            } else {
+                candidates.set(b);
+            }
+        }
+        return new Filter(starts, candidates);
+    }
+
+    private boolean containsAll(int from, int to, int[] hashes) {
+        outer:
+        for (int i = 1; i < hashes.length; i++) {
+            for (int b = from; b <= to; b++) {
+                if (contains(sigs[b], hashes[i])) continue outer;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private long[] starts() {
+        long[] starts = new long[lengths.length];
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] = starts[i - 1] + lengths[i - 1];
+        }
+        return starts;
+    }
+
+    private void touch(int b, long offsetInBlock) {
+        dirty.set(b);
+        // the trigrams of the previous block reach the first two bytes of the block
+        for (int i = b - 1; i >= 0 && offsetInBlock < 2; i--) {
+            dirty.set(i);
+            offsetInBlock += lengths[i];
+        }
+    }
+
+    private long[] signature(SearchSource source, long from, long length) {
+        long[] sig = new long[blockSize >>> 8];
+        int len = Math.toIntExact(Math.min(length + 2, source.length() - from));
+        if (len < 3) return sig;
+        ByteBuffer bb = ByteBuffer.allocate(len);
+        source.bufferRead(from, len, bb);
+        byte[] bytes = bb.array();
+        int n = Math.min(bb.position(), Math.toIntExact(length + 2));
+        for (int i = 0; i + 2 < n; i++) {
+            int h = hash(bytes[i], bytes[i + 1], bytes[i + 2]);
+            sig[h >>> 6] |= 1L << h;
+        }
+        return sig;
+    }
+
+    private boolean contains(long[] sig, int h) {
+        return (sig[h >>> 6] & (1L << h)) != 0;
+    }
+
+    private int hash(byte b0, byte b1, byte b2) {
+        int t = (fold(b0) << 16) | (fold(b1) << 8) | fold(b2);
+        return (t * 0x9E3779B1) >>> (32 - bits);
+    }
+
+    private static int fold(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (b | 0x20) : (b & 0xff);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            if (ch.read(bb) < 0) throw new IOException("unexpected end of file");
+        }
+        bb.flip();
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            ch.write(bb);
+        }
+    }
+
+    /**
+     * The filter of the chunks which may contain a pattern.
+     * @param starts the start offsets of the blocks
+     * @param candidates the candidate blocks, {@code null} if all blocks are candidates
+     */
+    record Filter(long[] starts, BitSet candidates) {
+
+        /**
+         * Get whether the matches may start in the specified range.
+         * @param from the start offset, inclusive
+         * @param to the end offset, exclusive
+         * @return {@code true} if the matches may start in the range
+         */
+        boolean test(long from, long to) {
+            if (candidates == null) return true;
+            int b = Arrays.binarySearch(starts, from);
+            b = (b < 0) ? -b - 2 : b;
+            // skip the empty blocks at the same start
+            while (b + 1 < starts.length && starts[b + 1] == from) b++;
+            int next = candidates.nextSetBit(Math.max(b, 0));
+            return next >= 0 && (next == b || starts[next] < to);
+        }
+    }
+
+}
@@ -102,6 +102,7 @@ public class BytesReader implements Reader {
         length += bytes.length;
 
         index = RowIndex.of(charset);
+        index.detectRowBreak(bytes);
         int[] crlf = index.add(bytes);
         crCount += crlf[0];
         lfCount += crlf[1];
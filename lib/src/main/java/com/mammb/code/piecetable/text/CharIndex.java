@@ -0,0 +1,328 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import java.util.Arrays;
+
+/**
+ * The document-wide char offset index.
+ * <p>
+ * Holds the char length (in UTF-16 code units) of each row in an implicit treap,
+ * a balanced tree keyed by the row number, so that the global char offset and the
+ * global byte offset can be converted into each other in {@code O(log n)}, plus the
+ * column conversion within a row.
+ * <pre>
+ *  rows  | ab\n | あい\n | c |
+ *  chars   3      3       1
+ *  bytes   3      7       1   : UTF-8
+ *  charOffset(6)  -> row 1, rawCol 3 -> 3 + 1 = 4
+ *  byteOffset(5)  -> row 1, col 2    -> 3 + 6 = 9
+ * </pre>
+ * Each node keeps the number of rows and the total char length of its subtree,
+ * so that the rows can be inserted and removed in {@code O(log n)} by split and merge.
+ * The nodes are held in arrays, node {@code 0} is the empty sentinel.
+ * <p>
+ * The index must be notified of the edits of the row index.
+ * This class is not thread-safe.
+ * @author Naotsugu Kobayashi
+ */
+class CharIndex {
+
+    /** The {@link RowIndex}. */
+    private final RowIndex index;
+    /** The char and byte column mapping. */
+    private final ColumnMap columns;
+    /** The left child of each node. */
+    private int[] left;
+    /** The right child of each node, or the next free node. */
+    private int[] right;
+    /** The number of rows in the subtree of each node. */
+    private int[] size;
+    /** The char length of the row of each node. */
+    private int[] chars;
+    /** The total char length of the subtree of each node. */
+    private long[] sum;
+    /** The root node. */
+    private int root;
+    /** The number of nodes ever allocated, excluding the sentinel. */
+    private int allocated;
+    /** The head of the free nodes. */
+    private int free;
+    /** The left tree of the last split. */
+    private int splitLeft;
+    /** The right tree of the last split. */
+    private int splitRight;
+
+    /**
+     * Constructor.
+     * @param index the {@link RowIndex}
+     * @param columns the char and byte column mapping
+     */
+    private CharIndex(RowIndex index, ColumnMap columns) {
+        this.index = index;
+        this.columns = columns;
+        int capacity = index.rowSize() + 1;
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.size = new int[capacity];
+        this.chars = new int[capacity];
+        this.sum = new long[capacity];
+        this.root = build(0, index.rowSize());
+    }
+
+    /**
+     * Create a new {@link CharIndex} of the rows in the specified row index.
+     * @param index the {@link RowIndex}
+     * @param columns the char and byte column mapping
+     * @return a new {@link CharIndex}
+     */
+    static CharIndex of(RowIndex index, ColumnMap columns) {
+        return new CharIndex(index, columns);
+    }
+
+    /**
+     * Get the char offset of the specified byte offset.
+     * @param byteOffset the byte offset from the beginning of the document, excluding the bom
+     * @return the char offset (in UTF-16 code units)
+     */
+    long charOffset(long byteOffset) {
+        int[] pos = index.pos(byteOffset);
+        return prefix(pos[0]) + columns.asCol(pos[0], pos[1]);
+    }
+
+    /**
+     * Get the byte offset of the specified char offset.
+     * @param charOffset the char offset (in UTF-16 code units)
+     * @return the byte offset from the beginning of the document, excluding the bom
+     */
+    long byteOffset(long charOffset) {
+        // descend the tree to the row containing the char offset
+        int row = 0;
+        long rem = charOffset;
+        for (int t = root; t != 0; ) {
+            long l = sum[left[t]] + chars[t];
+            if (l <= rem) {
+                row += size[left[t]] + 1;
+                rem -= l;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        int length = size[root];
+        if (row >= length) {
+            row = length - 1;
+            rem += chars[node(row)];
+        }
+        return index.get(row) + columns.asRawCol(row, (int) rem);
+    }
+
+    /**
+     * Get the total char length.
+     * @return the total char length
+     */
+    long total() {
+        return sum[root];
+    }
+
+    /**
+     * Updates the index for the edit of the specified row.
+     * The edited rows are replaced in {@code O(log n)} for each row.
+     * @param row the edited row
+     * @param rowDelta the number of rows increased or decreased by the edit
+     */
+    void edited(int row, int rowDelta) {
+        if (rowDelta == 0) {
+            update(root, row, charLength(row));
+            return;
+        }
+        int removed = 1 + Math.max(0, -rowDelta);
+        int added = 1 + Math.max(0, rowDelta);
+        split(root, row);
+        int head = splitLeft;
+        split(splitRight, removed);
+        int tail = splitRight;
+        release(splitLeft);
+        root = merge(merge(head, build(row, row + added)), tail);
+    }
+
+    private int charLength(int row) {
+        return columns.asCol(row, index.rowLength(row));
+    }
+
+    private long prefix(int row) {
+        long s = 0;
+        for (int t = root; t != 0; ) {
+            int l = size[left[t]];
+            if (row <= l) {
+                t = left[t];
+            } else {
+                s += sum[left[t]] + chars[t];
+                row -= l + 1;
+                t = right[t];
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Get the node of the specified row.
+     * @param row the row
+     * @return the node
+     */
+    private int node(int row) {
+        int t = root;
+        for (int l = size[left[t]]; l != row; l = size[left[t]]) {
+            if (row < l) {
+                t = left[t];
+            } else {
+                row -= l + 1;
+                t = right[t];
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Updates the char length of the specified row in the subtree.
+     * @param t the root of the subtree
+     * @param row the row in the subtree
+     * @param len the char length
+     */
+    private void update(int t, int row, int len) {
+        int l = size[left[t]];
+        if (row < l) {
+            update(left[t], row, len);
+        } else if (row > l) {
+            update(right[t], row - l - 1, len);
+        } else {
+            chars[t] = len;
+        }
+        sum[t] = sum[left[t]] + sum[right[t]] + chars[t];
+    }
+
+    /**
+     * Builds the subtree of the specified rows, as a cartesian tree of the node priorities.
+     * @param from the first row, inclusive
+     * @param to the last row, exclusive
+     * @return the root of the subtree
+     */
+    private int build(int from, int to) {
+        int[] stack = new int[16];
+        int top = 0;
+        for (int row = from; row < to; row++) {
+            int t = alloc(charLength(row));
+            int last = 0;
+            while (top > 0 && priority(stack[top - 1]) < priority(t)) {
+                last = stack[--top];
+                pull(last);
+            }
+            left[t] = last;
+            if (top > 0) right[stack[top - 1]] = t;
+            if (top == stack.length) stack = Arrays.copyOf(stack, top << 1);
+            stack[top++] = t;
+        }
+        while (top > 0) {
+            pull(stack[--top]);
+        }
+        return (to > from) ? stack[0] : 0;
+    }
+
+    /**
+     * Splits the tree into the first rows and the rest, set to {@link #splitLeft} and {@link #splitRight}.
+     * @param t the root of the tree
+     * @param rows the number of the first rows
+     */
+    private void split(int t, int rows) {
+        if (t == 0) {
+            splitLeft = splitRight = 0;
+        } else if (size[left[t]] < rows) {
+            split(right[t], rows - size[left[t]] - 1);
+            right[t] = splitLeft;
+            pull(t);
+            splitLeft = t;
+        } else {
+            split(left[t], rows);
+            left[t] = splitRight;
+            pull(t);
+            splitRight = t;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == 0) return b;
+        if (b == 0) return a;
+        if (priority(a) > priority(b)) {
+            right[a] = merge(right[a], b);
+            pull(a);
+            return a;
+        } else {
+            left[b] = merge(a, left[b]);
+            pull(b);
+            return b;
+        }
+    }
+
+    private void pull(int t) {
+        size[t] = size[left[t]] + size[right[t]] + 1;
+        sum[t] = sum[left[t]] + sum[right[t]] + chars[t];
+    }
+
+    private int alloc(int len) {
+        int t;
+        if (free != 0) {
+            t = free;
+            free = right[t];
+        } else {
+            t = ++allocated;
+            if (t >= chars.length) {
+                int capacity = Math.max(t + 1, chars.length + (chars.length >> 1));
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                size = Arrays.copyOf(size, capacity);
+                chars = Arrays.copyOf(chars, capacity);
+                sum = Arrays.copyOf(sum, capacity);
+            }
+        }
+        left[t] = right[t] = 0;
+        chars[t] = len;
+        pull(t);
+        return t;
+    }
+
+    private void release(int t) {
+        if (t == 0) return;
+        release(left[t]);
+        release(right[t]);
+        right[t] = free;
+        free = t;
+    }
+
+    /**
+     * Get the priority of the specified node, a hash of the node number.
+     * @param t the node
+     * @return the priority
+     */
+    private static int priority(int t) {
+        int h = t * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.PieceTable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The char and byte column mapping of rows.
+ * <p>
+ * Converts the column in chars into the column in bytes within a row, and vice versa,
+ * by decoding the row bytes incrementally with a reusable decoder, without re-encoding.
+ * For long rows, checkpoints of the char column and the byte column are sampled every
+ * {@value #INTERVAL} chars, and kept in a bounded cache.
+ * The conversion then only decodes the bytes between two adjacent checkpoints.
+ * The checkpoints are extended lazily, block by block, only as far as the requested column,
+ * so that a window at the head of a huge row does not decode the whole row.
+ * <pre>
+ *  chars |0          |1024       |2048       |3072  ...
+ *  bytes |0          |1536       |3100       |4612  ...
+ *                          ^ decode from the floor checkpoint
+ * </pre>
+ * Two fast paths precede the decoding. For the rows consisting only of ASCII bytes,
+ * whose kind is tracked by the {@link RowIndex}, the char column equals the byte column
+ * in an ASCII compatible charset. For UTF-8, the columns are computed by walking
+ * the lead bytes, where a 4-byte sequence counts as a surrogate pair.
+ * The decoder is used only for the other charsets, or for malformed sequences.
+ * The bytes are read into the reusable buffer of the {@link Transcoder}, whose decoder is shared.
+ * <p>
+ * The cache must be invalidated on edits of the row index.
+ * This class is not thread-safe.
+ * @author Naotsugu Kobayashi
+ */
+class ColumnMap {
+
+    /** The interval of checkpoints in chars. */
+    static final int INTERVAL = 1024;
+    /** The byte length of rows to be cached with checkpoints. */
+    static final int MIN_ROW_BYTES = 1024 * 4;
+    /** The byte length of a block read at once. */
+    static final int BLOCK = Transcoder.MAX_BUFFER;
+    /** The max number of rows cached. */
+    private static final int MAX_ROWS = 64;
+
+    /** The {@link RowIndex}. */
+    private final RowIndex index;
+    /** The transcoder. */
+    private final Transcoder transcoder;
+    /** Whether the checkpoints can be used, i.e. the charset is stateless. */
+    private final boolean checkpoints;
+    /** Whether the ASCII bytes are decoded one-to-one into chars. */
+    private final boolean asciiCompatible;
+    /** Whether the charset is UTF-8. */
+    private final boolean utf8;
+    /** The reusable decoder. */
+    private final CharsetDecoder decoder;
+    /** The reusable char buffer. */
+    private final CharBuffer out = CharBuffer.allocate(INTERVAL);
+    /** The cached checkpoints of rows, in access order. */
+    private final Map<Integer, Checkpoints> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Checkpoints> eldest) {
+            return size() > MAX_ROWS;
+        }
+    };
+
+    /**
+     * Constructor.
+     * @param pt the {@link PieceTable}
+     * @param index the {@link RowIndex}
+     * @param charset the charset
+     * @param bom the byte order mark length
+     */
+    ColumnMap(PieceTable pt, RowIndex index, Charset charset, int bom) {
+        this(index, Transcoder.of(pt, charset, bom));
+    }
+
+    /**
+     * Constructor.
+     * @param index the {@link RowIndex}
+     * @param transcoder the transcoder of the document
+     */
+    ColumnMap(RowIndex index, Transcoder transcoder) {
+        Charset charset = transcoder.decoder().charset();
+        this.index = index;
+        this.transcoder = transcoder;
+        // the decoding cannot be resumed from the middle of a row for the charsets with shift states
+        this.checkpoints = !charset.name().startsWith("ISO-2022") && !charset.name().equals("UTF-7");
+        this.decoder = transcoder.decoder();
+        this.asciiCompatible = RowIndex.byteUnitsOf(charset) == 1 && isAsciiCompatible(charset);
+        this.utf8 = StandardCharsets.UTF_8.equals(charset);
+    }
+
+    /**
+     * Get the byte column of the specified char column.
+     * If the char column is beyond the row, the byte length of the row is returned.
+     * @param row the specified row
+     * @param col the char column (character length in java, not a code points)
+     * @return the byte column
+     */
+    int asRawCol(int row, int col) {
+        if (col <= 0) return 0;
+        int rowLen = index.rowLength(row);
+        if (rowLen == 0 || isAsciiRow(row, rowLen)) {
+            return Math.min(col, rowLen);
+        }
+        Checkpoints cp = checkpointsOf(row, rowLen);
+        int c0 = 0, r0 = 0, r1 = rowLen;
+        if (cp != null) {
+            while (!cp.complete && cp.chars.get(cp.size() - 1) <= col) {
+                extend(cp, row, rowLen);
+            }
+            int i = floor(cp.chars, cp.size(), col);
+            c0 = cp.chars.get(i);
+            r0 = cp.raws.get(i);
+            r1 = (i + 1 < cp.size()) ? cp.raws.get(i + 1) : rowLen;
+        }
+        ByteBuffer in = transcoder.read(index.get(row) + r0, r1 - r0);
+        if (utf8) {
+            int raw = Utf8.rawLength(in.array(), in.limit(), col - c0);
+            if (raw >= 0) return r0 + raw;
+        }
+        decode(in, col - c0);
+        return r0 + in.position();
+    }
+
+    /**
+     * Get the char column of the specified byte column.
+     * @param row the specified row
+     * @param rawCol the byte column
+     * @return the char column
+     */
+    int asCol(int row, int rawCol) {
+        if (rawCol <= 0) return 0;
+        int rowLen = index.rowLength(row);
+        if (rowLen == 0 || isAsciiRow(row, rowLen)) {
+            return Math.min(rawCol, rowLen);
+        }
+        Checkpoints cp = checkpointsOf(row, rowLen);
+        int c0 = 0, r0 = 0;
+        if (cp != null) {
+            while (!cp.complete && cp.raws.get(cp.size() - 1) <= rawCol) {
+                extend(cp, row, rowLen);
+            }
+            int i = floor(cp.raws, cp.size(), rawCol);
+            c0 = cp.chars.get(i);
+            r0 = cp.raws.get(i);
+        }
+        ByteBuffer in = transcoder.read(index.get(row) + r0, rawCol - r0);
+        if (utf8) {
+            int chars = Utf8.charLength(in.array(), in.limit());
+            if (chars >= 0) return c0 + chars;
+        }
+        return c0 + decode(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Invalidates the cache for the edit of the specified row.
+     * @param row the edited row
+     * @param rowDelta the number of rows increased or decreased by the edit
+     */
+    void invalidate(int row, int rowDelta) {
+        if (rowDelta == 0) {
+            cache.remove(row);
+        } else {
+            cache.keySet().removeIf(key -> key >= row);
+        }
+    }
+
+    /**
+     * Clears the cache.
+     */
+    void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Get whether the specified row consists only of ASCII bytes.
+     * The kind of row is examined at the first touch, and kept in the {@link RowIndex}.
+     * @param row the specified row
+     * @param rowLen the byte length of the row
+     * @return {@code true} if the row consists only of ASCII bytes
+     */
+    private boolean isAsciiRow(int row, int rowLen) {
+        if (!asciiCompatible) return false;
+        byte kind = index.rowKind(row);
+        if (kind == RowIndex.UNKNOWN) {
+            long start = index.get(row);
+            boolean ascii = true;
+            for (int r = 0; ascii && r < rowLen; r += BLOCK) {
+                ByteBuffer in = transcoder.read(start + r, Math.min(BLOCK, rowLen - r));
+                ascii = RowIndex.isAscii(in.array(), in.limit());
+            }
+            kind = ascii ? RowIndex.ASCII : RowIndex.NON_ASCII;
+            index.rowKind(row, kind);
+        }
+        return kind == RowIndex.ASCII;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        try {
+            byte[] ascii = new byte[128];
+            for (int i = 0; i < ascii.length; i++) ascii[i] = (byte) i;
+            String str = new String(ascii, charset);
+            if (str.length() != ascii.length) return false;
+            for (int i = 0; i < ascii.length; i++) {
+                if (str.charAt(i) != i) return false;
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private Checkpoints checkpointsOf(int row, int rowLen) {
+        if (!checkpoints || rowLen < MIN_ROW_BYTES) {
+            return null;
+        }
+        return cache.computeIfAbsent(row, k -> new Checkpoints());
+    }
+
+    /**
+     * Extends the checkpoints of the row by a block.
+     * The decoding is resumed from the last checkpoint, and a checkpoint is added every
+     * {@value #INTERVAL} chars, and at the end of the block.
+     * @param cp the checkpoints to be extended
+     * @param row the row
+     * @param rowLen the byte length of the row
+     */
+    private void extend(Checkpoints cp, int row, int rowLen) {
+        int r0 = cp.raws.get(cp.size() - 1);
+        int c = cp.chars.get(cp.size() - 1);
+        int len = Math.min(BLOCK, rowLen - r0);
+        boolean end = r0 + len >= rowLen;
+        ByteBuffer in = transcoder.read(index.get(row) + r0, len);
+        decoder.reset();
+        for (;;) {
+            out.clear();
+            CoderResult cr = decoder.decode(in, out, end);
+            c += out.position();
+            if (!cr.isOverflow() || out.position() == 0) break;
+            cp.add(c, r0 + in.position());
+        }
+        if (end || r0 + in.position() <= cp.raws.get(cp.size() - 1)) {
+            // the end of the row, or no progress in the block
+            cp.complete = true;
+        } else {
+            // the rest of the block is an incomplete sequence, resumed by the next block
+            cp.add(c, r0 + in.position());
+        }
+    }
+
+    private static int floor(IntArray array, int size, int key) {
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (array.get(mid) <= key) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Decodes the input up to the specified number of chars.
+     * The position of the input is advanced to the byte column of the decoded chars.
+     * A surrogate pair is not split, the decoding stops before it.
+     * @param in the input
+     * @param chars the max number of chars to be decoded
+     * @return the number of chars decoded
+     */
+    private int decode(ByteBuffer in, int chars) {
+        decoder.reset();
+        int n = 0;
+        while (n < chars) {
+            out.clear();
+            out.limit(Math.min(out.capacity(), chars - n));
+            CoderResult cr = decoder.decode(in, out, true);
+            n += out.position();
+            if (cr.isUnderflow() || out.position() == 0) break;
+        }
+        return n;
+    }
+
+    /**
+     * The checkpoints of a row, extended lazily.
+     */
+    private static final class Checkpoints {
+        /** The char columns of the checkpoints. */
+        final IntArray chars = IntArray.of(16);
+        /** The byte columns of the checkpoints. */
+        final IntArray raws = IntArray.of(16);
+        /** Whether the checkpoints reach the end of the row. */
+        boolean complete;
+        Checkpoints() {
+            add(0, 0);
+        }
+        void add(int ch, int raw) {
+            chars.add(ch);
+            raws.add(raw);
+        }
+        int size() {
+            return chars.length();
+        }
+    }
+
+}
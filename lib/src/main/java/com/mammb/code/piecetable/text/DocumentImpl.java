@@ -15,23 +15,34 @@
  */
 package com.mammb.code.piecetable.text;
 
+import com.mammb.code.piecetable.CacheStats;
 import com.mammb.code.piecetable.CharsetMatch;
 import com.mammb.code.piecetable.Document;
+import com.mammb.code.piecetable.LoadHandle;
 import com.mammb.code.piecetable.PieceTable;
 import com.mammb.code.piecetable.Pos;
 import com.mammb.code.piecetable.RowEnding;
 import com.mammb.code.piecetable.SearchContext;
 import com.mammb.code.piecetable.Segment;
+import com.mammb.code.piecetable.search.Found;
+import com.mammb.code.piecetable.search.TrigramIndex;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -54,18 +65,38 @@ public class DocumentImpl implements Document {
     /** The byte order mark. */
     private final byte[] bom;
 
-    /** The row ending. */
-    private final RowEnding rowEnding;
+    /** The row ending, estimated again when the background reading is completed. */
+    private RowEnding rowEnding;
+
+    /** The char and byte column mapping. */
+    private final ColumnMap columns;
+
+    /** The cache of the decoded row text. */
+    private final RowTextCache texts = RowTextCache.of();
+
+    /** The document-wide char offset index, built at the first use. */
+    private CharIndex chars;
 
     /** The offset sync. */
     private OffsetSync offsetSync;
 
+    /** The trigram index for the search, {@code null} if not indexed. */
+    private TrigramIndex trigrams;
+
     /** The {@link Path} of Document. */
     private Path path;
 
     /** Readonly or not. */
-    private boolean readonly;
+    private volatile boolean readonly;
 
+    /** The number of the searches holding the document read-only. */
+    private final AtomicInteger holds = new AtomicInteger();
+
+    /** The transcoder. */
+    private final Transcoder transcoder;
+
+    /** The reader still reading in the background, {@code null} if the index is complete. */
+    private ProgressiveReader loader;
 
     /**
      * Constructor.
@@ -86,7 +117,12 @@ public class DocumentImpl implements Document {
             this.charset = reader.charset();
             this.bom = reader.bom();
             this.rowEnding = RowEnding.estimate(reader.crCount(), reader.lfCount());
+            if (reader instanceof ProgressiveReader progressive) {
+                this.loader = progressive;
+            }
         }
+        this.transcoder = Transcoder.of(pt, charset, bom.length);
+        this.columns = new ColumnMap(index, transcoder);
     }
 
     /**
@@ -128,48 +164,191 @@ public class DocumentImpl implements Document {
         return new DocumentImpl(PieceTable.of(path), path, Reader.of(path, listener, charsetMatches));
     }
 
+    /**
+     * Load a new {@link Document} in the background.
+     * @param path the {@link Path} of the document
+     * @param executor the executor that runs the loading
+     * @param parallelism the max number of chunks read at once
+     * @param listener the progress listener, may be {@code null}
+     * @param charsetMatches the {@link CharsetMatch}
+     * @return the handle of the loading
+     */
+    public static LoadHandle<Document> load(Path path, Executor executor, int parallelism,
+            Consumer<Segment> listener, CharsetMatch... charsetMatches) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism[%d]".formatted(parallelism));
+        }
+        return LoadHandleImpl.start(executor, handle -> {
+            Consumer<Segment> progress = seg -> {
+                handle.accept(seg);
+                if (listener != null) listener.accept(seg);
+            };
+            var reader = Reader.of(path, progress, executor, parallelism, handle::isCancelled, charsetMatches);
+            if (handle.isCancelled()) {
+                throw new CancellationException("cancelled");
+            }
+            return new DocumentImpl(PieceTable.of(path), path, reader);
+        });
+    }
+
+    /**
+     * Create a new {@link Document} that is readable before the whole file is indexed.
+     * The rest of the file is indexed in the background, and the row count grows as it proceeds.
+     * @param path the {@link Path} of the document
+     * @param listener the progress listener, called from the background thread
+     * @param charsetMatches the {@link CharsetMatch}
+     * @return a new {@link Document}
+     */
+    public static DocumentImpl progressiveOf(Path path, Consumer<Segment> listener, CharsetMatch... charsetMatches) {
+        return new DocumentImpl(PieceTable.of(path), path, Reader.progressiveOf(path, listener, charsetMatches));
+    }
+
     @Override
     public void insert(int row, int col, CharSequence cs) {
-        if (readonly) return;
-        insert(row, asRawCol(row, col), cs.toString().getBytes(charset));
+        if (readonly()) return;
+        insert(row, asRawCol(row, col), transcoder.encode(cs));
     }
 
     @Override
     public void delete(int row, int col, CharSequence cs) {
-        if (readonly) return;
-        delete(row, asRawCol(row, col), cs.toString().getBytes(charset).length);
+        if (readonly()) return;
+        delete(row, asRawCol(row, col), transcoder.encodedLength(cs));
     }
 
     @Override
     public CharSequence getText(int row) {
-        return charset.decode(ByteBuffer.wrap(get(row)));
+        String text = texts.get(row);
+        if (text == null) {
+            await(row);
+            text = transcoder.decode(index.get(row), index.rowLength(row));
+            texts.put(row, text);
+        }
+        return text;
+    }
+
+    @Override
+    public CharSequence getText(int startRow, int endRowExclusive) {
+        if (startRow < 0 || endRowExclusive < startRow) {
+            throw new IndexOutOfBoundsException("startRow[%d], endRow[%d]".formatted(startRow, endRowExclusive));
+        }
+        await(endRowExclusive - 1);
+        long from = index.get(startRow);
+        return decode(from, index.get(endRowExclusive) - from);
+    }
+
+    @Override
+    public CharSequence getText(Pos start, Pos end) {
+        if (end.compareTo(start) < 0) {
+            Pos temp = start;
+            start = end;
+            end = temp;
+        }
+        int rawEnd = asRawCol(end.row(), end.col());
+        if (start.row() == end.row() && start.col() == 0 && end.col() > 0
+                && rawEnd >= index.rowLength(end.row())) {
+            // the window covering the whole row is served from the row text cache
+            return getText(start.row());
+        }
+        long from = index.offset(start.row(), asRawCol(start.row(), start.col()));
+        long to = index.offset(end.row(), rawEnd);
+        return decode(from, to - from);
     }
 
     @Override
     public void insert(int row, int rawCol, byte[] bytes) {
-        if (readonly) return;
+        if (readonly()) return;
+        await(row);
+        if (loader != null) loader.edited();
         long offset = index.offset(row, rawCol);
         pt.insert(offset + bom.length, bytes);
+        int rows = index.rowSize();
         index.insert(row, rawCol, bytes);
+        columns.invalidate(row, index.rowSize() - rows);
+        texts.invalidate(row, index.rowSize() - rows);
+        if (chars != null) chars.edited(row, index.rowSize() - rows);
         if (offsetSync != null) offsetSync.insert(offset, bytes.length);
+        if (trigrams != null) trigrams.insert(offset, bytes.length);
     }
 
     @Override
     public void delete(int row, int rawCol, int rawLen) {
-        if (readonly) return;
+        if (readonly()) return;
+        await(row);
         long offset = index.offset(row, rawCol);
+        awaitOffset(offset + rawLen);
+        if (loader != null) loader.edited();
         pt.delete(offset + bom.length, rawLen);
+        int rows = index.rowSize();
         index.delete(row, rawCol, rawLen);
+        columns.invalidate(row, index.rowSize() - rows);
+        texts.invalidate(row, index.rowSize() - rows);
+        if (chars != null) chars.edited(row, index.rowSize() - rows);
         if (offsetSync != null) offsetSync.delete(offset, rawLen);
+        if (trigrams != null) trigrams.delete(offset, rawLen);
+    }
+
+    @Override
+    public Bulk replace(Bulk bulk) {
+        if (readonly() || bulk.size() == 0) {
+            return new Bulk(new long[0], new int[0], new byte[0], null);
+        }
+        await(Integer.MAX_VALUE);
+
+        long[] offsets = bulk.offsets();
+        int[] rawLens = bulk.rawLens();
+
+        // the replaced bytes, which are replaced back by the reverting bulk
+        long total = 0;
+        for (int len : rawLens) total += len;
+        byte[] replaced = new byte[Math.toIntExact(total)];
+        long[] rawOffsets = new long[offsets.length];
+        long[] reverted = new long[offsets.length];
+        int[] lens = new int[offsets.length];
+        int pos = 0;
+        long shift = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            byte[] bytes = pt.get(offsets[i] + bom.length, rawLens[i]);
+            System.arraycopy(bytes, 0, replaced, pos, bytes.length);
+            pos += bytes.length;
+            rawOffsets[i] = offsets[i] + bom.length;
+            lens[i] = bulk.bytesLen(i);
+            reverted[i] = offsets[i] + shift;
+            shift += lens[i] - rawLens[i];
+        }
+
+        pt.replace(rawOffsets, rawLens, bulk.bytes(), bulk.bytesLens());
+        index.replace(offsets, rawLens, bulk.bytes(), bulk.bytesLens());
+        columns.clear();
+        texts.clear();
+        chars = null;
+        if (offsetSync != null) offsetSync.replace(bulk);
+        if (trigrams != null) trigrams.replace(offsets, rawLens, lens);
+
+        return new Bulk(reverted, lens, replaced, rawLens.clone());
+    }
+
+    @Override
+    public Bulk bulkOf(SearchContext.Spec spec, CharSequence replacement) {
+        await(Integer.MAX_VALUE);
+        var source = new SearchSourceImpl(pt, index, charset, bom.length, columns, trigrams);
+        List<Found> founds = SearchContextImpl.build(source, spec.patternCase())
+            .all(spec.pattern(), 0, source.length());
+        return new Bulk(
+            founds.stream().mapToLong(Found::offset).toArray(),
+            founds.stream().mapToInt(Found::rawLen).toArray(),
+            transcoder.encode(replacement),
+            null);
     }
 
     @Override
     public byte[] get(int row, int rawCol, int rawLen) {
+        await(row);
         return pt.get(index.offset(row, rawCol) + bom.length, rawLen);
     }
 
     @Override
     public byte[] get(int row) {
+        await(row);
         long serial = index.get(row);
         int len = index.rowLength(row);
         return pt.get(serial + bom.length, len);
@@ -177,7 +356,8 @@ public class DocumentImpl implements Document {
 
     @Override
     public CharSequence getText(int row, int rawCol, int rawLen) {
-        return charset.decode(ByteBuffer.wrap(get(row, rawCol, rawLen)));
+        await(row);
+        return transcoder.decode(index.offset(row, rawCol), rawLen);
     }
 
     @Override
@@ -187,14 +367,21 @@ public class DocumentImpl implements Document {
 
     @Override
     public boolean readonly() {
-        return readonly;
+        return readonly || holds.get() > 0;
     }
 
     @Override
     public int rows() {
+        sync();
         return index.rowSize();
     }
 
+    @Override
+    public boolean loading() {
+        sync();
+        return loader != null;
+    }
+
     @Override
     public long rawSize() {
         return pt.length() - bom.length;
@@ -208,9 +395,31 @@ public class DocumentImpl implements Document {
 
     @Override
     public Pos pos(long serial) {
+        awaitOffset(serial);
         int[] ret = index.pos(serial);
-        var cb = charset.decode(ByteBuffer.wrap(get(ret[0], 0, ret[1])));
-        return new Pos(ret[0], cb.length());
+        return new Pos(ret[0], columns.asCol(ret[0], ret[1]));
+    }
+
+    @Override
+    public long charOffset(long byteOffset) {
+        if (byteOffset < 0 || byteOffset > rawSize()) {
+            throw new IndexOutOfBoundsException("byteOffset[%d], size[%d]".formatted(byteOffset, rawSize()));
+        }
+        return charIndex().charOffset(byteOffset);
+    }
+
+    @Override
+    public long byteOffset(long charOffset) {
+        CharIndex ci = charIndex();
+        if (charOffset < 0 || charOffset > ci.total()) {
+            throw new IndexOutOfBoundsException("charOffset[%d], length[%d]".formatted(charOffset, ci.total()));
+        }
+        return ci.byteOffset(charOffset);
+    }
+
+    @Override
+    public CacheStats textCacheStats() {
+        return texts.stats();
     }
 
     @Override
@@ -244,27 +453,166 @@ public class DocumentImpl implements Document {
         pt.write(path);
     }
 
+    @Override
+    public void write(Path path, Charset charset, RowEnding rowEnding) {
+        try {
+            if (this.path != null && Files.exists(path) && Files.isSameFile(this.path, path)) {
+                throw new IllegalArgumentException("Cannot write to the path of the document[%s]".formatted(path));
+            }
+            try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (charset.equals(this.charset) && bom.length > 0) {
+                    channel.write(ByteBuffer.wrap(bom));
+                }
+                StreamTranscoder.of(this.charset, charset, rowEnding)
+                    .transcode(pt, bom.length, pt.length() - bom.length, channel);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void close() {
+        if (loader != null) {
+            loader.close();
+            loader = null;
+        }
+        texts.clear();
         pt.close();
     }
 
     @Override
     public SearchContext search() {
-        var source = new SearchSourceImpl(pt, index, charset, bom.length);
+        await(Integer.MAX_VALUE);
+        var source = new SearchSourceImpl(pt, index, charset, bom.length, columns, trigrams);
+        if (trigrams != null) trigrams.refresh(source);
         var search = new SearchContextImpl(source, r -> {
-            final boolean ro = readonly();
+            Runnable release = hold();
             try {
-                if (!ro) readonly(true);
                 r.run();
             } finally {
-                if (!ro) readonly(false);
+                release.run();
             }
-        });
+        }, this::hold);
         offsetSync = search;
         return search;
     }
 
+    /**
+     * Holds this document read-only while a search reads it.
+     * The holds are counted, so that the document stays read-only until the last search releases it,
+     * even if the searches overlap.
+     * @return the release of the hold, which is effective only once
+     */
+    private Runnable hold() {
+        holds.incrementAndGet();
+        var released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) holds.decrementAndGet();
+        };
+    }
+
+    @Override
+    public void searchIndex(Path sidecar) {
+        await(Integer.MAX_VALUE);
+        var source = new SearchSourceImpl(pt, index, charset, bom.length, columns, null);
+        long stamp = stamp();
+        if (sidecar != null && stamp != 0) {
+            trigrams = TrigramIndex.load(sidecar, source.length(), stamp).orElse(null);
+            if (trigrams != null) return;
+        }
+        trigrams = TrigramIndex.of(source);
+        if (sidecar != null && stamp != 0) {
+            trigrams.save(sidecar, stamp);
+        }
+    }
+
+    /**
+     * Get the stamp of the document file, which identifies the sidecar of the file.
+     * @return the last modified time of the unedited document file, {@code 0} if not applicable
+     */
+    private long stamp() {
+        try {
+            if (path == null || !Files.exists(path) || pt.length() != Files.size(path)) return 0;
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the specified byte range in one pass over the pieces, and decodes it at once.
+     * @param offset the byte offset, which does not include bom
+     * @param length the byte length
+     * @return the decoded char sequence
+     */
+    private CharSequence decode(long offset, long length) {
+        return transcoder.decode(offset, Math.toIntExact(length));
+    }
+
+    /**
+     * Get the document-wide char offset index, building it at the first use.
+     * @return the {@link CharIndex}
+     */
+    private CharIndex charIndex() {
+        await(Integer.MAX_VALUE);
+        if (chars == null) {
+            chars = CharIndex.of(index, columns);
+        }
+        return chars;
+    }
+
+    /**
+     * Adds the rows already read in the background to the index, without waiting.
+     */
+    private void sync() {
+        while (loader != null) {
+            var chunk = loader.poll();
+            if (chunk == null) break;
+            apply(chunk);
+        }
+    }
+
+    /**
+     * Waits until the specified row is indexed completely.
+     * The last row is not complete until the background reading is finished.
+     * @param row the specified row
+     */
+    private void await(int row) {
+        sync();
+        while (loader != null && row >= index.rowSize() - 1) {
+            apply(loader.take());
+        }
+    }
+
+    /**
+     * Waits until the row containing the specified offset is indexed completely.
+     * @param offset the specified byte offset
+     */
+    private void awaitOffset(long offset) {
+        sync();
+        while (loader != null && offset >= index.get(index.rowSize() - 1)) {
+            apply(loader.take());
+        }
+    }
+
+    private void apply(ProgressiveReader.Chunk chunk) {
+        if (chunk == ProgressiveReader.Chunk.LAST) {
+            rowEnding = RowEnding.estimate(loader.crCount(), loader.lfCount());
+            loader = null;
+            index.trimToSize();
+        } else if (index.crOnly() && !chunk.crOnly()) {
+            // a line feed is read, the rows split by CR are joined into a row
+            columns.clear();
+            texts.clear();
+            index.add(chunk.rows(), chunk.crOnly());
+        } else {
+            columns.invalidate(index.rowSize() - 1, chunk.rows().length - 1);
+            index.add(chunk.rows(), chunk.crOnly());
+        }
+    }
+
     /**
      * Get the length of bytes from the beginning of the row.
      * to the specified column number based on the given row number and column number.
@@ -292,9 +640,8 @@ public class DocumentImpl implements Document {
      * @return the length of bytes from the beginning of the row
      */
     private int asRawCol(int row, int col) {
-        var cb = charset.decode(ByteBuffer.wrap(get(row)));
-        var bb = charset.encode(cb.subSequence(0, Math.min(col, cb.length())));
-        return bb.limit();
+        await(row);
+        return columns.asRawCol(row, col);
     }
 
 }
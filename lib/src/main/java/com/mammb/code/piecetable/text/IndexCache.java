@@ -0,0 +1,264 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * The on-disk cache of the row index.
+ * <p>
+ * Persists the row index, charset, BOM and CR/LF counts of a file read,
+ * so that reopening the same large file does not need to scan it again.
+ * Each entry is keyed by the path, size, last modified time and a fingerprint
+ * of the sampled content. The entry is stored in the following big-endian binary
+ * format, which is read by memory-mapping.
+ * <pre>
+ *  | magic(4) | version(4) | size(8) | mtime(8) | fingerprint(8) |
+ *  | path length(4) | path(n) | charset length(4) | charset(n) | bom length(4) | bom(n) |
+ *  | cr count(4) | lf count(4) | flags(4) | row count(4) | row lengths(4 * row count) |
+ * </pre>
+ * The flags hold {@value #CR_ONLY} if rows are terminated by CR, for the CR-only row ending.
+ * The system-wide cache is enabled by specifying the cache directory
+ * in the system property {@code com.mammb.code.piecetable.text.indexCache}.
+ * @author Naotsugu Kobayashi
+ */
+class IndexCache {
+
+    /** The magic number of the cache file. "PTIX". */
+    private static final int MAGIC = 0x50544958;
+    /** The version of the cache file format. */
+    private static final int VERSION = 2;
+    /** The flag of the row index whose rows are terminated by CR. */
+    private static final int CR_ONLY = 1;
+    /** The number of sampled blocks for the fingerprint. */
+    private static final int SAMPLES = 8;
+    /** The size of a sampled block for the fingerprint. */
+    private static final int SAMPLE_SIZE = 4096;
+    /** The minimum size of the file to be cached. */
+    static final long MIN_SIZE = ParallelReader.CHUNK_SIZE;
+
+    /** The cache directory. */
+    private final Path dir;
+
+    /**
+     * Constructor.
+     * @param dir the cache directory
+     */
+    private IndexCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Create a new {@link IndexCache}.
+     * @param dir the cache directory
+     * @return a new {@link IndexCache}
+     */
+    static IndexCache of(Path dir) {
+        return new IndexCache(dir);
+    }
+
+    /**
+     * Get the system-wide {@link IndexCache}.
+     * @return the system-wide {@link IndexCache}, empty if the cache is not enabled
+     */
+    static Optional<IndexCache> system() {
+        String dir = System.getProperty("com.mammb.code.piecetable.text.indexCache");
+        return (dir == null || dir.isBlank())
+            ? Optional.empty()
+            : Optional.of(new IndexCache(Path.of(dir)));
+    }
+
+    /**
+     * Load the cached {@link Reader} of the specified path.
+     * @param path the path of the file read
+     * @return the cached {@link Reader}, empty if the valid cache entry does not exist
+     */
+    Optional<Reader> load(Path path) {
+        try {
+            Path entry = entryOf(path);
+            if (!Files.exists(path) || !Files.exists(entry)) {
+                return Optional.empty();
+            }
+            long size = Files.size(path);
+            long mtime = Files.getLastModifiedTime(path).toMillis();
+
+            try (var arena = Arena.ofConfined();
+                 var channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+
+                MemorySegment seg = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+                ByteBuffer buf = seg.asByteBuffer();
+
+                if (buf.getInt() != MAGIC || buf.getInt() != VERSION ||
+                    buf.getLong() != size || buf.getLong() != mtime) {
+                    return Optional.empty();
+                }
+                long fingerprint = buf.getLong();
+                if (!keyOf(path).equals(new String(bytes(buf), StandardCharsets.UTF_8)) ||
+                    fingerprint != fingerprint(path, size)) {
+                    return Optional.empty();
+                }
+                Charset charset = Charset.forName(new String(bytes(buf), StandardCharsets.UTF_8));
+                byte[] bom = bytes(buf);
+                int crCount = buf.getInt();
+                int lfCount = buf.getInt();
+                int flags = buf.getInt();
+                int[] rowLengths = new int[buf.getInt()];
+                buf.asIntBuffer().get(rowLengths);
+                RowIndex index = RowIndex.of(charset, rowLengths);
+                index.crOnly((flags & CR_ONLY) != 0);
+                return Optional.of(new Cached(index, charset, bom, crCount, lfCount));
+            }
+        } catch (IOException | RuntimeException e) {
+            // a broken entry is treated as a cache miss
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store the result of the specified {@link Reader} into this cache.
+     * @param path the path of the file read
+     * @param reader the {@link Reader} that read the path
+     */
+    void store(Path path, Reader reader) {
+        try {
+            long size = Files.size(path);
+            if (size < MIN_SIZE) return;
+            long mtime = Files.getLastModifiedTime(path).toMillis();
+
+            Files.createDirectories(dir);
+            Path entry = entryOf(path);
+            Path tmp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+            try (var channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                byte[] key = keyOf(path).getBytes(StandardCharsets.UTF_8);
+                byte[] cs = reader.charset().name().getBytes(StandardCharsets.UTF_8);
+                byte[] bom = reader.bom();
+                ByteBuffer buf = ByteBuffer.allocate(Math.max(1024 * 64,
+                    64 + key.length + cs.length + bom.length));
+                buf.putInt(MAGIC).putInt(VERSION)
+                    .putLong(size).putLong(mtime).putLong(fingerprint(path, size))
+                    .putInt(key.length).put(key)
+                    .putInt(cs.length).put(cs)
+                    .putInt(bom.length).put(bom)
+                    .putInt(reader.crCount()).putInt(reader.lfCount());
+                RowIndex index = reader.index();
+                buf.putInt(index.crOnly() ? CR_ONLY : 0);
+                buf.putInt(index.rowSize());
+                for (int i = 0; i < index.rowSize(); i++) {
+                    if (buf.remaining() < Integer.BYTES) {
+                        write(channel, buf);
+                    }
+                    buf.putInt(index.rowLength(i));
+                }
+                write(channel, buf);
+            }
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ignore) {
+            // the cache is optional, failure to store is not an error
+        }
+    }
+
+    /**
+     * Remove the cache entry of the specified path.
+     * @param path the path of the file read
+     */
+    void evict(Path path) {
+        try {
+            Files.deleteIfExists(entryOf(path));
+        } catch (IOException ignore) { }
+    }
+
+    /**
+     * Get the path of the cache entry.
+     * @param path the path of the file read
+     * @return the path of the cache entry
+     */
+    Path entryOf(Path path) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                .digest(keyOf(path).getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(hash) + ".idx");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String keyOf(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Calculate the fingerprint of the sampled content of the specified file.
+     * The head, the tail and the evenly spaced blocks between them are sampled.
+     * @param path the path of the file
+     * @param size the size of the file
+     * @return the fingerprint
+     */
+    static long fingerprint(Path path, long size) throws IOException {
+        var crc = new CRC32C();
+        ByteBuffer buf = ByteBuffer.allocate(SAMPLE_SIZE);
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long span = Math.max(0, size - SAMPLE_SIZE);
+            for (int i = 0; i < SAMPLES; i++) {
+                long position = span * i / (SAMPLES - 1);
+                buf.clear();
+                while (buf.hasRemaining() && channel.read(buf, position + buf.position()) > 0) { }
+                crc.update(buf.flip());
+                if (span == 0) break;
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static byte[] bytes(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * The {@link Reader} restored from the cache entry.
+     * @param index the row index
+     * @param charset the charset
+     * @param bom the byte order mark
+     * @param crCount the count of the carriage return
+     * @param lfCount the count of line feed
+     */
+    record Cached(RowIndex index, Charset charset, byte[] bom, int crCount, int lfCount) implements Reader { }
+
+}
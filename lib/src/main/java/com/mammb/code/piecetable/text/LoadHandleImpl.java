@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.LoadHandle;
+import com.mammb.code.piecetable.Segment;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The implementation of {@link LoadHandle}.
+ * @param <T> the type of the loaded value
+ * @author Naotsugu Kobayashi
+ */
+class LoadHandleImpl<T> implements LoadHandle<T> {
+
+    /** The cancellation requested or not. */
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    /** The fraction amount of the progress. */
+    private final AtomicLong fraction = new AtomicLong();
+    /** The whole amount of the progress. */
+    private volatile long whole;
+    /** The future. */
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    private LoadHandleImpl() {
+        // cancelling the future directly is also treated as the cancellation request
+        future.whenComplete((_, _) -> {
+            if (future.isCancelled()) cancelled.set(true);
+        });
+    }
+
+    /**
+     * Start the loading task on the specified executor.
+     * @param executor the executor
+     * @param task the loading task, which receives this handle
+     * @return the handle of the loading
+     * @param <T> the type of the loaded value
+     */
+    static <T> LoadHandleImpl<T> start(Executor executor, Function<LoadHandleImpl<T>, T> task) {
+        var handle = new LoadHandleImpl<T>();
+        executor.execute(() -> {
+            try {
+                handle.future.complete(task.apply(handle));
+            } catch (CancellationException e) {
+                handle.future.cancel(false);
+            } catch (Throwable t) {
+                handle.future.completeExceptionally(t);
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Accumulates the progress.
+     * @param segment the progress segment
+     */
+    void accept(Segment segment) {
+        whole = segment.whole();
+        fraction.addAndGet(segment.fraction());
+    }
+
+    @Override
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    @Override
+    public Segment progress() {
+        return Segment.of(fraction.get(), whole);
+    }
+
+    @Override
+    public CompletableFuture<T> future() {
+        return future;
+    }
+
+}
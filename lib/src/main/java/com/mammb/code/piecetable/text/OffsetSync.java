@@ -15,6 +15,8 @@
  */
 package com.mammb.code.piecetable.text;
 
+import com.mammb.code.piecetable.Document;
+
 /**
  * Interface representing offset synchronization operations for data modification.
  * Provides methods to synchronize insertions and deletions at specified byte offsets.
@@ -36,4 +38,10 @@ interface OffsetSync {
      */
     void delete(long offset, int rawLen);
 
+    /**
+     * Sync the bulk replacement.
+     * @param bulk the bulk replaced
+     */
+    void replace(Document.Bulk bulk);
+
 }
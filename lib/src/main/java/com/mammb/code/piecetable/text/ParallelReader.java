@@ -32,12 +32,26 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
-import java.util.stream.IntStream;
+import java.util.function.IntConsumer;
 
 /**
  * ParallelReader is a multithreaded implementation of the {@link Reader} interface for reading large files.
  * It reads data in parallel chunks to efficiently handle large file processing while maintaining file structure and statistics.
+ * <p>
+ * The mapped segment is scanned in place in two passes. The first pass counts the rows of each chunk,
+ * and the second pass writes the row lengths directly into the row length array sized by the prefix sum
+ * of the counts.
  * @author Naotsugu Kobayashi
  */
 public class ParallelReader implements Reader {
@@ -63,6 +77,14 @@ public class ParallelReader implements Reader {
     private final Consumer<Segment> progressListener;
     /** The lock object. */
     private final Object lock = new Object();
+    /** The executor that runs the chunk tasks. */
+    private final Executor executor;
+    /** The max number of chunk tasks run at once, including the calling thread. */
+    private final int parallelism;
+    /** The cancellation token. */
+    private final BooleanSupplier cancelled;
+    /** The thread that called the read. */
+    private Thread owner;
 
     /**
      * Constructor.
@@ -73,8 +95,33 @@ public class ParallelReader implements Reader {
     ParallelReader(Path path,
             Consumer<Segment> progressListener,
             CharsetMatch... matches) {
+        this(path, progressListener, ForkJoinPool.commonPool(),
+            ForkJoinPool.getCommonPoolParallelism() + 1, () -> false, matches);
+    }
+
+    /**
+     * Constructor.
+     * @param path the path to be read
+     * @param progressListener the read callback
+     * @param executor the executor that runs the chunk tasks
+     * @param parallelism the max number of chunk tasks run at once, including the calling thread
+     * @param cancelled the cancellation token
+     * @param matches the CharsetMatches
+     */
+    ParallelReader(Path path,
+            Consumer<Segment> progressListener,
+            Executor executor,
+            int parallelism,
+            BooleanSupplier cancelled,
+            CharsetMatch... matches) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism[%d]".formatted(parallelism));
+        }
         this.progressListener = progressListener;
         this.matches.addAll(Arrays.asList(matches));
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.cancelled = Objects.requireNonNull(cancelled);
         read(path);
     }
 
@@ -110,72 +157,160 @@ public class ParallelReader implements Reader {
 
         if (path == null || !Files.exists(path)) return;
 
+        owner = Thread.currentThread();
+        checkCancelled();
+
+        // the arena is closed only after all the chunk tasks have stopped
         try (var arena = Arena.ofShared(); // parallel needs ofShared arena
              var channel = FileChannel.open(path, StandardOpenOption.READ)) {
 
             length = channel.size();
             MemorySegment seg = channel.map(FileChannel.MapMode.READ_ONLY, 0, length, arena);
+            handleHeadChunk(seg);
 
-            var chunkRead = chunkReadOf(0, CHUNK_SIZE, seg);
-            aggregate(chunkRead);
+            int units = RowIndex.byteUnitsOf(charset);
+            int chunks = Math.toIntExact(Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE));
 
-            IntStream.rangeClosed(1, Math.toIntExact(length / CHUNK_SIZE)).parallel()
-                .mapToObj(i -> chunkReadOf(i, CHUNK_SIZE, seg))
-                .forEachOrdered(this::aggregate);
+            // 1st pass: count the CR and LF of each chunk
+            RowScanner.Counts[] counts = new RowScanner.Counts[chunks];
+            forEachChunk(chunks, i -> {
+                counts[i] = RowScanner.count(seg, chunkStart(i), chunkEnd(i), units);
+            });
+            for (RowScanner.Counts c : counts) {
+                crCount += c.crCount();
+                lfCount += c.lfCount();
+            }
+            // the row ending is decided from the counts of the whole file
+            boolean crOnly = RowScanner.isCrOnly(crCount, lfCount);
 
-            index.buildStCache();
-            index.trimToSize();
+            // prefix sum: the first row number and the start offset of the continued row of each chunk
+            int[] rowBase = new int[chunks];
+            long[] rowStart = new long[chunks];
+            long start = bom.length;
+            long rows = 0;
+            for (int i = 0; i < chunks; i++) {
+                rowBase[i] = Math.toIntExact(rows);
+                rowStart[i] = start;
+                rows += counts[i].breakCount(crOnly);
+                if (counts[i].breakCount(crOnly) > 0) start = counts[i].lastBreakEnd(crOnly);
+            }
+            int[] rowLengths = new int[Math.toIntExact(rows + 1)];
+            rowLengths[(int) rows] = Math.toIntExact(length - start);
+
+            // 2nd pass: write the row lengths in place
+            forEachChunk(chunks, i -> {
+                if (counts[i].breakCount(crOnly) > 0) {
+                    RowScanner.fill(seg, chunkStart(i), chunkEnd(i), units, crOnly, rowStart[i], rowLengths, rowBase[i]);
+                }
+                if (progressListener != null) {
+                    synchronized (lock) {
+                        progressListener.accept(Segment.of(chunkEnd(i) - chunkStart(i) + (i == 0 ? bom.length : 0), length));
+                    }
+                }
+            });
+
+            index = RowIndex.of(charset, rowLengths);
+            index.crOnly(crOnly);
 
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void aggregate(ChunkRead chunkRead) {
+    private long chunkStart(int chunkNo) {
+        return Math.max(bom.length, (long) chunkNo * CHUNK_SIZE);
+    }
 
-        if (Thread.interrupted())
-            throw new RuntimeException("interrupted");
+    private long chunkEnd(int chunkNo) {
+        return Math.min(length, (long) (chunkNo + 1) * CHUNK_SIZE);
+    }
 
-        index.add(chunkRead.rows);
-        crCount += chunkRead.crCount;
-        lfCount += chunkRead.lfCount;
+    /**
+     * Runs the action for each chunk on the executor, up to the parallelism at once.
+     * The calling thread also runs the action, and the tasks not yet started when the calling
+     * thread has run out of chunks are discarded. So the reading never waits for the tasks
+     * queued in a saturated executor.
+     * @param chunks the number of chunks
+     * @param action the action for a chunk number
+     */
+    private void forEachChunk(int chunks, IntConsumer action) {
 
-        if (progressListener != null) {
-            progressListener.accept(Segment.of(chunkRead.byteSize, length));
-        }
-    }
+        var next = new AtomicInteger();
+        var error = new AtomicReference<Throwable>();
+        Runnable work = () -> {
+            for (int i; error.get() == null && (i = next.getAndIncrement()) < chunks; ) {
+                try {
+                    checkCancelled();
+                    action.accept(i);
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            }
+        };
 
-    private ChunkRead chunkReadOf(int chunkNo, int chunkSize, MemorySegment seg) {
+        int n = Math.max(0, Math.min(parallelism, chunks) - 1);
+        var latch = new CountDownLatch(n);
+        var started = new ArrayList<AtomicBoolean>(n);
+        for (int k = 0; k < n; k++) {
+            var start = new AtomicBoolean();
+            started.add(start);
+            try {
+                executor.execute(() -> {
+                    if (start.compareAndSet(false, true)) {
+                        try {
+                            work.run();
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (start.compareAndSet(false, true)) latch.countDown();
+            }
+        }
 
-        if (Thread.interrupted())
-            throw new RuntimeException("interrupted");
+        work.run();
 
-        long offset = (long) chunkNo * chunkSize;
-        long sliceSize = Math.min(chunkSize, seg.byteSize() - offset);
-        byte[] bytes = seg.asSlice(offset, sliceSize).toArray(ValueLayout.JAVA_BYTE);
+        for (AtomicBoolean start : started) {
+            if (start.compareAndSet(false, true)) latch.countDown();
+        }
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                // the mapped segment must not be released while the tasks are running
+                interrupted = true;
+                error.compareAndSet(null, new CancellationException("interrupted"));
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
 
-        if (chunkNo == 0) {
-            bytes = handleHeadChunk(bytes);
+        switch (error.get()) {
+            case null -> { }
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            case Throwable t -> throw new RuntimeException(t);
         }
+    }
 
-        IntArray rows = IntArray.of();
-        int[] crlf = index.traversRow(bytes, rows);
-        return new ChunkRead(chunkNo, bytes.length, rows.get(), crlf[0], crlf[1]);
+    private void checkCancelled() {
+        if (cancelled.getAsBoolean())
+            throw new CancellationException("cancelled");
+        if (owner.isInterrupted())
+            throw new CancellationException("interrupted");
     }
 
-    private byte[] handleHeadChunk(byte[] bytes) {
+    private void handleHeadChunk(MemorySegment seg) {
+        // only the head is copied, for the charset estimation
+        byte[] bytes = seg.asSlice(0, Math.min(CHUNK_SIZE, seg.byteSize())).toArray(ValueLayout.JAVA_BYTE);
         bom = Bom.extract(bytes);
         if (bom.length > 0) {
             charset = Bom.toCharset(bom);
-            // exclude BOM
-            bytes = Arrays.copyOfRange(bytes, bom.length, bytes.length);
         } else {
             charset = CharsetMatches.estimate(bytes, matches).orElse(StandardCharsets.UTF_8);
         }
-        index = RowIndex.of(charset);
-        return bytes;
     }
 
-    record ChunkRead(int chunkNo, long byteSize, int[] rows, int crCount, int lfCount) {}
-
 }
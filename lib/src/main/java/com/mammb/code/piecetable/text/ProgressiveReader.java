@@ -0,0 +1,282 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.CharsetMatch;
+import com.mammb.code.piecetable.Segment;
+import com.mammb.code.piecetable.charset.Bom;
+import com.mammb.code.piecetable.charset.CharsetMatches;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * The progressive reader.
+ * Reads the head chunk synchronously, and continues to read the rest of the file
+ * in the background. The rows read in the background are handed over as {@link Chunk}s,
+ * which the owner of the row index adds to the index on its own thread.
+ * @author Naotsugu Kobayashi
+ */
+class ProgressiveReader implements Reader {
+
+    /** The chunk size. */
+    static final int CHUNK_SIZE = ParallelReader.CHUNK_SIZE;
+
+    /** The path to be read. */
+    private final Path path;
+    /** The row index of the head chunk. */
+    private RowIndex index;
+    /** The byte order mark. */
+    private byte[] bom = new byte[0];
+    /** The charset read. */
+    private Charset charset;
+    /** The CharsetMatches. */
+    private final List<CharsetMatch> matches;
+    /** The count of the carriage return in the chunks handed over. */
+    private int crCount = 0;
+    /** The count of line feed in the chunks handed over. */
+    private int lfCount = 0;
+    /** The read callback. */
+    private final Consumer<Segment> progressListener;
+    /** The chunks read in the background. */
+    private final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+    /** The background reading thread. */
+    private Thread thread;
+    /** The error occurred in the background. */
+    private volatile Throwable error;
+    /** The cache to which the completed index is stored, {@code null} if not cached. */
+    private final IndexCache cache;
+    /** Whether the index has been edited before the reading is completed. */
+    private boolean edited = false;
+
+    /**
+     * Constructor.
+     * @param path the path to be read
+     * @param progressListener the read callback
+     * @param cache the cache to which the completed index is stored, {@code null} if not cached
+     * @param matches the CharsetMatches
+     */
+    ProgressiveReader(Path path,
+            Consumer<Segment> progressListener,
+            IndexCache cache,
+            CharsetMatch... matches) {
+        this.path = path;
+        this.progressListener = progressListener;
+        this.cache = cache;
+        this.matches = List.of(matches);
+        read(path);
+    }
+
+    @Override
+    public RowIndex index() {
+        return index;
+    }
+
+    @Override
+    public Charset charset() {
+        return charset;
+    }
+
+    @Override
+    public int crCount() {
+        return crCount;
+    }
+
+    @Override
+    public int lfCount() {
+        return lfCount;
+    }
+
+    @Override
+    public byte[] bom() {
+        return bom;
+    }
+
+    /**
+     * Retrieves the next chunk read in the background, without waiting.
+     * @return the next chunk, {@code null} if no chunk is available yet
+     */
+    Chunk poll() {
+        return check(queue.poll());
+    }
+
+    /**
+     * Retrieves the next chunk read in the background, waiting if necessary.
+     * @return the next chunk
+     */
+    Chunk take() {
+        try {
+            return check(queue.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted");
+        }
+    }
+
+    /**
+     * Stops the background reading.
+     */
+    void close() {
+        if (thread != null) thread.interrupt();
+    }
+
+    /**
+     * Notifies that the index has been edited before the reading is completed.
+     * The edited index is not stored to the cache, as it no longer matches the file.
+     */
+    void edited() {
+        edited = true;
+    }
+
+    private Chunk check(Chunk chunk) {
+        if (chunk == Chunk.LAST) {
+            if (error != null) {
+                // leaves the last chunk, so that every later retrieval fails as well
+                queue.add(Chunk.LAST);
+                throw new RuntimeException(error);
+            }
+            // all the chunks before the last have been added to the index
+            store();
+        } else if (chunk != null) {
+            crCount += chunk.crCount();
+            lfCount += chunk.lfCount();
+        }
+        return chunk;
+    }
+
+    /**
+     * Stores the snapshot of the completed index to the cache in the background.
+     * The index is not stored if it has been edited, as it no longer matches the file.
+     */
+    private void store() {
+        if (cache == null || edited) {
+            return;
+        }
+        RowIndex snapshot = RowIndex.of(charset, index.rowLengths());
+        snapshot.crOnly(index.crOnly());
+        Reader reader = new IndexCache.Cached(snapshot, charset, bom, crCount, lfCount);
+        Thread.ofVirtual().name("piecetable-index-cache")
+            .start(() -> cache.store(path, reader));
+    }
+
+    private void read(Path path) {
+
+        charset = StandardCharsets.UTF_8;
+        index = RowIndex.of(charset);
+        if (path == null || !Files.exists(path)) {
+            queue.add(Chunk.LAST);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(size, CHUNK_SIZE));
+            while (buf.hasRemaining() && channel.read(buf) >= 0) { }
+            byte[] bytes = Arrays.copyOf(buf.array(), buf.position());
+            if (bytes.length > 0) {
+                bytes = handleHeadChunk(bytes);
+                int[] crlf = index.addFollowing(bytes, 0, 0);
+                crCount = crlf[0];
+                lfCount = crlf[1];
+                index.buildStCache();
+            }
+            if (progressListener != null) {
+                progressListener.accept(Segment.of(buf.position(), size));
+            }
+            if (buf.position() >= size) {
+                queue.add(Chunk.LAST);
+                return;
+            }
+            long from = buf.position();
+            thread = Thread.ofVirtual().name("piecetable-progressive-reader")
+                .start(() -> readRest(path, from, size));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void readRest(Path path, long from, long size) {
+        // traverse rows with a scratch index, the index itself is owned by the reader thread
+        RowIndex traverse = RowIndex.of(charset);
+        traverse.crOnly(index.crOnly());
+        int cr = crCount;
+        int lf = lfCount;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+            for (long offset = from; offset < size; ) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                buf.clear();
+                buf.limit((int) Math.min(CHUNK_SIZE, size - offset));
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, offset + buf.position()) < 0) {
+                        throw new IOException("The file is truncated while reading: " + path);
+                    }
+                }
+                byte[] bytes = Arrays.copyOf(buf.array(), buf.position());
+                int[][] rets = traverse.rowsFollowing(bytes, cr, lf);
+                cr += rets[1][0];
+                lf += rets[1][1];
+                queue.add(new Chunk(rets[0], rets[1][0], rets[1][1], traverse.crOnly()));
+                offset += bytes.length;
+                if (progressListener != null) {
+                    progressListener.accept(Segment.of(bytes.length, size));
+                }
+            }
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            queue.add(Chunk.LAST);
+        }
+    }
+
+    private byte[] handleHeadChunk(byte[] bytes) {
+        bom = Bom.extract(bytes);
+        if (bom.length > 0) {
+            charset = Bom.toCharset(bom);
+            // exclude BOM
+            bytes = Arrays.copyOfRange(bytes, bom.length, bytes.length);
+        } else {
+            charset = CharsetMatches.estimate(bytes, matches).orElse(StandardCharsets.UTF_8);
+        }
+        index = RowIndex.of(charset);
+        return bytes;
+    }
+
+    /**
+     * The chunk of rows read in the background.
+     * @param rows the row lengths, the first element continues the last row already read
+     * @param crCount the count of the carriage return
+     * @param lfCount the count of line feed
+     * @param crOnly whether the rows are terminated by CR, with the row ending of all the bytes read so far
+     */
+    record Chunk(int[] rows, int crCount, int lfCount, boolean crOnly) {
+        /** The chunk marks the end of reading. */
+        static final Chunk LAST = new Chunk(new int[0], 0, 0, false);
+    }
+
+}
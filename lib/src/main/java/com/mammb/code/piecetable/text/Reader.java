@@ -23,7 +23,11 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Interface defining a reader for text-based content.
@@ -61,7 +65,7 @@ public interface Reader extends DocumentStat {
      * @return a new {@link Reader}.
      */
     static Reader of(Path path, CharsetMatch... matches) {
-        return new SeqReader(path, -1, null, defaultIfEmpty(matches));
+        return cached(path, null, matches, () -> new SeqReader(path, -1, null, defaultIfEmpty(matches)));
     }
 
     /**
@@ -84,13 +88,51 @@ public interface Reader extends DocumentStat {
     static Reader of(Path path, Consumer<Segment> listener, CharsetMatch... matches) {
         try {
             return Files.size(path) >= ParallelReader.CHUNK_SIZE
-                ? new ParallelReader(path, listener, defaultIfEmpty(matches))
+                ? cached(path, listener, matches, () -> new ParallelReader(path, listener, defaultIfEmpty(matches)))
                 : new SeqReader(path, -1, listener, defaultIfEmpty(matches));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Create a new {@link Reader} that reads the chunks on the specified executor.
+     * @param path the path to be read
+     * @param listener the progress listener
+     * @param executor the executor that runs the chunk tasks
+     * @param parallelism the max number of chunk tasks run at once, including the calling thread
+     * @param cancelled the cancellation token, checked for each chunk
+     * @param matches the {@link CharsetMatch} used in reading the target file
+     * @return a new {@link Reader}.
+     */
+    static Reader of(Path path, Consumer<Segment> listener,
+            Executor executor, int parallelism, BooleanSupplier cancelled, CharsetMatch... matches) {
+        try {
+            return Files.size(path) >= ParallelReader.CHUNK_SIZE
+                ? cached(path, listener, matches, () -> new ParallelReader(path, listener,
+                    executor, parallelism, cancelled, defaultIfEmpty(matches)))
+                : new SeqReader(path, -1, listener, defaultIfEmpty(matches));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Create a new progressive {@link Reader}.
+     * Only the head chunk is read before returning, the rest is read in the background.
+     * @param path the path to be read
+     * @param listener the progress listener
+     * @param matches the {@link CharsetMatch} used in reading the target file
+     * @return a new {@link Reader}.
+     */
+    static Reader progressiveOf(Path path, Consumer<Segment> listener, CharsetMatch... matches) {
+        Optional<IndexCache> cache = (matches == null || matches.length == 0)
+            ? IndexCache.system()
+            : Optional.empty();
+        return cache.flatMap(c -> load(c, path, listener)).orElseGet(() ->
+            new ProgressiveReader(path, listener, cache.orElse(null), defaultIfEmpty(matches)));
+    }
+
     /**
      * Create a new {@link Reader}.
      * @param path the path to be read
@@ -102,6 +144,52 @@ public interface Reader extends DocumentStat {
         return new SeqReader(path, rowLimit, null, defaultIfEmpty(matches));
     }
 
+    /**
+     * Get the {@link Reader} from the system-wide {@link IndexCache} if available,
+     * otherwise read by the specified reader and store the result to the cache.
+     * The cache is not used when the {@link CharsetMatch} is specified explicitly.
+     * @param path the path to be read
+     * @param listener the progress listener
+     * @param matches the {@link CharsetMatch} used in reading the target file
+     * @param reader the supplier of the reader used on a cache miss
+     * @return the {@link Reader}
+     */
+    private static Reader cached(Path path, Consumer<Segment> listener,
+            CharsetMatch[] matches, Supplier<Reader> reader) {
+        Optional<IndexCache> cache = (matches == null || matches.length == 0)
+            ? IndexCache.system()
+            : Optional.empty();
+        if (cache.isEmpty()) {
+            return reader.get();
+        }
+        return load(cache.get(), path, listener).orElseGet(() -> {
+            Reader read = reader.get();
+            cache.get().store(path, read);
+            return read;
+        });
+    }
+
+    /**
+     * Load the {@link Reader} from the {@link IndexCache}.
+     * On a cache hit, the listener is notified of the whole file as read at once.
+     * @param cache the {@link IndexCache}
+     * @param path the path to be read
+     * @param listener the progress listener
+     * @return the {@link Reader}, empty on a cache miss
+     */
+    private static Optional<Reader> load(IndexCache cache, Path path, Consumer<Segment> listener) {
+        Optional<Reader> loaded = cache.load(path);
+        if (loaded.isPresent() && listener != null) {
+            try {
+                long size = Files.size(path);
+                listener.accept(Segment.of(size, size));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return loaded;
+    }
+
     private static CharsetMatch[] defaultIfEmpty(CharsetMatch... matches) {
         return (matches == null || matches.length == 0)
             ? CharsetMatches.defaults()
@@ -15,6 +15,8 @@
  */
 package com.mammb.code.piecetable.text;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -40,8 +42,17 @@ import static java.nio.charset.StandardCharsets.*;
  */
 public class RowIndex {
 
+    /** The kind of row, not yet known. */
+    static final byte UNKNOWN = 0;
+    /** The kind of row, consisting only of ASCII bytes. */
+    static final byte ASCII = 1;
+    /** The kind of row, containing non-ASCII bytes. */
+    static final byte NON_ASCII = 2;
+
     /** The row lengths. */
     private int[] rowLengths;
+    /** The kind of each row, parallel to the row lengths. */
+    private byte[] rowKinds;
     /** The length of a row lengths array. */
     private int length;
 
@@ -55,6 +66,9 @@ public class RowIndex {
     /** The byte width to reads. */
     private final int byteUnits;
 
+    /** Whether rows are terminated by CR instead of LF, for the CR-only row ending. */
+    private boolean crOnly;
+
     /**
      * Create a new {@code RowIndex}.
      * @param cacheInterval the subtotal cache interval
@@ -63,13 +77,23 @@ public class RowIndex {
      */
     private RowIndex(int cacheInterval, int prefRows, Charset charset) {
         this.rowLengths = new int[Math.max(1, prefRows)];
+        this.rowKinds = new byte[rowLengths.length];
         this.length = 1;
 
         this.stCache = new long[Math.max(1, prefRows / cacheInterval)];
         this.cacheLength = 1;
         this.cacheInterval = cacheInterval;
 
-        this.byteUnits = (charset == null || UTF_8.equals(charset)) ? 1
+        this.byteUnits = byteUnitsOf(charset);
+    }
+
+    /**
+     * Gets the byte width of a character unit to be scanned for row breaks.
+     * @param charset the charset
+     * @return the byte width, 1, 2 or 4
+     */
+    static int byteUnitsOf(Charset charset) {
+        return (charset == null || UTF_8.equals(charset)) ? 1
             : (UTF_16.equals(charset) || UTF_16BE.equals(charset) || UTF_16LE.equals(charset)) ? 2
             : (UTF_32.equals(charset) || UTF_32BE.equals(charset) || UTF_32LE.equals(charset)) ? 4
             : 1;
@@ -103,6 +127,24 @@ public class RowIndex {
         return new RowIndex(cacheInterval, prefRows, charset);
     }
 
+    /**
+     * Create a new {@link RowIndex} from the row lengths already computed.
+     * The specified array is adopted as is, not copied.
+     * @param charset the charset to be used in creating the {@link RowIndex}
+     * @param rowLengths the byte length of each row
+     * @return a new {@link RowIndex}
+     */
+    static RowIndex of(Charset charset, int[] rowLengths) {
+        var index = new RowIndex(100, 0, charset);
+        if (rowLengths.length > 0) {
+            index.rowLengths = rowLengths;
+            index.rowKinds = new byte[rowLengths.length];
+            index.length = rowLengths.length;
+        }
+        index.buildStCache();
+        return index;
+    }
+
     /**
      * Adds the processed rows obtained from a byte array to the index and returns the second array
      * from the processed result.
@@ -135,6 +177,7 @@ public class RowIndex {
         }
         for (int i = 0; i < rows.length; i++) {
             rowLengths[length - 1] += rows[i];
+            rowKinds[length - 1] = UNKNOWN;
             if (rows.length > 1 && i < rows.length - 1) {
                 // rows |0|
                 // rows |0|length++|1|
@@ -213,10 +256,12 @@ public class RowIndex {
         }
         cacheLength = row / cacheInterval;
 
+        boolean ascii = isAscii(bytes);
         if (rows.length == 1) {
 
             // insert operation within a single row
             rowLengths[row] += rows[0];
+            if (!ascii) rowKinds[row] = NON_ASCII;
 
         } else {
 
@@ -232,6 +277,14 @@ public class RowIndex {
             System.arraycopy(rows, 1, rowLengths, row + 1, rows.length - 1 - 1);
             rowLengths[row + rows.length - 1] = tail;
 
+            System.arraycopy(rowKinds, row + 1,
+                rowKinds, row + rows.length,
+                length - (row + 1));
+            byte kind = (ascii && rowKinds[row] == ASCII) ? ASCII : UNKNOWN;
+            Arrays.fill(rowKinds, row, row + rows.length, ascii ? ASCII : UNKNOWN);
+            rowKinds[row] = kind;
+            rowKinds[row + rows.length - 1] = kind;
+
         }
 
         length += rows.length - 1;
@@ -257,6 +310,7 @@ public class RowIndex {
             // |a|b|c|d|$|       ->        |a|d|$|
             //   ^---  col:1, len:2
             rowLengths[row] -= len;
+            if (rowKinds[row] == NON_ASCII) rowKinds[row] = UNKNOWN;
 
         } else {
 
@@ -275,29 +329,147 @@ public class RowIndex {
             } while (len >= 0);
 
             rowLengths[row] += (-len); // merge the rest to the first row
+            rowKinds[row] = (rowKinds[row] == ASCII && rowKinds[row + lines] == ASCII) ? ASCII : UNKNOWN;
 
             if (lines > 0) {
                 System.arraycopy(
                     rowLengths, row + 1 + lines,
                     rowLengths, row + 1,
                     length - (row + 1 + lines));
+                System.arraycopy(
+                    rowKinds, row + 1 + lines,
+                    rowKinds, row + 1,
+                    length - (row + 1 + lines));
                 length -= lines;
             }
         }
     }
 
+    /**
+     * Replaces the specified byte ranges of the index at once.
+     * The row lengths are rebuilt in a single pass, rather than the insertion and deletion for each range.
+     * @param offsets the byte offsets of the ranges, ascending and not overlapping
+     * @param lens the byte lengths of the ranges
+     * @param bytes the bytes to be replaced with
+     * @param bytesLens the byte length of each replacement in the bytes,
+     *        {@code null} if every range is replaced with the whole bytes
+     */
+    public void replace(long[] offsets, int[] lens, byte[] bytes, int[] bytesLens) {
+
+        if (offsets.length == 0) {
+            return;
+        }
+        if (length == 0) {
+            length++;
+        }
+
+        int[] whole = (bytesLens == null) ? rows(bytes)[0] : null;
+        IntArray dest = IntArray.of(length);
+        int row = 0;
+        long rowEnd = rowLengths[0];
+        long pos = 0;
+        int cur = 0;
+        int bytesIndex = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            // the rows before the range
+            while (row < length - 1 && rowEnd <= offsets[i]) {
+                dest.add(Math.toIntExact(cur + rowEnd - pos));
+                cur = 0;
+                pos = rowEnd;
+                rowEnd += rowLengths[++row];
+            }
+            cur += Math.toIntExact(offsets[i] - pos);
+
+            // the rows of the replacement
+            int[] rows = (whole != null)
+                ? whole
+                : rows(Arrays.copyOfRange(bytes, bytesIndex, bytesIndex += bytesLens[i]))[0];
+            for (int j = 0; j < rows.length; j++) {
+                if (j > 0) {
+                    dest.add(cur);
+                    cur = 0;
+                }
+                cur += rows[j];
+            }
+
+            // the row breaks in the range are removed
+            pos = offsets[i] + lens[i];
+            while (row < length - 1 && rowEnd <= pos) {
+                rowEnd += rowLengths[++row];
+            }
+        }
+        while (row < length - 1) {
+            dest.add(Math.toIntExact(cur + rowEnd - pos));
+            cur = 0;
+            pos = rowEnd;
+            rowEnd += rowLengths[++row];
+        }
+        dest.add(Math.toIntExact(cur + rowEnd - pos));
+
+        rowLengths = dest.get();
+        length = rowLengths.length;
+        rowKinds = new byte[length];
+        buildStCache();
+    }
+
     /**
      * Trim to size.
      */
     public void trimToSize() {
         if (Math.max(1, length) < rowLengths.length) {
             rowLengths = Arrays.copyOf(rowLengths, Math.max(1, length));
+            rowKinds = Arrays.copyOf(rowKinds, Math.max(1, length));
         }
         if (Math.max(1, cacheLength) < stCache.length) {
             stCache = Arrays.copyOf(stCache, Math.max(1, cacheLength));
         }
     }
 
+    /**
+     * Get the kind of the specified row.
+     * @param row the specified row
+     * @return the kind of row, {@link #UNKNOWN}, {@link #ASCII} or {@link #NON_ASCII}
+     */
+    byte rowKind(int row) {
+        return rowKinds[row];
+    }
+
+    /**
+     * Set the kind of the specified row, examined by the caller.
+     * @param row the specified row
+     * @param kind the kind of row, {@link #ASCII} or {@link #NON_ASCII}
+     */
+    void rowKind(int row, byte kind) {
+        rowKinds[row] = kind;
+    }
+
+    /**
+     * Get whether the specified bytes consist only of ASCII bytes.
+     * @param bytes the bytes to be examined
+     * @return {@code true} if the bytes consist only of ASCII bytes
+     */
+    static boolean isAscii(byte[] bytes) {
+        return isAscii(bytes, bytes.length);
+    }
+
+    /**
+     * Get whether the head bytes of the specified bytes consist only of ASCII bytes.
+     * @param bytes the bytes to be examined
+     * @param length the length of the bytes to be examined
+     * @return {@code true} if the bytes consist only of ASCII bytes
+     */
+    static boolean isAscii(byte[] bytes, int length) {
+        var seg = MemorySegment.ofArray(bytes);
+        int i = 0;
+        for (int end = length & ~7; i < end; i += Long.BYTES) {
+            if ((seg.get(ValueLayout.JAVA_LONG_UNALIGNED, i) & 0x8080808080808080L) != 0) return false;
+        }
+        for (; i < length; i++) {
+            if (bytes[i] < 0) return false;
+        }
+        return true;
+    }
+
     /**
      * Get the size of rows.
      * @return the size of rows
@@ -413,71 +585,103 @@ public class RowIndex {
         return new int[][] { intArray.get(), crlf };
     }
 
+    /**
+     * Traverses the rows of the specified byte array.
+     * @param bytes the byte array to be traversed
+     * @param intArray the array to which the byte length of each row is added
+     * @return the counts of CR and LF, as {@code int[] { cr, lf }}
+     */
     int[] traversRow(byte[] bytes, IntArray intArray) {
+        return RowScanner.scan(MemorySegment.ofArray(bytes), 0, bytes.length, byteUnits, crOnly, intArray);
+    }
 
-        int crCount = 0, lfCount = 0, n = 0;
+    /**
+     * Get whether rows are terminated by CR instead of LF.
+     * @return {@code true} if rows are terminated by CR
+     */
+    boolean crOnly() {
+        return crOnly;
+    }
 
-        if (byteUnits == 1) {
+    /**
+     * Set whether rows are terminated by CR instead of LF.
+     * This must be set before the rows are added.
+     * @param crOnly {@code true} if rows are terminated by CR, for the CR-only row ending
+     */
+    void crOnly(boolean crOnly) {
+        this.crOnly = crOnly;
+    }
 
-            for (byte aByte : bytes) {
-                n++;
-                if (aByte == '\r') {
-                    crCount++;
-                } else if (aByte == '\n') {
-                    lfCount++;
-                    intArray.add(n);
-                    n = 0;
-                }
-            }
-            intArray.add(n);
-
-        } else if (byteUnits == 2) {
-            // UTF-16 like
-            for (int i = 0; i < bytes.length; i += 2) {
-                byte aByte1 = bytes[i];
-                byte aByte2 = bytes[i + 1];
-                n += 2;
-                // UTF16 LE  \r\n: 0D 00 0A 00    \n: 0A 00
-                // UTF16 BE  \r\n: 00 0D 00 0A    \n: 00 0A
-                if ((aByte1 == '\r' && aByte2 == 0) ||
-                    (aByte1 == 0 && aByte2 == '\r')) {
-                    crCount++;
-                } else if ((aByte1 == '\n' && aByte2 == 0) ||
-                    (aByte1 == 0 && aByte2 == '\n')) {
-                    lfCount++;
-                    intArray.add(n);
-                    n = 0;
-                }
-            }
-            intArray.add(n);
-
-        } else if (byteUnits == 4) {
-            // UTF-32 like
-            for (int i = 0; i < bytes.length; i += 4) {
-                byte aByte1 = bytes[i];
-                byte aByte2 = bytes[i + 1];
-                byte aByte3 = bytes[i + 2];
-                byte aByte4 = bytes[i + 3];
-                n += 4;
-                // UTF32 LE  \r\n: 0D 00 00 00 0A 00 00 00    \n: 0A 00 00 00
-                // UTF32 BE  \r\n: 00 00 00 0D 00 00 00 0A    \n: 00 00 00 0A
-                if ((aByte1 == '\r' && aByte2 == 0 && aByte3 == 0 && aByte4 == 0) ||
-                    (aByte1 == 0 && aByte2 == 0 && aByte3 == 0 && aByte4 == '\r')) {
-                    crCount++;
-                } else if ((aByte1 == '\n' && aByte2 == 0 && aByte3 == 0 && aByte4 == 0) ||
-                    (aByte1 == 0 && aByte2 == 0 && aByte3 == 0 && aByte4 == '\n')) {
-                    lfCount++;
-                    intArray.add(n);
-                    n = 0;
-                }
-            }
-            intArray.add(n);
+    /**
+     * Detects the CR-only row ending from the specified head bytes, and sets the row break accordingly.
+     * This must be called before the rows are added.
+     * @param head the head bytes of the document
+     */
+    void detectRowBreak(byte[] head) {
+        this.crOnly = RowScanner.isCrOnly(MemorySegment.ofArray(head), 0, head.length, byteUnits);
+    }
 
-        } else {
-            throw new IllegalStateException("Unsupported byte width: " + byteUnits);
+    /**
+     * Adds the rows of the bytes read in sequence, with the row break of all the bytes read so far.
+     * As the CR-only row ending turns into LF once a line feed is read, the rows are split
+     * as with the row ending of the whole bytes, without reading them again.
+     * @param bytes the bytes following the bytes read so far
+     * @param crCount the count of CR in the bytes read so far
+     * @param lfCount the count of LF in the bytes read so far
+     * @return the counts of CR and LF in the bytes, as {@code int[] { cr, lf }}
+     */
+    int[] addFollowing(byte[] bytes, int crCount, int lfCount) {
+        boolean crOnly = this.crOnly;
+        int[][] rets = rowsFollowing(bytes, crCount, lfCount);
+        boolean following = this.crOnly;
+        this.crOnly = crOnly;
+        add(rets[0], following);
+        return rets[1];
+    }
+
+    /**
+     * Gets the rows of the bytes read in sequence, with the row break of all the bytes read so far.
+     * The row break of this index is switched if the bytes change it, but the rows already added
+     * are left as they are, see {@link #add(int[], boolean)}.
+     * @param bytes the bytes following the bytes read so far
+     * @param crCount the count of CR in the bytes read so far
+     * @param lfCount the count of LF in the bytes read so far
+     * @return the byte lengths of the rows, and the counts of CR and LF in the bytes
+     */
+    int[][] rowsFollowing(byte[] bytes, int crCount, int lfCount) {
+        int[][] rets = rows(bytes);
+        boolean crOnly = RowScanner.isCrOnly(crCount + rets[1][0], lfCount + rets[1][1]);
+        if (crOnly != this.crOnly) {
+            this.crOnly = crOnly;
+            rets = rows(bytes);
         }
+        return rets;
+    }
 
-        return new int[] { crCount, lfCount };
+    /**
+     * Adds the specified length array split with the specified row break.
+     * If the row break turns from CR-only into LF, the rows already added are joined into a row,
+     * as they have no line feed.
+     * The row break never turns from LF into CR-only after a row break is added,
+     * as a line feed has been read.
+     * @param rows the specified length array
+     * @param crOnly whether the rows are terminated by CR
+     */
+    void add(int[] rows, boolean crOnly) {
+        if (this.crOnly && !crOnly && length > 1) {
+            long total = 0;
+            for (int i = 0; i < length; i++) {
+                total += rowLengths[i];
+            }
+            // the rows are added onto the cleared lengths
+            Arrays.fill(rowLengths, 1, length, 0);
+            rowLengths[0] = Math.toIntExact(total);
+            rowKinds[0] = UNKNOWN;
+            length = 1;
+            buildStCache();
+        }
+        this.crOnly = crOnly;
+        add(rows);
     }
 
     /**
@@ -491,8 +695,10 @@ public class RowIndex {
             int newCapacity = Math.min(
                 Math.max(minCapacity, oldCapacity + (oldCapacity >> 1)),
                 Integer.MAX_VALUE - 8);
+            rowKinds = Arrays.copyOf(rowKinds, newCapacity);
             return rowLengths = Arrays.copyOf(rowLengths, newCapacity);
         } else {
+            rowKinds = new byte[Math.max(100, minCapacity)];
             return rowLengths = new int[Math.max(100, minCapacity)];
         }
     }
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * The newline scanner.
+ * Scans the row boundaries eight bytes at a time with SWAR (SIMD within a register).
+ * Each word is tested for CR and LF units at once, and words without any of them are skipped
+ * without per-byte branches.
+ * <pre>
+ *  UTF-8     LF: 0A             CR: 0D
+ *  UTF-16 LE LF: 0A 00          BE: 00 0A
+ *  UTF-32 LE LF: 0A 00 00 00    BE: 00 00 00 0A
+ * </pre>
+ * As with the scalar loop, both byte orders are accepted for the units of 2 and 4 bytes.
+ * <p>
+ * Rows are terminated by LF, which also covers CRLF. For the files with the CR-only row ending,
+ * rows are terminated by CR instead. As the row break is a single unit in either case,
+ * a row break is never split across the ranges scanned separately.
+ * @author Naotsugu Kobayashi
+ */
+final class RowScanner {
+
+    /** The little-endian word layout. */
+    private static final ValueLayout.OfLong WORD =
+        ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    /** The low bits mask of each lane, indexed by the byte units. */
+    private static final long[] LOW = {
+        0, 0x7F7F7F7F7F7F7F7FL, 0x7FFF7FFF7FFF7FFFL, 0, 0x7FFFFFFF7FFFFFFFL };
+    /** The LF lane pattern in little-endian, indexed by the byte units. */
+    private static final long[] LF_LE = {
+        0, 0x0A0A0A0A0A0A0A0AL, 0x000A000A000A000AL, 0, 0x0000000A0000000AL };
+    /** The LF lane pattern in big-endian, indexed by the byte units. */
+    private static final long[] LF_BE = {
+        0, 0x0A0A0A0A0A0A0A0AL, 0x0A000A000A000A00L, 0, 0x0A0000000A000000L };
+    /** The CR lane pattern in little-endian, indexed by the byte units. */
+    private static final long[] CR_LE = {
+        0, 0x0D0D0D0D0D0D0D0DL, 0x000D000D000D000DL, 0, 0x0000000D0000000DL };
+    /** The CR lane pattern in big-endian, indexed by the byte units. */
+    private static final long[] CR_BE = {
+        0, 0x0D0D0D0D0D0D0D0DL, 0x0D000D000D000D00L, 0, 0x0D0000000D000000L };
+
+    private RowScanner() { }
+
+    /**
+     * Scans the row lengths of the specified range, terminated by LF.
+     * The length of the last row, which is not terminated by LF, is always added at the end.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @param rows the array to which row lengths are added
+     * @return the counts of CR and LF, as {@code int[] { cr, lf }}
+     */
+    static int[] scan(MemorySegment seg, long from, long to, int units, IntArray rows) {
+        return scan(seg, from, to, units, false, rows);
+    }
+
+    /**
+     * Scans the row lengths of the specified range.
+     * The length of the last row, which is not terminated, is always added at the end.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @param crOnly whether rows are terminated by CR instead of LF
+     * @param rows the array to which row lengths are added
+     * @return the counts of CR and LF, as {@code int[] { cr, lf }}
+     */
+    static int[] scan(MemorySegment seg, long from, long to, int units, boolean crOnly, IntArray rows) {
+        checkUnits(units);
+        final long low = LOW[units];
+        final long lfLe = LF_LE[units], lfBe = LF_BE[units];
+        final long crLe = CR_LE[units], crBe = CR_BE[units];
+
+        int cr = 0, lf = 0;
+        long rowStart = from;
+        long i = from;
+        for (long end = from + ((to - from) & ~7L); i < end; i += Long.BYTES) {
+            long w = seg.get(WORD, i);
+            long lfm = match(w, lfLe, lfBe, low);
+            long crm = match(w, crLe, crBe, low);
+            if ((lfm | crm) == 0) continue;
+            cr += Long.bitCount(crm);
+            lf += Long.bitCount(lfm);
+            for (long m = crOnly ? crm : lfm; m != 0; m &= m - 1) {
+                // the high bit of the lane -> the head byte of the lane
+                long p = i + ((Long.numberOfTrailingZeros(m) >>> 3) & ~(units - 1)) + units;
+                rows.add((int) (p - rowStart));
+                rowStart = p;
+            }
+        }
+        return tail(seg, i, to, units, crOnly, rows, rowStart, cr, lf);
+    }
+
+    /**
+     * Counts the CR and LF of the specified range, without collecting row lengths.
+     * The row breaks of both modes are counted, so that the mode can be decided from the counts
+     * of the whole file.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @return the counts
+     */
+    static Counts count(MemorySegment seg, long from, long to, int units) {
+        checkUnits(units);
+        final long low = LOW[units];
+        final long lfLe = LF_LE[units], lfBe = LF_BE[units];
+        final long crLe = CR_LE[units], crBe = CR_BE[units];
+
+        int cr = 0, lf = 0;
+        long lastCrEnd = -1, lastLfEnd = -1;
+        long i = from;
+        for (long end = from + ((to - from) & ~7L); i < end; i += Long.BYTES) {
+            long w = seg.get(WORD, i);
+            long lfm = match(w, lfLe, lfBe, low);
+            long crm = match(w, crLe, crBe, low);
+            if ((lfm | crm) == 0) continue;
+            cr += Long.bitCount(crm);
+            lf += Long.bitCount(lfm);
+            if (crm != 0) lastCrEnd = lastEnd(i, crm, units);
+            if (lfm != 0) lastLfEnd = lastEnd(i, lfm, units);
+        }
+        for (; i + units <= to; i += units) {
+            if (isUnit(seg, i, units, (byte) '\n')) {
+                lf++;
+                lastLfEnd = i + units;
+            } else if (isUnit(seg, i, units, (byte) '\r')) {
+                cr++;
+                lastCrEnd = i + units;
+            }
+        }
+        return new Counts(cr, lf, lastCrEnd, lastLfEnd);
+    }
+
+    /**
+     * Gets the offset just after the last matched lane of the word.
+     * @param i the offset of the word
+     * @param m the mask of the matched lanes
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @return the offset just after the last matched lane
+     */
+    private static long lastEnd(long i, long m, int units) {
+        return i + (((63 - Long.numberOfLeadingZeros(m)) >>> 3) & ~(units - 1)) + units;
+    }
+
+    /**
+     * Writes the lengths of the rows terminated in the specified range into the array.
+     * The row not terminated in the range is not written.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @param crOnly whether rows are terminated by CR instead of LF
+     * @param rowStart the start offset of the row that continues into the range
+     * @param dst the array to which the row lengths are written
+     * @param dstPos the starting position in the destination array
+     * @return the number of rows written
+     */
+    static int fill(MemorySegment seg, long from, long to, int units, boolean crOnly,
+            long rowStart, int[] dst, int dstPos) {
+        checkUnits(units);
+        final long low = LOW[units];
+        final long lfLe = crOnly ? CR_LE[units] : LF_LE[units];
+        final long lfBe = crOnly ? CR_BE[units] : LF_BE[units];
+        final byte brk = crOnly ? (byte) '\r' : (byte) '\n';
+
+        int pos = dstPos;
+        long i = from;
+        for (long end = from + ((to - from) & ~7L); i < end; i += Long.BYTES) {
+            long lfm = match(seg.get(WORD, i), lfLe, lfBe, low);
+            while (lfm != 0) {
+                long p = i + ((Long.numberOfTrailingZeros(lfm) >>> 3) & ~(units - 1)) + units;
+                dst[pos++] = (int) (p - rowStart);
+                rowStart = p;
+                lfm &= lfm - 1;
+            }
+        }
+        for (; i + units <= to; i += units) {
+            if (isUnit(seg, i, units, brk)) {
+                dst[pos++] = (int) (i + units - rowStart);
+                rowStart = i + units;
+            }
+        }
+        return pos - dstPos;
+    }
+
+    /**
+     * Scans the row lengths of the specified range one unit at a time.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @param rows the array to which row lengths are added
+     * @return the counts of CR and LF, as {@code int[] { cr, lf }}
+     */
+    static int[] scalarScan(MemorySegment seg, long from, long to, int units, IntArray rows) {
+        checkUnits(units);
+        return tail(seg, from, to, units, false, rows, from, 0, 0);
+    }
+
+    /**
+     * Gets the mask of the lanes that match either of the patterns.
+     * The high bit of each matched lane is set.
+     * @param w the word
+     * @param le the little-endian pattern
+     * @param be the big-endian pattern
+     * @param low the low bits mask of each lane
+     * @return the mask of the matched lanes
+     */
+    static long match(long w, long le, long be, long low) {
+        return (le == be)
+            ? zeroLanes(w ^ le, low)
+            : zeroLanes(w ^ le, low) | zeroLanes(w ^ be, low);
+    }
+
+    /**
+     * Gets the mask of the zero lanes, without carry across lanes.
+     * @param x the word
+     * @param low the low bits mask of each lane
+     * @return the mask that the high bit of each zero lane is set
+     */
+    private static long zeroLanes(long x, long low) {
+        return ~(((x & low) + low) | x | low);
+    }
+
+    /**
+     * Get whether the specified range has the CR-only row ending, i.e. it contains CR but no LF.
+     * @param seg the memory segment to be scanned
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @param units the byte width of a character unit, 1, 2 or 4
+     * @return {@code true} if the range has the CR-only row ending
+     */
+    static boolean isCrOnly(MemorySegment seg, long from, long to, int units) {
+        return count(seg, from, to, units).isCrOnly();
+    }
+
+    /**
+     * Get whether the counts of CR and LF show the CR-only row ending, i.e. there is CR but no LF.
+     * @param crCount the count of the carriage return
+     * @param lfCount the count of line feed
+     * @return {@code true} if the counts show the CR-only row ending
+     */
+    static boolean isCrOnly(int crCount, int lfCount) {
+        return lfCount == 0 && crCount > 0;
+    }
+
+    private static int[] tail(MemorySegment seg, long i, long to, int units, boolean crOnly,
+            IntArray rows, long rowStart, int cr, int lf) {
+        for (; i + units <= to; i += units) {
+            boolean isLf = isUnit(seg, i, units, (byte) '\n');
+            boolean isCr = !isLf && isUnit(seg, i, units, (byte) '\r');
+            if (isLf) lf++;
+            if (isCr) cr++;
+            if (crOnly ? isCr : isLf) {
+                rows.add((int) (i + units - rowStart));
+                rowStart = i + units;
+            }
+        }
+        rows.add((int) (to - rowStart));
+        return new int[] { cr, lf };
+    }
+
+    private static boolean isUnit(MemorySegment seg, long i, int units, byte b) {
+        byte head = seg.get(ValueLayout.JAVA_BYTE, i);
+        if (units == 1) return head == b;
+        byte last = seg.get(ValueLayout.JAVA_BYTE, i + units - 1);
+        for (int k = 1; k < units - 1; k++) {
+            if (seg.get(ValueLayout.JAVA_BYTE, i + k) != 0) return false;
+        }
+        return (head == b && last == 0) || (head == 0 && last == b);
+    }
+
+    private static void checkUnits(int units) {
+        if (units != 1 && units != 2 && units != 4) {
+            throw new IllegalStateException("Unsupported byte width: " + units);
+        }
+    }
+
+    /**
+     * The counts of the scanned range.
+     * @param crCount the count of the carriage return
+     * @param lfCount the count of line feed
+     * @param lastCrEnd the offset just after the last CR, {@code -1} if there is no CR
+     * @param lastLfEnd the offset just after the last LF, {@code -1} if there is no LF
+     */
+    record Counts(int crCount, int lfCount, long lastCrEnd, long lastLfEnd) {
+
+        /**
+         * Get whether the range has the CR-only row ending.
+         * @return {@code true} if the range has the CR-only row ending
+         */
+        boolean isCrOnly() {
+            return RowScanner.isCrOnly(crCount, lfCount);
+        }
+
+        /**
+         * Get the count of the row breaks.
+         * @param crOnly whether rows are terminated by CR instead of LF
+         * @return the count of the row breaks
+         */
+        int breakCount(boolean crOnly) {
+            return crOnly ? crCount : lfCount;
+        }
+
+        /**
+         * Get the offset just after the last row break.
+         * @param crOnly whether rows are terminated by CR instead of LF
+         * @return the offset just after the last row break, {@code -1} if there is no row break
+         */
+        long lastBreakEnd(boolean crOnly) {
+            return crOnly ? lastCrEnd : lastLfEnd;
+        }
+    }
+
+}
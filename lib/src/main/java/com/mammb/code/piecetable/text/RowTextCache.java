@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.CacheStats;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The LRU cache of the decoded row text.
+ * <p>
+ * The cache is bounded by the total number of chars held.
+ * A row longer than an eighth of the capacity is not cached, so that a single huge row
+ * does not evict all the others.
+ * The default capacity can be changed by the system property
+ * {@code com.mammb.code.piecetable.text.rowTextCache}, {@code 0} disables the cache.
+ * <p>
+ * The cache must be invalidated on edits of the row index.
+ * This class is not thread-safe.
+ * @author Naotsugu Kobayashi
+ */
+class RowTextCache {
+
+    /** The default capacity in chars. */
+    static final int DEFAULT_CAPACITY = 1024 * 256;
+
+    /** The capacity in chars. */
+    private final long capacity;
+    /** The cached entries by row. */
+    private final TreeMap<Integer, Entry> map = new TreeMap<>();
+    /** The cached entries in access order. */
+    private final LinkedHashSet<Entry> lru = new LinkedHashSet<>();
+    /** The total number of chars held. */
+    private long size;
+    /** The number of hits. */
+    private long hits;
+    /** The number of misses. */
+    private long misses;
+
+    /**
+     * Constructor.
+     * @param capacity the capacity in chars
+     */
+    private RowTextCache(long capacity) {
+        this.capacity = Math.max(0, capacity);
+    }
+
+    /**
+     * Create a new {@link RowTextCache}.
+     * @param capacity the capacity in chars
+     * @return a new {@link RowTextCache}
+     */
+    static RowTextCache of(long capacity) {
+        return new RowTextCache(capacity);
+    }
+
+    /**
+     * Create a new {@link RowTextCache} with the capacity of the system property.
+     * @return a new {@link RowTextCache}
+     */
+    static RowTextCache of() {
+        return new RowTextCache(Long.getLong("com.mammb.code.piecetable.text.rowTextCache", DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Get the cached text of the specified row.
+     * @param row the specified row
+     * @return the cached text, {@code null} if not cached
+     */
+    String get(int row) {
+        if (capacity == 0) return null;
+        Entry entry = map.get(row);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        lru.remove(entry);
+        lru.add(entry);
+        return entry.text;
+    }
+
+    /**
+     * Puts the text of the specified row.
+     * @param row the specified row
+     * @param text the text of the row
+     */
+    void put(int row, String text) {
+        if (text.length() > capacity / 8) return;
+        remove(row);
+        var entry = new Entry(row, text);
+        map.put(row, entry);
+        lru.add(entry);
+        size += text.length();
+        for (Iterator<Entry> it = lru.iterator(); size > capacity && it.hasNext(); ) {
+            Entry eldest = it.next();
+            it.remove();
+            map.remove(eldest.row);
+            size -= eldest.text.length();
+        }
+    }
+
+    /**
+     * Invalidates the cache for the edit of the specified row.
+     * The edited rows are removed, and only the rows after them are shifted by the row delta.
+     * @param row the edited row
+     * @param rowDelta the number of rows increased or decreased by the edit
+     */
+    void invalidate(int row, int rowDelta) {
+        if (map.isEmpty()) return;
+        remove(row);
+        if (rowDelta == 0) return;
+
+        // the rows merged by a deletion are also removed
+        int last = row + Math.max(0, -rowDelta);
+        NavigableMap<Integer, Entry> merged = map.subMap(row, false, last, true);
+        for (Entry entry : merged.values()) {
+            lru.remove(entry);
+            size -= entry.text.length();
+        }
+        merged.clear();
+
+        NavigableMap<Integer, Entry> tail = map.tailMap(last, false);
+        List<Entry> shifted = new ArrayList<>(tail.values());
+        tail.clear();
+        for (Entry entry : shifted) {
+            entry.row += rowDelta;
+            map.put(entry.row, entry);
+        }
+    }
+
+    /**
+     * Clears the cache.
+     */
+    void clear() {
+        map.clear();
+        lru.clear();
+        size = 0;
+    }
+
+    /**
+     * Get the statistics of this cache.
+     * @return the statistics
+     */
+    CacheStats stats() {
+        return new CacheStats(hits, misses, size, capacity);
+    }
+
+    private void remove(int row) {
+        Entry old = map.remove(row);
+        if (old != null) {
+            lru.remove(old);
+            size -= old.text.length();
+        }
+    }
+
+    /**
+     * The cached text of a row, which is identical only to itself.
+     */
+    private static final class Entry {
+        /** The row, shifted by the edits. */
+        int row;
+        /** The text of the row. */
+        final String text;
+
+        Entry(int row, String text) {
+            this.row = row;
+            this.text = text;
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.CharsetMatch;
+import com.mammb.code.piecetable.SampledStat;
+import com.mammb.code.piecetable.charset.Bom;
+import com.mammb.code.piecetable.charset.CharsetMatches;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementation of the {@link SampledStat}.
+ * <p>
+ * Reads the head block, the tail block and the evenly spaced blocks between them
+ * by the positional reads, so that the cost is constant regardless of the file size.
+ * <pre>
+ *  | head |    | s1 |    | s2 |    | s3 |    | tail |
+ * </pre>
+ * The block offsets are aligned to four bytes from the bom, so that the blocks start
+ * at a character unit boundary of UTF-16 and UTF-32.
+ * The row count is extrapolated from the mean of the row break densities of the blocks,
+ * and its error is the 95% confidence bound of the mean.
+ * @author Naotsugu Kobayashi
+ */
+public class SampledStatImpl implements SampledStat {
+
+    /** The byte size of a sampled block. */
+    static final int BLOCK = 1024 * 16;
+    /** The z-score of the 95% confidence interval. */
+    private static final double Z95 = 1.96;
+
+    /** The byte size of the file. */
+    private final long size;
+    /** The charset detected. */
+    private final Charset charset;
+    /** The byte order mark. */
+    private final byte[] bom;
+    /** The count of carriage return in the samples. */
+    private final int crCount;
+    /** The count of line feed in the samples. */
+    private final int lfCount;
+    /** The estimated row count. */
+    private final long rows;
+    /** The half width of the confidence interval of the row count. */
+    private final long rowsError;
+    /** Whether the whole file has been read. */
+    private final boolean exact;
+
+    /**
+     * Constructor.
+     * @param size the byte size of the file
+     * @param blocks the sampled blocks, the first one is the head block
+     * @param exact whether the blocks are the whole file
+     * @param matches the {@link CharsetMatch}
+     */
+    private SampledStatImpl(long size, List<byte[]> blocks, boolean exact, CharsetMatch... matches) {
+        this.size = size;
+        this.exact = exact;
+        byte[] head = blocks.getFirst();
+        this.bom = Bom.extract(head);
+        this.charset = (bom.length > 0) ? Bom.toCharset(bom) : estimate(blocks, exact, matches);
+
+        int units = RowIndex.byteUnitsOf(charset);
+        int cr = 0, lf = 0;
+        RowScanner.Counts[] counts = new RowScanner.Counts[blocks.size()];
+        int[] sizes = new int[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            byte[] block = blocks.get(i);
+            int from = (i == 0) ? bom.length : 0;
+            int to = from + ((block.length - from) & -units);
+            counts[i] = RowScanner.count(MemorySegment.ofArray(block), from, to, units);
+            sizes[i] = to - from;
+            cr += counts[i].crCount();
+            lf += counts[i].lfCount();
+        }
+        this.crCount = cr;
+        this.lfCount = lf;
+
+        // the row ending is decided from the counts of all the blocks
+        boolean crOnly = RowScanner.isCrOnly(cr, lf);
+        long breaks = 0;
+        double[] densities = new double[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            int n = counts[i].breakCount(crOnly);
+            breaks += n;
+            densities[i] = (sizes[i] > 0) ? (double) n / sizes[i] : 0;
+        }
+
+        if (exact) {
+            this.rows = breaks + 1;
+            this.rowsError = 0;
+        } else {
+            long body = size - bom.length;
+            double mean = Arrays.stream(densities).average().orElse(0);
+            double var = Arrays.stream(densities).map(d -> (d - mean) * (d - mean)).sum()
+                / Math.max(densities.length - 1, 1);
+            this.rows = Math.round(mean * body) + 1;
+            this.rowsError = (long) Math.ceil(Z95 * Math.sqrt(var / densities.length) * body);
+        }
+    }
+
+    /**
+     * Create a new {@link SampledStatImpl}.
+     * @param path the path to be read
+     * @param samples the number of blocks sampled between the head and the tail
+     * @param matches the {@link CharsetMatch} used in reading the target file
+     * @return a new {@link SampledStatImpl}
+     */
+    public static SampledStatImpl of(Path path, int samples, CharsetMatch... matches) {
+        if (matches == null || matches.length == 0) {
+            matches = CharsetMatches.defaults();
+        }
+        int n = Math.max(samples, 0);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size <= (long) BLOCK * (n + 2)) {
+                return new SampledStatImpl(size, List.of(read(ch, 0, (int) size)), true, matches);
+            }
+            List<byte[]> blocks = new ArrayList<>(n + 2);
+            byte[] head = read(ch, 0, BLOCK);
+            blocks.add(head);
+            int bom = Bom.extract(head).length;
+            long tail = align(size - BLOCK, bom);
+            for (int k = 1; k <= n; k++) {
+                long center = bom + (size - bom) / (n + 1) * k;
+                long offset = Math.clamp(align(center - BLOCK / 2, bom), BLOCK, tail - BLOCK);
+                blocks.add(read(ch, offset, BLOCK));
+            }
+            blocks.add(read(ch, tail, (int) (size - tail)));
+            return new SampledStatImpl(size, blocks, false, matches);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Charset charset() {
+        return charset;
+    }
+
+    @Override
+    public int crCount() {
+        return crCount;
+    }
+
+    @Override
+    public int lfCount() {
+        return lfCount;
+    }
+
+    @Override
+    public byte[] bom() {
+        return Arrays.copyOf(bom, bom.length);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public long rowsError() {
+        return rowsError;
+    }
+
+    @Override
+    public boolean exact() {
+        return exact;
+    }
+
+    /**
+     * Estimates the charset on the blocks.
+     * For the byte-oriented charsets, the blocks are trimmed to the row boundaries before
+     * put to the matches, so that a multibyte sequence cut at the block boundary is not
+     * counted as a malformed input.
+     * @param blocks the sampled blocks
+     * @param exact whether the blocks are the whole file
+     * @param matches the {@link CharsetMatch}
+     * @return the estimated charset
+     */
+    private static Charset estimate(List<byte[]> blocks, boolean exact, CharsetMatch... matches) {
+        byte[] head = blocks.getFirst();
+        Optional<Charset> cs = CharsetMatches.estimate(exact ? head : trim(head, true), matches);
+        boolean byteOriented = RowIndex.byteUnitsOf(cs.orElse(StandardCharsets.UTF_8)) == 1;
+        for (int i = 1; i < blocks.size(); i++) {
+            byte[] block = blocks.get(i);
+            cs = CharsetMatches.estimate(byteOriented ? trim(block, false) : block, matches);
+        }
+        return cs.orElse(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] trim(byte[] bytes, boolean head) {
+        int from = 0;
+        if (!head) {
+            while (from < bytes.length && !isBreak(bytes[from])) from++;
+            from++;
+        }
+        int to = bytes.length;
+        while (to > from && !isBreak(bytes[to - 1])) to--;
+        return (from < to) ? Arrays.copyOfRange(bytes, from, to) : bytes;
+    }
+
+    private static boolean isBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private static long align(long offset, int bom) {
+        return bom + ((offset - bom) & ~3L);
+    }
+
+    private static byte[] read(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) break;
+        }
+        return (buf.position() == length) ? buf.array() : Arrays.copyOf(buf.array(), buf.position());
+    }
+
+}
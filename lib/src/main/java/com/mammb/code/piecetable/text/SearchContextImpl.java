@@ -15,9 +15,11 @@
  */
 package com.mammb.code.piecetable.text;
 
+import com.mammb.code.piecetable.Document;
 import com.mammb.code.piecetable.Pos;
 import com.mammb.code.piecetable.PosLen;
 import com.mammb.code.piecetable.SearchContext;
+import com.mammb.code.piecetable.SearchHandle;
 import com.mammb.code.piecetable.Segment;
 import com.mammb.code.piecetable.search.Found;
 import com.mammb.code.piecetable.search.FoundsInChunk;
@@ -28,8 +30,12 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Implementation of the {@link SearchContext} and {@link OffsetSync} interfaces.
@@ -43,8 +49,20 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
     private final SearchSource source;
     /** The around runnable. */
     private final Consumer<Runnable> aroundRun;
+    /** Holds the source during an asynchronous search, and supplies the release of it. */
+    private final Supplier<Runnable> hold;
     /** The founds. */
     private final List<Found> founds = new ArrayList<>();
+    /** The spec of the founds which can be refined incrementally, {@code null} if none. */
+    private Spec foundSpec;
+    /** The spec of the founds of a single specification, {@code null} if none. */
+    private Spec spec;
+    /** The search of the spec for the live rescan, built at the first use. */
+    private Search liveSearch;
+    /** Whether the founds are kept live on the edits. */
+    private boolean live;
+    /** The handle of the running asynchronous search, {@code null} if none, accessed on the owner thread. */
+    private SearchHandle running;
 
     /**
      * Constructor.
@@ -52,15 +70,181 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
      * @param aroundRun the around runnable
      */
     SearchContextImpl(SearchSource source, Consumer<Runnable> aroundRun) {
+        this(source, aroundRun, () -> () -> { });
+    }
+
+    /**
+     * Constructor.
+     * @param source the search source
+     * @param aroundRun the around runnable
+     * @param hold holds the source during an asynchronous search, and supplies the release of it
+     */
+    SearchContextImpl(SearchSource source, Consumer<Runnable> aroundRun, Supplier<Runnable> hold) {
         this.source = source;
         this.aroundRun = aroundRun;
+        this.hold = hold;
     }
 
     @Override
     public void findAll(Spec spec, Consumer<Segment.Valued<List<PosLen>>> consumer) {
+        cancelRunning();
+        foundSpec = null;
         Search s = build(source, spec.patternCase());
         aroundRun.accept(() -> s.forward(spec.pattern(), 0, 0, accept(consumer)));
         Collections.sort(founds);
+        this.spec = spec;
+        this.liveSearch = s;
+    }
+
+    @Override
+    public SearchHandle findAll(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer) {
+        return start(spec, executor, owner, consumer, false);
+    }
+
+    /**
+     * Starts the asynchronous search of the specified specification.
+     * The chunk tasks only read the source on the executor, and hand the founds in byte offsets
+     * to the owner executor, where they are converted into the positions and applied to this context.
+     * The founds of this context are replaced on the owner executor when the search completes.
+     * @param spec the search specification
+     * @param executor the executor which runs the chunk tasks
+     * @param owner the executor which runs the tasks on the thread owning this context
+     * @param consumer the found consumer, called on the owner executor
+     * @param refinable whether the founds can be refined incrementally
+     * @return the handle of the search
+     */
+    private SearchHandle start(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer, boolean refinable) {
+
+        cancelRunning();
+        var handle = new SearchHandleImpl();
+        running = handle;
+
+        // the chunk tasks stop reading the source as soon as the handle is cancelled
+        Search s = build(SearchSource.cancellable(source, handle::isCancelled), spec.patternCase());
+        List<Found> list = new ArrayList<>();
+        Runnable release = hold.get();
+        CompletableFuture<Void> searched;
+        try {
+            searched = s.forward(spec.pattern(), 0, 0, executor, foundsInChunk -> {
+                handle.accept(Segment.of(foundsInChunk.chunk().length(), foundsInChunk.chunk().parentLength()));
+                owner.execute(() -> {
+                    if (running != handle) return;
+                    list.addAll(foundsInChunk.founds());
+                    consumer.accept(Segment.valuedOf(
+                        foundsInChunk.chunk().length(),
+                        foundsInChunk.chunk().parentLength(),
+                        toPosLen(foundsInChunk)));
+                });
+            });
+        } catch (RuntimeException e) {
+            release.run();
+            running = null;
+            handle.complete(e);
+            return handle;
+        }
+
+        searched.whenComplete((_, t) -> {
+            release.run();
+            owner.execute(() -> {
+                // an edit or another search on the owner thread has superseded this search
+                boolean applied = t == null && running == handle && !handle.isCancelled();
+                if (applied) {
+                    Collections.sort(list);
+                    founds.clear();
+                    founds.addAll(list);
+                    foundSpec = refinable ? spec : null;
+                    this.spec = spec;
+                    this.liveSearch = null;
+                }
+                if (running == handle) running = null;
+                handle.complete(applied ? null : (t == null) ? new CancellationException("cancelled") : t);
+            });
+        });
+        return handle;
+    }
+
+    /**
+     * Cancels the running asynchronous search, whose founds are superseded.
+     */
+    private void cancelRunning() {
+        if (running != null) running.cancel();
+        running = null;
+    }
+
+    @Override
+    public SearchHandle findAllIncremental(Spec spec, Executor executor, Executor owner,
+            Consumer<Segment.Valued<List<PosLen>>> consumer) {
+
+        boolean refinable = spec.patternCase() == PatternCase.LITERAL
+            || spec.patternCase() == PatternCase.CASE_INSENSITIVE;
+        boolean ignoreCase = spec.patternCase() == PatternCase.CASE_INSENSITIVE;
+
+        if (refinable && foundSpec != null && foundSpec.patternCase() == spec.patternCase()
+                && startsWith(spec.pattern(), foundSpec.pattern(), ignoreCase)) {
+            List<List<Found>> refined = new ArrayList<>();
+            aroundRun.accept(() -> Search.refine(source, founds, spec.pattern(), ignoreCase).ifPresent(refined::add));
+            if (!refined.isEmpty()) {
+                // the founds refined supersede the rescan of a shorter pattern
+                cancelRunning();
+                List<Found> list = refined.getFirst();
+                founds.clear();
+                founds.addAll(list);
+                foundSpec = spec;
+                this.spec = spec;
+                this.liveSearch = null;
+                consumer.accept(Segment.valuedOf(source.length(), source.length(),
+                    list.stream().map(this::toPosLen).toList()));
+                var handle = new SearchHandleImpl();
+                handle.accept(Segment.of(source.length(), source.length()));
+                handle.complete(null);
+                return handle;
+            }
+        }
+
+        // search over again in the background, keeping the current founds until completed
+        return start(spec, executor, owner, consumer, refinable);
+    }
+
+    @Override
+    public void findAll(List<Spec> specs, Consumer<Segment.Valued<List<IndexedPosLen>>> consumer) {
+        cancelRunning();
+        // the founds of the multiple specifications are not refined incrementally
+        foundSpec = null;
+        spec = null;
+        liveSearch = null;
+        for (PatternCase patternCase : PatternCase.values()) {
+            List<Integer> indexes = new ArrayList<>();
+            List<CharSequence> patterns = new ArrayList<>();
+            for (int i = 0; i < specs.size(); i++) {
+                if (specs.get(i).patternCase() == patternCase) {
+                    indexes.add(i);
+                    patterns.add(specs.get(i).pattern());
+                }
+            }
+            if (patterns.isEmpty()) continue;
+            switch (patternCase) {
+                case LITERAL -> aroundRun.accept(() -> Search.multiOf(source, patterns)
+                    .forward(0, 0, acceptIndexed(indexes, consumer)));
+                case CASE_INSENSITIVE -> aroundRun.accept(() -> Search.caseInsensitiveMultiOf(source, patterns)
+                    .forward(0, 0, acceptIndexed(indexes, consumer)));
+                case REGEX, LINEAR_REGEX -> {
+                    Search s = build(source, patternCase);
+                    for (int i = 0; i < patterns.size(); i++) {
+                        var pattern = patterns.get(i);
+                        var index = List.of(indexes.get(i));
+                        aroundRun.accept(() -> s.forward(pattern, 0, 0, acceptIndexed(index, consumer)));
+                    }
+                }
+            }
+        }
+        Collections.sort(founds);
+    }
+
+    @Override
+    public void live(boolean live) {
+        this.live = live;
     }
 
     @Override
@@ -95,7 +279,11 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
 
     @Override
     public void clear() {
+        cancelRunning();
         founds.clear();
+        foundSpec = null;
+        spec = null;
+        liveSearch = null;
     }
 
     @Override
@@ -111,13 +299,41 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
     @Override
     public void insert(long offset, int rawLen) {
         if (rawLen <= 0) return;
+        cancelRunning();
         shift(offset, rawLen);
+        // the edit can make the new occurrences, which are not in the founds unless rescanned
+        if (!rescan(offset, rawLen)) foundSpec = null;
     }
 
     @Override
     public void delete(long offset, int rawLen) {
         if (rawLen <= 0) return;
+        cancelRunning();
         shift(offset, -rawLen);
+        if (!rescan(offset, 0)) foundSpec = null;
+    }
+
+    @Override
+    public void replace(Document.Bulk bulk) {
+        if (bulk.size() == 0) return;
+        cancelRunning();
+        foundSpec = null;
+        List<Found> shifted = new ArrayList<>(founds.size());
+        long[] offsets = bulk.offsets();
+        int[] rawLens = bulk.rawLens();
+        int i = 0;
+        long shift = 0;
+        for (Found f : founds) {
+            while (i < offsets.length && offsets[i] + rawLens[i] <= f.offset()) {
+                shift += bulk.bytesLen(i) - rawLens[i];
+                i++;
+            }
+            // the founds overlapping the replaced range are removed
+            if (i < offsets.length && offsets[i] < f.offsetEnd()) continue;
+            shifted.add(new Found(f.offset() + shift, f.len(), f.rawLen(), f.pattern()));
+        }
+        founds.clear();
+        founds.addAll(shifted);
     }
 
     private void shift(long offset, int len) {
@@ -149,7 +365,7 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
         List<Found> sub = founds.subList(index, founds.size());
         List<Found> shifted = sub.stream()
             .filter(predicate)
-            .map(f -> new Found(f.offset() + len, f.len(), f.rawLen()))
+            .map(f -> new Found(f.offset() + len, f.len(), f.rawLen(), f.pattern()))
             .toList();
         sub.clear();
 
@@ -157,11 +373,87 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
 
     }
 
-    private Search build(SearchSource source, PatternCase patternCase) {
+    /**
+     * Re-searches the edited region in the live mode, and merges the new occurrences into the founds.
+     * <pre>
+     *  literal : |-- m - 1 --|== edited ==|-- m - 1 --|
+     *  regex   : |-- row ... |== edited ==| ... row --|
+     * </pre>
+     * The matches in the region are found again, and those which overlap
+     * the founds outside the region are discarded.
+     * @param offset the byte offset of the edit
+     * @param rawLen the byte length inserted, {@code 0} for the deletion
+     * @return {@code true} if rescanned
+     */
+    private boolean rescan(long offset, int rawLen) {
+
+        if (!live || spec == null || spec.pattern().isEmpty()) return false;
+        if (liveSearch == null) liveSearch = build(source, spec.patternCase());
+
+        final long from, to;
+        boolean ignoreCase = spec.patternCase() == PatternCase.CASE_INSENSITIVE;
+        if ((spec.patternCase() == PatternCase.LITERAL || ignoreCase)
+                && Search.bytewise(source.charset(), ignoreCase)) {
+            int span = spec.pattern().toString().getBytes(source.charset()).length - 1;
+            from = Math.max(0, offset - span);
+            to = Math.min(source.length(), offset + rawLen + span);
+        } else {
+            from = source.serial(source.pos(offset)[0], 0);
+            to = source.rowCeilOffset(Math.min(source.length(), offset + rawLen + 1));
+        }
+
+        List<Found> list = liveSearch.all(spec.pattern(), from, to);
+
+        int lo = indexOf(from);
+        founds.subList(lo, indexOf(to)).clear();
+        long prevEnd = (lo > 0) ? founds.get(lo - 1).offsetEnd() : 0;
+        long nextStart = (lo < founds.size()) ? founds.get(lo).offset() : Long.MAX_VALUE;
+        founds.addAll(lo, list.stream()
+            .filter(f -> f.offset() >= prevEnd && f.offsetEnd() <= nextStart)
+            .toList());
+        return true;
+    }
+
+    /**
+     * Get the index of the first found which starts at or after the specified offset.
+     * @param offset the byte offset
+     * @return the index of the founds
+     */
+    private int indexOf(long offset) {
+        int lo = 0, hi = founds.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (founds.get(mid).offset() < offset) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static boolean startsWith(CharSequence cs, CharSequence prefix, boolean ignoreCase) {
+        if (cs.length() < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            char a = cs.charAt(i), b = prefix.charAt(i);
+            if (ignoreCase) {
+                a = (a >= 'A' && a <= 'Z') ? (char) (a | 0x20) : a;
+                b = (b >= 'A' && b <= 'Z') ? (char) (b | 0x20) : b;
+            }
+            if (a != b) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Builds the search of the specified pattern case.
+     * @param source the search source
+     * @param patternCase the pattern case
+     * @return the search
+     */
+    static Search build(SearchSource source, PatternCase patternCase) {
         return switch (patternCase) {
             case LITERAL -> Search.of(source);
             case CASE_INSENSITIVE -> Search.caseInsensitiveOf(source);
             case REGEX -> Search.regexOf(source);
+            case LINEAR_REGEX -> Search.linearRegexOf(source);
         };
     }
 
@@ -176,6 +468,21 @@ public class SearchContextImpl implements SearchContext, OffsetSync {
         };
     }
 
+    private Consumer<FoundsInChunk> acceptIndexed(List<Integer> indexes,
+            Consumer<Segment.Valued<List<IndexedPosLen>>> consumer) {
+        return foundsInChunk -> {
+            List<Found> tagged = foundsInChunk.founds().stream()
+                .map(f -> new Found(f.offset(), f.len(), f.rawLen(), indexes.get(f.pattern())))
+                .toList();
+            founds.addAll(tagged);
+            var seg = Segment.valuedOf(
+                foundsInChunk.chunk().length(),
+                foundsInChunk.chunk().parentLength(),
+                tagged.stream().map(f -> new IndexedPosLen(f.pattern(), toPosLen(f))).toList());
+            consumer.accept(seg);
+        };
+    }
+
     private List<PosLen> toPosLen(FoundsInChunk foundsInChunk) {
         return foundsInChunk.founds().stream()
             .map(this::toPosLen)
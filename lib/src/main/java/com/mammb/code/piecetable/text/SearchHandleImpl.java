@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.SearchHandle;
+import com.mammb.code.piecetable.Segment;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The implementation of {@link SearchHandle}.
+ * @author Naotsugu Kobayashi
+ */
+class SearchHandleImpl implements SearchHandle {
+
+    /** The cancellation requested or not. */
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    /** The fraction amount of the progress. */
+    private final AtomicLong fraction = new AtomicLong();
+    /** The whole amount of the progress. */
+    private volatile long whole;
+    /** The future. */
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    SearchHandleImpl() {
+        // cancelling the future directly is also treated as the cancellation request
+        future.whenComplete((_, _) -> {
+            if (future.isCancelled()) cancelled.set(true);
+        });
+    }
+
+    /**
+     * Accumulates the progress.
+     * @param segment the progress segment
+     */
+    void accept(Segment segment) {
+        whole = segment.whole();
+        fraction.addAndGet(segment.fraction());
+    }
+
+    /**
+     * Completes the future.
+     * @param t the failure of the search, {@code null} if succeeded
+     */
+    void complete(Throwable t) {
+        if (t == null) {
+            future.complete(null);
+        } else if (t instanceof CancellationException || cancelled.get()) {
+            future.cancel(false);
+        } else {
+            future.completeExceptionally(t);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    @Override
+    public Segment progress() {
+        return Segment.of(fraction.get(), whole);
+    }
+
+    @Override
+    public CompletableFuture<Void> future() {
+        return future;
+    }
+
+}
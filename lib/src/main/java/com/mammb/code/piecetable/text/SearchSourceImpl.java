@@ -17,6 +17,7 @@ package com.mammb.code.piecetable.text;
 
 import com.mammb.code.piecetable.PieceTable;
 import com.mammb.code.piecetable.search.SearchSource;
+import com.mammb.code.piecetable.search.TrigramIndex;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.function.Function;
@@ -43,11 +44,19 @@ public class SearchSourceImpl implements SearchSource {
     /** The byte order mark length. */
     private final int bom;
 
-    SearchSourceImpl(PieceTable pt, RowIndex index, Charset charset, int bom) {
+    /** The char and byte column mapping. */
+    private final ColumnMap columns;
+
+    /** The trigram index, {@code null} if not indexed. */
+    private final TrigramIndex trigrams;
+
+    SearchSourceImpl(PieceTable pt, RowIndex index, Charset charset, int bom, ColumnMap columns, TrigramIndex trigrams) {
         this.pt = pt;
         this.index = index;
         this.charset = charset;
         this.bom = bom;
+        this.columns = columns;
+        this.trigrams = trigrams;
     }
 
     @Override
@@ -68,9 +77,7 @@ public class SearchSourceImpl implements SearchSource {
     @Override
     public int[] pos(long offset) {
         int[] ret = index.pos(offset);
-        byte[] bytes = pt.get(index.offset(ret[0], 0) + bom, ret[1]);
-        var cb = charset.decode(ByteBuffer.wrap(bytes));
-        ret[1] = cb.length();
+        ret[1] = columns.asCol(ret[0], ret[1]);
         return ret;
     }
 
@@ -94,16 +101,13 @@ public class SearchSourceImpl implements SearchSource {
         pt.read(offset + bom, limitLength, traverseCallback);
     }
 
-    private int asRawCol(int row, int col) {
-
-        long serial = index.get(row);
-        int len = Math.toIntExact(index.get(row + 1) - serial);
-        byte[] bytes = pt.get(serial + bom, len);
-
-        var cb = charset.decode(ByteBuffer.wrap(bytes));
-        var bb = charset.encode(cb.subSequence(0, Math.min(col, cb.length())));
-        return bb.limit();
+    @Override
+    public TrigramIndex trigrams() {
+        return trigrams;
+    }
 
+    private int asRawCol(int row, int col) {
+        return columns.asRawCol(row, col);
     }
 
 }
@@ -120,46 +120,59 @@ public class SeqReader implements Reader {
                 return;
             }
 
-            int cap = 1024 * 64;
-            ByteBuffer buf = (size < cap)
-                ? ByteBuffer.allocate((int) size)
-                : ByteBuffer.allocateDirect(cap);
+            readRows(channel, size, rowPrefLimit);
+            index.buildStCache();
 
-            byte[] bytes = new byte[buf.capacity()];
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            for (;;) {
+    /**
+     * Read the rows from the current position of the channel.
+     * @param channel the channel to be read
+     * @param size the size of the channel
+     * @param rowPrefLimit the limit on the number of rows to read from the file,
+     * if -1 is specified, there is no limit.
+     * @throws IOException if an I/O error occurs
+     */
+    private void readRows(FileChannel channel, long size, int rowPrefLimit) throws IOException {
 
-                if (Thread.interrupted())
-                    throw new RuntimeException("interrupted");
+        int cap = 1024 * 64;
+        ByteBuffer buf = (size < cap)
+            ? ByteBuffer.allocate((int) size)
+            : ByteBuffer.allocateDirect(cap);
 
-                buf.clear();
-                int n = channel.read(buf);
-                if (n < 0) break;
-                buf.flip();
-                byte[] read = asBytes(buf, n, bytes);
+        byte[] bytes = new byte[buf.capacity()];
 
-                if (length == 0) {
-                    read = handleHeadChunk(read);
-                }
-                length += read.length;
+        for (;;) {
 
-                int[] crlf = index.add(read);
-                crCount += crlf[0];
-                lfCount += crlf[1];
+            if (Thread.interrupted())
+                throw new RuntimeException("interrupted");
 
-                if (progressListener != null) {
-                    progressListener.accept(Segment.of(read.length + bom.length, length));
-                }
+            buf.clear();
+            int n = channel.read(buf);
+            if (n < 0) break;
+            buf.flip();
+            byte[] read = asBytes(buf, n, bytes);
 
-                if (rowPrefLimit >= 0 && (rowPrefLimit < crCount || rowPrefLimit < lfCount)) {
-                    break;
-                }
+            if (length == 0) {
+                read = handleHeadChunk(read);
             }
+            length += read.length;
 
-            index.buildStCache();
+            // the row break follows the row ending of all the bytes read so far
+            int[] crlf = index.addFollowing(read, crCount, lfCount);
+            crCount += crlf[0];
+            lfCount += crlf[1];
 
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            if (progressListener != null) {
+                progressListener.accept(Segment.of(n, size));
+            }
+
+            if (rowPrefLimit >= 0 && (rowPrefLimit < crCount || rowPrefLimit < lfCount)) {
+                break;
+            }
         }
     }
 
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.PieceTable;
+import com.mammb.code.piecetable.RowEnding;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The streaming transcoder, which converts the bytes of a {@link PieceTable} into another charset.
+ * <p>
+ * The bytes are streamed through the decoder, the optional row ending unification and the encoder,
+ * using the fixed-size buffers, so that the memory used does not depend on the length of the text.
+ * <pre>
+ *  PieceTable -> [bytes] -> decoder -> [chars] -> unify -> [chars] -> encoder -> [bytes] -> channel
+ * </pre>
+ * The chars and the {@code \r\n} pairs split across the buffer boundaries are carried over
+ * to the next buffer.
+ * The row endings are unified in the same way as {@link RowEnding#unify(CharSequence)},
+ * each of {@code \r\n}, {@code \r} and {@code \n} is replaced with the row ending.
+ * The malformed input and the unmappable characters are replaced.
+ * This class is not thread-safe.
+ * @author Naotsugu Kobayashi
+ */
+class StreamTranscoder {
+
+    /** The decoder of the source charset. */
+    private final CharsetDecoder decoder;
+    /** The encoder of the destination charset. */
+    private final CharsetEncoder encoder;
+    /** The row ending, {@code null} if the row endings are not unified. */
+    private final RowEnding rowEnding;
+    /** The buffer of the source bytes. */
+    private final ByteBuffer in;
+    /** The buffer of the decoded chars. */
+    private final CharBuffer decoded;
+    /** The buffer of the chars whose row endings are unified. */
+    private final CharBuffer unified;
+    /** The buffer of the encoded bytes. */
+    private final ByteBuffer out;
+    /** Whether the last char unified was a carriage return. */
+    private boolean cr;
+
+    /**
+     * Constructor.
+     * @param from the source charset
+     * @param to the destination charset
+     * @param rowEnding the row ending, {@code null} if the row endings are not unified
+     * @param bufferSize the size of the buffers
+     */
+    private StreamTranscoder(Charset from, Charset to, RowEnding rowEnding, int bufferSize) {
+        this.decoder = from.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoder = to.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.rowEnding = rowEnding;
+        int size = Math.max(bufferSize, 16);
+        this.in = ByteBuffer.allocate(size);
+        this.decoded = CharBuffer.allocate(size);
+        // a row ending can be doubled, plus a high surrogate carried over
+        this.unified = CharBuffer.allocate(size * 2 + 1);
+        this.out = ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Create a new {@link StreamTranscoder}.
+     * @param from the source charset
+     * @param to the destination charset
+     * @param rowEnding the row ending, {@code null} if the row endings are not unified
+     * @return a new {@link StreamTranscoder}
+     */
+    static StreamTranscoder of(Charset from, Charset to, RowEnding rowEnding) {
+        return new StreamTranscoder(from, to, rowEnding, Transcoder.MAX_BUFFER);
+    }
+
+    /**
+     * Create a new {@link StreamTranscoder} with the specified buffer size.
+     * @param from the source charset
+     * @param to the destination charset
+     * @param rowEnding the row ending, {@code null} if the row endings are not unified
+     * @param bufferSize the size of the buffers
+     * @return a new {@link StreamTranscoder}
+     */
+    static StreamTranscoder of(Charset from, Charset to, RowEnding rowEnding, int bufferSize) {
+        return new StreamTranscoder(from, to, rowEnding, bufferSize);
+    }
+
+    /**
+     * Transcodes the specified range of the {@link PieceTable} into the channel.
+     * @param pt the {@link PieceTable}
+     * @param offset the byte offset to start
+     * @param length the byte length
+     * @param channel the destination channel
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    long transcode(PieceTable pt, long offset, long length, WritableByteChannel channel) throws IOException {
+        decoder.reset();
+        encoder.reset();
+        in.clear();
+        decoded.clear();
+        unified.clear();
+        out.clear();
+        cr = false;
+
+        long written = 0;
+        long read = 0;
+        for (boolean eof = false; !eof; ) {
+            long n = Math.min(in.remaining(), length - read);
+            if (n > 0) {
+                int before = in.position();
+                pt.read(offset + read, n, in);
+                read += in.position() - before;
+            }
+            in.flip();
+            eof = read >= length;
+            for (CoderResult result = decoder.decode(in, decoded, eof); ; result = decoder.decode(in, decoded, eof)) {
+                check(result);
+                written += drain(channel, false);
+                if (result.isUnderflow()) break;
+            }
+            in.compact();
+        }
+        while (decoder.flush(decoded).isOverflow()) {
+            written += drain(channel, false);
+        }
+        written += drain(channel, true);
+        while (encoder.flush(out).isOverflow()) {
+            written += write(channel);
+        }
+        written += write(channel);
+        return written;
+    }
+
+    /**
+     * Unifies and encodes the decoded chars.
+     * @param channel the destination channel
+     * @param endOfInput whether the decoded chars are the last
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     */
+    private long drain(WritableByteChannel channel, boolean endOfInput) throws IOException {
+        decoded.flip();
+        unify();
+        decoded.clear();
+        unified.flip();
+        long written = 0;
+        for (CoderResult result = encoder.encode(unified, out, endOfInput); ; result = encoder.encode(unified, out, endOfInput)) {
+            check(result);
+            if (result.isUnderflow()) break;
+            written += write(channel);
+        }
+        // keep the high surrogate, whose low surrogate comes with the next chars
+        unified.compact();
+        return written;
+    }
+
+    private void unify() {
+        if (rowEnding == null) {
+            unified.put(decoded);
+            return;
+        }
+        while (decoded.hasRemaining()) {
+            char ch = decoded.get();
+            if (ch == '\n' && cr) {
+                // the line feed of the CRLF pair, which may be split across the buffers
+                cr = false;
+            } else if (ch == '\r' || ch == '\n') {
+                unified.put(rowEnding.str());
+                cr = (ch == '\r');
+            } else {
+                unified.put(ch);
+                cr = false;
+            }
+        }
+    }
+
+    private int write(WritableByteChannel channel) throws IOException {
+        out.flip();
+        int n = 0;
+        while (out.hasRemaining()) {
+            n += channel.write(out);
+        }
+        out.clear();
+        return n;
+    }
+
+    private static void check(CoderResult result) {
+        if (result.isUnderflow() || result.isOverflow()) return;
+        try {
+            result.throwException();
+        } catch (CharacterCodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.PieceTable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * The transcoder of a document.
+ * <p>
+ * Holds a decoder and an encoder of the document charset, together with the byte buffer
+ * and the char buffer reused across calls. The bytes are read from the {@link PieceTable}
+ * directly into the byte buffer, and decoded into the char buffer, so that the only allocation
+ * per call is the resulting string (or byte array).
+ * The buffers grow on demand up to {@value #MAX_BUFFER} elements, the larger one is
+ * allocated for the call and not kept.
+ * <p>
+ * The malformed input and the unmappable characters are replaced, as {@link Charset#decode}
+ * and {@link String#getBytes(Charset)} do.
+ * This class is not thread-safe, an instance is confined to the owner document.
+ * @author Naotsugu Kobayashi
+ */
+class Transcoder {
+
+    /** The max capacity of the buffers to be kept for reuse. */
+    static final int MAX_BUFFER = 1024 * 64;
+
+    /** The {@link PieceTable}. */
+    private final PieceTable pt;
+    /** The byte order mark length. */
+    private final int bom;
+    /** The reusable decoder. */
+    private final CharsetDecoder decoder;
+    /** The reusable encoder. */
+    private final CharsetEncoder encoder;
+    /** The reusable byte buffer. */
+    private ByteBuffer bytes = ByteBuffer.allocate(1024);
+    /** The reusable char buffer. */
+    private CharBuffer chars = CharBuffer.allocate(1024);
+
+    /**
+     * Constructor.
+     * @param pt the {@link PieceTable}
+     * @param charset the charset
+     * @param bom the byte order mark length
+     */
+    private Transcoder(PieceTable pt, Charset charset, int bom) {
+        this.pt = pt;
+        this.bom = bom;
+        this.decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoder = charset.canEncode() ? charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE) : null;
+    }
+
+    /**
+     * Create a new {@link Transcoder}.
+     * @param pt the {@link PieceTable}
+     * @param charset the charset
+     * @param bom the byte order mark length
+     * @return a new {@link Transcoder}
+     */
+    static Transcoder of(PieceTable pt, Charset charset, int bom) {
+        return new Transcoder(pt, charset, bom);
+    }
+
+    /**
+     * Reads the bytes of the specified range into the reusable byte buffer.
+     * The returned buffer is valid until the next call of this transcoder.
+     * @param offset the byte offset, which does not include bom
+     * @param length the byte length
+     * @return the heap byte buffer, whose position is zero and limit is the length read
+     */
+    ByteBuffer read(long offset, int length) {
+        ByteBuffer buf = bytes(Math.max(0, length));
+        if (length > 0) {
+            buf.limit(length);
+            pt.read(offset + bom, length, buf);
+        }
+        return buf.flip();
+    }
+
+    /**
+     * Reads and decodes the bytes of the specified range.
+     * @param offset the byte offset, which does not include bom
+     * @param length the byte length
+     * @return the decoded string
+     */
+    String decode(long offset, int length) {
+        return (length <= 0) ? "" : decode(read(offset, length));
+    }
+
+    /**
+     * Decodes the remaining bytes of the specified buffer.
+     * @param in the byte buffer
+     * @return the decoded string
+     */
+    String decode(ByteBuffer in) {
+        decoder.reset();
+        CharBuffer out = chars((int) Math.ceil(in.remaining() * (double) decoder.maxCharsPerByte()));
+        for (CoderResult cr = decoder.decode(in, out, true); !cr.isUnderflow(); cr = decoder.decode(in, out, true)) {
+            if (!cr.isOverflow()) throw new RuntimeException(exception(cr));
+            out = CharBuffer.allocate(out.capacity() * 2 + 1).put(out.flip());
+        }
+        while (decoder.flush(out).isOverflow()) {
+            out = CharBuffer.allocate(out.capacity() * 2 + 1).put(out.flip());
+        }
+        return new String(out.array(), 0, out.position());
+    }
+
+    /**
+     * Encodes the specified char sequence.
+     * @param cs the char sequence
+     * @return the encoded bytes
+     */
+    byte[] encode(CharSequence cs) {
+        if (encoder == null) return cs.toString().getBytes(decoder.charset());
+        ByteBuffer out = encodeToBuffer(cs);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    /**
+     * Gets the byte length of the specified char sequence when encoded,
+     * without allocating the encoded bytes.
+     * @param cs the char sequence
+     * @return the byte length
+     */
+    int encodedLength(CharSequence cs) {
+        if (encoder == null) return cs.toString().getBytes(decoder.charset()).length;
+        return encodeToBuffer(cs).position();
+    }
+
+    /**
+     * Get the reusable decoder.
+     * The decoder is shared with the caller, which must reset it before use.
+     * @return the decoder
+     */
+    CharsetDecoder decoder() {
+        return decoder;
+    }
+
+    private ByteBuffer encodeToBuffer(CharSequence cs) {
+        encoder.reset();
+        CharBuffer in = CharBuffer.wrap(cs);
+        ByteBuffer out = bytes((int) Math.ceil(cs.length() * (double) encoder.maxBytesPerChar()));
+        for (CoderResult cr = encoder.encode(in, out, true); !cr.isUnderflow(); cr = encoder.encode(in, out, true)) {
+            if (!cr.isOverflow()) throw new RuntimeException(exception(cr));
+            out = ByteBuffer.allocate(out.capacity() * 2 + 1).put(out.flip());
+        }
+        while (encoder.flush(out).isOverflow()) {
+            out = ByteBuffer.allocate(out.capacity() * 2 + 1).put(out.flip());
+        }
+        return out;
+    }
+
+    private ByteBuffer bytes(int capacity) {
+        if (bytes.capacity() >= capacity) return bytes.clear();
+        ByteBuffer buf = ByteBuffer.allocate(capacity);
+        if (capacity <= MAX_BUFFER) bytes = buf;
+        return buf;
+    }
+
+    private CharBuffer chars(int capacity) {
+        if (chars.capacity() >= capacity) return chars.clear();
+        CharBuffer buf = CharBuffer.allocate(capacity);
+        if (capacity <= MAX_BUFFER) chars = buf;
+        return buf;
+    }
+
+    private static CharacterCodingException exception(CoderResult cr) {
+        try {
+            cr.throwException();
+            return new CharacterCodingException();
+        } catch (CharacterCodingException e) {
+            return e;
+        }
+    }
+
+}
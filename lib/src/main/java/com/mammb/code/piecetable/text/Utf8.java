@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+/**
+ * The UTF-8 column arithmetic without decoding.
+ * Walks the lead bytes of well-formed sequences, where a 4-byte sequence is
+ * counted as two chars (a surrogate pair) in java.
+ * <pre>
+ *  0xxxxxxx                             1 byte  1 char
+ *  110xxxxx 10xxxxxx                    2 bytes 1 char
+ *  1110xxxx 10xxxxxx 10xxxxxx           3 bytes 1 char
+ *  11110xxx 10xxxxxx 10xxxxxx 10xxxxxx  4 bytes 2 chars
+ * </pre>
+ * A malformed sequence is reported as {@code -1}, for which the caller falls back to the decoder,
+ * as the replacement of the malformed input is up to the decoder.
+ * @author Naotsugu Kobayashi
+ */
+final class Utf8 {
+
+    private Utf8() { }
+
+    /**
+     * Gets the byte length of the head chars of the specified bytes.
+     * A surrogate pair is not split, the length before the pair is returned.
+     * @param bytes the UTF-8 bytes
+     * @param chars the number of chars
+     * @return the byte length, {@code -1} if a malformed sequence is found
+     */
+    static int rawLength(byte[] bytes, int chars) {
+        return rawLength(bytes, bytes.length, chars);
+    }
+
+    /**
+     * Gets the byte length of the head chars of the specified bytes.
+     * @param bytes the UTF-8 bytes
+     * @param length the length of the bytes to be examined
+     * @param chars the number of chars
+     * @return the byte length, {@code -1} if a malformed sequence is found
+     */
+    static int rawLength(byte[] bytes, int length, int chars) {
+        int i = 0, c = 0;
+        while (c < chars && i < length) {
+            if (bytes[i] >= 0) {
+                i++; c++;
+                continue;
+            }
+            int n = sequenceLength(bytes, length, i);
+            if (n < 0) return -1;
+            int w = (n == 4) ? 2 : 1;
+            if (c + w > chars) break;
+            c += w;
+            i += n;
+        }
+        return i;
+    }
+
+    /**
+     * Gets the char length of the specified bytes.
+     * @param bytes the UTF-8 bytes
+     * @return the char length, {@code -1} if a malformed sequence is found
+     */
+    static int charLength(byte[] bytes) {
+        return charLength(bytes, bytes.length);
+    }
+
+    /**
+     * Gets the char length of the head bytes of the specified bytes.
+     * @param bytes the UTF-8 bytes
+     * @param length the length of the bytes to be examined
+     * @return the char length, {@code -1} if a malformed sequence is found
+     */
+    static int charLength(byte[] bytes, int length) {
+        int i = 0, c = 0;
+        while (i < length) {
+            if (bytes[i] >= 0) {
+                i++; c++;
+                continue;
+            }
+            int n = sequenceLength(bytes, length, i);
+            if (n < 0) return -1;
+            c += (n == 4) ? 2 : 1;
+            i += n;
+        }
+        return c;
+    }
+
+    /**
+     * Gets the byte length of the well-formed sequence at the specified index.
+     * @param bytes the UTF-8 bytes
+     * @param length the length of the bytes
+     * @param i the index of the lead byte
+     * @return the byte length of the sequence, {@code -1} if malformed
+     */
+    static int sequenceLength(byte[] bytes, int length, int i) {
+        int b = bytes[i] & 0xff;
+        int n;
+        if (b < 0x80) return 1;
+        else if (b < 0xc2) return -1;
+        else if (b < 0xe0) n = 2;
+        else if (b < 0xf0) n = 3;
+        else if (b < 0xf5) n = 4;
+        else return -1;
+
+        if (i + n > length) return -1;
+        int b1 = bytes[i + 1] & 0xff;
+        if ((b1 & 0xc0) != 0x80) return -1;
+        if (n == 3 && ((b == 0xe0 && b1 < 0xa0) || (b == 0xed && b1 >= 0xa0))) return -1;
+        if (n == 4 && ((b == 0xf0 && b1 < 0x90) || (b == 0xf4 && b1 >= 0x90))) return -1;
+        for (int k = 2; k < n; k++) {
+            if ((bytes[i + k] & 0xc0) != 0x80) return -1;
+        }
+        return n;
+    }
+
+}
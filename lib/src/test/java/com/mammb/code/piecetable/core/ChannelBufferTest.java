@@ -21,6 +21,11 @@ import org.junit.jupiter.api.io.TempDir;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -94,4 +99,38 @@ class ChannelBufferTest {
         }
     }
 
+    @Test
+    void concurrentRead(@TempDir Path tempDir) throws Exception {
+
+        var path = tempDir.resolve("test_concurrent.txt");
+        byte[] bytes = new byte[ChannelBuffer.PREF_BUF_SIZE * 16];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) (i % 251);
+        Files.write(path, bytes);
+
+        var executor = Executors.newFixedThreadPool(4);
+        try (var cb = ChannelBuffer.of(path)) {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                tasks.add(() -> {
+                    var bb = ByteBuffer.allocate(1000);
+                    for (int i = 0; i < 200; i++) {
+                        int offset = (seed * 7919 + i * 1009) % (bytes.length - 1000);
+                        bb.clear();
+                        cb.read(offset, 1000, bb);
+                        if (!Arrays.equals(bb.array(), Arrays.copyOfRange(bytes, offset, offset + 1000))) return false;
+                        if (!Arrays.equals(cb.bytes(offset, offset + 10), Arrays.copyOfRange(bytes, offset, offset + 10))) return false;
+                        if (cb.get(offset + 999) != bytes[offset + 999]) return false;
+                    }
+                    return true;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
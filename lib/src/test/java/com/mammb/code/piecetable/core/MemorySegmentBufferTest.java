@@ -21,6 +21,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -94,4 +95,19 @@ class MemorySegmentBufferTest {
         }
     }
 
+    @Test
+    void readOnOtherThread(@TempDir Path tempDir) throws Exception {
+
+        var path = tempDir.resolve("test_other_thread.txt");
+        Files.writeString(path, "0123\n");
+
+        try (var cb = MemorySegmentBuffer.of(path)) {
+            var bb = ByteBuffer.allocate(8);
+            var thread = Thread.ofPlatform().start(() -> cb.read(1, 3, bb));
+            thread.join();
+            assertEquals(3, bb.position());
+            assertArrayEquals("123".getBytes(), Arrays.copyOf(bb.array(), 3));
+        }
+    }
+
 }
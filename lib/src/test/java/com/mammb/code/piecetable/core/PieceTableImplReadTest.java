@@ -69,4 +69,27 @@ public class PieceTableImplReadTest {
         assertEquals("bcde", StandardCharsets.UTF_8.decode(bb).toString());
     }
 
+    @Test
+    void readAfterPieces() {
+        var pt = PieceTableImpl.of();
+        pt.insert(0, "ab".getBytes());
+        pt.insert(2, "ef".getBytes());
+        pt.insert(2, "cd".getBytes());
+
+        var bb = ByteBuffer.allocate(10);
+        long ret = pt.read(4, 2, bb);
+        bb.flip();
+        assertEquals(2, ret);
+        assertEquals("ef", StandardCharsets.UTF_8.decode(bb).toString());
+
+        var sb = new StringBuilder();
+        pt.read(3, -1, buf -> {
+            buf.flip();
+            sb.append(StandardCharsets.UTF_8.decode(buf));
+            buf.compact();
+            return true;
+        });
+        assertEquals("def", sb.toString());
+    }
+
 }
@@ -20,6 +20,7 @@ import org.junit.jupiter.api.Test;
 import java.nio.ByteBuffer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * The test of {@link PieceTableImpl}.
@@ -177,4 +178,25 @@ class PieceTableImplTest {
         assertEquals("abcde", new String(pt.get(0, 5)));
     }
 
+    @Test
+    void replace() {
+
+        var pt = PieceTableImpl.of();
+        pt.insert(0, "abc".getBytes());
+        pt.insert(3, "abc".getBytes());
+        pt.insert(6, "xabc".getBytes());
+
+        // |abc|abc|xabc| -> |12|12|x12|
+        pt.replace(new long[] { 0, 3, 7 }, new int[] { 3, 3, 3 }, "12".getBytes(), null);
+        assertEquals("1212x12", new String(pt.bytes()));
+        assertEquals(7, pt.length());
+
+        // across the pieces, with the different replacements
+        pt.replace(new long[] { 1, 5 }, new int[] { 3, 0 }, "abcde".getBytes(), new int[] { 1, 4 });
+        assertEquals("1axbcde12", new String(pt.bytes()));
+        assertEquals("xbcd", new String(pt.get(2, 4)));
+
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> pt.replace(new long[] { 5, 1 }, new int[] { 1, 1 }, new byte[0], null));
+    }
 }
@@ -486,6 +486,24 @@ class TextEditImplTest {
 
     }
 
+    @Test
+    void testGetTextWindow() {
+
+        var te = new TextEditImpl(Document.of());
+        te.insert(0, 0, "abc\ndあ😊f\ngh");
+
+        assertEquals("bc", te.getText(0, 1, 3));
+        assertEquals("abc\n", te.getText(0, 0, 100));
+        assertEquals("あ😊", te.getText(1, 1, 4));
+        assertEquals("", te.getText(2, 5, 100));
+
+        te.insert(2, 2, "i");
+        assertEquals("hi", te.getText(2, 1, 100));
+        te.flush();
+        assertEquals("hi", te.getText(2, 1, 100));
+        assertEquals("", te.getText(2, 5, 100));
+    }
+
     @Test
     void testReplace() {
 
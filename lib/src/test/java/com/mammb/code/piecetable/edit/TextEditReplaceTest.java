@@ -16,6 +16,7 @@
 package com.mammb.code.piecetable.edit;
 
 import com.mammb.code.piecetable.Pos;
+import com.mammb.code.piecetable.SearchContext;
 import com.mammb.code.piecetable.TextEdit;
 import com.mammb.code.piecetable.TextEdit.Replace;
 import org.junit.jupiter.api.Test;
@@ -189,4 +190,30 @@ public class TextEditReplaceTest {
     // | 6 | 7 | 8 | 9 | a |        | y | y | y | 8 | z | z | a |
     // ------->|   --->|            ----------->|   ------->|
 
+    @Test
+    void testReplaceAll() {
+        var te = TextEdit.of();
+        te.insert(0, 0, "abc\nxabc\nabcabc");
+
+        int n = te.replaceAll(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), "1\n2");
+        assertEquals(4, n);
+        assertEquals("1\n2\nx1\n2\n1\n21\n2", te.getText(0, te.rows()));
+        assertEquals(7, te.rows());
+
+        te.undo();
+        assertEquals("abc\nxabc\nabcabc", te.getText(0, te.rows()));
+        assertEquals(3, te.rows());
+
+        te.redo();
+        assertEquals("1\n2\nx1\n2\n1\n21\n2", te.getText(0, te.rows()));
+
+        n = te.replaceAll(new SearchContext.Spec("\\d\n", SearchContext.PatternCase.REGEX), "");
+        assertEquals(6, n);
+        assertEquals("x22", te.getText(0, te.rows()));
+        assertEquals(1, te.rows());
+        te.undo();
+        assertEquals("1\n2\nx1\n2\n1\n21\n2", te.getText(0, te.rows()));
+
+        assertEquals(0, te.replaceAll(new SearchContext.Spec("none", SearchContext.PatternCase.LITERAL), ""));
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import com.mammb.code.piecetable.text.SearchSources;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link AhoCorasickSearch}.
+ * @author Naotsugu Kobayashi
+ */
+class AhoCorasickSearchTest {
+
+    @Test
+    void forward() {
+        var source = SearchSources.of("abあい\nxあいab\n", StandardCharsets.UTF_8);
+        List<Found> founds = new ArrayList<>();
+        Search.multiOf(source, List.of("あい", "b", "aa", "ab")).forward(0, 0, fic -> founds.addAll(fic.founds()));
+        assertEquals(List.of(
+            new Found(0, 2, 2, 3), new Found(1, 1, 1, 1), new Found(2, 2, 6, 0),
+            new Found(10, 2, 6, 0), new Found(16, 2, 2, 3), new Found(17, 1, 1, 1)), founds);
+    }
+
+    @Test
+    void sameAsSingleSearch() {
+        String text = "abcあい😊\n".repeat(20_000) + "abcab\nbcab";
+        List<String> patterns = List.of("a", "ab", "あい😊", "bcab", "cab", "x", "");
+        for (Charset cs : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, Charset.forName("windows-31j"))) {
+            var source = SearchSources.of(text, cs);
+            List<Found> expected = new ArrayList<>();
+            for (int i = 0; i < patterns.size(); i++) {
+                for (Found f : Search.of(source).all(patterns.get(i), 0, 0, 20_001, 4)) {
+                    expected.add(new Found(f.offset(), f.len(), f.rawLen(), i));
+                }
+            }
+            Collections.sort(expected);
+            assertEquals(expected, Search.multiOf(source, patterns).all(0, 0, 20_001, 4), cs.name());
+        }
+    }
+
+    @Test
+    void ignoreCase() {
+        var source = SearchSources.of("Abc\naBC\n", StandardCharsets.UTF_8);
+        assertEquals(List.of(new Found(0, 3, 3, 1), new Found(1, 2, 2, 0), new Found(4, 3, 3, 1), new Found(5, 2, 2, 0)),
+            Search.caseInsensitiveMultiOf(source, List.of("bC", "abc")).all(0, 0, 1, 3));
+    }
+
+}
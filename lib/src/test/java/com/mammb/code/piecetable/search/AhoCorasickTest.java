@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link AhoCorasick}.
+ * @author Naotsugu Kobayashi
+ */
+class AhoCorasickTest {
+
+    @Test
+    void scan() {
+        var target = new AhoCorasick(bytes("he", "she", "his", "hers"), false);
+        assertEquals(List.of("1@1", "0@2", "3@2", "2@7"), scan(target, "ushers his"));
+        assertEquals(10, target.states());
+        assertEquals(4, target.length(3));
+    }
+
+    @Test
+    void duplicatedAndNested() {
+        var target = new AhoCorasick(bytes("a", "aa", "a"), false);
+        assertEquals(List.of("0@0", "1@0", "0@1"), scan(target, "aa"));
+    }
+
+    @Test
+    void ignoreCase() {
+        var target = new AhoCorasick(bytes("Ab", "c"), true);
+        assertEquals(List.of("0@0", "1@2", "0@3", "1@5"), scan(target, "aBcAbC"));
+        assertEquals(List.of(), scan(new AhoCorasick(bytes("Ab"), false), "aBAB"));
+    }
+
+    @Test
+    void emptyPattern() {
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(bytes("a", ""), false));
+    }
+
+    private static List<byte[]> bytes(String... patterns) {
+        List<byte[]> list = new ArrayList<>();
+        for (String p : patterns) list.add(p.getBytes(StandardCharsets.UTF_8));
+        return list;
+    }
+
+    private static List<String> scan(AhoCorasick target, String text) {
+        var seg = MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+        List<String> list = new ArrayList<>();
+        target.scan(seg, 0, seg.byteSize(), (pattern, start) -> list.add(pattern + "@" + start));
+        return list;
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link ByteProgram}.
+ * @author Naotsugu Kobayashi
+ */
+class ByteProgramTest {
+
+    @Test
+    void literal() {
+        var prog = ByteProgram.compile("ab", 0);
+        int pc = prog.start();
+        assertByte(prog, pc, 'a', 'a');
+        pc = prog.out(pc);
+        assertByte(prog, pc, 'b', 'b');
+        assertEquals(ByteProgram.MATCH, prog.op(prog.out(pc)));
+    }
+
+    @Test
+    void multiByte() {
+        // U+3042 is encoded as E3 81 82
+        var prog = ByteProgram.compile("あ", 0);
+        int pc = prog.start();
+        assertByte(prog, pc, 0xE3, 0xE3);
+        pc = prog.out(pc);
+        assertByte(prog, pc, 0x81, 0x81);
+        pc = prog.out(pc);
+        assertByte(prog, pc, 0x82, 0x82);
+        assertEquals(ByteProgram.MATCH, prog.op(prog.out(pc)));
+    }
+
+    @Test
+    void unanchored() {
+        var prog = ByteProgram.compile("a", 0);
+        int loop = prog.unanchored();
+        assertEquals(ByteProgram.SPLIT, prog.op(loop));
+        // the pattern is preferred to the loop of any bytes
+        assertEquals(prog.start(), prog.out(loop));
+        int any = prog.alt(loop);
+        assertByte(prog, any, 0x00, 0xFF);
+        assertEquals(loop, prog.out(any));
+    }
+
+    @Test
+    void repeat() {
+        var greedy = ByteProgram.compile("a*", 0);
+        assertEquals(ByteProgram.SPLIT, greedy.op(greedy.start()));
+        assertEquals(ByteProgram.BYTE, greedy.op(greedy.out(greedy.start())));
+        assertEquals(ByteProgram.MATCH, greedy.op(greedy.alt(greedy.start())));
+
+        var lazy = ByteProgram.compile("a*?", 0);
+        assertEquals(ByteProgram.SPLIT, lazy.op(lazy.start()));
+        assertEquals(ByteProgram.MATCH, lazy.op(lazy.out(lazy.start())));
+        assertEquals(ByteProgram.BYTE, lazy.op(lazy.alt(lazy.start())));
+
+        // a{2,3} is compiled as aa(a)?
+        var bounded = ByteProgram.compile("a{2,3}", 0);
+        int pc = bounded.start();
+        assertByte(bounded, pc, 'a', 'a');
+        pc = bounded.out(pc);
+        assertByte(bounded, pc, 'a', 'a');
+        pc = bounded.out(pc);
+        assertEquals(ByteProgram.SPLIT, bounded.op(pc));
+        assertByte(bounded, bounded.out(pc), 'a', 'a');
+        assertEquals(ByteProgram.MATCH, bounded.op(bounded.alt(pc)));
+    }
+
+    @Test
+    void assertion() {
+        var prog = ByteProgram.compile("^a", 0);
+        assertEquals(ByteProgram.ASSERT, prog.op(prog.start()));
+        assertEquals(RegexParser.BOL, prog.lo(prog.start()));
+        assertByte(prog, prog.out(prog.start()), 'a', 'a');
+    }
+
+    @Test
+    void neverMatches() {
+        var prog = ByteProgram.compile("[^\\x00-\\x{10FFFF}]", 0);
+        assertEquals(ByteProgram.BYTE, prog.op(prog.start()));
+        assertTrue(prog.lo(prog.start()) > prog.hi(prog.start()));
+    }
+
+    @Test
+    void crossesLines() {
+        assertFalse(ByteProgram.compile("a.b", 0).crossesLines());
+        assertFalse(ByteProgram.compile("[^\\n]+$", 0).crossesLines());
+        assertTrue(ByteProgram.compile("a\\sb", 0).crossesLines());
+        assertTrue(ByteProgram.compile("[^a]", 0).crossesLines());
+        assertTrue(ByteProgram.compile("(?s).", 0).crossesLines());
+        assertTrue(ByteProgram.compile("a\\nb", 0).crossesLines());
+    }
+
+    @Test
+    void tooLarge() {
+        var e = assertThrows(PatternSyntaxException.class,
+            () -> ByteProgram.compile("(?:(?:.{1000}){1000})", 0));
+        assertEquals("Regex is too large", e.getDescription());
+    }
+
+    @Test
+    void utf8() {
+        List<int[]> seqs = new ArrayList<>();
+        ByteProgram.utf8(0x3042, 0x3042, seqs);
+        assertEquals(1, seqs.size());
+        assertArrayEquals(new int[] { 0xE3, 0xE3, 0x81, 0x81, 0x82, 0x82 }, seqs.getFirst());
+
+        seqs.clear();
+        ByteProgram.utf8(0x7F, 0x80, seqs);
+        assertEquals(2, seqs.size());
+        assertArrayEquals(new int[] { 0x7F, 0x7F }, seqs.get(0));
+        assertArrayEquals(new int[] { 0xC2, 0xC2, 0x80, 0x80 }, seqs.get(1));
+
+        seqs.clear();
+        ByteProgram.utf8(0xD800, 0xDFFF, seqs);
+        assertTrue(seqs.isEmpty());
+    }
+
+    private static void assertByte(ByteProgram prog, int pc, int lo, int hi) {
+        assertEquals(ByteProgram.BYTE, prog.op(pc));
+        assertEquals(lo, prog.lo(pc));
+        assertEquals(hi, prog.hi(pc));
+    }
+
+}
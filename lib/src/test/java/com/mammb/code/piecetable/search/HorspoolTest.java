@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link Horspool}.
+ * @author Naotsugu Kobayashi
+ */
+class HorspoolTest {
+
+    @Test
+    void indexOf() {
+        var seg = MemorySegment.ofArray("abcabdabcd".getBytes(StandardCharsets.UTF_8));
+        var target = new Horspool("abcd".getBytes(StandardCharsets.UTF_8));
+        assertEquals(6, target.indexOf(seg, 0, seg.byteSize()));
+        assertEquals(-1, target.indexOf(seg, 0, 9));
+        assertEquals(-1, target.indexOf(seg, 7, seg.byteSize()));
+
+        var one = new Horspool(new byte[] { 'd' });
+        assertEquals(5, one.indexOf(seg, 0, seg.byteSize()));
+        assertEquals(9, one.indexOf(seg, 6, seg.byteSize()));
+        assertEquals(-1, one.indexOf(seg, 6, 9));
+    }
+
+    @Test
+    void indexOfRandom() {
+        var random = new Random(1);
+        byte[] text = new byte[5000];
+        for (int i = 0; i < text.length; i++) text[i] = (byte) ('a' + random.nextInt(3));
+        String str = new String(text, StandardCharsets.ISO_8859_1);
+        var seg = MemorySegment.ofArray(text);
+        for (String p : new String[] { "a", "ab", "aba", "cabba", "abcabcab", "bbbbbb" }) {
+            var target = new Horspool(p.getBytes(StandardCharsets.ISO_8859_1));
+            for (int from = 0; from < text.length; from += 97) {
+                assertEquals((long) str.indexOf(p, from), target.indexOf(seg, from, text.length), p + " from " + from);
+            }
+        }
+    }
+
+}
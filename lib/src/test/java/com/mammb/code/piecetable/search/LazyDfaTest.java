@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link LazyDfa}.
+ * @author Naotsugu Kobayashi
+ */
+class LazyDfaTest {
+
+    @Test
+    void scan() {
+        var dfa = new LazyDfa(ByteProgram.compile("b+c", 0));
+        var seg = segment("aabbbcx");
+        assertEquals(6, dfa.scan(seg, 0, seg.byteSize()));
+        assertEquals(-1, dfa.scan(seg, 0, 5));
+        assertEquals(-1, dfa.scan(seg, 6, seg.byteSize()));
+        assertTrue(dfa.states() > 0);
+    }
+
+    @Test
+    void emptyMatch() {
+        var dfa = new LazyDfa(ByteProgram.compile("a*", 0));
+        var seg = segment("bbb");
+        assertEquals(1, dfa.scan(seg, 1, seg.byteSize()));
+    }
+
+    @Test
+    void earliestEnd() {
+        // the end of the shortest candidate, not of the leftmost-first match
+        var dfa = new LazyDfa(ByteProgram.compile("a+|xa", 0));
+        var seg = segment("xaaa");
+        assertEquals(2, dfa.scan(seg, 0, seg.byteSize()));
+    }
+
+    @Test
+    void cacheOverflow() {
+        // the DFA of a[ab]{12} has the exponential states, which exceeds the cache
+        String text = randomAb(200_000);
+        var seg = segment(text);
+        var dfa = new LazyDfa(ByteProgram.compile("a[ab]{12}c", 0));
+        long end = dfa.scan(seg, 0, seg.byteSize());
+        // gives up after the cache is cleared too often, falling back on the caller
+        assertTrue(end > 0 && end < seg.byteSize(), "end: " + end);
+        assertTrue(dfa.states() <= LazyDfa.MAX_STATES);
+
+        // the candidate is never after the first match
+        dfa = new LazyDfa(ByteProgram.compile("a[ab]{12}", 0));
+        long first = text.indexOf('a') + 13;
+        for (long from = 0; from < seg.byteSize(); from += 10_000) {
+            long candidate = dfa.scan(seg, from, seg.byteSize());
+            long expected = text.indexOf('a', (int) from) + 13;
+            assertTrue(candidate > from && candidate <= expected, "from: " + from);
+            assertTrue(dfa.states() <= LazyDfa.MAX_STATES);
+        }
+        assertEquals(first, dfa.scan(seg, 0, seg.byteSize()));
+    }
+
+    private static String randomAb(int length) {
+        var random = new Random(1);
+        var sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append(random.nextBoolean() ? 'a' : 'b');
+        return sb.toString();
+    }
+
+    private static MemorySegment segment(String text) {
+        return MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import com.mammb.code.piecetable.text.SearchSources;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link LinearRegexSearch}.
+ * @author Naotsugu Kobayashi
+ */
+class LinearRegexSearchTest {
+
+    @Test
+    void sameAsPattern() {
+        String text = """
+            abc ABC aabbcc 123 4567 foo_bar
+            あいう えお 😊😊 x=1; y = 22;
+            \tcolor colour The end.
+            a.b a-b a\\b [x] {y}
+            """;
+        List<String> patterns = List.of(
+            "a", "abc", "a|b|c", "[a-c]+", "[^a-z\\s]+", "\\d+", "\\w+", "\\s+", "\\S+", "colou?r",
+            "a*", "b*?c", "(ab|a)(bc|c)", "^\\w+", "\\d+;$", "^$", "\\bb\\w*", "o{2}", "\\d{2,3}",
+            "[あ-う]+", "😊+", ".", "(?i)abc", "(?s)c.*?e", "a\\.b", "\\[x\\]", "\\{y}", "[\\\\-]",
+            "(?:x|y) ?= ?\\d+", "\\Qa.b\\E", "\\x41", "\\u3042", "[^\\x00-\\x7F]+");
+        for (Charset cs : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, Charset.forName("windows-31j"))) {
+            String t = cs.newEncoder().canEncode(text) ? text : text.replace("😊", "☆");
+            var source = SearchSources.of(t, cs);
+            for (String p : patterns) {
+                assertEquals(expected(t, p, cs), Search.linearRegexOf(source).all(p, 0, 0, 4, 0), p + " " + cs);
+            }
+        }
+    }
+
+    @Test
+    void flags() {
+        var source = SearchSources.of("Abc\nabc\n", StandardCharsets.UTF_8);
+        assertEquals(List.of(new Found(0, 3, 3), new Found(4, 3, 3)),
+            new LinearRegexSearch(source, Pattern.CASE_INSENSITIVE).all("ABC", 0, 0, 2, 0));
+        assertEquals(List.of(new Found(2, 3, 3)),
+            new LinearRegexSearch(source, Pattern.DOTALL).all("c.a", 0, 0, 2, 0));
+        assertEquals(List.of(), Search.linearRegexOf(source).all("c.a", 0, 0, 2, 0));
+    }
+
+    @Test
+    void nextAndPrevious() {
+        var source = SearchSources.of("abc\nabc\nabc\n", StandardCharsets.UTF_8);
+        var target = Search.linearRegexOf(source);
+        assertEquals(new Found(5, 2, 2), target.nextOne("b.", 1, 0).orElseThrow());
+        assertEquals(new Found(5, 2, 2), target.previousOne("b.", 2, 0).orElseThrow());
+        assertTrue(target.nextOne("b.", 2, 2).isEmpty());
+    }
+
+    @Test
+    void linearOnPathologicalPattern() {
+        String text = "a".repeat(100_000) + "\n";
+        var source = SearchSources.of(text, StandardCharsets.UTF_8);
+        // which takes exponential time with the backtracking
+        assertEquals(List.of(), Search.linearRegexOf(source).all("(a*)*b", 0, 0, 1, 0));
+        assertEquals(List.of(), Search.linearRegexOf(source).all("(a|aa)+$x", 0, 0, 1, 0));
+        assertEquals(1, Search.linearRegexOf(source).all("(a|aa)+$", 0, 0, 1, 0).size());
+    }
+
+    @Test
+    void manyStates() {
+        // the DFA of (a|b)*a(a|b){12} has the exponential states, which exceeds the cache
+        var random = new java.util.Random(1);
+        var sb = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) sb.append(random.nextBoolean() ? 'a' : 'b');
+        String text = sb.append('\n').toString();
+        var source = SearchSources.of(text, StandardCharsets.UTF_8);
+        String p = "a[ab]{12}";
+        assertEquals(expected(text, p, StandardCharsets.UTF_8), Search.linearRegexOf(source).all(p, 0, 0, 1, 0));
+    }
+
+    @Test
+    void malformedBeforeMatch() throws IOException {
+        // 0x81 0xEB is not mapped in windows-31j, which is decoded into a U+FFFD of 1 byte
+        Charset ms932 = Charset.forName("windows-31j");
+        var bytes = new ByteArrayOutputStream();
+        bytes.write("あ".getBytes(ms932));
+        bytes.write(new byte[] { (byte) 0x81, (byte) 0xEB });
+        bytes.write("xいb\n".getBytes(ms932));
+        var source = SearchSources.of(bytes.toByteArray(), ms932);
+        assertEquals(List.of(new Found(5, 2, 3)), Search.linearRegexOf(source).all("い.", 0, 0, 1, 0));
+
+        // the lone surrogate is replaced in UTF-16
+        bytes.reset();
+        bytes.write("x".getBytes(StandardCharsets.UTF_16LE));
+        bytes.write(new byte[] { 0x00, (byte) 0xD8 });
+        bytes.write("yz abc".getBytes(StandardCharsets.UTF_16LE));
+        source = SearchSources.of(bytes.toByteArray(), StandardCharsets.UTF_16LE);
+        assertEquals(List.of(new Found(10, 2, 4)), Search.linearRegexOf(source).all("ab", 0, 0, 1, 0));
+    }
+
+    @Test
+    void unsupported() {
+        var source = SearchSources.of("abc", StandardCharsets.UTF_8);
+        var target = Search.linearRegexOf(source);
+        for (String p : List.of("(a)\\1", "a(?=b)", "(?<!a)b", "a*+", "[a[b]]", "\\p{L}", "(a", "a)", "*a", "a{3,1}")) {
+            assertThrows(PatternSyntaxException.class, () -> target.all(p, 0, 0, 0, 3));
+        }
+    }
+
+    @Test
+    void utf8() {
+        List<int[]> seqs = new ArrayList<>();
+        ByteProgram.utf8(0x00, 0x10FFFF, seqs);
+        assertArrayEquals(new int[] { 0x00, 0x7F }, seqs.getFirst());
+        assertArrayEquals(new int[] { 0xC2, 0xDF, 0x80, 0xBF }, seqs.get(1));
+        assertArrayEquals(new int[] { 0xF4, 0xF4, 0x80, 0x8F, 0x80, 0xBF, 0x80, 0xBF }, seqs.getLast());
+        // the surrogates are excluded
+        assertTrue(seqs.stream().noneMatch(s -> s.length == 6 && s[0] == 0xED && s[3] > 0x9F));
+    }
+
+    private static List<Found> expected(String text, String regex, Charset cs) {
+        List<Found> list = new ArrayList<>();
+        Matcher m = Pattern.compile(regex, Pattern.MULTILINE).matcher(text);
+        while (m.find()) {
+            // the empty match between the surrogate pair is never found on the bytes
+            if (m.start() > 0 && m.start() < text.length() && Character.isLowSurrogate(text.charAt(m.start()))) continue;
+            list.add(new Found(text.substring(0, m.start()).getBytes(cs).length,
+                m.end() - m.start(), m.group().getBytes(cs).length));
+        }
+        return list;
+    }
+
+}
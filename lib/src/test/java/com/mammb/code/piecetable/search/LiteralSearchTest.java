@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import com.mammb.code.piecetable.text.SearchSources;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link LiteralSearch}.
+ * @author Naotsugu Kobayashi
+ */
+class LiteralSearchTest {
+
+    @Test
+    void forward() {
+        var source = SearchSources.of("abあい\nxあいabあい\n", StandardCharsets.UTF_8);
+        List<Found> founds = new ArrayList<>();
+        new LiteralSearch(source).forward("あい", 0, 0, fic -> founds.addAll(fic.founds()));
+        assertEquals(List.of(new Found(2, 2, 6), new Found(10, 2, 6), new Found(18, 2, 6)), founds);
+    }
+
+    @Test
+    void nextAndPrevious() {
+        var source = SearchSources.of("abc\nabc\nabc\n", StandardCharsets.UTF_8);
+        var target = new LiteralSearch(source);
+        assertEquals(new Found(4, 2, 2), target.nextOne("ab", 1, 0).orElseThrow());
+        assertEquals(new Found(4, 2, 2), target.previousOne("ab", 2, 0).orElseThrow());
+        assertTrue(target.nextOne("ab", 2, 1).isEmpty());
+        assertTrue(target.nextOne("", 0, 0).isEmpty());
+        assertEquals(List.of(new Found(4, 2, 2), new Found(8, 2, 2)), target.all("ab", 1, 0, 2, 3));
+    }
+
+    @Test
+    void alignedUtf16() {
+        // "Āā" is 00 01 01 01 in UTF-16LE, which contains "ā" at the odd offset
+        var source = SearchSources.of("Āā\nā", StandardCharsets.UTF_16LE);
+        List<Found> founds = new ArrayList<>();
+        new LiteralSearch(source).forward("ā", 0, 0, fic -> founds.addAll(fic.founds()));
+        assertEquals(List.of(new Found(2, 1, 2), new Found(6, 1, 2)), founds);
+    }
+
+    @Test
+    void sameAsIndexOf() {
+        String text = "abcあい😊\n".repeat(20_000) + "abcab\nbcab";
+        for (Charset cs : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, Charset.forName("UTF-32LE"))) {
+            var source = SearchSources.of(text, cs);
+            for (String p : List.of("a", "ab", "あい😊", "c\nab", "bcab", "x")) {
+                List<Found> expected = new ArrayList<>();
+                long offset = 0;
+                for (int i = text.indexOf(p), prev = 0; i >= 0; prev = i, i = text.indexOf(p, i + p.length())) {
+                    offset += text.substring(prev, i).getBytes(cs).length;
+                    expected.add(new Found(offset, p.length(), p.getBytes(cs).length));
+                }
+                List<Found> founds = new ArrayList<>();
+                new LiteralSearch(source).forward(p, 0, 0, fic -> founds.addAll(fic.founds()));
+                assertEquals(expected, founds, p + " " + cs);
+            }
+        }
+    }
+
+    @Test
+    void ignoreCase() {
+        var source = SearchSources.of("Abc\naBC あ\nabcabc\n", StandardCharsets.UTF_8);
+        List<Found> founds = new ArrayList<>();
+        new LiteralSearch(source, true).forward("abC", 0, 0, fic -> founds.addAll(fic.founds()));
+        assertEquals(List.of(new Found(0, 3, 3), new Found(4, 3, 3), new Found(12, 3, 3), new Found(15, 3, 3)), founds);
+        assertTrue(LiteralSearch.supports(StandardCharsets.UTF_8, true));
+        assertFalse(LiteralSearch.supports(StandardCharsets.UTF_16LE, true));
+    }
+
+    @Test
+    void refine() {
+        String text = ("abab abaab aaaa aaab" + "x".repeat(1000) + "\n").repeat(100);
+        var source = SearchSources.of(text, StandardCharsets.UTF_8);
+        var target = new LiteralSearch(source);
+        for (String[] p : new String[][] { { "ab", "aba" }, { "a", "aa" }, { "aa", "aaa" }, { "a", "ab" }, { "ab", "abx" } }) {
+            List<Found> founds = new ArrayList<>();
+            target.forward(p[0], 0, 0, fic -> founds.addAll(fic.founds()));
+            List<Found> expected = new ArrayList<>();
+            target.forward(p[1], 0, 0, fic -> expected.addAll(fic.founds()));
+            assertEquals(expected, LiteralSearch.refine(source, founds, p[1], false).orElseThrow(), p[1]);
+        }
+        // too dense
+        List<Found> founds = new ArrayList<>();
+        target.forward("a", 0, 0, fic -> founds.addAll(fic.founds()));
+        assertTrue(LiteralSearch.refine(SearchSources.of(text.substring(0, 21), StandardCharsets.UTF_8),
+            founds.subList(0, 4), "ab", false).isEmpty());
+    }
+
+    @Test
+    void supports() {
+        assertTrue(LiteralSearch.supports(StandardCharsets.UTF_8));
+        assertTrue(LiteralSearch.supports(StandardCharsets.UTF_16LE));
+        // a trail byte of the double byte char can be an ascii
+        assertFalse(LiteralSearch.supports(Charset.forName("windows-31j")));
+        assertFalse(LiteralSearch.supports(StandardCharsets.UTF_16));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link PikeVm}.
+ * @author Naotsugu Kobayashi
+ */
+class PikeVmTest {
+
+    @Test
+    void span() {
+        assertFind("b+", "aabbbc", 0, 2, 5);
+        assertFind("b+?", "aabbbc", 0, 2, 3);
+        assertFind("b+", "aabbbc", 3, 3, 5);
+        assertFind("a*", "bbb", 0, 0, 0);
+        assertFind("あ+", "xあああy", 0, 1, 10);
+    }
+
+    @Test
+    void leftmostFirst() {
+        assertFind("a|ab", "xab", 0, 1, 2);
+        assertFind("ab|a", "xab", 0, 1, 3);
+        assertFind("(a|ab)(c|bcd)", "abcd", 0, 0, 4);
+        // the leftmost start wins over the longer match
+        assertFind("bc|abcd", "abcd", 0, 0, 4);
+        assertFind("b|abcd", "abce", 0, 1, 2);
+    }
+
+    @Test
+    void assertions() {
+        assertFind("^b", "a\nb", 0, 2, 3);
+        assertFind("a$", "a\r\nb", 0, 0, 1);
+        assertFind("\\bfoo\\b", "xfoo foo", 0, 5, 8);
+        assertFind("\\Boo", "oo foo", 0, 4, 6);
+    }
+
+    @Test
+    void notFound() {
+        var seg = segment("aaaa");
+        var vm = new PikeVm(ByteProgram.compile("x", 0));
+        assertFalse(vm.find(seg, 0, seg.byteSize(), 0, seg.byteSize()));
+        assertEquals(seg.byteSize() + 1, vm.resume());
+
+        // gives up at the first offset after stopAt on which no thread is alive
+        assertFalse(vm.find(seg, 0, seg.byteSize(), 0, 1));
+        assertEquals(2, vm.resume());
+        vm = new PikeVm(ByteProgram.compile("a+x", 0));
+        assertFalse(vm.find(seg, 0, seg.byteSize(), 0, 1));
+        assertEquals(seg.byteSize() + 1, vm.resume());
+    }
+
+    @Test
+    void check() {
+        var seg = segment("a\r\nb");
+        long hi = seg.byteSize();
+        assertTrue(PikeVm.check(RegexParser.BOL, seg, 0, hi, 0));
+        assertFalse(PikeVm.check(RegexParser.BOL, seg, 0, hi, 1));
+        assertFalse(PikeVm.check(RegexParser.BOL, seg, 0, hi, 2));
+        assertTrue(PikeVm.check(RegexParser.BOL, seg, 0, hi, 3));
+        assertTrue(PikeVm.check(RegexParser.EOL, seg, 0, hi, 1));
+        assertFalse(PikeVm.check(RegexParser.EOL, seg, 0, hi, 2));
+        assertTrue(PikeVm.check(RegexParser.EOL, seg, 0, hi, 4));
+        assertTrue(PikeVm.check(RegexParser.WORD, seg, 0, hi, 0));
+        assertTrue(PikeVm.check(RegexParser.WORD, seg, 0, hi, 1));
+        assertTrue(PikeVm.check(RegexParser.NOT_WORD, seg, 0, hi, 2));
+        // the bounds of the input are the boundaries of the lines
+        assertTrue(PikeVm.check(RegexParser.BOL, seg, 3, hi, 3));
+        assertTrue(PikeVm.check(RegexParser.EOL, seg, 0, 1, 1));
+    }
+
+    private static void assertFind(String regex, String text, long from, long start, long end) {
+        var seg = segment(text);
+        var vm = new PikeVm(ByteProgram.compile(regex, 0));
+        assertTrue(vm.find(seg, 0, seg.byteSize(), from, seg.byteSize()), regex);
+        assertEquals(start, vm.start(), regex);
+        assertEquals(end, vm.end(), regex);
+    }
+
+    private static MemorySegment segment(String text) {
+        return MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link RegexParser}.
+ * @author Naotsugu Kobayashi
+ */
+class RegexParserTest {
+
+    @Test
+    void malformed() {
+        assertError("(a", "Unclosed group");
+        assertError("(?:a", "Unclosed group");
+        assertError("a)", "Unmatched closing ')'");
+        assertError("*a", "Dangling meta character '*'");
+        assertError("a|?", "Dangling meta character '?'");
+        assertError("a{", "Illegal repetition");
+        assertError("a{2", "Unclosed counted closure");
+        assertError("a{3,1}", "Illegal repetition range");
+        assertError("a{1001}", "Repetition count exceeds 1000");
+        assertError("a*+", "Possessive quantifier is not supported");
+        assertError("[abc", "Unclosed character class");
+        assertError("[b-a]", "Illegal character range");
+        assertError("[a[b]]", "Nested character class is not supported");
+        assertError("[a&&b]", "Nested character class is not supported");
+        assertError("a\\", "Unexpected internal error");
+        assertError("\\x4", "Illegal hexadecimal escape sequence");
+        assertError("\\xg0", "Illegal hexadecimal escape sequence");
+        assertError("\\x{110000}", "Hexadecimal codepoint is too big");
+        assertError("\\x{41", "Unclosed hexadecimal escape sequence");
+        assertError("\\u304", "Illegal hexadecimal escape sequence");
+        assertError("\\0", "Illegal octal escape sequence");
+        assertError("(a)\\1", "Backreference is not supported");
+        assertError("\\p{L}", "Illegal/unsupported escape sequence");
+        assertError("(?", "Unknown group type");
+        assertError("(?z)", "Unknown inline modifier");
+        assertError("(?<name", "Named capturing group is missing trailing '>'");
+        assertError("a(?=b)", "Lookaround and atomic group are not supported");
+        assertError("(?<!a)b", "Lookaround and atomic group are not supported");
+        assertError("(?>a)", "Lookaround and atomic group are not supported");
+    }
+
+    @Test
+    void errorIndex() {
+        var e = assertThrows(PatternSyntaxException.class, () -> RegexParser.parse("ab[c-a]", 0));
+        assertEquals("ab[c-a]", e.getPattern());
+        assertEquals(6, e.getIndex());
+    }
+
+    @Test
+    void escapes() {
+        assertChars("\\t", '\t', '\t');
+        assertChars("\\n", '\n', '\n');
+        assertChars("\\r", '\r', '\r');
+        assertChars("\\f", '\f', '\f');
+        assertChars("\\a", 0x07, 0x07);
+        assertChars("\\e", 0x1B, 0x1B);
+        assertChars("\\x41", 'A', 'A');
+        assertChars("\\x{1F60A}", 0x1F60A, 0x1F60A);
+        assertChars("\\u3042", 0x3042, 0x3042);
+        assertChars("\\0101", 'A', 'A');
+        assertChars("\\0377", 0xFF, 0xFF);
+        assertChars("\\cA", 0x01, 0x01);
+        assertChars("\\.", '.', '.');
+        assertChars("\\\\", '\\', '\\');
+        assertChars("\\😊", 0x1F60A, 0x1F60A);
+
+        var quoted = assertInstanceOf(RegexParser.Concat.class, RegexParser.parse("\\Qa.*\\E", 0));
+        assertEquals(3, quoted.nodes().size());
+        assertArrayEquals(new int[] { '*', '*' }, ranges(quoted.nodes().get(2)));
+        // quoted to the end without \E
+        var open = assertInstanceOf(RegexParser.Concat.class, RegexParser.parse("\\Q(a", 0));
+        assertEquals(2, open.nodes().size());
+    }
+
+    @Test
+    void classes() {
+        assertChars("[a-c]", 'a', 'c');
+        assertChars("[a-c\\d_]", '0', '9', '_', '_', 'a', 'c');
+        assertChars("[a-cb-e]", 'a', 'e');
+        assertChars("[]a]", ']', ']', 'a', 'a');
+        assertChars("[a-]", '-', '-', 'a', 'a');
+        assertChars("[\\x00-\\x7F]", 0, 0x7F);
+        assertChars("[^\\x00-\\x7F]", 0x80, Character.MAX_CODE_POINT);
+        assertChars("[^\\x00-\\x{10FFFF}]");
+        assertChars("\\d", '0', '9');
+        assertChars("\\D", 0, '0' - 1, '9' + 1, Character.MAX_CODE_POINT);
+        assertChars("\\w", '0', '9', 'A', 'Z', '_', '_', 'a', 'z');
+        assertChars("\\s", '\t', '\r', ' ', ' ');
+        assertChars("(?s).", 0, Character.MAX_CODE_POINT);
+        assertChars(".", 0, '\n' - 1, '\n' + 1, '\r' - 1, '\r' + 1, 0x84,
+            0x86, 0x2027, 0x202A, Character.MAX_CODE_POINT);
+    }
+
+    @Test
+    void ignoreCase() {
+        assertArrayEquals(new int[] { 'A', 'C', 'a', 'c' },
+            ranges(RegexParser.parse("[a-c]", Pattern.CASE_INSENSITIVE)));
+        assertArrayEquals(new int[] { 'X', 'X', 'x', 'x' }, ranges(RegexParser.parse("(?i)X", 0)));
+        assertArrayEquals(new int[] { '0', '9' }, ranges(RegexParser.parse("(?i)[0-9]", 0)));
+
+        // the inline flags are applied to the enclosing group only
+        var concat = assertInstanceOf(RegexParser.Concat.class, RegexParser.parse("(?i:a)b", 0));
+        assertArrayEquals(new int[] { 'A', 'A', 'a', 'a' }, ranges(concat.nodes().get(0)));
+        assertArrayEquals(new int[] { 'b', 'b' }, ranges(concat.nodes().get(1)));
+        concat = assertInstanceOf(RegexParser.Concat.class, RegexParser.parse("(a(?i)b)c", 0));
+        var group = assertInstanceOf(RegexParser.Concat.class, concat.nodes().get(0));
+        assertArrayEquals(new int[] { 'B', 'B', 'b', 'b' }, ranges(group.nodes().get(1)));
+        assertArrayEquals(new int[] { 'c', 'c' }, ranges(concat.nodes().get(1)));
+    }
+
+    @Test
+    void repeat() {
+        assertRepeat("a*", 0, -1, true);
+        assertRepeat("a+", 1, -1, true);
+        assertRepeat("a?", 0, 1, true);
+        assertRepeat("a{3}", 3, 3, true);
+        assertRepeat("a{2,}", 2, -1, true);
+        assertRepeat("a{2,5}?", 2, 5, false);
+        assertRepeat("a??", 0, 1, false);
+    }
+
+    @Test
+    void structure() {
+        var alt = assertInstanceOf(RegexParser.Alt.class, RegexParser.parse("a|bc|", 0));
+        assertEquals(3, alt.nodes().size());
+        assertInstanceOf(RegexParser.Concat.class, alt.nodes().get(1));
+        assertEquals(List.of(), assertInstanceOf(RegexParser.Concat.class, alt.nodes().get(2)).nodes());
+        assertEquals(new RegexParser.Assert(RegexParser.BOL), RegexParser.parse("^", 0));
+        assertEquals(new RegexParser.Assert(RegexParser.EOL), RegexParser.parse("$", 0));
+        assertEquals(new RegexParser.Assert(RegexParser.WORD), RegexParser.parse("\\b", 0));
+        assertEquals(new RegexParser.Assert(RegexParser.NOT_WORD), RegexParser.parse("\\B", 0));
+        // the named group is parsed as the non-capturing group
+        assertArrayEquals(new int[] { 'a', 'a' }, ranges(RegexParser.parse("(?<name>a)", 0)));
+    }
+
+    @Test
+    void unionAndNegate() {
+        int[] union = RegexParser.union(List.of(new int[] { 5, 10 }, new int[] { 1, 3, 4, 4 }, new int[] { 20, 30 }));
+        assertArrayEquals(new int[] { 1, 10, 20, 30 }, union);
+        assertArrayEquals(new int[] { 0, 0, 11, 19, 31, Character.MAX_CODE_POINT }, RegexParser.negate(union));
+        assertArrayEquals(new int[] { 0, Character.MAX_CODE_POINT }, RegexParser.negate(new int[0]));
+        assertArrayEquals(new int[0], RegexParser.negate(new int[] { 0, Character.MAX_CODE_POINT }));
+    }
+
+    private static void assertError(String regex, String description) {
+        var e = assertThrows(PatternSyntaxException.class, () -> RegexParser.parse(regex, 0));
+        assertEquals(description, e.getDescription(), regex);
+    }
+
+    private static void assertChars(String regex, int... expected) {
+        assertArrayEquals(expected, ranges(RegexParser.parse(regex, 0)), regex);
+    }
+
+    private static void assertRepeat(String regex, int min, int max, boolean greedy) {
+        var repeat = assertInstanceOf(RegexParser.Repeat.class, RegexParser.parse(regex, 0));
+        assertArrayEquals(new int[] { 'a', 'a' }, ranges(repeat.node()), regex);
+        assertEquals(min, repeat.min(), regex);
+        assertEquals(max, repeat.max(), regex);
+        assertEquals(greedy, repeat.greedy(), regex);
+    }
+
+    private static int[] ranges(RegexParser.Node node) {
+        return assertInstanceOf(RegexParser.Chars.class, node).ranges();
+    }
+
+}
@@ -25,7 +25,11 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -80,6 +84,82 @@ class SearchTest {
         assertEquals(2, founds.get(1).len());
     }
 
+    @Test
+    void multiLineAcrossChunks() {
+        // the row-aligned chunk boundary is at 262100
+        var sb = new StringBuilder();
+        for (int i = 0; i < 2700; i++) {
+            sb.append(i == 2619 ? "BEGIN" : i == 2625 ? "END.." : "x".repeat(5)).append("x".repeat(94)).append('\n');
+        }
+        var source = source(content(sb.toString()));
+        for (Search search : List.of(Search.regexOf(source), Search.linearRegexOf(source))) {
+            List<Found> founds = new ArrayList<>();
+            search.forward("(?s)BEGIN.*?END", 0, 0, fic -> founds.addAll(fic.founds()));
+            assertEquals(List.of(new Found(261900, 603, 603)), founds);
+        }
+        // not found beyond the max span
+        List<Found> founds = new ArrayList<>();
+        Search.regexOf(source, 100).forward("(?s)BEGIN.*?END", 0, 0, fic -> founds.addAll(fic.founds()));
+        assertEquals(List.of(), founds);
+    }
+
+    @Test
+    void literalAcrossChunks() {
+        // the chunk boundary of the range search is at 262144
+        var source = source(content("a".repeat(262143) + "xyz\n"));
+        assertEquals(List.of(new Found(262143, 3, 3)), Search.of(source).all("xyz", 0, 0, 1, 0));
+        assertEquals(List.of(new Found(262143, 3, 3)), Search.regexOf(source).all("x.z", 0, 0, 1, 0));
+    }
+
+    @Test
+    void overlappedAcrossChunks() {
+        String text = "b" + "a".repeat(262145) + "\n";
+        var source = source(content(text));
+        List<Found> expected = new ArrayList<>();
+        for (int i = text.indexOf("aa"); i >= 0; i = text.indexOf("aa", i + 2)) {
+            expected.add(new Found(i, 2, 2));
+        }
+        assertEquals(expected, Search.of(source).all("aa", 0, 0, 1, 0));
+        assertEquals(expected, Search.regexOf(source).all("aa", 0, 0, 1, 0));
+        assertEquals(expected, Search.linearRegexOf(source).all("aa", 0, 0, 1, 0));
+    }
+
+    @Test
+    void forwardOnExecutor() throws Exception {
+        // rows across several chunks
+        var source = source(content(("a".repeat(99) + "\n").repeat(8000) + "bcd"));
+        List<Found> expected = new ArrayList<>();
+        Search.of(source).forward("a\na", 0, 0, fic -> expected.addAll(fic.founds()));
+        assertEquals(7999, expected.size());
+
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+            for (Search search : List.of(Search.of(source), Search.regexOf(source), Search.linearRegexOf(source))) {
+                List<Found> founds = new ArrayList<>();
+                search.forward("a\na", 0, 0, executor, fic -> founds.addAll(fic.founds())).get();
+                assertEquals(expected, founds);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void forwardCancelled() {
+        var cancelled = new AtomicBoolean();
+        var source = SearchSource.cancellable(source(content(("a".repeat(99) + "\n").repeat(8000))), cancelled::get);
+        List<Runnable> tasks = new ArrayList<>();
+        List<FoundsInChunk> notified = new ArrayList<>();
+
+        var future = Search.of(source).forward("ab", 0, 0, tasks::add, notified::add);
+        assertFalse(tasks.isEmpty());
+        cancelled.set(true);
+        tasks.forEach(Runnable::run);
+
+        assertTrue(future.isCancelled());
+        assertTrue(notified.isEmpty());
+    }
+
     private SearchSource source(Path path) {
         var pt = PieceTable.of(path);
         var index = Reader.of(path).index();
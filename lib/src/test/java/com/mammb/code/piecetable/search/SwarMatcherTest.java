@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import org.junit.jupiter.api.Test;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link SwarMatcher}.
+ * @author Naotsugu Kobayashi
+ */
+class SwarMatcherTest {
+
+    @Test
+    void indexOf() {
+        var seg = MemorySegment.ofArray("abcabdabcd".getBytes(StandardCharsets.UTF_8));
+        var target = new SwarMatcher("abcd".getBytes(StandardCharsets.UTF_8), false);
+        assertEquals(6, target.indexOf(seg, 0, seg.byteSize()));
+        assertEquals(-1, target.indexOf(seg, 0, 9));
+        assertEquals(-1, target.indexOf(seg, 7, seg.byteSize()));
+
+        var one = new SwarMatcher(new byte[] { 'd' }, false);
+        assertEquals(5, one.indexOf(seg, 0, seg.byteSize()));
+        assertEquals(9, one.indexOf(seg, 6, seg.byteSize()));
+        assertEquals(-1, one.indexOf(seg, 6, 9));
+    }
+
+    @Test
+    void indexOfRandom() {
+        var random = new Random(1);
+        byte[] text = new byte[5000];
+        for (int i = 0; i < text.length; i++) text[i] = (byte) ('a' + random.nextInt(3));
+        String str = new String(text, StandardCharsets.ISO_8859_1);
+        var seg = MemorySegment.ofArray(text);
+        for (String p : new String[] { "a", "ab", "aba", "cabba", "abcabcab", "bbbbbb", "abcabcabcabcabcabc" }) {
+            var target = new SwarMatcher(p.getBytes(StandardCharsets.ISO_8859_1), false);
+            for (int from = 0; from < text.length; from += 97) {
+                assertEquals((long) str.indexOf(p, from), target.indexOf(seg, from, text.length), p + " from " + from);
+            }
+        }
+    }
+
+    @Test
+    void ignoreCase() {
+        String text = "xx@ABC `abc Abc aBcあ [abc] ABCあ";
+        var seg = MemorySegment.ofArray(text.getBytes(StandardCharsets.UTF_8));
+        var target = new SwarMatcher("abc".getBytes(StandardCharsets.UTF_8), true);
+        assertEquals(3, target.indexOf(seg, 0, seg.byteSize()));
+        assertEquals(8, target.indexOf(seg, 4, seg.byteSize()));
+        assertEquals(12, target.indexOf(seg, 9, seg.byteSize()));
+        assertEquals(16, target.indexOf(seg, 13, seg.byteSize()));
+
+        // the bytes other than the letters are compared as they are
+        var symbol = new SwarMatcher("[ABCあ".getBytes(StandardCharsets.UTF_8), true);
+        assertEquals(-1, symbol.indexOf(seg, 0, seg.byteSize()));
+        var kana = new SwarMatcher("cあ".getBytes(StandardCharsets.UTF_8), true);
+        assertEquals(18, kana.indexOf(seg, 0, seg.byteSize()));
+    }
+
+    @Test
+    void ignoreCaseRandom() {
+        var random = new Random(2);
+        byte[] text = new byte[5000];
+        String letters = "aAbB@`[{";
+        for (int i = 0; i < text.length; i++) text[i] = (byte) letters.charAt(random.nextInt(letters.length()));
+        String lower = new String(text, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        var seg = MemorySegment.ofArray(text);
+        for (String p : new String[] { "a", "Ab", "b@", "`a", "ab[b", "AbAbA" }) {
+            var target = new SwarMatcher(p.getBytes(StandardCharsets.ISO_8859_1), true);
+            for (int from = 0; from < text.length; from += 89) {
+                assertEquals((long) lower.indexOf(p.toLowerCase(Locale.ROOT), from),
+                    target.indexOf(seg, from, text.length), p + " from " + from);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.search;
+
+import com.mammb.code.piecetable.PieceTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link TrigramIndex}.
+ * @author Naotsugu Kobayashi
+ */
+class TrigramIndexTest {
+
+    @Test
+    void filter() {
+        var pt = PieceTable.of(text().getBytes(StandardCharsets.UTF_8));
+        var index = TrigramIndex.of(source(pt, null), 256);
+
+        var filter = index.filter("needle".getBytes(StandardCharsets.UTF_8));
+        assertFalse(filter.test(0, 256));
+        assertTrue(filter.test(768, 1024));
+        assertTrue(filter.test(1792, 2048)); // crosses the block boundary
+        assertFalse(filter.test(2048, 4096));
+        assertFalse(index.filter("none".getBytes(StandardCharsets.UTF_8)).test(0, 4096));
+        assertTrue(index.filter("ne".getBytes(StandardCharsets.UTF_8)).test(0, 256));
+    }
+
+    @Test
+    void search() {
+        var pt = PieceTable.of(text().getBytes(StandardCharsets.UTF_8));
+        var source = source(pt, null);
+        var index = TrigramIndex.of(source, 256);
+        var indexed = source(pt, index);
+        assertEquals(List.of(new Found(1000, 6, 6)), new LiteralSearch(indexed).all("needle", 0, 0, 0, 4096));
+        assertEquals(List.of(new Found(1000, 6, 6), new Found(2046, 6, 6)),
+            new LiteralSearch(indexed, true).all("needle", 0, 0, 0, 4096));
+        assertEquals(new LiteralSearch(source, true).all("needle", 0, 0, 0, 4096),
+            new LiteralSearch(indexed, true).all("needle", 0, 0, 0, 4096));
+    }
+
+    @Test
+    void edit() {
+        var pt = PieceTable.of(text().getBytes(StandardCharsets.UTF_8));
+        var source = source(pt, null);
+        var index = TrigramIndex.of(source, 256);
+
+        pt.insert(10, "needle".getBytes(StandardCharsets.UTF_8));
+        index.insert(10, 6);
+        assertTrue(index.isDirty());
+        assertEquals(4102, index.length());
+        assertTrue(index.filter("needle".getBytes(StandardCharsets.UTF_8)).test(0, 256));
+        assertFalse(index.filter("needle".getBytes(StandardCharsets.UTF_8)).test(2054, 4102));
+
+        index.refresh(source);
+        assertFalse(index.isDirty());
+        var filter = index.filter("needle".getBytes(StandardCharsets.UTF_8));
+        assertTrue(filter.test(0, 256));
+        assertTrue(filter.test(1006, 1012));
+        assertEquals(List.of(new Found(10, 6, 6), new Found(1006, 6, 6)),
+            new LiteralSearch(source(pt, index)).all("needle", 0, 0, 0, 4102));
+
+        pt.delete(1000, 1000);
+        index.delete(1000, 1000);
+        index.refresh(source);
+        assertEquals(3102, index.length());
+        assertEquals(List.of(new Found(10, 6, 6), new Found(1052, 6, 6)),
+            new LiteralSearch(source(pt, index), true).all("needle", 0, 0, 0, 3102));
+    }
+
+    @Test
+    void saveAndLoad(@TempDir Path tempDir) {
+        var pt = PieceTable.of(text().getBytes(StandardCharsets.UTF_8));
+        var index = TrigramIndex.of(source(pt, null), 256);
+        Path path = tempDir.resolve("index");
+        index.save(path, 123L);
+
+        assertTrue(TrigramIndex.load(path, 4096, 124L).isEmpty());
+        assertTrue(TrigramIndex.load(path, 4095, 123L).isEmpty());
+        assertTrue(TrigramIndex.load(tempDir.resolve("none"), 4096, 123L).isEmpty());
+
+        var loaded = TrigramIndex.load(path, 4096, 123L).orElseThrow();
+        assertEquals(4096, loaded.length());
+        var filter = loaded.filter("needle".getBytes(StandardCharsets.UTF_8));
+        assertFalse(filter.test(0, 256));
+        assertTrue(filter.test(768, 1024));
+        assertTrue(filter.test(1792, 2048));
+    }
+
+    private String text() {
+        var sb = new StringBuilder("x".repeat(4096));
+        sb.replace(1000, 1006, "needle");
+        sb.replace(2046, 2052, "NEEDLE");
+        return sb.toString();
+    }
+
+    private SearchSource source(PieceTable pt, TrigramIndex trigrams) {
+        Charset charset = StandardCharsets.UTF_8;
+        return new SearchSource() {
+            @Override public Charset charset() {
+                return charset;
+            }
+            @Override public long length() {
+                return pt.length();
+            }
+            @Override public long serial(int row, int col) {
+                return col;
+            }
+            @Override public int[] pos(long offset) {
+                return new int[] { 0, Math.toIntExact(offset) };
+            }
+            @Override public long rowFloorOffset(long offset) {
+                return Math.min(offset, pt.length());
+            }
+            @Override public long rowCeilOffset(long offset) {
+                return Math.max(offset, 0);
+            }
+            @Override public long bufferRead(long offset, long length, ByteBuffer bb) {
+                return pt.read(offset, length, bb);
+            }
+            @Override public void bufferRead(long offset, long limitLength, Function<ByteBuffer, Boolean> traverseCallback) {
+                pt.read(offset, limitLength, traverseCallback);
+            }
+            @Override public TrigramIndex trigrams() {
+                return trigrams;
+            }
+        };
+    }
+
+}
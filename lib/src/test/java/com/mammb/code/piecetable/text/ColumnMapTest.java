@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.PieceTable;
+import org.junit.jupiter.api.Test;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link ColumnMap}.
+ * @author Naotsugu Kobayashi
+ */
+class ColumnMapTest {
+
+    @Test
+    void shortRow() {
+        var target = columnMap("abあい😊c\nd", StandardCharsets.UTF_8);
+        assertEquals(0, target.asRawCol(0, 0));
+        assertEquals(2, target.asRawCol(0, 2));
+        assertEquals(5, target.asRawCol(0, 3));
+        assertEquals(8, target.asRawCol(0, 4));
+        assertEquals(12, target.asRawCol(0, 6));
+        assertEquals(13, target.asRawCol(0, 7));
+        assertEquals(14, target.asRawCol(0, 100));
+        assertEquals(1, target.asRawCol(1, 1));
+
+        assertEquals(2, target.asCol(0, 2));
+        assertEquals(3, target.asCol(0, 5));
+        assertEquals(6, target.asCol(0, 12));
+        assertEquals(8, target.asCol(0, 14));
+    }
+
+    @Test
+    void longRow() {
+        String row = "aあ😊b".repeat(3000);
+        assertColumns(row + "\n" + row, StandardCharsets.UTF_8);
+        assertColumns(row + "\n" + row, StandardCharsets.UTF_16LE);
+        String ms932 = "aあb".repeat(3000);
+        assertColumns(ms932 + "\n" + ms932, Charset.forName("windows-31j"));
+    }
+
+    @Test
+    void rowOverBlocks() {
+        // the row spans several decode blocks, with multibyte chars across the block boundaries
+        String unit = "aあ😊b";
+        int units = ColumnMap.BLOCK / 9 * 3 + 1;
+        var target = columnMap(unit.repeat(units), StandardCharsets.UTF_8);
+
+        // the head of the row, then the tail, then back to the middle
+        assertEquals(9, target.asRawCol(0, 5));
+        assertEquals(9L * units, target.asRawCol(0, 5 * units));
+        int mid = units / 2;
+        assertEquals(9 * mid + 4, target.asRawCol(0, 5 * mid + 2));
+        assertEquals(5 * mid + 2, target.asCol(0, 9 * mid + 4));
+        assertEquals(5 * units, target.asCol(0, 9 * units));
+        for (int i = units - 3; i < units; i++) {
+            assertEquals(9 * i + 1, target.asRawCol(0, 5 * i + 1));
+            assertEquals(5 * i + 4, target.asCol(0, 9 * i + 8));
+        }
+    }
+
+    @Test
+    void invalidate() {
+        byte[] bytes = "a".repeat(5000).getBytes(StandardCharsets.UTF_8);
+        var pt = PieceTable.of(bytes);
+        var index = Reader.of(bytes).index();
+        var target = new ColumnMap(pt, index, StandardCharsets.UTF_8, 0);
+        assertEquals(4000, target.asRawCol(0, 4000));
+
+        byte[] ins = "あ".getBytes(StandardCharsets.UTF_8);
+        pt.insert(0, ins);
+        index.insert(0, 0, ins);
+        target.invalidate(0, 0);
+        assertEquals(4002, target.asRawCol(0, 4000));
+        assertEquals(4000, target.asCol(0, 4002));
+    }
+
+    @Test
+    void asciiRow() {
+        byte[] bytes = "abc\nあいう\n".getBytes(StandardCharsets.UTF_8);
+        var index = Reader.of(bytes).index();
+        var target = new ColumnMap(PieceTable.of(bytes), index, StandardCharsets.UTF_8, 0);
+        assertEquals(2, target.asRawCol(0, 2));
+        assertEquals(RowIndex.ASCII, index.rowKind(0));
+        assertEquals(6, target.asRawCol(1, 2));
+        assertEquals(RowIndex.NON_ASCII, index.rowKind(1));
+        assertEquals(2, target.asCol(1, 6));
+    }
+
+    @Test
+    void malformedUtf8() {
+        // the malformed sequences are replaced by the decoder
+        byte[] bytes = { 'a', (byte) 0xe3, (byte) 0x81, 'b', (byte) 0xff, 'c', (byte) 0xe3, (byte) 0x81, (byte) 0x82 };
+        var index = Reader.of(bytes).index();
+        var target = new ColumnMap(PieceTable.of(bytes), index, StandardCharsets.UTF_8, 0);
+        String decoded = new String(bytes, StandardCharsets.UTF_8);
+        assertEquals("a\ufffdb\ufffdcあ", decoded);
+        assertEquals(1, target.asRawCol(0, 1));
+        assertEquals(3, target.asRawCol(0, 2));
+        assertEquals(4, target.asRawCol(0, 3));
+        assertEquals(6, target.asRawCol(0, 5));
+        assertEquals(9, target.asRawCol(0, 6));
+        assertEquals(6, target.asCol(0, 9));
+    }
+
+    private static void assertColumns(String text, Charset charset) {
+        var target = columnMap(text, charset);
+        String[] rows = text.split("(?<=\n)");
+        for (int row = 0; row < rows.length; row++) {
+            String str = rows[row];
+            for (int col = 0; col <= str.length(); col += 7) {
+                if (col < str.length() && Character.isLowSurrogate(str.charAt(col))) {
+                    continue; // in the middle of a surrogate pair
+                }
+                int rawCol = str.substring(0, col).getBytes(charset).length;
+                assertEquals(rawCol, target.asRawCol(row, col), "row:" + row + " col:" + col);
+                assertEquals(col, target.asCol(row, rawCol), "row:" + row + " rawCol:" + rawCol);
+            }
+        }
+    }
+
+    private static ColumnMap columnMap(String text, Charset charset) {
+        byte[] bytes = text.getBytes(charset);
+        var index = RowIndex.of(charset);
+        index.add(bytes);
+        index.buildStCache();
+        return new ColumnMap(PieceTable.of(bytes), index, charset, 0);
+    }
+
+}
@@ -17,6 +17,11 @@ package com.mammb.code.piecetable.text;
 
 import com.mammb.code.piecetable.Document;
 import com.mammb.code.piecetable.PieceTable;
+import com.mammb.code.piecetable.Pos;
+import com.mammb.code.piecetable.PosLen;
+import com.mammb.code.piecetable.RowEnding;
+import com.mammb.code.piecetable.SearchContext;
+import com.mammb.code.piecetable.Segment;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -24,6 +29,11 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -159,4 +169,512 @@ class DocumentImplTest {
 
     }
 
+    @Test
+    void writeCharset(@TempDir Path tempDir) throws IOException {
+
+        var path = tempDir.resolve("test.txt");
+        // (UTF-8 BOM) a b CR LF あ
+        Files.write(path, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 0x61, 0x62, 0x0d, 0x0a, (byte) 0xe3, (byte) 0x81, (byte) 0x82 });
+
+        var doc = Document.of(path);
+        doc.insert(1, 1, "\nc");
+
+        var utf16 = tempDir.resolve("utf16.txt");
+        doc.write(utf16, StandardCharsets.UTF_16LE, RowEnding.LF);
+        assertEquals("ab\nあ\nc", Files.readString(utf16, StandardCharsets.UTF_16LE));
+
+        var utf8 = tempDir.resolve("utf8.txt");
+        doc.write(utf8, StandardCharsets.UTF_8, null);
+        assertArrayEquals(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }, Arrays.copyOf(Files.readAllBytes(utf8), 3));
+        assertEquals("\uFEFFab\r\nあ\nc", Files.readString(utf8, StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> doc.write(path, StandardCharsets.UTF_16LE, null));
+        assertEquals("ab\r\n", doc.getText(0).toString());
+
+    }
+
+    @Test
+    void progressive(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("progressive.txt");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            sb.append("row").append(i).append("あ\n");
+        }
+        sb.append("last");
+        Files.writeString(path, sb.toString(), StandardCharsets.UTF_8);
+
+        var doc = DocumentImpl.progressiveOf(path, null);
+        assertEquals("row0あ\n", doc.getText(0).toString());
+        assertTrue(doc.rows() >= 1);
+
+        // waits for the rows beyond the indexed frontier
+        assertEquals("row99999あ\n", doc.getText(99_999).toString());
+        assertEquals("last", doc.getText(100_000).toString());
+        assertFalse(doc.loading());
+        assertEquals(100_001, doc.rows());
+        assertEquals(Files.size(path), doc.rawSize());
+        assertEquals(new Pos(100_000, 0), doc.pos(doc.serial(100_000, 0)));
+        doc.close();
+    }
+
+    @Test
+    void progressiveEdit(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("progressive.txt");
+        Files.writeString(path, "abc\n".repeat(200_000), StandardCharsets.UTF_8);
+
+        var doc = DocumentImpl.progressiveOf(path, null);
+        doc.insert(0, 0, "x\ny");
+        doc.delete(199_999, 1, "bc\na");
+        assertEquals("x\n", doc.getText(0).toString());
+        assertEquals("yabc\n", doc.getText(1).toString());
+        assertEquals("abc\n", doc.getText(199_999).toString());
+        assertEquals("abc\n", doc.getText(199_998).toString());
+        assertEquals("", doc.getText(200_000).toString());
+        assertFalse(doc.loading());
+        assertEquals(200_001, doc.rows());
+        doc.close();
+    }
+
+    @Test
+    void progressiveRowEnding(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("progressive.txt");
+        // the head chunk has no row break
+        Files.writeString(path, "a".repeat(ProgressiveReader.CHUNK_SIZE) + "abc\r\n".repeat(100_000),
+            StandardCharsets.UTF_8);
+
+        var doc = DocumentImpl.progressiveOf(path, null);
+        assertEquals("abc\r\n", doc.getText(99_999).toString());
+        assertEquals("", doc.getText(100_000).toString());
+        assertFalse(doc.loading());
+        assertEquals(RowEnding.CRLF, doc.rowEnding());
+        doc.close();
+    }
+
+    @Test
+    void progressiveCrOnlyHead(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("progressive.txt");
+        // the head chunk has CR but no LF, the whole file has LF
+        Files.writeString(path, "a\r".repeat(ProgressiveReader.CHUNK_SIZE) + "b\n".repeat(1_000),
+            StandardCharsets.UTF_8);
+
+        var doc = DocumentImpl.progressiveOf(path, null);
+        // the rows read so far may be joined until the reading is completed
+        while (doc.loading()) {
+            Thread.sleep(10);
+        }
+        assertEquals("", doc.getText(1_000).toString());
+        assertEquals(1_001, doc.rows());
+        assertEquals("a\r".repeat(ProgressiveReader.CHUNK_SIZE) + "b\n", doc.getText(0).toString());
+        assertEquals("b\n", doc.getText(999).toString());
+        doc.close();
+    }
+
+    @Test
+    void progressiveCrOnlyTail(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("progressive.txt");
+        // the head chunk has no row break, the whole file has CR only
+        Files.writeString(path, "a".repeat(ProgressiveReader.CHUNK_SIZE) + "b\r".repeat(1_000),
+            StandardCharsets.UTF_8);
+
+        var doc = DocumentImpl.progressiveOf(path, null);
+        // the rows read so far may be joined until the reading is completed
+        while (doc.loading()) {
+            Thread.sleep(10);
+        }
+        assertEquals("", doc.getText(1_000).toString());
+        assertEquals(1_001, doc.rows());
+        assertEquals("b\r", doc.getText(999).toString());
+        assertEquals(RowEnding.CR, doc.rowEnding());
+        doc.close();
+    }
+
+    @Test
+    void progressiveTruncated(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("progressive.txt");
+        Files.writeString(path, "abc\n".repeat(8_000_000), StandardCharsets.UTF_8);
+
+        var doc = DocumentImpl.progressiveOf(path, null);
+        // truncates the file while reading in the background
+        Files.write(path, new byte[0]);
+        assertThrows(RuntimeException.class, () -> doc.getText(7_999_999));
+        // fails again, not blocks
+        assertThrows(RuntimeException.class, () -> doc.getText(7_999_999));
+        doc.close();
+    }
+
+    @Test
+    void load(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("load.txt");
+        Files.writeString(path, "abc\n".repeat(200_000), StandardCharsets.UTF_8);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var handle = Document.load(path, executor, 4, null);
+            var doc = handle.future().join();
+            assertEquals(200_001, doc.rows());
+            assertEquals("abc\n", doc.getText(199_999).toString());
+            assertEquals(Files.size(path), handle.progress().fraction());
+            assertEquals(Files.size(path), handle.progress().whole());
+            assertFalse(handle.isCancelled());
+        }
+    }
+
+    @Test
+    void loadCancel(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("load.txt");
+        Files.writeString(path, "abc\n".repeat(200_000), StandardCharsets.UTF_8);
+        var tasks = new ArrayList<Runnable>();
+        var handle = Document.load(path, tasks::add, 4, null);
+        handle.cancel();
+        tasks.getFirst().run();
+        assertTrue(handle.isCancelled());
+        assertTrue(handle.future().isCancelled());
+    }
+
+    @Test
+    void charOffset() {
+        var doc = DocumentImpl.of();
+        doc.insert(0, 0, "ab\nあい\n𠀋c");
+        assertEquals(0, doc.charOffset(0));
+        assertEquals(3, doc.charOffset(3));
+        assertEquals(4, doc.charOffset(6));
+        assertEquals(6, doc.charOffset(10));
+        assertEquals(8, doc.charOffset(14));
+        assertEquals(9, doc.charOffset(15));
+
+        assertEquals(0, doc.byteOffset(0));
+        assertEquals(9, doc.byteOffset(5));
+        assertEquals(10, doc.byteOffset(6));
+        assertEquals(14, doc.byteOffset(8));
+        assertEquals(15, doc.byteOffset(9));
+        assertThrows(IndexOutOfBoundsException.class, () -> doc.byteOffset(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> doc.charOffset(16));
+    }
+
+    @Test
+    void charOffsetEdit() {
+        var doc = DocumentImpl.of();
+        doc.insert(0, 0, "abc\nあいう\nxyz\n");
+        assertEquals(12, doc.charOffset(doc.rawSize()));
+
+        doc.insert(1, 1, "え");
+        assertEquals(13, doc.charOffset(doc.rawSize()));
+        assertEquals(5, doc.charOffset(doc.serial(1, 1)));
+
+        doc.insert(0, 1, "1\n2\n");
+        assertEquals(17, doc.charOffset(doc.rawSize()));
+        assertEquals(doc.serial(3, 3), doc.byteOffset(11));
+
+        doc.delete(0, 1, "1\n2\nbc\nあ");
+        assertEquals(9, doc.charOffset(doc.rawSize()));
+        assertEquals("aえいう\n", doc.getText(0).toString());
+        assertEquals(doc.serial(1, 1), doc.byteOffset(6));
+        assertEquals(6, doc.charOffset(doc.serial(1, 1)));
+    }
+
+    @Test
+    void charOffsetEditRows() {
+        var doc = DocumentImpl.of();
+        doc.insert(0, 0, "abc\nあいう\n".repeat(50));
+        assertEquals(400, doc.charOffset(doc.rawSize()));
+        var random = new Random(1);
+        String[] texts = { "x", "1\n", "あ\nい\n", "\n\n\n" };
+        for (int n = 0; n < 200; n++) {
+            int row = random.nextInt(doc.rows() - 1);
+            if (random.nextBoolean()) {
+                doc.insert(row, 0, texts[random.nextInt(texts.length)]);
+            } else {
+                doc.delete(row, 0, doc.getText(row).toString());
+            }
+            String text = doc.getText(0, doc.rows()).toString();
+            assertEquals(text.length(), doc.charOffset(doc.rawSize()));
+            int r = random.nextInt(doc.rows());
+            long chars = doc.getText(0, r).toString().length();
+            assertEquals(chars, doc.charOffset(doc.serial(r, 0)));
+            assertEquals(doc.serial(r, 0), doc.byteOffset(chars));
+        }
+    }
+
+    @Test
+    void getTextRows(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("rows.txt");
+        Files.writeString(path, "abc\nあいう\n𠀋\nxyz", StandardCharsets.UTF_8);
+        var doc = DocumentImpl.of(path);
+        doc.insert(1, 1, "え");
+        doc.insert(3, 0, "1\n");
+        assertEquals("abc\nあえいう\n𠀋\n1\nxyz", doc.getText(0, doc.rows()).toString());
+        assertEquals("あえいう\n𠀋\n", doc.getText(1, 3).toString());
+        assertEquals("xyz", doc.getText(4, 10).toString());
+        assertEquals("", doc.getText(2, 2).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> doc.getText(2, 1));
+        doc.close();
+    }
+
+    @Test
+    void getTextRange() {
+        var doc = DocumentImpl.of();
+        doc.insert(0, 0, "abc\nあいう\n𠀋z");
+        assertEquals("c\nあい", doc.getText(new Pos(0, 2), new Pos(1, 2)).toString());
+        assertEquals("c\nあい", doc.getText(new Pos(1, 2), new Pos(0, 2)).toString());
+        assertEquals("う\n𠀋", doc.getText(new Pos(1, 2), new Pos(2, 2)).toString());
+        assertEquals("", doc.getText(new Pos(1, 1), new Pos(1, 1)).toString());
+    }
+
+    @Test
+    void textCache() {
+        var doc = DocumentImpl.of();
+        doc.insert(0, 0, "abc\ndef\nghi\n");
+        assertEquals("def\n", doc.getText(1).toString());
+        assertEquals("def\n", doc.getText(1).toString());
+        assertEquals(1, doc.textCacheStats().hits());
+
+        doc.insert(0, 1, "1\n2");
+        assertEquals("a1\n", doc.getText(0).toString());
+        assertEquals("2bc\n", doc.getText(1).toString());
+        assertEquals("def\n", doc.getText(2).toString());
+        assertEquals("ghi\n", doc.getText(3).toString());
+
+        doc.delete(1, 3, 2);
+        assertEquals("2bcef\n", doc.getText(1).toString());
+        assertEquals("ghi\n", doc.getText(2).toString());
+        assertEquals("", doc.getText(3).toString());
+    }
+
+    @Test
+    void textCacheWindow() {
+        var bytes = "\uFEFFabc\nあいう\n".getBytes(StandardCharsets.UTF_16LE);
+        var doc = DocumentImpl.of(bytes);
+        assertEquals("あいう\n", doc.getText(1).toString());
+        // the window covering the whole row is served from the cache, the byte length is 8
+        assertEquals("あいう\n", doc.getText(new Pos(1, 0), new Pos(1, 4)).toString());
+        assertEquals(1, doc.textCacheStats().hits());
+        assertEquals("あい", doc.getText(new Pos(1, 0), new Pos(1, 2)).toString());
+        assertEquals(1, doc.textCacheStats().hits());
+    }
+
+    @Test
+    void textWindowBeyondRows() {
+        var doc = DocumentImpl.of("abc\nあい".getBytes(StandardCharsets.UTF_8));
+        assertEquals("", doc.getText(new Pos(100, 0), new Pos(100, 10)).toString());
+    }
+
+    @Test
+    void crOnly() {
+        var doc = DocumentImpl.of("ab\rcd\ref".getBytes(StandardCharsets.UTF_8));
+        assertEquals(RowEnding.CR, doc.rowEnding());
+        assertEquals(3, doc.rows());
+        assertEquals("cd\r", doc.getText(1).toString());
+
+        doc.insert(1, 1, "x\ry");
+        assertEquals(4, doc.rows());
+        assertEquals("cx\r", doc.getText(1).toString());
+        assertEquals("yd\r", doc.getText(2).toString());
+
+        doc.delete(0, 2, 2);
+        assertEquals(3, doc.rows());
+        assertEquals("abx\r", doc.getText(0).toString());
+    }
+
+    @Test
+    void searchIncremental() throws Exception {
+        // sparse enough to be refined
+        var doc = DocumentImpl.of(("abc abd\naab abc\n" + "x".repeat(1000)).getBytes(StandardCharsets.UTF_8));
+        var sc = doc.search();
+        var segments = new ArrayList<Segment.Valued<List<PosLen>>>();
+        List<Runnable> tasks = new ArrayList<>();
+        List<Runnable> owner = new ArrayList<>();
+        Runnable drain = () -> {
+            tasks.forEach(Runnable::run);
+            tasks.clear();
+            owner.forEach(Runnable::run);
+            owner.clear();
+        };
+
+        var handle = sc.findAllIncremental(new SearchContext.Spec("ab", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, segments::add);
+        drain.run();
+        handle.future().get();
+        assertEquals(List.of(new PosLen(0, 0, 2), new PosLen(0, 4, 2), new PosLen(1, 1, 2), new PosLen(1, 4, 2)), sc.founds());
+
+        // refined on the calling thread
+        segments.clear();
+        handle = sc.findAllIncremental(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, segments::add);
+        assertTrue(handle.future().isDone());
+        assertTrue(tasks.isEmpty());
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 4, 3)), sc.founds());
+        assertEquals(1, segments.size());
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 4, 3)), segments.getFirst().value());
+
+        // shrunk, the refined founds are kept until the rescan completes
+        handle = sc.findAllIncremental(new SearchContext.Spec("a", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, segments::add);
+        assertFalse(handle.future().isDone());
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 4, 3)), sc.founds());
+
+        // extended again before the rescan completes, refined from the founds shown
+        var refined = sc.findAllIncremental(new SearchContext.Spec("abc ", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, segments::add);
+        assertTrue(handle.isCancelled());
+        assertTrue(refined.future().isDone());
+        drain.run();
+        assertTrue(handle.future().isCancelled());
+        assertEquals(List.of(new PosLen(0, 0, 4)), sc.founds());
+
+        handle = sc.findAllIncremental(new SearchContext.Spec("a", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, segments::add);
+        drain.run();
+        assertEquals(5, sc.founds().size());
+
+        // the edit makes a new occurrence
+        doc.insert(1, 0, "abcd");
+        sc.findAllIncremental(new SearchContext.Spec("abcd", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, segments::add);
+        drain.run();
+        assertEquals(List.of(new PosLen(1, 0, 4)), sc.founds());
+    }
+
+    @Test
+    void searchIncrementalAfterMulti() {
+        var doc = DocumentImpl.of(("abc xyz\nabc\n" + "x".repeat(1000)).getBytes(StandardCharsets.UTF_8));
+        var sc = doc.search();
+        sc.findAllIncremental(new SearchContext.Spec("ab", SearchContext.PatternCase.LITERAL), Runnable::run, Runnable::run, s -> { });
+        sc.findAll(List.of(new SearchContext.Spec("xyz", SearchContext.PatternCase.LITERAL)), s -> { });
+
+        // not refined from the founds of the other specifications, but searched again
+        List<Runnable> tasks = new ArrayList<>();
+        var handle = sc.findAllIncremental(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), tasks::add, Runnable::run, s -> { });
+        assertFalse(handle.future().isDone());
+        tasks.forEach(Runnable::run);
+        assertTrue(handle.future().isDone());
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3)), sc.founds());
+    }
+
+    @Test
+    void searchLive() {
+        var doc = DocumentImpl.of("abc xyz\nabc\n".getBytes(StandardCharsets.UTF_8));
+        var sc = doc.search();
+        sc.live(true);
+        sc.findAll(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), s -> { });
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3)), sc.founds());
+
+        doc.insert(0, 4, "abc");
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(0, 4, 3), new PosLen(1, 0, 3)), sc.founds());
+
+        // the deletion joins a new occurrence
+        doc.insert(1, 3, " abxc");
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(0, 4, 3), new PosLen(1, 0, 3)), sc.founds());
+        doc.delete(1, 6, "x");
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(0, 4, 3), new PosLen(1, 0, 3), new PosLen(1, 4, 3)), sc.founds());
+
+        // the edit breaks an occurrence
+        doc.delete(0, 1, "b");
+        assertEquals(List.of(new PosLen(0, 3, 3), new PosLen(1, 0, 3), new PosLen(1, 4, 3)), sc.founds());
+
+        sc.clear();
+        sc.findAll(new SearchContext.Spec("a.c", SearchContext.PatternCase.REGEX), s -> { });
+        assertEquals(List.of(new PosLen(0, 3, 3), new PosLen(1, 0, 3), new PosLen(1, 4, 3)), sc.founds());
+        doc.insert(1, 7, " a-c");
+        assertEquals(List.of(new PosLen(0, 3, 3), new PosLen(1, 0, 3), new PosLen(1, 4, 3), new PosLen(1, 8, 3)), sc.founds());
+
+        // not live
+        sc.live(false);
+        doc.insert(0, 0, "abc");
+        assertEquals(List.of(new PosLen(0, 6, 3), new PosLen(1, 0, 3), new PosLen(1, 4, 3), new PosLen(1, 8, 3)), sc.founds());
+    }
+
+    @Test
+    void searchOnExecutor() throws Exception {
+        var doc = DocumentImpl.of("abc xyz\nabc\n".getBytes(StandardCharsets.UTF_8));
+        var sc = doc.search();
+        List<Runnable> tasks = new ArrayList<>();
+        List<Runnable> owner = new ArrayList<>();
+        List<Segment.Valued<List<PosLen>>> segments = new ArrayList<>();
+        var spec = new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL);
+
+        var handle = sc.findAll(spec, tasks::add, owner::add, segments::add);
+        assertTrue(doc.readonly());
+        tasks.forEach(Runnable::run);
+        assertFalse(doc.readonly());
+        // the founds are applied on the owner thread
+        assertTrue(segments.isEmpty());
+        assertFalse(sc.hasFounds());
+        assertFalse(handle.future().isDone());
+        owner.forEach(Runnable::run);
+        handle.future().get();
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3)), segments.getFirst().value());
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3)), sc.founds());
+        assertEquals(doc.rawSize(), handle.progress().fraction());
+
+        // the cancelled search keeps the founds, and releases the document
+        tasks.clear();
+        owner.clear();
+        handle = sc.findAll(new SearchContext.Spec("xyz", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, s -> { });
+        handle.cancel();
+        tasks.forEach(Runnable::run);
+        owner.forEach(Runnable::run);
+        assertTrue(handle.future().isCancelled());
+        assertFalse(doc.readonly());
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3)), sc.founds());
+
+        // the edit before the founds are applied supersedes the search
+        tasks.clear();
+        owner.clear();
+        handle = sc.findAll(new SearchContext.Spec("xyz", SearchContext.PatternCase.LITERAL), tasks::add, owner::add, s -> { });
+        tasks.forEach(Runnable::run);
+        doc.insert(0, 0, "-");
+        owner.forEach(Runnable::run);
+        assertTrue(handle.future().isCancelled());
+        assertEquals(List.of(new PosLen(0, 1, 3), new PosLen(1, 0, 3)), sc.founds());
+    }
+
+    @Test
+    void searchOverlapped() throws Exception {
+        var doc = DocumentImpl.of("abc xyz\nabc\n".getBytes(StandardCharsets.UTF_8));
+        var sc = doc.search();
+        List<Runnable> tasks1 = new ArrayList<>();
+        List<Runnable> tasks2 = new ArrayList<>();
+        List<Runnable> owner = new ArrayList<>();
+
+        var handle1 = sc.findAll(new SearchContext.Spec("xyz", SearchContext.PatternCase.LITERAL), tasks1::add, owner::add, s -> { });
+        var handle2 = sc.findAll(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), tasks2::add, owner::add, s -> { });
+        assertTrue(handle1.isCancelled());
+
+        // the cancelled search drains while the other one still reads the document
+        tasks1.forEach(Runnable::run);
+        assertTrue(doc.readonly());
+        doc.insert(0, 0, "-");
+        assertEquals("abc xyz\n", doc.getText(0).toString());
+
+        tasks2.forEach(Runnable::run);
+        assertFalse(doc.readonly());
+        owner.forEach(Runnable::run);
+        assertTrue(handle1.future().isCancelled());
+        handle2.future().get();
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3)), sc.founds());
+
+        // the readonly set explicitly is kept apart from the searches
+        doc.readonly(true);
+        owner.clear();
+        var handle3 = sc.findAll(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), Runnable::run, owner::add, s -> { });
+        owner.forEach(Runnable::run);
+        handle3.future().get();
+        assertTrue(doc.readonly());
+    }
+
+    @Test
+    void searchIndex(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("test.txt");
+        Files.writeString(path, "abc\nxyz\nabc\n");
+        Path sidecar = tempDir.resolve("test.txt.idx");
+
+        var doc = DocumentImpl.of(path);
+        doc.searchIndex(sidecar);
+        assertTrue(Files.exists(sidecar));
+        var sc = doc.search();
+        sc.findAll(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), s -> { });
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(2, 0, 3)), sc.founds());
+        doc.close();
+
+        doc = DocumentImpl.of(path);
+        doc.searchIndex(sidecar);
+        doc.insert(1, 0, "abc");
+        sc = doc.search();
+        sc.findAll(new SearchContext.Spec("abc", SearchContext.PatternCase.LITERAL), s -> { });
+        assertEquals(List.of(new PosLen(0, 0, 3), new PosLen(1, 0, 3), new PosLen(2, 0, 3)), sc.founds());
+        doc.close();
+    }
+
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.charset.CharsetMatches;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link IndexCache}.
+ * @author Naotsugu Kobayashi
+ */
+class IndexCacheTest {
+
+    @Test
+    void storeAndLoad(@TempDir Path dir) throws IOException {
+        Path path = textFile(dir, "abc\r\nde\n😊".repeat(50_000));
+        var read = new ParallelReader(path, null, CharsetMatches.defaults());
+        var cache = IndexCache.of(dir.resolve("cache"));
+
+        assertTrue(cache.load(path).isEmpty());
+        cache.store(path, read);
+        assertTrue(Files.exists(cache.entryOf(path)));
+
+        var loaded = cache.load(path).orElseThrow();
+        assertEquals(read.charset(), loaded.charset());
+        assertEquals(read.crCount(), loaded.crCount());
+        assertEquals(read.lfCount(), loaded.lfCount());
+        assertArrayEquals(read.bom(), loaded.bom());
+        assertArrayEquals(read.index().rowLengths(), loaded.index().rowLengths());
+        assertArrayEquals(read.index().stCache(), loaded.index().stCache());
+    }
+
+    @Test
+    void storeAndLoadWithBom(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("bom.txt");
+        Files.write(path, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF });
+        Files.writeString(path, "abc\n".repeat(100_000), StandardOpenOption.APPEND);
+        var read = new ParallelReader(path, null, CharsetMatches.defaults());
+        var cache = IndexCache.of(dir.resolve("cache"));
+        cache.store(path, read);
+
+        var loaded = cache.load(path).orElseThrow();
+        assertArrayEquals(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF }, loaded.bom());
+        assertEquals(100_001, loaded.index().rowSize());
+    }
+
+    @Test
+    void storeAndLoadCrOnly(@TempDir Path dir) {
+        Path path = textFile(dir, "abc\r".repeat(100_000));
+        var read = new ParallelReader(path, null, CharsetMatches.defaults());
+        var cache = IndexCache.of(dir.resolve("cache"));
+        cache.store(path, read);
+
+        var loaded = cache.load(path).orElseThrow();
+        assertTrue(loaded.index().crOnly());
+        assertEquals(100_001, loaded.index().rowSize());
+        assertArrayEquals(read.index().rowLengths(), loaded.index().rowLengths());
+    }
+
+    @Test
+    void invalidatedByModification(@TempDir Path dir) throws IOException {
+        Path path = textFile(dir, "abc\n".repeat(100_000));
+        var cache = IndexCache.of(dir.resolve("cache"));
+        cache.store(path, new ParallelReader(path, null, CharsetMatches.defaults()));
+        FileTime mtime = Files.getLastModifiedTime(path);
+
+        // same size and same mtime, but different content
+        Files.writeString(path, "abc\n".repeat(50_000) + "xyz\n".repeat(50_000));
+        Files.setLastModifiedTime(path, mtime);
+        assertTrue(cache.load(path).isEmpty());
+
+        Files.writeString(path, "abc\n".repeat(100_001));
+        assertTrue(cache.load(path).isEmpty());
+    }
+
+    @Test
+    void smallFileIsNotStored(@TempDir Path dir) {
+        Path path = textFile(dir, "abc\n");
+        var cache = IndexCache.of(dir.resolve("cache"));
+        cache.store(path, new SeqReader(path, -1, null, CharsetMatches.defaults()));
+        assertFalse(Files.exists(cache.entryOf(path)));
+        assertTrue(cache.load(path).isEmpty());
+    }
+
+    @Test
+    void brokenEntry(@TempDir Path dir) throws IOException {
+        Path path = textFile(dir, "abc\n".repeat(100_000));
+        var cache = IndexCache.of(dir.resolve("cache"));
+        cache.store(path, new ParallelReader(path, null, CharsetMatches.defaults()));
+        Files.write(cache.entryOf(path), new byte[] { 1, 2, 3 });
+        assertTrue(cache.load(path).isEmpty());
+    }
+
+    @Test
+    void storeOnProgressiveCompletion(@TempDir Path dir) throws InterruptedException {
+        Path path = textFile(dir, "abc\r\nde\n".repeat(100_000));
+        var cache = IndexCache.of(dir.resolve("cache"));
+        var read = new ProgressiveReader(path, null, cache, CharsetMatches.defaults());
+        // adds the chunks to the index as the document does
+        for (var chunk = read.take(); chunk != ProgressiveReader.Chunk.LAST; chunk = read.take()) {
+            read.index().add(chunk.rows());
+        }
+        for (int i = 0; i < 100 && cache.load(path).isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        var loaded = cache.load(path).orElseThrow();
+        assertEquals(read.crCount(), loaded.crCount());
+        assertEquals(read.lfCount(), loaded.lfCount());
+        assertEquals(100_000, loaded.crCount());
+        assertEquals(200_001, loaded.index().rowSize());
+    }
+
+    @Test
+    void editedProgressiveIsNotStored(@TempDir Path dir) throws InterruptedException {
+        Path path = textFile(dir, "abc\r\nde\n".repeat(100_000));
+        var cache = IndexCache.of(dir.resolve("cache"));
+        var read = new ProgressiveReader(path, null, cache, CharsetMatches.defaults());
+        read.edited();
+        // adds the chunks to the index as the document does
+        for (var chunk = read.take(); chunk != ProgressiveReader.Chunk.LAST; chunk = read.take()) {
+            read.index().add(chunk.rows());
+        }
+        Thread.sleep(200);
+        assertTrue(cache.load(path).isEmpty());
+    }
+
+    @Test
+    void listenerOnCacheHit(@TempDir Path dir) {
+        Path path = textFile(dir, "abc\r\nde\n".repeat(100_000));
+        String key = "com.mammb.code.piecetable.text.indexCache";
+        System.setProperty(key, dir.resolve("cache").toString());
+        try {
+            Reader.of(path, null);
+            long[] read = new long[2];
+            Reader loaded = Reader.of(path, seg -> { read[0] += seg.fraction(); read[1] = seg.whole(); });
+            assertTrue(loaded instanceof IndexCache.Cached);
+            assertEquals(path.toFile().length(), read[0]);
+            assertEquals(path.toFile().length(), read[1]);
+        } finally {
+            System.clearProperty(key);
+        }
+    }
+
+    private static Path textFile(Path dir, String string) {
+        try {
+            Path path = dir.resolve("test.txt");
+            Files.writeString(path, string, StandardCharsets.UTF_8);
+            return path;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -24,6 +24,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -88,6 +90,83 @@ class ParallelReaderTest {
         assertEquals(cs, target.charset());
     }
 
+    @Test
+    void multiChunk() {
+        var sb = new StringBuilder();
+        for (int i = 0; i < 60_000; i++) {
+            sb.append("row").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 1000 == 0) sb.append("x".repeat(ParallelReader.CHUNK_SIZE / 3)).append('\n');
+        }
+        Path path = textFile(sb.toString());
+        var target = new ParallelReader(path, null, CharsetMatches.defaults());
+        var expected = new SeqReader(path, -1, null, CharsetMatches.defaults());
+        assertEquals(expected.crCount(), target.crCount());
+        assertEquals(expected.lfCount(), target.lfCount());
+        assertArrayEquals(expected.index().rowLengths(), target.index().rowLengths());
+    }
+
+    @Test
+    void multiChunkUtf16WithBom() throws IOException {
+        Path path = dir.resolve("utf16" + ".txt");
+        Files.write(path, ("ab\r\nあいう\n".repeat(50_000) + "end").getBytes(StandardCharsets.UTF_16));
+        var target = new ParallelReader(path, null, CharsetMatches.defaults());
+        var expected = new SeqReader(path, -1, null, CharsetMatches.defaults());
+        assertEquals(StandardCharsets.UTF_16BE, target.charset());
+        assertEquals(2, target.bom().length);
+        assertEquals(50_000, target.crCount());
+        assertEquals(100_000, target.lfCount());
+        assertEquals(6, target.index().rowLengths()[100_000]);
+        assertArrayEquals(expected.index().rowLengths(), target.index().rowLengths());
+    }
+
+    @Test
+    void multiChunkCrOnly() {
+        var sb = new StringBuilder();
+        for (int i = 0; i < 60_000; i++) {
+            sb.append("row").append(i).append('\r');
+            if (i % 1000 == 0) sb.append("x".repeat(ParallelReader.CHUNK_SIZE / 3)).append('\r');
+        }
+        Path path = textFile(sb.toString());
+        var target = new ParallelReader(path, null, CharsetMatches.defaults());
+        var expected = new SeqReader(path, -1, null, CharsetMatches.defaults());
+        assertTrue(target.index().crOnly());
+        assertEquals(60_060, target.crCount());
+        assertEquals(0, target.lfCount());
+        assertEquals(60_061, target.index().rowSize());
+        assertArrayEquals(expected.index().rowLengths(), target.index().rowLengths());
+    }
+
+    @Test
+    void crInLongHeadRow() {
+        // the head chunk has CR but no LF, the rows are still terminated by LF
+        String head = "x".repeat(ParallelReader.CHUNK_SIZE) + "\r" + "x".repeat(ParallelReader.CHUNK_SIZE);
+        Path path = textFile(head + "\nab\ncd");
+        var target = new ParallelReader(path, null, CharsetMatches.defaults());
+        assertFalse(target.index().crOnly());
+        assertEquals(1, target.crCount());
+        assertEquals(2, target.lfCount());
+        assertEquals(3, target.index().rowSize());
+        assertArrayEquals(new int[] { head.length() + 1, 3, 2 }, target.index().rowLengths());
+    }
+
+    @Test
+    void executorNeverRuns() {
+        Path path = textFile("abc\n".repeat(300_000));
+        // the tasks never run, the calling thread reads all the chunks
+        var target = new ParallelReader(path, null, _ -> { }, 8, () -> false, CharsetMatches.defaults());
+        assertEquals(300_000, target.lfCount());
+        assertEquals(300_001, target.index().rowSize());
+    }
+
+    @Test
+    void cancel() {
+        Path path = textFile("abc\n".repeat(300_000));
+        var count = new AtomicInteger();
+        assertThrows(CancellationException.class, () ->
+            new ParallelReader(path, _ -> count.incrementAndGet(), Runnable::run, 2,
+                () -> count.get() > 1, CharsetMatches.defaults()));
+    }
+
     private Path textFile(String text) {
         Path path = dir.resolve(UUID.randomUUID() + ".txt");
         try (var writer = Files.newBufferedWriter(path)) {
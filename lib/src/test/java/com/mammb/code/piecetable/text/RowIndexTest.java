@@ -65,6 +65,22 @@ class RowIndexTest {
 
     }
 
+    @Test
+    void addFollowing() {
+        var index = RowIndex.of(5, 0, null);
+        int[] crlf = index.addFollowing("ab\rc\rd".getBytes(), 0, 0);
+        assertArrayEquals(new int[] { 3, 2, 1 }, index.rowLengths());
+        // a line feed is read, the rows split by CR are joined
+        index.addFollowing("e\r\nf\rg".getBytes(), crlf[0], crlf[1]);
+        assertArrayEquals(new int[] { 9, 3 }, index.rowLengths());
+        assertEquals(12, index.get(2));
+
+        index = RowIndex.of(5, 0, null);
+        crlf = index.addFollowing("abc".getBytes(), 0, 0);
+        index.addFollowing("d\re\r".getBytes(), crlf[0], crlf[1]);
+        assertArrayEquals(new int[] { 5, 2, 0 }, index.rowLengths());
+    }
+
     @Test
     void get() {
         var index = RowIndex.of(5, 0, null);
@@ -500,4 +516,80 @@ class RowIndexTest {
         assertArrayEquals(new int[] {16, 16, 0}, intArray.get());
     }
 
+    @Test
+    void rowKind() {
+        var index = RowIndex.of();
+        index.add("ab\ncd\nef".getBytes());
+        assertEquals(RowIndex.UNKNOWN, index.rowKind(0));
+        index.rowKind(0, RowIndex.ASCII);
+        index.rowKind(1, RowIndex.ASCII);
+        index.rowKind(2, RowIndex.ASCII);
+
+        // |a|b|$|     |a|x|b|$|
+        // |c|d|$| ->  |c|d|$|
+        // |e|f|       |e|f|
+        index.insert(0, 1, "x".getBytes());
+        assertEquals(RowIndex.ASCII, index.rowKind(0));
+
+        // |a|x|b|$|     |a|あ|x|b|$|
+        index.insert(0, 1, "あ".getBytes(StandardCharsets.UTF_8));
+        assertEquals(RowIndex.NON_ASCII, index.rowKind(0));
+        assertEquals(RowIndex.ASCII, index.rowKind(1));
+
+        // |a|あ|x|b|$|     |a|b|$|
+        index.delete(0, 1, 4);
+        assertEquals(RowIndex.UNKNOWN, index.rowKind(0));
+        index.rowKind(0, RowIndex.ASCII);
+
+        // |a|b|$|      |a|$|
+        // |c|d|$|  ->  |1|$|
+        // |e|f|        |2|b|$|
+        //              |c|d|$|
+        //              |e|f|
+        index.insert(0, 1, "\n1\n2".getBytes());
+        assertEquals(5, index.rowSize());
+        assertEquals(RowIndex.ASCII, index.rowKind(0));
+        assertEquals(RowIndex.ASCII, index.rowKind(1));
+        assertEquals(RowIndex.ASCII, index.rowKind(2));
+        assertEquals(RowIndex.ASCII, index.rowKind(3));
+        assertEquals(RowIndex.ASCII, index.rowKind(4));
+
+        // |a|$|        |a|d|$|
+        // |1|$|   ->   |e|f|
+        // |2|b|$|
+        // |c|d|$|
+        // |e|f|
+        index.rowKind(3, RowIndex.NON_ASCII);
+        index.delete(0, 1, 7);
+        assertEquals(2, index.rowSize());
+        assertEquals(RowIndex.UNKNOWN, index.rowKind(0));
+        assertEquals(RowIndex.ASCII, index.rowKind(1));
+    }
+
+    @Test
+    void isAscii() {
+        assertEquals(true, RowIndex.isAscii(new byte[0]));
+        assertEquals(true, RowIndex.isAscii("abcdefghijklmn".getBytes()));
+        assertEquals(false, RowIndex.isAscii("abcdefghあ".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(false, RowIndex.isAscii("abcdefghijklmnあ".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void replace() {
+        var index = RowIndex.of();
+        index.add("ab\ncd\nef\ngh".getBytes());
+
+        // ab$ cd$ ef$ gh  ->  x$ yy x$ yyd$ e x$ yy h
+        index.replace(new long[] { 0, 4, 7 }, new int[] { 4, 0, 3 }, "x\nyy".getBytes(), null);
+        var expected = RowIndex.of();
+        expected.add("x\nyyx\nyyd\nex\nyyh".getBytes());
+        assertArrayEquals(expected.rowLengths(), index.rowLengths());
+        assertEquals(expected.get(3), index.get(3));
+
+        // the different replacements
+        index.replace(new long[] { 0, 5 }, new int[] { 2, 6 }, "ab\n".getBytes(), new int[] { 2, 1 });
+        expected = RowIndex.of();
+        expected.add("abyyx\nx\nyyh".getBytes());
+        assertArrayEquals(expected.rowLengths(), index.rowLengths());
+    }
 }
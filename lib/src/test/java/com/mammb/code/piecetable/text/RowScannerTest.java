@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import org.junit.jupiter.api.Test;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link RowScanner}.
+ * @author Naotsugu Kobayashi
+ */
+class RowScannerTest {
+
+    @Test
+    void utf8() {
+        assertScan("", StandardCharsets.UTF_8, 1);
+        assertScan("a", StandardCharsets.UTF_8, 1);
+        assertScan("\n", StandardCharsets.UTF_8, 1);
+        assertScan("abcdefg\nabcdefg\r\nabc", StandardCharsets.UTF_8, 1);
+        assertScan("\n\n\n\n\n\n\n\n\r\r\r\r\r\r\r\r\n", StandardCharsets.UTF_8, 1);
+        assertScan("あいう\r\nえお\n😊", StandardCharsets.UTF_8, 1);
+    }
+
+    @Test
+    void utf16() {
+        assertScan("ab\ncd\r\nefghijk\n", StandardCharsets.UTF_16LE, 2);
+        assertScan("ab\ncd\r\nefghijk\n", StandardCharsets.UTF_16BE, 2);
+        // U+0A0D, U+0D0A are not line breaks
+        assertScan("\u0A0D\u0D0A\n\u0D0A\n", StandardCharsets.UTF_16LE, 2);
+        assertScan("\u0A0D\u0D0A\n\u0D0A\n", StandardCharsets.UTF_16BE, 2);
+    }
+
+    @Test
+    void utf32() {
+        Charset le = Charset.forName("UTF-32LE");
+        Charset be = Charset.forName("UTF-32BE");
+        assertScan("ab\ncd\r\nefg\n", le, 4);
+        assertScan("ab\ncd\r\nefg\n", be, 4);
+        assertScan("\u0A00\n\u0D00\r\n", le, 4);
+        assertScan("\u0A00\n\u0D00\r\n", be, 4);
+    }
+
+    @Test
+    void random() {
+        var random = new Random(1);
+        String chars = "ab\r\nあ\u0A0D";
+        for (int n = 0; n < 200; n++) {
+            var sb = new StringBuilder();
+            int len = random.nextInt(100);
+            for (int i = 0; i < len; i++) {
+                sb.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            assertScan(sb.toString(), StandardCharsets.UTF_8, 1);
+            assertScan(sb.toString(), StandardCharsets.UTF_16LE, 2);
+            assertScan(sb.toString(), StandardCharsets.UTF_16BE, 2);
+            assertScan(sb.toString(), Charset.forName("UTF-32LE"), 4);
+        }
+    }
+
+    @Test
+    void range() {
+        byte[] bytes = "xx\nabcdefghijk\nlmn\nxx".getBytes(StandardCharsets.UTF_8);
+        var rows = IntArray.of();
+        int[] crlf = RowScanner.scan(MemorySegment.ofArray(bytes), 3, bytes.length - 2, 1, rows);
+        assertArrayEquals(new int[] { 12, 4, 0 }, rows.get());
+        assertArrayEquals(new int[] { 0, 2 }, crlf);
+    }
+
+    @Test
+    void crOnly() {
+        var random = new Random(2);
+        String chars = "ab\rあ\u0D0A";
+        for (int n = 0; n < 200; n++) {
+            var sb = new StringBuilder();
+            int len = random.nextInt(100);
+            for (int i = 0; i < len; i++) {
+                sb.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            for (var cs : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE }) {
+                String text = sb.toString();
+                byte[] bytes = text.getBytes(cs);
+                int units = RowIndex.byteUnitsOf(cs);
+                var seg = MemorySegment.ofArray(bytes);
+                var rows = IntArray.of();
+                int[] crlf = RowScanner.scan(seg, 0, bytes.length, units, true, rows);
+                String[] expected = text.split("\r", -1);
+                assertEquals(expected.length, rows.length(), text);
+                for (int i = 0; i < expected.length; i++) {
+                    int crLen = (i < expected.length - 1) ? units : 0;
+                    assertEquals(expected[i].getBytes(cs).length + crLen, rows.get(i), text);
+                }
+                assertArrayEquals(new int[] { expected.length - 1, 0 }, crlf, text);
+
+                var counts = RowScanner.count(seg, 0, bytes.length, units);
+                assertEquals(expected.length - 1, counts.breakCount(true), text);
+                int[] dst = new int[counts.breakCount(true)];
+                assertEquals(dst.length, RowScanner.fill(seg, 0, bytes.length, units, true, 0, dst, 0));
+                assertArrayEquals(Arrays.copyOf(rows.get(), dst.length), dst, text);
+            }
+        }
+    }
+
+    @Test
+    void isCrOnly() {
+        assertTrue(RowScanner.isCrOnly(MemorySegment.ofArray("a\rb\r".getBytes()), 0, 4, 1));
+        assertFalse(RowScanner.isCrOnly(MemorySegment.ofArray("a\r\nb".getBytes()), 0, 4, 1));
+        assertFalse(RowScanner.isCrOnly(MemorySegment.ofArray("ab".getBytes()), 0, 2, 1));
+    }
+
+    private static void assertScan(String text, Charset charset, int units) {
+        byte[] bytes = text.getBytes(charset);
+        var seg = MemorySegment.ofArray(bytes);
+
+        var expected = IntArray.of();
+        int[] expectedCrlf = RowScanner.scalarScan(seg, 0, bytes.length, units, expected);
+        var actual = IntArray.of();
+        int[] actualCrlf = RowScanner.scan(seg, 0, bytes.length, units, actual);
+
+        assertArrayEquals(expected.get(), actual.get(), text);
+        assertArrayEquals(expectedCrlf, actualCrlf, text);
+        assertEquals(text.split("\n", -1).length, actual.length(), text);
+        assertEquals((int) text.chars().filter(c -> c == '\r').count(), actualCrlf[0], text);
+    }
+
+}
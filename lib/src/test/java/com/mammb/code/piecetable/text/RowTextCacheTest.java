@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link RowTextCache}.
+ * @author Naotsugu Kobayashi
+ */
+class RowTextCacheTest {
+
+    @Test
+    void evict() {
+        var cache = RowTextCache.of(80);
+        cache.put(0, "0123456789");
+        cache.put(1, "0123456789");
+        assertNotNull(cache.get(0));
+        for (int i = 2; i < 9; i++) {
+            cache.put(i, "0123456789");
+        }
+        assertNotNull(cache.get(0));
+        assertNull(cache.get(1));
+        assertEquals(80, cache.stats().size());
+        cache.put(9, "0".repeat(11));
+        assertNull(cache.get(9));
+    }
+
+    @Test
+    void invalidateInsert() {
+        var cache = RowTextCache.of(1000);
+        for (int i = 0; i < 5; i++) cache.put(i, "row" + i);
+        cache.invalidate(2, 2);
+        assertEquals("row1", cache.get(1));
+        assertNull(cache.get(2));
+        assertNull(cache.get(3));
+        assertEquals("row3", cache.get(5));
+        assertEquals("row4", cache.get(6));
+        assertEquals(16, cache.stats().size());
+    }
+
+    @Test
+    void invalidateDelete() {
+        var cache = RowTextCache.of(1000);
+        for (int i = 0; i < 6; i++) cache.put(i, "row" + i);
+        cache.invalidate(1, -2);
+        assertEquals("row0", cache.get(0));
+        assertNull(cache.get(1));
+        assertEquals("row4", cache.get(2));
+        assertEquals("row5", cache.get(3));
+        assertNull(cache.get(4));
+    }
+
+    @Test
+    void invalidateKeepsAccessOrder() {
+        var cache = RowTextCache.of(80);
+        for (int i = 0; i < 8; i++) cache.put(i, "0123456789");
+        cache.get(5);
+        cache.invalidate(2, 1);
+        assertEquals(70, cache.stats().size());
+        cache.put(20, "0123456789");
+        cache.put(21, "0123456789");
+        // the least recently used row is evicted
+        assertNull(cache.get(0));
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(3));
+        assertNotNull(cache.get(4));
+        assertNotNull(cache.get(8));
+        assertEquals(80, cache.stats().size());
+
+        // the shifted row keeps its access order
+        cache.put(22, "0123456789");
+        cache.put(23, "0123456789");
+        assertNull(cache.get(5));
+        assertNull(cache.get(7));
+        assertNotNull(cache.get(6));
+    }
+
+    @Test
+    void stats() {
+        var cache = RowTextCache.of(1000);
+        cache.put(0, "a");
+        cache.get(0);
+        cache.get(0);
+        cache.get(1);
+        cache.get(0);
+        var stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.75, stats.hitRate());
+        assertEquals(1000, stats.capacity());
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.RowEnding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link SampledStatImpl}.
+ * @author Naotsugu Kobayashi
+ */
+class SampledStatImplTest {
+
+    @Test
+    void exact(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("small.txt");
+        Files.writeString(path, "abc\r\nあいう\r\n", StandardCharsets.UTF_8);
+
+        var stat = SampledStatImpl.of(path, 4);
+        assertTrue(stat.exact());
+        assertEquals(StandardCharsets.UTF_8, stat.charset());
+        assertEquals(RowEnding.CRLF, stat.rowEnding());
+        assertEquals(3, stat.rows());
+        assertEquals(0, stat.rowsError());
+    }
+
+    @Test
+    void sampled(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("large.txt");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            sb.append("row").append(i % 10).append("あいう").append(i % 3 == 0 ? "えお" : "").append('\n');
+        }
+        Files.writeString(path, sb.toString(), StandardCharsets.UTF_8);
+
+        var stat = SampledStatImpl.of(path, 16);
+        assertFalse(stat.exact());
+        assertEquals(Files.size(path), stat.size());
+        assertEquals(StandardCharsets.UTF_8, stat.charset());
+        assertEquals(RowEnding.LF, stat.rowEnding());
+        assertTrue(stat.crCount() + stat.lfCount() < 100_000);
+        assertEquals(100_001, stat.rows(), Math.max(stat.rowsError(), 1000));
+        assertTrue(stat.rowsError() < 5000);
+        assertEquals(Files.size(path) / 100_001.0, stat.avgRowLength(), 1.0);
+    }
+
+    @Test
+    void sampledUtf16(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("utf16.txt");
+        // contains bom
+        Files.writeString(path, "abcdefg\r".repeat(50_000), StandardCharsets.UTF_16);
+
+        var stat = SampledStatImpl.of(path, 8);
+        assertFalse(stat.exact());
+        assertEquals(StandardCharsets.UTF_16BE, stat.charset());
+        assertEquals(2, stat.bom().length);
+        assertEquals(RowEnding.CR, stat.rowEnding());
+        assertEquals(50_001, stat.rows(), Math.max(stat.rowsError(), 10));
+    }
+
+    @Test
+    void sampledMs932(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("ms932.txt");
+        Charset ms932 = Charset.forName("windows-31j");
+        Files.writeString(path, "あいうえお漢字かな\n".repeat(20_000), ms932);
+
+        var stat = SampledStatImpl.of(path, 8);
+        assertFalse(stat.exact());
+        assertEquals(ms932, stat.charset());
+        assertEquals(20_001, stat.rows(), Math.max(stat.rowsError(), 100));
+    }
+
+}
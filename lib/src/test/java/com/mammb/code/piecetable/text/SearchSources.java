@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.CharsetMatch;
+import com.mammb.code.piecetable.PieceTable;
+import com.mammb.code.piecetable.search.SearchSource;
+import java.nio.charset.Charset;
+
+/**
+ * The {@link SearchSource}s for the tests of search.
+ * @author Naotsugu Kobayashi
+ */
+public final class SearchSources {
+
+    private SearchSources() { }
+
+    /**
+     * Create the {@link SearchSource} of the text on a piece table.
+     * @param text the text
+     * @param charset the charset of the text
+     * @return the {@link SearchSource}
+     */
+    public static SearchSource of(String text, Charset charset) {
+        return of(text.getBytes(charset), charset);
+    }
+
+    /**
+     * Create the {@link SearchSource} of the bytes on a piece table.
+     * @param bytes the bytes
+     * @param charset the charset of the bytes
+     * @return the {@link SearchSource}
+     */
+    public static SearchSource of(byte[] bytes, Charset charset) {
+        var pt = PieceTable.of(bytes);
+        var reader = Reader.of(bytes, CharsetMatch.of(charset));
+        int bom = reader.bom().length;
+        return new SearchSourceImpl(pt, reader.index(), reader.charset(), bom,
+            new ColumnMap(pt, reader.index(), reader.charset(), bom), null);
+    }
+
+}
@@ -74,6 +74,50 @@ class SeqReaderTest {
         assertEquals(2, target.index().rowLengths()[1]);
     }
 
+    @Test
+    void crOnly() {
+        var target = new SeqReader(textFile("abc\rde\r\rf"), -1, null, CharsetMatches.defaults());
+        assertEquals(3, target.crCount());
+        assertEquals(0, target.lfCount());
+        assertTrue(target.index().crOnly());
+        assertEquals(4, target.index().rowSize());
+        assertArrayEquals(new int[] { 4, 3, 1, 1 }, Arrays.copyOf(target.index().rowLengths(), 4));
+    }
+
+    @Test
+    void crInLongHeadRow() {
+        // the head chunk has CR but no LF, the rows are still terminated by LF
+        String head = "x".repeat(ParallelReader.CHUNK_SIZE) + "\r" + "x".repeat(ParallelReader.CHUNK_SIZE);
+        var target = new SeqReader(textFile(head + "\nab\ncd"), -1, null, CharsetMatches.defaults());
+        assertFalse(target.index().crOnly());
+        assertEquals(1, target.crCount());
+        assertEquals(2, target.lfCount());
+        assertEquals(3, target.index().rowSize());
+        assertArrayEquals(new int[] { head.length() + 1, 3, 2 }, Arrays.copyOf(target.index().rowLengths(), 3));
+    }
+
+    @Test
+    void progress() throws IOException {
+        // the row ending of the head is not the one of the whole file
+        String head = "x\r".repeat(ParallelReader.CHUNK_SIZE);
+        Path path = textFile(head + "\nab\ncd");
+        long[] read = new long[2];
+        var target = new SeqReader(path, -1, seg -> { read[0] += seg.fraction(); read[1] = seg.whole(); },
+            CharsetMatches.defaults());
+        assertEquals(3, target.index().rowSize());
+        assertEquals(Files.size(path), read[0]);
+        assertEquals(Files.size(path), read[1]);
+
+        // the byte order mark is counted once
+        var os = new ByteArrayOutputStream();
+        os.write(Bom.UTF_8);
+        os.write("abc\n".repeat(50_000).getBytes(StandardCharsets.UTF_8));
+        Files.write(path, os.toByteArray());
+        read[0] = 0;
+        new SeqReader(path, -1, seg -> read[0] += seg.fraction(), CharsetMatches.defaults());
+        assertEquals(Files.size(path), read[0]);
+    }
+
     @Test
     void charsetWindows31j() throws IOException {
         Path path = dir.resolve("ms932" + ".txt");
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.PieceTable;
+import com.mammb.code.piecetable.RowEnding;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link StreamTranscoder}.
+ * @author Naotsugu Kobayashi
+ */
+class StreamTranscoderTest {
+
+    @Test
+    void transcode() throws IOException {
+        String text = "abあい😊c\r\nd\re\n";
+        assertEquals(text, transcode(text, StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, null, 1024));
+        assertEquals(text, transcode(text, StandardCharsets.UTF_16LE, StandardCharsets.UTF_8, null, 1024));
+        assertEquals("abあい😊c\nd\ne\n", transcode(text, StandardCharsets.UTF_8, StandardCharsets.UTF_8, RowEnding.LF, 1024));
+        assertEquals("abあい😊c\rd\re\r", transcode(text, StandardCharsets.UTF_8, StandardCharsets.UTF_8, RowEnding.CR, 1024));
+        assertEquals("abあい😊c\r\nd\r\ne\r\n", transcode(text, StandardCharsets.UTF_8, StandardCharsets.UTF_8, RowEnding.CRLF, 1024));
+    }
+
+    @Test
+    void splitAcrossBuffers() throws IOException {
+        // the multibyte chars, the surrogate pairs and the CRLF pairs are split at every offset
+        String text = "a😊\r\nあ\r\n\r\n😊😊\rい\n".repeat(50);
+        for (RowEnding rowEnding : new RowEnding[] { null, RowEnding.LF, RowEnding.CR, RowEnding.CRLF }) {
+            String expected = (rowEnding == null) ? text : rowEnding.unify(text).toString();
+            for (int size = 16; size < 24; size++) {
+                assertEquals(expected, transcode(text, StandardCharsets.UTF_8, StandardCharsets.UTF_16BE, rowEnding, size));
+                assertEquals(expected, transcode(text, StandardCharsets.UTF_16BE, StandardCharsets.UTF_8, rowEnding, size));
+            }
+        }
+    }
+
+    @Test
+    void unmappable() throws IOException {
+        assertEquals("a?b", transcode("aあb", StandardCharsets.UTF_8, StandardCharsets.US_ASCII, null, 1024));
+    }
+
+    @Test
+    void range() throws IOException {
+        byte[] bytes = "abcde".getBytes(StandardCharsets.UTF_8);
+        var out = new ByteArrayOutputStream();
+        long written = StreamTranscoder.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, null)
+            .transcode(PieceTable.of(bytes), 1, 3, Channels.newChannel(out));
+        assertEquals(6, written);
+        assertEquals("bcd", out.toString(StandardCharsets.UTF_16LE));
+    }
+
+    private static String transcode(String text, Charset from, Charset to, RowEnding rowEnding, int size) throws IOException {
+        byte[] bytes = text.getBytes(from);
+        var out = new ByteArrayOutputStream();
+        long written = StreamTranscoder.of(from, to, rowEnding, size)
+            .transcode(PieceTable.of(bytes), 0, bytes.length, Channels.newChannel(out));
+        assertEquals(out.size(), written);
+        return out.toString(to);
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import com.mammb.code.piecetable.PieceTable;
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link Transcoder}.
+ * @author Naotsugu Kobayashi
+ */
+class TranscoderTest {
+
+    @Test
+    void decode() {
+        byte[] bytes = "abあい𠀋".getBytes(StandardCharsets.UTF_8);
+        var target = Transcoder.of(PieceTable.of(bytes), StandardCharsets.UTF_8, 0);
+        assertEquals("abあい𠀋", target.decode(0, bytes.length));
+        assertEquals("あい", target.decode(2, 6));
+        assertEquals("", target.decode(2, 0));
+    }
+
+    @Test
+    void decodeWithBom() {
+        byte[] bytes = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', 'b', 'c' };
+        var target = Transcoder.of(PieceTable.of(bytes), StandardCharsets.UTF_8, 3);
+        assertEquals("bc", target.decode(1, 2));
+    }
+
+    @Test
+    void decodeMalformed() {
+        byte[] bytes = { 'a', (byte) 0xE3, (byte) 0x81, 'b' };
+        var target = Transcoder.of(PieceTable.of(bytes), StandardCharsets.UTF_8, 0);
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), target.decode(0, bytes.length));
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), target.decode(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void decodeLarge() {
+        String str = "あいう\n".repeat(Transcoder.MAX_BUFFER);
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        var target = Transcoder.of(PieceTable.of(bytes), StandardCharsets.UTF_8, 0);
+        assertEquals(str, target.decode(0, bytes.length));
+        assertEquals("あいう\n", target.decode(0, 10));
+    }
+
+    @Test
+    void encode() {
+        for (Charset cs : new Charset[] {
+                StandardCharsets.UTF_8, StandardCharsets.UTF_16BE,
+                StandardCharsets.ISO_8859_1, Charset.forName("MS932") }) {
+            var target = Transcoder.of(PieceTable.of(), cs, 0);
+            for (String str : new String[] { "", "abc", "aあ𠀋b", "x\uD800y", "Ω€" }) {
+                assertArrayEquals(str.getBytes(cs), target.encode(str), cs + ":" + str);
+                assertEquals(str.getBytes(cs).length, target.encodedLength(str), cs + ":" + str);
+            }
+        }
+    }
+
+}
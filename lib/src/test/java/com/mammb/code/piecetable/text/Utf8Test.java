@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mammb.code.piecetable.text;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test of {@link Utf8}.
+ * @author Naotsugu Kobayashi
+ */
+class Utf8Test {
+
+    @Test
+    void rawLength() {
+        byte[] bytes = "aあ😊b".getBytes(StandardCharsets.UTF_8);
+        assertEquals(0, Utf8.rawLength(bytes, 0));
+        assertEquals(1, Utf8.rawLength(bytes, 1));
+        assertEquals(4, Utf8.rawLength(bytes, 2));
+        assertEquals(4, Utf8.rawLength(bytes, 3)); // not split a surrogate pair
+        assertEquals(8, Utf8.rawLength(bytes, 4));
+        assertEquals(9, Utf8.rawLength(bytes, 5));
+        assertEquals(9, Utf8.rawLength(bytes, 100));
+    }
+
+    @Test
+    void charLength() {
+        assertEquals(0, Utf8.charLength(new byte[0]));
+        assertEquals(5, Utf8.charLength("aあ😊b".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void malformed() {
+        assertEquals(-1, Utf8.charLength(new byte[] { (byte) 0xe3, (byte) 0x81 }));
+        assertEquals(-1, Utf8.charLength(new byte[] { (byte) 0xc0, (byte) 0x80 }));
+        assertEquals(-1, Utf8.charLength(new byte[] { (byte) 0xed, (byte) 0xa0, (byte) 0x80 }));
+        assertEquals(-1, Utf8.charLength(new byte[] { (byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80 }));
+        assertEquals(-1, Utf8.rawLength(new byte[] { 'a', (byte) 0x80 }, 2));
+        assertEquals(1, Utf8.rawLength(new byte[] { 'a', (byte) 0x80 }, 1));
+    }
+
+}